@@ -160,6 +160,16 @@ public class DataFile extends DvObject implements Comparable {
     @Expose
     private boolean restricted;
     
+    /**
+     * The sizes of the thumbnails already generated (and cached as auxiliary
+     * objects) for this file, comma-separated, so that pages can decide
+     * whether to show a thumbnail without probing the storage. Only written
+     * with native updates (see {@link DataFileServiceBean#recordThumbnailSize(Long, int)}),
+     * so that saving a stale copy of the file never drops a size.
+     */
+    @Column(nullable = true, insertable = false, updatable = false)
+    private String thumbnailSizes;
+    
     @Expose
     @Column(columnDefinition = "TEXT", nullable = true, name="prov_entityname")
     private String provEntityName;
@@ -662,6 +672,39 @@ public class DataFile extends DvObject implements Comparable {
         this.restricted = restricted;
     }
 
+    public String getThumbnailSizes() {
+        return thumbnailSizes;
+    }
+
+    public void setThumbnailSizes(String thumbnailSizes) {
+        this.thumbnailSizes = thumbnailSizes;
+    }
+
+    /**
+     * @param size a thumbnail size
+     * @return whether a thumbnail of this size is known to be cached
+     */
+    public boolean isThumbnailSizeAvailable(int size) {
+        if (thumbnailSizes == null || thumbnailSizes.isEmpty()) {
+            return false;
+        }
+        return ("," + thumbnailSizes + ",").contains("," + size + ",");
+    }
+
+    /**
+     * Records (in memory only) that a thumbnail of this size is cached.
+     *
+     * @param size a thumbnail size
+     * @return {@code false} if the size was already recorded
+     */
+    public boolean addThumbnailSize(int size) {
+        if (isThumbnailSizeAvailable(size)) {
+            return false;
+        }
+        thumbnailSizes = (thumbnailSizes == null || thumbnailSizes.isEmpty()) ? String.valueOf(size) : thumbnailSizes + "," + size;
+        return true;
+    }
+
     public ChecksumType getChecksumType() {
         return checksumType;
     }
@@ -4,6 +4,7 @@ import edu.harvard.iq.dataverse.DatasetVersion.VersionState;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
+import edu.harvard.iq.dataverse.dataaccess.S3AccessIO;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.harvest.client.HarvestingClient;
 import edu.harvard.iq.dataverse.ingest.IngestServiceBean;
@@ -18,6 +19,7 @@ import edu.harvard.iq.dataverse.util.SystemConfig;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -40,6 +42,7 @@ import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
+import org.apache.commons.lang3.StringUtils;
 
 /**
  *
@@ -71,6 +74,9 @@ public class DataFileServiceBean implements java.io.Serializable {
     @EJB
     StorageUseServiceBean storageUseService; 
     
+    @EJB
+    ThumbnailServiceBean thumbnailService;
+    
     @PersistenceContext(unitName = "VDCNet-ejbPU")
     private EntityManager em;
     
@@ -402,26 +408,60 @@ public class DataFileServiceBean implements java.io.Serializable {
     }
 
     public DataFile findCheapAndEasy(Long id) {
-        DataFile dataFile;
+        if (id == null) {
+            return null;
+        }
+        return findCheapAndEasy(List.of(id)).get(id);
+    }
+
+    /**
+     * Batch version of {@link #findCheapAndEasy(Long)}: looks up the files with
+     * the given ids in 1 query (plus 2 more for the data tables and tags of any
+     * tabular files among them), without instantiating the full entities.
+     *
+     * @param ids the ids of the files
+     * @return the (non-mergeable) files found, by id
+     */
+    public Map<Long, DataFile> findCheapAndEasy(Collection<Long> ids) {
+        Map<Long, DataFile> dataFiles = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return dataFiles;
+        }
 
-        Object[] result;
+        List<Object[]> results;
 
         try {
-            result = (Object[]) em.createNativeQuery("SELECT t0.ID, t0.CREATEDATE, t0.INDEXTIME, t0.MODIFICATIONTIME, t0.PERMISSIONINDEXTIME, t0.PERMISSIONMODIFICATIONTIME, t0.PUBLICATIONDATE, t0.CREATOR_ID, t0.RELEASEUSER_ID, t0.PREVIEWIMAGEAVAILABLE, t1.CONTENTTYPE, t0.STORAGEIDENTIFIER, t1.FILESIZE, t1.INGESTSTATUS, t1.CHECKSUMVALUE, t1.RESTRICTED, t3.ID, t2.AUTHORITY, t2.IDENTIFIER, t1.CHECKSUMTYPE, t1.PREVIOUSDATAFILEID, t1.ROOTDATAFILEID, t0.AUTHORITY, T0.PROTOCOL, T0.IDENTIFIER, t2.PROTOCOL FROM DVOBJECT t0, DATAFILE t1, DVOBJECT t2, DATASET t3 WHERE ((t0.ID = " + id + ") AND (t0.OWNER_ID = t2.ID) AND (t2.ID = t3.ID) AND (t1.ID = t0.ID))").getSingleResult();
+            results = em.createNativeQuery("SELECT t0.ID, t0.CREATEDATE, t0.INDEXTIME, t0.MODIFICATIONTIME, t0.PERMISSIONINDEXTIME, t0.PERMISSIONMODIFICATIONTIME, t0.PUBLICATIONDATE, t0.CREATOR_ID, t0.RELEASEUSER_ID, t0.PREVIEWIMAGEAVAILABLE, t1.CONTENTTYPE, t0.STORAGEIDENTIFIER, t1.FILESIZE, t1.INGESTSTATUS, t1.CHECKSUMVALUE, t1.RESTRICTED, t3.ID, t2.AUTHORITY, t2.IDENTIFIER, t1.CHECKSUMTYPE, t1.PREVIOUSDATAFILEID, t1.ROOTDATAFILEID, t0.AUTHORITY, T0.PROTOCOL, T0.IDENTIFIER, t2.PROTOCOL, t0.PREVIEWIMAGEFAIL, t1.THUMBNAILSIZES FROM DVOBJECT t0, DATAFILE t1, DVOBJECT t2, DATASET t3 WHERE ((t0.ID IN (" + StringUtils.join(ids, ", ") + ")) AND (t0.OWNER_ID = t2.ID) AND (t2.ID = t3.ID) AND (t1.ID = t0.ID))").getResultList();
         } catch (Exception ex) {
-            return null;
+            return dataFiles;
         }
 
-        if (result == null) {
-            return null;
+        Map<Long, DataFile> tabularFiles = new HashMap<>();
+
+        for (Object[] result : results) {
+            DataFile dataFile = cheapAndEasyDataFile(result);
+            dataFiles.put(dataFile.getId(), dataFile);
+
+            // If content type indicates it's tabular data, we'll need to look 
+            // up the data table and tabular tags objects too:
+            String contentType = dataFile.getContentType();
+            if (MIME_TYPE_TSV.equalsIgnoreCase(contentType) || MIME_TYPE_TSV_ALT.equalsIgnoreCase(contentType)) {
+                tabularFiles.put(dataFile.getId(), dataFile);
+            }
         }
 
-        Integer file_id = (Integer) result[0];
+        if (!tabularFiles.isEmpty()) {
+            addCheapAndEasyDataTables(tabularFiles);
+        }
+
+        return dataFiles;
+    }
 
-        dataFile = new DataFile();
+    private DataFile cheapAndEasyDataFile(Object[] result) {
+        DataFile dataFile = new DataFile();
         dataFile.setMergeable(false);
 
-        dataFile.setId(file_id.longValue());
+        dataFile.setId(((Number) result[0]).longValue());
 
         Timestamp createDate = (Timestamp) result[1];
         Timestamp indexTime = (Timestamp) result[2];
@@ -512,7 +552,7 @@ public class DataFileServiceBean implements java.io.Serializable {
 
         
         // TODO: check for nulls
-        owner.setId((Long)result[16]);
+        owner.setId(((Number) result[16]).longValue());
         owner.setAuthority((String)result[17]);
         owner.setIdentifier((String)result[18]);
 
@@ -556,60 +596,80 @@ public class DataFileServiceBean implements java.io.Serializable {
         
         dataFile.setOwner(owner);
 
-        // If content type indicates it's tabular data, spend 2 extra queries 
-        // looking up the data table and tabular tags objects:
-        
-        if (MIME_TYPE_TSV.equalsIgnoreCase(contentType) || MIME_TYPE_TSV_ALT.equalsIgnoreCase(contentType)) {
-            Object[] dtResult;
-            try {
-                dtResult = (Object[]) em.createNativeQuery("SELECT ID, UNF, CASEQUANTITY, VARQUANTITY, ORIGINALFILEFORMAT, ORIGINALFILESIZE FROM dataTable WHERE DATAFILE_ID = " + id).getSingleResult();
-            } catch (Exception ex) {
-                dtResult = null;
+        Boolean previewImageFail = (Boolean) result[26];
+        if (previewImageFail != null) {
+            dataFile.setPreviewImageFail(previewImageFail);
+        }
+
+        dataFile.setThumbnailSizes((String) result[27]);
+
+        return dataFile;
+    }
+
+    private void addCheapAndEasyDataTables(Map<Long, DataFile> tabularFiles) {
+        String fileIds = StringUtils.join(tabularFiles.keySet(), ", ");
+
+        List<Object[]> dtResults;
+        try {
+            dtResults = em.createNativeQuery("SELECT ID, UNF, CASEQUANTITY, VARQUANTITY, ORIGINALFILEFORMAT, ORIGINALFILESIZE, DATAFILE_ID FROM dataTable WHERE DATAFILE_ID IN (" + fileIds + ")").getResultList();
+        } catch (Exception ex) {
+            dtResults = null;
+        }
+
+        if (dtResults == null || dtResults.isEmpty()) {
+            return;
+        }
+
+        for (Object[] dtResult : dtResults) {
+            DataFile dataFile = tabularFiles.get(((Number) dtResult[6]).longValue());
+            if (dataFile == null || dataFile.getDataTable() != null) {
+                continue;
             }
-        
-            if (dtResult != null) {
-                DataTable dataTable = new DataTable(); 
 
-                dataTable.setId(((Integer) dtResult[0]).longValue());
-            
-                dataTable.setUnf((String)dtResult[1]);
+            DataTable dataTable = new DataTable(); 
+
+            dataTable.setId(((Number) dtResult[0]).longValue());
+        
+            dataTable.setUnf((String)dtResult[1]);
+        
+            dataTable.setCaseQuantity((Long)dtResult[2]);
+        
+            dataTable.setVarQuantity((Long)dtResult[3]);
+        
+            dataTable.setOriginalFileFormat((String)dtResult[4]);
             
-                dataTable.setCaseQuantity((Long)dtResult[2]);
+            dataTable.setOriginalFileSize((Long)dtResult[5]);
             
-                dataTable.setVarQuantity((Long)dtResult[3]);
+            dataTable.setDataFile(dataFile);
+            dataFile.setDataTable(dataTable);
+        }
+        
+        // tabular tags: 
+        
+        List<Object[]> tagResults;
+        try {
+            tagResults = em.createNativeQuery("SELECT t.TYPE, t.DATAFILE_ID FROM DATAFILETAG t WHERE t.DATAFILE_ID IN (" + fileIds + ")").getResultList();
+        } catch (Exception ex) {
+            logger.info("EXCEPTION looking up tags.");
+            tagResults = null;
+        }
+        
+        if (tagResults != null) {
+            List<String> fileTagLabels = DataFileTag.listTags();
             
-                dataTable.setOriginalFileFormat((String)dtResult[4]);
-                
-                dataTable.setOriginalFileSize((Long)dtResult[5]);
-                
-                dataTable.setDataFile(dataFile);
-                dataFile.setDataTable(dataTable);
-                
-                // tabular tags: 
-                
-                List<Object[]> tagResults;
-                try {
-                    tagResults = em.createNativeQuery("SELECT t.TYPE, t.DATAFILE_ID FROM DATAFILETAG t WHERE t.DATAFILE_ID = " + id).getResultList();
-                } catch (Exception ex) {
-                    logger.info("EXCEPTION looking up tags.");
-                    tagResults = null;
-                }
-                
-                if (tagResults != null) {
-                    List<String> fileTagLabels = DataFileTag.listTags();
-                    
-                    for (Object[] tagResult : tagResults) {
-                        Integer tagId = (Integer)tagResult[0];
-                        DataFileTag tag = new DataFileTag();
-                        tag.setTypeByLabel(fileTagLabels.get(tagId));
-                        tag.setDataFile(dataFile);
-                        dataFile.addTag(tag);
-                    }
+            for (Object[] tagResult : tagResults) {
+                DataFile dataFile = tabularFiles.get(((Number) tagResult[1]).longValue());
+                // (tags are only looked up for files with a data table)
+                if (dataFile == null || dataFile.getDataTable() == null) {
+                    continue;
                 }
+                Integer tagId = (Integer)tagResult[0];
+                DataFileTag tag = new DataFileTag();
+                tag.setTypeByLabel(fileTagLabels.get(tagId));
+                tag.setDataFile(dataFile);
+                dataFile.addTag(tag);
             }
         }
-        
-        return dataFile;
     }
     
     private List<AuthenticatedUser> retrieveFileAccessRequesters(DataFile fileIn) {
@@ -929,8 +989,10 @@ public class DataFileServiceBean implements java.io.Serializable {
     
     /*
      * This method will return true if the thumbnail is *actually available* and
-     * ready to be downloaded. (it will try to generate a thumbnail for supported
-     * file types, if not yet available)
+     * ready to be downloaded. It only looks at the persisted thumbnail status
+     * of the file, and never at the storage; if no thumbnail has been generated
+     * yet (and generating one hasn't failed before), it requests one from the
+     * background thumbnail workers and returns false for now.
      */
     public boolean isThumbnailAvailable (DataFile file) {
         if (file == null) {
@@ -961,17 +1023,48 @@ public class DataFileServiceBean implements java.io.Serializable {
         
         */
         
-        file = this.find(file.getId());
-        if (ImageThumbConverter.isThumbnailAvailable(file)) {
-            file.setPreviewImageAvailable(true);
-            this.save(file);
-            return true;
+        // Nor if a previous attempt to generate one has failed:
+        if (file.isPreviewImageFail()) {
+            return false;
         }
-        file.setPreviewImageFail(true);
-        file.setPreviewImageAvailable(false);
-        this.save(file);
+        
+        thumbnailService.requestThumbnail(file.getId(), ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE);
         return false;
     }
+    
+    /**
+     * Persists that a thumbnail of the given size has been generated (or found
+     * cached) for a file, which also marks the file as having a preview image.
+     *
+     * @param fileId the id of the file
+     * @param size the thumbnail size
+     */
+    public void recordThumbnailSize(Long fileId, int size) {
+        em.createNativeQuery("UPDATE datafile SET thumbnailsizes = CASE WHEN thumbnailsizes IS NULL OR thumbnailsizes = '' THEN ?2 ELSE thumbnailsizes || ',' || ?2 END "
+                + "WHERE id = ?1 AND (thumbnailsizes IS NULL OR NOT (',' || thumbnailsizes || ',') LIKE ('%,' || ?2 || ',%'))")
+                .setParameter(1, fileId)
+                .setParameter(2, String.valueOf(size))
+                .executeUpdate();
+        em.createNativeQuery("UPDATE dvobject SET previewimageavailable = true WHERE id = ?1 AND previewimageavailable = false")
+                .setParameter(1, fileId)
+                .executeUpdate();
+    }
+    
+    /**
+     * Persists that no thumbnail can be generated for a file, so that pages
+     * and the thumbnail workers stop trying. Cleared with the
+     * {@code admin/clearThumbnailFailureFlag} API.
+     *
+     * @param fileId the id of the file
+     */
+    public void recordThumbnailFailure(Long fileId) {
+        em.createNativeQuery("UPDATE dvobject SET previewimagefail = true, previewimageavailable = false WHERE id = ?1")
+                .setParameter(1, fileId)
+                .executeUpdate();
+        em.createNativeQuery("UPDATE datafile SET thumbnailsizes = NULL WHERE id = ?1")
+                .setParameter(1, fileId)
+                .executeUpdate();
+    }
 
     
     /* 
@@ -1194,6 +1287,23 @@ public class DataFileServiceBean implements java.io.Serializable {
     public void populateFileSearchCard(SolrSearchResult solrSearchResult) {
         solrSearchResult.setEntity(this.findCheapAndEasy(solrSearchResult.getEntityId()));
     }
+
+    /**
+     * Populates the file cards of a page of search results, looking up all
+     * their files at once.
+     *
+     * @param solrSearchResults the file cards
+     */
+    public void populateFileSearchCards(List<SolrSearchResult> solrSearchResults) {
+        Set<Long> fileIds = new HashSet<>();
+        for (SolrSearchResult solrSearchResult : solrSearchResults) {
+            fileIds.add(solrSearchResult.getEntityId());
+        }
+        Map<Long, DataFile> dataFiles = findCheapAndEasy(fileIds);
+        for (SolrSearchResult solrSearchResult : solrSearchResults) {
+            solrSearchResult.setEntity(dataFiles.get(solrSearchResult.getEntityId()));
+        }
+    }
     
     public boolean hasBeenDeleted(DataFile df){
         Dataset dataset = df.getOwner();
@@ -1283,6 +1393,52 @@ public class DataFileServiceBean implements java.io.Serializable {
         });
     }
     
+    /**
+     * Like {@link #finalizeFileDeletes(Map)}, for all the files of a dataset
+     * that has been destroyed: the files on S3 stores are deleted with their
+     * aux objects in batched requests, rather than one file at a time.
+     *
+     * @param storageLocations the locations of the files, by datafile id
+     */
+    public void finalizeDatasetFileDeletes(Map<Long, String> storageLocations) {
+        if (storageLocations.isEmpty()) {
+            return;
+        }
+        // Verify that the DataFiles no longer exist:
+        List<Long> existing = em.createQuery("SELECT o.id FROM DataFile o WHERE o.id IN :ids", Long.class)
+                .setParameter("ids", storageLocations.keySet())
+                .getResultList();
+        Map<Long, String> others = new HashMap<>();
+        Map<String, List<String>> s3LocationsByDriver = new HashMap<>();
+        for (Map.Entry<Long, String> entry : storageLocations.entrySet()) {
+            String storageLocation = entry.getValue();
+            if (existing.contains(entry.getKey())) {
+                logger.warning("Attempted to permanently delete a physical file still associated with an existing DvObject "
+                        + "(id: " + entry.getKey() + ", location: " + storageLocation);
+                continue;
+            }
+            String[] driverIdAndLocation = DataAccess.getDriverIdAndStorageLocation(storageLocation);
+            if (DataAccess.S3.equals(DataAccess.getDriverType(driverIdAndLocation[0]))) {
+                s3LocationsByDriver.computeIfAbsent(driverIdAndLocation[0], d -> new ArrayList<>()).add(driverIdAndLocation[1]);
+            } else {
+                others.put(entry.getKey(), storageLocation);
+            }
+        }
+        for (Map.Entry<String, List<String>> driver : s3LocationsByDriver.entrySet()) {
+            try {
+                int failed = S3AccessIO.deleteFileObjects(driver.getKey(), driver.getValue());
+                if (failed > 0) {
+                    logger.warning("Failed to delete " + failed + " of the physical objects of " + driver.getValue().size()
+                            + " deleted datafiles in storage " + driver.getKey());
+                }
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Failed to delete the physical files of " + driver.getValue().size()
+                        + " deleted datafiles in storage " + driver.getKey(), e);
+            }
+        }
+        finalizeFileDeletes(others);
+    }
+
     public Map<Long, String> getPhysicalFilesToDelete(DatasetVersion datasetVersion) {
         return getPhysicalFilesToDelete(datasetVersion, false);
     }
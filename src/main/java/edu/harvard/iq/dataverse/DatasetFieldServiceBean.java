@@ -1,6 +1,5 @@
 package edu.harvard.iq.dataverse;
 
-import java.io.IOException;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -14,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -21,6 +21,8 @@ import java.util.logging.Logger;
 
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.inject.Named;
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
@@ -40,16 +42,7 @@ import jakarta.persistence.PersistenceException;
 import jakarta.persistence.TypedQuery;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpResponseInterceptor;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.protocol.HttpContext;
-import org.apache.http.util.EntityUtils;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 
 /**
@@ -68,6 +61,9 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
     @EJB
     SettingsServiceBean settingsService;
 
+    @EJB
+    ExternalVocabularyResolverServiceBean cvocResolver;
+
     private static final String NAME_QUERY = "SELECT dsfType from DatasetFieldType dsfType where dsfType.name= :fieldName";
     
     /*
@@ -347,30 +343,43 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @param df - the primitive/parent compound field containing a newly saved value
      */
     public void registerExternalVocabValues(DatasetField df) {
-        DatasetFieldType dft = df.getDatasetFieldType();
-        logger.fine("Registering for field: " + dft.getName());
-        JsonObject cvocEntry = getCVocConf(true).get(dft.getId());
-        if (dft.isPrimitive()) {
-            List<DatasetField> siblingsDatasetFields = new ArrayList<>();
-            if(dft.getParentDatasetFieldType()!=null) {
-                siblingsDatasetFields = df.getParentDatasetFieldCompoundValue().getChildDatasetFields();
-            }
-            for (DatasetFieldValue dfv : df.getDatasetFieldValues()) {
-                registerExternalTerm(cvocEntry, dfv.getValue(), siblingsDatasetFields);
-            }
-        } else {
-            if (df.getDatasetFieldType().isCompound()) {
-                DatasetFieldType termdft = findByNameOpt(cvocEntry.getString("term-uri-field"));
-                for (DatasetFieldCompoundValue cv : df.getDatasetFieldCompoundValues()) {
-                    for (DatasetField cdf : cv.getChildDatasetFields()) {
-                        logger.fine("Found term uri field type id: " + cdf.getDatasetFieldType().getId());
-                        if (cdf.getDatasetFieldType().equals(termdft)) {
-                            registerExternalTerm(cvocEntry, cdf.getValue(), cv.getChildDatasetFields());
+        registerExternalVocabValues(List.of(df));
+    }
+
+    /**
+     * Adds information about the external vocabulary terms used in these DatasetFields to the ExternalVocabularyValue table if it doesn't already exist.
+     * All the missing terms are retrieved at once, in parallel (see {@link ExternalVocabularyResolverServiceBean}).
+     * @param datasetFields - the primitive/parent compound fields containing newly saved values
+     */
+    public void registerExternalVocabValues(List<DatasetField> datasetFields) {
+        Map<String, ExternalVocabularyResolverServiceBean.TermRequest> termRequests = new LinkedHashMap<>();
+        for (DatasetField df : datasetFields) {
+            DatasetFieldType dft = df.getDatasetFieldType();
+            logger.fine("Registering for field: " + dft.getName());
+            JsonObject cvocEntry = getCVocConf(true).get(dft.getId());
+            if (dft.isPrimitive()) {
+                List<DatasetField> siblingsDatasetFields = new ArrayList<>();
+                if(dft.getParentDatasetFieldType()!=null) {
+                    siblingsDatasetFields = df.getParentDatasetFieldCompoundValue().getChildDatasetFields();
+                }
+                for (DatasetFieldValue dfv : df.getDatasetFieldValues()) {
+                    addTermRequest(termRequests, cvocEntry, dfv.getValue(), siblingsDatasetFields);
+                }
+            } else {
+                if (df.getDatasetFieldType().isCompound()) {
+                    DatasetFieldType termdft = findByNameOpt(cvocEntry.getString("term-uri-field"));
+                    for (DatasetFieldCompoundValue cv : df.getDatasetFieldCompoundValues()) {
+                        for (DatasetField cdf : cv.getChildDatasetFields()) {
+                            logger.fine("Found term uri field type id: " + cdf.getDatasetFieldType().getId());
+                            if (cdf.getDatasetFieldType().equals(termdft)) {
+                                addTermRequest(termRequests, cvocEntry, cdf.getValue(), cv.getChildDatasetFields());
+                            }
                         }
                     }
                 }
             }
         }
+        registerExternalTerms(termRequests);
     }
 
     /**
@@ -455,11 +464,15 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
     }
 
     /**
-     * Perform a query to retrieve a cached value from the externalvocabularvalue table
+     * Retrieve a cached value from the externalvocabularvalue table
      * @param termUri
      * @return - the entry's value as a JsonObject
      */
     public JsonObject getExternalVocabularyValue(String termUri) {
+        return cvocResolver.getValue(termUri, this::findExternalVocabularyValue);
+    }
+
+    private JsonObject findExternalVocabularyValue(String termUri) {
         try {
             ExternalVocabularyValue evv = em
                     .createQuery("select object(o) from ExternalVocabularyValue as o where o.uri=:uri",
@@ -485,6 +498,86 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @param relatedDatasetFields  - siblings or childs of the term
      */
     public void registerExternalTerm(JsonObject cvocEntry, String term, List<DatasetField> relatedDatasetFields) {
+        Map<String, ExternalVocabularyResolverServiceBean.TermRequest> termRequests = new LinkedHashMap<>();
+        addTermRequest(termRequests, cvocEntry, term, relatedDatasetFields);
+        registerExternalTerms(termRequests);
+    }
+
+    /**
+     * Stores the retrieved value of a term, in a transaction of its own. Used
+     * for values retrieved in the background.
+     *
+     * @param term  - the term uri as a string
+     * @param value - the filtered response of the external service
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void storeExternalVocabularyValue(String term, String value) {
+        List<ExternalVocabularyValue> existing = em.createQuery("select object(o) from ExternalVocabularyValue as o where o.uri=:uri",
+                ExternalVocabularyValue.class).setParameter("uri", term).getResultList();
+        ExternalVocabularyValue evv = existing.isEmpty() ? new ExternalVocabularyValue(term, null) : existing.get(0);
+        evv.setValue(value);
+        evv.setLastUpdateDate(Timestamp.from(Instant.now()));
+        em.merge(evv);
+        em.flush();
+        cvocResolver.invalidate(term);
+        logger.fine("Wrote value for term: " + term);
+    }
+
+    /**
+     * Retrieves the terms that have no stored value yet, and schedules a
+     * background refresh of the ones whose value is outdated.
+     */
+    private void registerExternalTerms(Map<String, ExternalVocabularyResolverServiceBean.TermRequest> termRequests) {
+        if (termRequests.isEmpty()) {
+            return;
+        }
+        Map<String, ExternalVocabularyValue> storedValues = new HashMap<>();
+        for (ExternalVocabularyValue evv : em.createQuery("select object(o) from ExternalVocabularyValue as o where o.uri in :uris",
+                ExternalVocabularyValue.class).setParameter("uris", termRequests.keySet()).getResultList()) {
+            storedValues.put(evv.getUri(), evv);
+        }
+
+        List<ExternalVocabularyResolverServiceBean.TermRequest> missing = new ArrayList<>();
+        List<ExternalVocabularyResolverServiceBean.TermRequest> outdated = new ArrayList<>();
+        for (ExternalVocabularyResolverServiceBean.TermRequest termRequest : termRequests.values()) {
+            ExternalVocabularyValue evv = storedValues.get(termRequest.getTerm());
+            if (evv == null || evv.getValue() == null) {
+                missing.add(termRequest);
+            } else if (cvocResolver.isStale(evv)) {
+                outdated.add(termRequest);
+            }
+        }
+        if (!outdated.isEmpty()) {
+            cvocResolver.refreshInBackground(outdated);
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> resolved = cvocResolver.resolve(missing);
+        for (Map.Entry<String, String> entry : resolved.entrySet()) {
+            String term = entry.getKey();
+            ExternalVocabularyValue evv = storedValues.getOrDefault(term, new ExternalVocabularyValue(term, null));
+            evv.setValue(entry.getValue());
+            evv.setLastUpdateDate(Timestamp.from(Instant.now()));
+            logger.fine("JsonObject: " + entry.getValue());
+            em.merge(evv);
+            cvocResolver.invalidate(term);
+        }
+        try {
+            em.flush();
+            logger.fine("Wrote values for " + resolved.size() + " terms");
+        } catch (PersistenceException e) {
+            logger.fine("Problem persisting external vocabulary values: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Works out the URL to retrieve the term from, and adds the term to the
+     * ones to register, unless it is blank, free text or an invalid URI.
+     */
+    private void addTermRequest(Map<String, ExternalVocabularyResolverServiceBean.TermRequest> termRequests,
+            JsonObject cvocEntry, String term, List<DatasetField> relatedDatasetFields) {
         String retrievalUri = cvocEntry.getString("retrieval-uri");
         String termUriFieldName = cvocEntry.getString("term-uri-field");
         String prefix = cvocEntry.getString("prefix", null);
@@ -512,86 +605,27 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
         try {
             //Assure the term is in URI form - should be if the uriSpace entry was correct
             new URI(term);
-            ExternalVocabularyValue evv = null;
-            try {
-                evv = em.createQuery("select object(o) from ExternalVocabularyValue as o where o.uri=:uri",
-                        ExternalVocabularyValue.class).setParameter("uri", term).getSingleResult();
-            } catch (NoResultException nre) {
-                evv = new ExternalVocabularyValue(term, null);
-            }
-            if (evv.getValue() == null) {
-                String adjustedTerm = (prefix==null)? term: term.replace(prefix, "");
-
-                try {
-                    retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, "0", adjustedTerm);
-                    retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, termUriFieldName, adjustedTerm);
-                    for (DatasetField f : relatedDatasetFields) {
-                        retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, f.getDatasetFieldType().getName(), f.getValue());
-                    }
-                } catch (InvalidParameterException e) {
-                    logger.warning("InvalidParameterException in tryReplaceRetrievalUriParam : " + e.getMessage());
-                    return;
-                }
-                if (retrievalUri.contains("{")) {
-                    logger.severe("Retrieval URI still contains unreplaced parameter :" + retrievalUri);
-                    return;
-                }
-
-                logger.fine("Didn't find " + term + ", calling " + retrievalUri);
-                try (CloseableHttpClient httpClient = HttpClients.custom()
-                        .addInterceptorLast(new HttpResponseInterceptor() {
-                            @Override
-                            public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
-                                int statusCode = response.getStatusLine().getStatusCode();
-                                if (statusCode == 504) {
-                                    //Throwing an exception triggers the retry handler
-                                    throw new IOException("Retry due to 504 response");
-                                }
-                            }
-                        })
-                        //The retry handler will also do retries for network errors/other things that cause an IOException
-                        .setRetryHandler(new DefaultHttpRequestRetryHandler(3, false))
-                        .build()) {
-                    HttpGet httpGet = new HttpGet(retrievalUri);
-                    //application/json+ld is for backward compatibility
-                    httpGet.addHeader("Accept", "application/ld+json, application/json+ld, application/json");
-                    //Adding others custom HTTP request headers if exists
-                    final JsonObject headers = cvocEntry.getJsonObject("headers");
-                    if (headers != null) {
-                        final Set<String> headerKeys = headers.keySet();
-                        for (final String hKey: headerKeys) {
-                            httpGet.addHeader(hKey, headers.getString(hKey));
-                        }
-                    }
-                    HttpResponse response = httpClient.execute(httpGet);
-                    String data = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-                    int statusCode = response.getStatusLine().getStatusCode();
-                    if (statusCode == 200) {
-                        logger.fine("Returned data: " + data);
-                        try (JsonReader jsonReader = Json.createReader(new StringReader(data))) {
-                            String dataObj = filterResponse(cvocEntry, jsonReader.readObject(), term).toString();
-                            evv.setValue(dataObj);
-                            evv.setLastUpdateDate(Timestamp.from(Instant.now()));
-                            logger.fine("JsonObject: " + dataObj);
-                            em.merge(evv);
-                            em.flush();
-                            logger.fine("Wrote value for term: " + term);
-                        } catch (JsonException je) {
-                            logger.severe("Error retrieving: " + retrievalUri + " : " + je.getMessage());
-                        } catch (PersistenceException e) {
-                            logger.fine("Problem persisting: " + retrievalUri + " : " + e.getMessage());
-                        }
-                    } else {
-                        logger.severe("Received response code : " + statusCode + " when retrieving " + retrievalUri
-                                + " : " + data);
-                    }
-                } catch (IOException ioe) {
-                    logger.severe("IOException when retrieving url: " + retrievalUri + " : " + ioe.getMessage());
-                }
-            }
         } catch (URISyntaxException e) {
             logger.fine("Term is not a URI: " + term);
+            return;
+        }
+        String adjustedTerm = (prefix==null)? term: term.replace(prefix, "");
+
+        try {
+            retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, "0", adjustedTerm);
+            retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, termUriFieldName, adjustedTerm);
+            for (DatasetField f : relatedDatasetFields) {
+                retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, f.getDatasetFieldType().getName(), f.getValue());
+            }
+        } catch (InvalidParameterException e) {
+            logger.warning("InvalidParameterException in tryReplaceRetrievalUriParam : " + e.getMessage());
+            return;
+        }
+        if (retrievalUri.contains("{")) {
+            logger.severe("Retrieval URI still contains unreplaced parameter :" + retrievalUri);
+            return;
         }
+        termRequests.putIfAbsent(term, new ExternalVocabularyResolverServiceBean.TermRequest(term, retrievalUri, cvocEntry));
     }
 
     private String tryToReplaceRetrievalUriParam(String retrievalUri, String paramName, String value) throws InvalidParameterException {
@@ -629,7 +663,7 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @param termUri - the term uri
      * @return - a JsonObject with the structure defined by the filtering configuration
      */
-    private JsonObject filterResponse(JsonObject cvocEntry, JsonObject readObject, String termUri) {
+    static JsonObject filterResponse(JsonObject cvocEntry, JsonObject readObject, String termUri) {
 
         JsonObjectBuilder job = Json.createObjectBuilder();
         JsonObject filtering = cvocEntry.getJsonObject("retrieval-filtering");
@@ -714,7 +748,7 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
         }
     }
 
-    Object processPathSegment(int index, String[] pathParts, JsonValue curPath, String termUri) {
+    static Object processPathSegment(int index, String[] pathParts, JsonValue curPath, String termUri) {
         if (index < pathParts.length - 1) {
             if (pathParts[index].contains("=")) {
                 JsonArray arr = ((JsonArray) curPath);
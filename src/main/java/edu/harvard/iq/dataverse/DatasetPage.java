@@ -57,7 +57,6 @@ import edu.harvard.iq.dataverse.search.SortBy;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import edu.harvard.iq.dataverse.util.ArchiverUtil;
 import edu.harvard.iq.dataverse.util.BundleUtil;
-import edu.harvard.iq.dataverse.util.DataFileComparator;
 import edu.harvard.iq.dataverse.util.FileSortFieldAndOrder;
 import edu.harvard.iq.dataverse.util.FileUtil;
 import edu.harvard.iq.dataverse.util.JsfHelper;
@@ -89,8 +88,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Collection;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import jakarta.ejb.EJB;
 import jakarta.ejb.EJBException;
@@ -159,7 +158,6 @@ import edu.harvard.iq.dataverse.search.SolrClientService;
 import edu.harvard.iq.dataverse.settings.JvmSettings;
 import edu.harvard.iq.dataverse.util.SignpostingResources;
 import edu.harvard.iq.dataverse.util.FileMetadataUtil;
-import java.util.Comparator;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.response.FacetField;
@@ -198,6 +196,8 @@ public class DatasetPage implements java.io.Serializable {
     @EJB
     DataFileServiceBean datafileService;
     @EJB
+    DatasetVersionFilesServiceBean datasetVersionFilesService;
+    @EJB
     PermissionServiceBean permissionService;
     @EJB
     DataverseServiceBean dataverseService;
@@ -378,6 +378,48 @@ public class DatasetPage implements java.io.Serializable {
      */
     private boolean versionHasTabular = false;
     private boolean versionHasGlobus = false;
+
+    private DatasetVersionFilesServiceBean.FilesSummary filesSummary = null;
+
+    /**
+     * The counts and storage drivers of the files of the working version,
+     * queried once per page, so that questions about all the files of the
+     * version don't require going through (and loading) each of them.
+     *
+     * @return the summary, or null while the version is being edited, in which
+     * case the in-memory file metadatas have to be checked.
+     */
+    private DatasetVersionFilesServiceBean.FilesSummary getFilesSummary() {
+        if (workingVersion == null || workingVersion.getId() == null || editMode != null) {
+            return null;
+        }
+        if (filesSummary == null) {
+            filesSummary = datasetVersionFilesService.getFilesSummary(workingVersion);
+        }
+        return filesSummary;
+    }
+
+    /**
+     * Whether any file of the working version matches the predicate. Outside of
+     * edit mode, the files are read from the database one page at a time, and
+     * only until one matches, rather than all loaded into the working version.
+     */
+    private boolean anyFileMetadataMatches(Predicate<FileMetadata> predicate) {
+        if (getFilesSummary() == null) {
+            return workingVersion.getFileMetadatas().stream().anyMatch(predicate);
+        }
+        List<FileMetadata> page;
+        int offset = 0;
+        do {
+            page = datasetVersionFilesService.getFileMetadatasPage(workingVersion, offset, DatasetVersionFilesServiceBean.FILE_METADATA_PAGE_SIZE);
+            if (page.stream().anyMatch(predicate)) {
+                return true;
+            }
+            offset += page.size();
+        } while (page.size() == DatasetVersionFilesServiceBean.FILE_METADATA_PAGE_SIZE);
+        return false;
+    }
+
     private boolean globusTransferRequested = false;
 
     private boolean showIngestSuccess;
@@ -477,7 +519,7 @@ public class DatasetPage implements java.io.Serializable {
         if (hasRestrictedFiles != null){
             return hasRestrictedFiles;
         } else {
-            hasRestrictedFiles = workingVersion.isHasRestrictedFile();
+            hasRestrictedFiles = hasRestrictedFile();
             return hasRestrictedFiles;
         }
     }
@@ -693,13 +735,13 @@ public class DatasetPage implements java.io.Serializable {
         }
     }
 
-    private List<FileMetadata> fileMetadatasSearch;
+    private FileMetadataLazyDataModel fileMetadatasSearch;
 
-    public List<FileMetadata> getFileMetadatasSearch() {
+    public FileMetadataLazyDataModel getFileMetadatasSearch() {
         return fileMetadatasSearch;
     }
 
-    public void setFileMetadatasSearch(List<FileMetadata> fileMetadatasSearch) {
+    public void setFileMetadatasSearch(FileMetadataLazyDataModel fileMetadatasSearch) {
         this.fileMetadatasSearch = fileMetadatasSearch;
     }
 
@@ -733,7 +775,7 @@ public class DatasetPage implements java.io.Serializable {
         setNumberOfFilesToShow(new Long(fileMetadatasSearch.size()));
     }
 
-    private List<FileMetadata> selectFileMetadatasForDisplay() {
+    private FileMetadataLazyDataModel selectFileMetadatasForDisplay() {
         final Set<Long> searchResultsIdSet;
         if (isIndexedVersion() && StringUtil.isEmpty(fileLabelSearchTerm) && StringUtil.isEmpty(fileTypeFacet) && StringUtil.isEmpty(fileAccessFacet) && StringUtil.isEmpty(fileTagsFacet)) {
             // Indexed version: we need facets, they are set as a side effect of getFileIdsInVersionFromSolr method.
@@ -758,22 +800,11 @@ public class DatasetPage implements java.io.Serializable {
             searchResultsIdSet = null;
         }
 
-        final List<FileMetadata> md = workingVersion.getFileMetadatas();
-        final List<FileMetadata> retList;
-        if (searchResultsIdSet == null) {
-            retList = new ArrayList<>(md);
-        } else {
-            retList = md.stream().filter(x -> searchResultsIdSet.contains(x.getDataFile().getId())).collect(Collectors.toList());
-        }
-        sortFileMetadatas(retList);
-        return retList;
-    }
-
-    private void sortFileMetadatas(final List<FileMetadata> fileList) {
-        
-        final DataFileComparator dfc = new DataFileComparator();
-        final Comparator<FileMetadata> comp = dfc.compareBy(folderPresort, tagPresort, fileSortField, !"desc".equals(fileSortOrder));
-        Collections.sort(fileList, comp);
+        // Only the ids of the files are sorted here; the table then loads
+        // the files one page at a time
+        final List<Long> fileMetadataIds = datasetVersionFilesService.getFileMetadataIdsInDisplayOrder(workingVersion,
+                searchResultsIdSet, folderPresort, tagPresort, fileSortField, !"desc".equals(fileSortOrder));
+        return new FileMetadataLazyDataModel(datasetVersionFilesService, fileMetadataIds);
     }
 
     private Boolean isIndexedVersion = null;
@@ -1137,6 +1168,10 @@ public class DatasetPage implements java.io.Serializable {
     }
 
     public DataFile getInitialDataFile() {
+        if (getFilesSummary() != null) {
+            List<FileMetadata> firstPage = datasetVersionFilesService.getFileMetadatasPage(workingVersion, 0, 1);
+            return firstPage.isEmpty() ? null : firstPage.get(0).getDataFile();
+        }
         if (workingVersion.getFileMetadatas() != null && workingVersion.getFileMetadatas().size() > 0) {
             return workingVersion.getFileMetadatas().get(0).getDataFile();
         }
@@ -1176,6 +1211,10 @@ public class DatasetPage implements java.io.Serializable {
     }
     //This function applies to an entire dataset
     private boolean isSwiftStorage() {
+        DatasetVersionFilesServiceBean.FilesSummary summary = getFilesSummary();
+        if (summary != null) {
+            return summary.getStorageDriverIds().contains("swift");
+        }
         //containers without datafiles will not be stored in swift storage
         if (getInitialDataFile() != null){
             for (FileMetadata fmd : workingVersion.getFileMetadatas()) {
@@ -1233,12 +1272,10 @@ public class DatasetPage implements java.io.Serializable {
     }
 
     public boolean canComputeAllFiles(boolean isCartCompute){
-        for (FileMetadata fmd : workingVersion.getFileMetadatas()) {
-             if (!fileDownloadHelper.canDownloadFile(fmd)) {
-                 //RequestContext requestContext = RequestContext.getCurrentInstance();
-                 PrimeFaces.current().executeScript("PF('computeInvalid').show()");
-                 return false;
-             }
+        if (anyFileMetadataMatches(fmd -> !fileDownloadHelper.canDownloadFile(fmd))) {
+             //RequestContext requestContext = RequestContext.getCurrentInstance();
+             PrimeFaces.current().executeScript("PF('computeInvalid').show()");
+             return false;
         }
         if (!isCartCompute) {
             try {
@@ -1255,22 +1292,17 @@ public class DatasetPage implements java.io.Serializable {
     //caching can download files to limit trips to File Download Helper
     public boolean canDownloadFiles() {
         if (canDownloadFiles == null) {
-            canDownloadFiles = false;
-            for (FileMetadata fmd : workingVersion.getFileMetadatas()) {
-                if (fileDownloadHelper.canDownloadFile(fmd)) {
-                    if (isVersionHasGlobus()) {
-                        String driverId = DataAccess
-                                .getStorageDriverFromIdentifier(fmd.getDataFile().getStorageIdentifier());
-                        if (StorageIO.isDataverseAccessible(driverId)) {
-                            canDownloadFiles = true;
-                            break;
-                        }
-                    } else {
-                        canDownloadFiles = true;
-                        break;
-                    }
+            canDownloadFiles = anyFileMetadataMatches(fmd -> {
+                if (!fileDownloadHelper.canDownloadFile(fmd)) {
+                    return false;
                 }
-            }
+                if (isVersionHasGlobus()) {
+                    String driverId = DataAccess
+                            .getStorageDriverFromIdentifier(fmd.getDataFile().getStorageIdentifier());
+                    return StorageIO.isDataverseAccessible(driverId);
+                }
+                return true;
+            });
         }
         return canDownloadFiles;
     }
@@ -2005,7 +2037,7 @@ public class DatasetPage implements java.io.Serializable {
                 
                 // We are only performing these lookups to obtain the database id
                 // of the version that we are displaying, and then we will use it
-                // to perform a .findDeep(versionId); see below. 
+                // to look the version up again; see below. 
                 
                 // TODO: replace the code block below, the combination of 
                 // datasetService.find(id) and datasetVersionService.selectRequestedVersion()
@@ -2035,10 +2067,11 @@ public class DatasetPage implements java.io.Serializable {
 
             } 
             
-            // ... And now the "real" working version lookup: 
+            // ... And now the "real" working version lookup. The files are not
+            // fetched along with it: the files table loads them one page at a time.
             
             if (versionId != null) {
-                this.workingVersion = datasetVersionService.findDeep(versionId);
+                this.workingVersion = datasetVersionService.find(versionId);
                 dataset = workingVersion.getDataset();
             }
             
@@ -2244,24 +2277,26 @@ public class DatasetPage implements java.io.Serializable {
         displayLockInfo(dataset);
         displayPublishMessage();
 
-        // TODO: replace this loop, and the loop in the method that calculates 
-        // the total "originals" size of the dataset with direct custom queries; 
-        // then we'll be able to drop the lookup hint for DataTable from the 
-        // findDeep() method for the version and further speed up the lookup 
-        // a little bit.
         boolean globusDownloadEnabled = systemConfig.isGlobusDownload();
-        for (FileMetadata fmd : workingVersion.getFileMetadatas()) {
-            DataFile df = fmd.getDataFile();
-            if (df.isTabularData()) {
-                versionHasTabular = true;
-            }
-            if(globusDownloadEnabled) {
-                if(GlobusAccessibleStore.isGlobusAccessible(DataAccess.getStorageDriverFromIdentifier(df.getStorageIdentifier()))) {
-                    versionHasGlobus= true;
+        DatasetVersionFilesServiceBean.FilesSummary summary = getFilesSummary();
+        if (summary != null) {
+            versionHasTabular = summary.getTabularFileCount() > 0;
+            versionHasGlobus = globusDownloadEnabled && summary.getStorageDriverIds().stream()
+                    .anyMatch(GlobusAccessibleStore::isGlobusAccessible);
+        } else {
+            for (FileMetadata fmd : workingVersion.getFileMetadatas()) {
+                DataFile df = fmd.getDataFile();
+                if (df.isTabularData()) {
+                    versionHasTabular = true;
+                }
+                if(globusDownloadEnabled) {
+                    if(GlobusAccessibleStore.isGlobusAccessible(DataAccess.getStorageDriverFromIdentifier(df.getStorageIdentifier()))) {
+                        versionHasGlobus= true;
+                    }
+                }
+                if(versionHasTabular &&(!globusDownloadEnabled || versionHasGlobus)) {
+                    break;
                 }
-            }
-            if(versionHasTabular &&(!globusDownloadEnabled || versionHasGlobus)) {
-                break;
             }
         }
         
@@ -2279,7 +2314,7 @@ public class DatasetPage implements java.io.Serializable {
         datasetConfigureTools = externalToolService.findDatasetToolsByType(ExternalTool.Type.CONFIGURE);
         rowsPerPage = 10;
         if (dataset.getId() != null && canUpdateDataset()) {
-            hasRestrictedFiles = workingVersion.isHasRestrictedFile();
+            hasRestrictedFiles = hasRestrictedFile();
             hasValidTermsOfAccess = isHasValidTermsOfAccess();
             if (!hasValidTermsOfAccess) {
                 String message = BundleUtil.getStringFromBundle("dataset.message.editMetadata.invalid.TOUA.message");               
@@ -2418,8 +2453,13 @@ public class DatasetPage implements java.io.Serializable {
 
     public boolean isFileTreeViewRequired() {
         if (fileTreeViewRequired == null) {
-            fileTreeViewRequired = workingVersion.getFileMetadatas().size() > 1
-                    && datafileService.isFoldersMetadataPresentInVersion(workingVersion);
+            DatasetVersionFilesServiceBean.FilesSummary summary = getFilesSummary();
+            if (summary != null) {
+                fileTreeViewRequired = summary.getFileCount() > 1 && summary.getFilesInFoldersCount() > 0;
+            } else {
+                fileTreeViewRequired = workingVersion.getFileMetadatas().size() > 1
+                        && datafileService.isFoldersMetadataPresentInVersion(workingVersion);
+            }
         }
         return fileTreeViewRequired;
     }
@@ -2984,7 +3024,7 @@ public class DatasetPage implements java.io.Serializable {
         if (!newFolderPresort == folderPresort) {
             folderPresort = newFolderPresort;
         }
-        sortFileMetadatas(fileMetadatasSearch);
+        fileMetadatasSearch = selectFileMetadatasForDisplay();
         JsfHelper.addSuccessMessage(BundleUtil.getStringFromBundle("file.results.presort.change.success"));
     }
 
@@ -3000,6 +3040,7 @@ public class DatasetPage implements java.io.Serializable {
         //dataset = datasetService.find(dataset.getId());
         dataset = null;
         workingVersion = null; 
+        filesSummary = null;
 
         logger.fine("refreshing working version");
 
@@ -3009,7 +3050,7 @@ public class DatasetPage implements java.io.Serializable {
             // versionId must have been set by now (see null check above), in the init()
             // method, regardless of how the page was originally called - by the dataset
             // database id, by the persistent identifier, or by the db id of the version.
-            this.workingVersion = datasetVersionService.findDeep(versionId);
+            this.workingVersion = datasetVersionService.find(versionId);
             dataset = workingVersion.getDataset();
         } 
         
@@ -3065,7 +3106,7 @@ public class DatasetPage implements java.io.Serializable {
         }
 
         if (deleteCommandSuccess) {
-            datafileService.finalizeFileDeletes(deleteStorageLocations);
+            datafileService.finalizeDatasetFileDeletes(deleteStorageLocations);
             JsfHelper.addSuccessMessage(BundleUtil.getStringFromBundle("dataset.message.deleteSuccess"));
         }
 
@@ -3233,7 +3274,9 @@ public class DatasetPage implements java.io.Serializable {
     public Long getSizeOfDatasetOrigNumeric() {
         if (versionHasTabular) {
             if (sizeOfDatasetOriginal == null) {
-                sizeOfDatasetOriginal = DatasetUtil.getDownloadSizeNumeric(workingVersion, true);
+                sizeOfDatasetOriginal = getFilesSummary() != null
+                        ? datasetVersionFilesService.getFilesDownloadSize(workingVersion, new FileSearchCriteria(null, null, null, null, null), DatasetVersionFilesServiceBean.FileDownloadSizeMode.Original)
+                        : DatasetUtil.getDownloadSizeNumeric(workingVersion, true);
             }
             return sizeOfDatasetOriginal;
         }
@@ -3242,7 +3285,9 @@ public class DatasetPage implements java.io.Serializable {
 
     public Long getSizeOfDatasetArchivalNumeric() {
         if (sizeOfDatasetArchival == null) {
-            sizeOfDatasetArchival = DatasetUtil.getDownloadSizeNumeric(workingVersion, false);
+            sizeOfDatasetArchival = getFilesSummary() != null
+                    ? datasetVersionFilesService.getFilesDownloadSize(workingVersion, new FileSearchCriteria(null, null, null, null, null), DatasetVersionFilesServiceBean.FileDownloadSizeMode.Archival)
+                    : DatasetUtil.getDownloadSizeNumeric(workingVersion, false);
         }
         return sizeOfDatasetArchival; 
     }
@@ -3673,6 +3718,10 @@ public class DatasetPage implements java.io.Serializable {
         if (workingVersion == null) {
             return false;
         }
+        DatasetVersionFilesServiceBean.FilesSummary summary = getFilesSummary();
+        if (summary != null) {
+            return summary.getRestrictedFileCount() > 0;
+        }
         for (FileMetadata fmd : workingVersion.getFileMetadatas()) {
             if (fmd.isRestricted()) {
                 return true;
@@ -3685,6 +3734,10 @@ public class DatasetPage implements java.io.Serializable {
         if (workingVersion == null){
             return 0;
         }
+        DatasetVersionFilesServiceBean.FilesSummary summary = getFilesSummary();
+        if (summary != null) {
+            return (int) summary.getRestrictedFileCount();
+        }
         int restrictedFileCount = 0;
         for (FileMetadata fmd : workingVersion.getFileMetadatas()) {
             if (fmd.isRestricted()) {
@@ -3695,6 +3748,17 @@ public class DatasetPage implements java.io.Serializable {
         return restrictedFileCount;
     }
 
+    public int getFileCount() {
+        if (workingVersion == null) {
+            return 0;
+        }
+        DatasetVersionFilesServiceBean.FilesSummary summary = getFilesSummary();
+        if (summary != null) {
+            return (int) summary.getFileCount();
+        }
+        return workingVersion.getFileMetadatas().size();
+    }
+
     private List<FileMetadata> filesToBeDeleted = new ArrayList<>();
 
     public String deleteFiles() throws CommandException{
@@ -5346,14 +5410,8 @@ public class DatasetPage implements java.io.Serializable {
             return downloadButtonAvailable;
         }
 
-        for (FileMetadata fmd : workingVersion.getFileMetadatas()) {
-            if (this.fileDownloadHelper.canDownloadFile(fmd)) {
-                downloadButtonAvailable = true;
-                return true;
-            }
-        }
-        downloadButtonAvailable = false;
-        return false;
+        downloadButtonAvailable = anyFileMetadataMatches(fmd -> this.fileDownloadHelper.canDownloadFile(fmd));
+        return downloadButtonAvailable;
     }
 
     public boolean isFileAccessRequestMultiButtonRequired(){
@@ -5366,14 +5424,10 @@ public class DatasetPage implements java.io.Serializable {
         if (!workingVersion.getTermsOfUseAndAccess().isFileAccessRequest()){
            // return false;
         }
-        for (FileMetadata fmd : workingVersion.getFileMetadatas()){
-            AuthenticatedUser authenticatedUser = (AuthenticatedUser) session.getUser();
-            //Change here so that if all restricted files have pending requests there's no Request Button
-            if ((!this.fileDownloadHelper.canDownloadFile(fmd) && !fmd.getDataFile().containsActiveFileAccessRequestFromUser(authenticatedUser))) {
-                return true;
-            }
-        }
-        return false;
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) session.getUser();
+        //Change here so that if all restricted files have pending requests there's no Request Button
+        return anyFileMetadataMatches(fmd -> !this.fileDownloadHelper.canDownloadFile(fmd)
+                && !fmd.getDataFile().containsActiveFileAccessRequestFromUser(authenticatedUser));
     }
 
     public boolean isFileAccessRequestMultiButtonEnabled(){
@@ -5402,12 +5456,7 @@ public class DatasetPage implements java.io.Serializable {
         if (!dataset.isFileAccessRequest()){
             return false;
         }
-        for (FileMetadata fmd : workingVersion.getFileMetadatas()){
-            if (!this.fileDownloadHelper.canDownloadFile(fmd) && !FileUtil.isActivelyEmbargoed(fmd)){
-                return true;
-            }
-        }
-        return false;
+        return anyFileMetadataMatches(fmd -> !this.fileDownloadHelper.canDownloadFile(fmd) && !FileUtil.isActivelyEmbargoed(fmd));
     }
 
     public boolean isFileAccessRequestMultiSignUpButtonEnabled(){
@@ -6236,8 +6285,12 @@ public class DatasetPage implements java.io.Serializable {
         return false;
     }
 
-    public boolean isActivelyEmbargoed(List<FileMetadata> fmdList) {
-        return FileUtil.isActivelyEmbargoed(fmdList);
+    public boolean isVersionActivelyEmbargoed() {
+        DatasetVersionFilesServiceBean.FilesSummary summary = getFilesSummary();
+        if (summary != null) {
+            return summary.getActivelyEmbargoedFileCount() > 0;
+        }
+        return FileUtil.isActivelyEmbargoed(workingVersion.getFileMetadatas());
     }
 
     public boolean isEmbargoForWholeSelection() {
@@ -6431,8 +6484,12 @@ public class DatasetPage implements java.io.Serializable {
         return false;
     }
 
-    public boolean isRetentionExpired(List<FileMetadata> fmdList) {
-        return FileUtil.isRetentionExpired(fmdList);
+    public boolean isVersionRetentionExpired() {
+        DatasetVersionFilesServiceBean.FilesSummary summary = getFilesSummary();
+        if (summary != null) {
+            return summary.getRetentionExpiredFileCount() > 0;
+        }
+        return FileUtil.isRetentionExpired(workingVersion.getFileMetadatas());
     }
 
     public boolean isRetentionForWholeSelection() {
@@ -28,6 +28,7 @@ import java.util.stream.Collectors;
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonException;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.persistence.CascadeType;
@@ -211,6 +212,14 @@ public class DatasetVersion implements Serializable {
     
     @Transient
     private DatasetVersionDifference dvd;
+
+    // Summary of the difference to the prior (non-deaccessioned) version,
+    // stored as json when the version is published. See DatasetVersionDifference.toSummaryJson().
+    @Column(nullable=true, columnDefinition = "TEXT")
+    private String versionDifferenceSummary;
+
+    @Transient
+    private DatasetVersionDifference dvdSummary;
     
     @Transient 
     private JsonObject archivalStatus;
@@ -495,6 +504,69 @@ public class DatasetVersion implements Serializable {
         if(dvd!=null) {
             return dvd;
         }
+        DatasetVersion priorVersion = getPriorVersionForDifference();
+        if (priorVersion != null) {
+            dvd = new DatasetVersionDifference(this, priorVersion);
+        }
+        return dvd;
+    }
+
+    /**
+     * Like {@link #getDefaultVersionDifference()}, but only holds the summary of
+     * the difference, as shown in the versions tab. That is read from the summary
+     * stored when this version was published, if there is one (and it was made
+     * against the same prior version), so the files of both versions do not have
+     * to be compared again.
+     *
+     * @return the summary of the difference, or {@code null} if there is no
+     *         version to compare with.
+     */
+    public DatasetVersionDifference getDefaultVersionDifferenceSummary() {
+        if (dvdSummary != null) {
+            return dvdSummary;
+        }
+        if (dvd == null && versionDifferenceSummary != null) {
+            DatasetVersion priorVersion = getPriorVersionForDifference();
+            if (priorVersion == null) {
+                return null;
+            }
+            try {
+                dvdSummary = DatasetVersionDifference.fromSummaryJson(this, priorVersion, JsonUtil.getJsonObject(versionDifferenceSummary));
+            } catch (JsonException | ClassCastException | NullPointerException e) {
+                logger.warning("Ignoring unreadable version difference summary of dataset version " + getId() + ": " + e.getMessage());
+            }
+        }
+        if (dvdSummary == null) {
+            dvdSummary = getDefaultVersionDifference();
+        }
+        return dvdSummary;
+    }
+
+    /**
+     * (Re)computes the summary of the difference to the prior version, to be
+     * stored with this version. Called when the version is published or curated.
+     */
+    public void updateVersionDifferenceSummary() {
+        dvd = null;
+        dvdSummary = null;
+        DatasetVersionDifference difference = getDefaultVersionDifference();
+        versionDifferenceSummary = (difference == null) ? null : difference.toSummaryJson().toString();
+    }
+
+    public String getVersionDifferenceSummary() {
+        return versionDifferenceSummary;
+    }
+
+    public void setVersionDifferenceSummary(String versionDifferenceSummary) {
+        this.versionDifferenceSummary = versionDifferenceSummary;
+    }
+
+    /**
+     * @return the version the difference is computed against: the closest prior
+     *         version that is not deaccessioned, or {@code null} if there is none
+     *         (or this version is deaccessioned itself).
+     */
+    private DatasetVersion getPriorVersionForDifference() {
         // if version is deaccessioned ignore it for differences purposes
         int index = 0;
         int size = this.getDataset().getVersions().size();
@@ -506,8 +578,7 @@ public class DatasetVersion implements Serializable {
                 if ((index + 1) <= (size - 1)) {
                     for (DatasetVersion dvTest : this.getDataset().getVersions().subList(index + 1, size)) {
                         if (!dvTest.isDeaccessioned()) {
-                            dvd = new DatasetVersionDifference(this, dvTest);
-                            return dvd;
+                            return dvTest;
                         }
                     }
                 }
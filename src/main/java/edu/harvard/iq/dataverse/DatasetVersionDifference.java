@@ -8,6 +8,7 @@ import edu.harvard.iq.dataverse.util.StringUtil;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -15,9 +16,18 @@ import org.apache.commons.lang3.StringUtils;
 import edu.harvard.iq.dataverse.util.BundleUtil;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonString;
 
 /**
  *
@@ -41,6 +51,9 @@ public final class DatasetVersionDifference {
     private List<Object[]> blockDataForNote = new ArrayList<>();
 
     private VariableMetadataUtil variableMetadataUtil;
+
+    /** File counts of a difference restored from its summary, {@code null} otherwise. */
+    private JsonObject fileSummary;
     
     private List<DifferenceSummaryGroup> differenceSummaryGroups = new ArrayList<>();
 
@@ -52,26 +65,124 @@ public final class DatasetVersionDifference {
         this.differenceSummaryGroups = differenceSummaryGroups;
     }
 
+    private DatasetVersionDifference() {
+    }
+
+    /**
+     * Serializes the summary of this difference, i.e. the data shown in the
+     * versions tab, so it can be stored with the new version and read back
+     * with {@link #fromSummaryJson(DatasetVersion, DatasetVersion, JsonObject)}.
+     *
+     * @return the summary, as JSON.
+     */
+    public JsonObject toSummaryJson() {
+        JsonObjectBuilder summary = Json.createObjectBuilder();
+        if (originalVersion.getId() != null) {
+            summary.add("originalVersionId", originalVersion.getId());
+        }
+        summary.add("fields", noteToJson(summaryDataForNote));
+        summary.add("blocks", noteToJson(blockDataForNote));
+        summary.add("files", Json.createObjectBuilder()
+                .add("added", addedFiles.size())
+                .add("removed", removedFiles.size())
+                .add("replaced", replacedFiles.size())
+                .add("changed", changedFileMetadata.size() / 2)
+                .add("variableMetadataChanged", changedVariableMetadata.size() / 2));
+        JsonArrayBuilder terms = Json.createArrayBuilder();
+        changedTermsAccess.forEach(term -> terms.add(term[0]));
+        summary.add("termsChanged", terms);
+        return summary.build();
+    }
+
+    /**
+     * Restores a difference from its summary. The result holds the summary
+     * data only (the field and block notes, the file note and whether the terms
+     * changed); use the constructor to get the full, detailed difference.
+     *
+     * @param newVersion the version the summary was stored with
+     * @param originalVersion the version it was compared to
+     * @param summary the output of {@link #toSummaryJson()}
+     * @return the difference, or {@code null} if the summary was not made
+     *         against {@code originalVersion}, or refers to field types the
+     *         versions no longer have.
+     */
+    public static DatasetVersionDifference fromSummaryJson(DatasetVersion newVersion, DatasetVersion originalVersion, JsonObject summary) {
+        JsonNumber originalVersionId = summary.getJsonNumber("originalVersionId");
+        if (originalVersionId == null || !Long.valueOf(originalVersionId.longValue()).equals(originalVersion.getId())) {
+            return null;
+        }
+        Map<Long, DatasetFieldType> fieldTypes = new HashMap<>();
+        for (DatasetVersion version : Arrays.asList(newVersion, originalVersion)) {
+            for (DatasetField dsf : version.getDatasetFields()) {
+                fieldTypes.putIfAbsent(dsf.getDatasetFieldType().getId(), dsf.getDatasetFieldType());
+            }
+        }
+        DatasetVersionDifference dvd = new DatasetVersionDifference();
+        dvd.setNewVersion(newVersion);
+        dvd.setOriginalVersion(originalVersion);
+        dvd.summaryDataForNote = noteFromJson(summary.getJsonArray("fields"), fieldTypes);
+        dvd.blockDataForNote = noteFromJson(summary.getJsonArray("blocks"), fieldTypes);
+        if (dvd.summaryDataForNote == null || dvd.blockDataForNote == null) {
+            return null;
+        }
+        dvd.fileSummary = summary.getJsonObject("files");
+        for (JsonString term : summary.getJsonArray("termsChanged").getValuesAs(JsonString.class)) {
+            dvd.changedTermsAccess.add(new String[]{term.getString(), null, null});
+        }
+        return dvd;
+    }
+
+    private static JsonArrayBuilder noteToJson(List<Object[]> note) {
+        JsonArrayBuilder entries = Json.createArrayBuilder();
+        for (Object[] entry : note) {
+            entries.add(Json.createObjectBuilder()
+                    .add("datasetFieldTypeId", ((DatasetField) entry[0]).getDatasetFieldType().getId())
+                    .add("added", (Integer) entry[1])
+                    .add("deleted", (Integer) entry[2])
+                    .add("changed", (Integer) entry[3]));
+        }
+        return entries;
+    }
+
+    private static List<Object[]> noteFromJson(JsonArray entries, Map<Long, DatasetFieldType> fieldTypes) {
+        List<Object[]> note = new ArrayList<>();
+        for (JsonObject entry : entries.getValuesAs(JsonObject.class)) {
+            DatasetFieldType type = fieldTypes.get(entry.getJsonNumber("datasetFieldTypeId").longValue());
+            if (type == null) {
+                return null;
+            }
+            DatasetField dsf = new DatasetField();
+            dsf.setDatasetFieldType(type);
+            note.add(new Object[]{dsf, entry.getInt("added"), entry.getInt("deleted"), entry.getInt("changed")});
+        }
+        return note;
+    }
+
     public DatasetVersionDifference(DatasetVersion newVersion, DatasetVersion originalVersion) {
         setOriginalVersion(originalVersion);
         setNewVersion(newVersion);
         //Compare Data
+        // Fields and files are matched by hash joins, rather than by scanning
+        // the other version for every field/file, so that comparing versions
+        // with many files stays linear. (Where a version has more than one
+        // field of a type, the first one is used, as before.)
+        Map<DatasetFieldType, DatasetField> newFieldsByType = new HashMap<>();
+        for (DatasetField dsfn : newVersion.getDatasetFields()) {
+            newFieldsByType.putIfAbsent(dsfn.getDatasetFieldType(), dsfn);
+        }
+        Set<DatasetFieldType> originalFieldTypes = new HashSet<>();
         for (DatasetField dsfo : originalVersion.getDatasetFields()) {
-            boolean deleted = true;
-            for (DatasetField dsfn : newVersion.getDatasetFields()) {
-                if (dsfo.getDatasetFieldType().equals(dsfn.getDatasetFieldType())) {
-                    deleted = false;
-                    if (dsfo.getDatasetFieldType().isPrimitive()) {
-                        if (!dsfo.getDatasetFieldType().getFieldType().equals("email")) {
-                            compareValues(dsfo, dsfn, false);
-                        }
-                    } else {
-                        compareValues(dsfo, dsfn, true);
+            originalFieldTypes.add(dsfo.getDatasetFieldType());
+            DatasetField dsfn = newFieldsByType.get(dsfo.getDatasetFieldType());
+            if (dsfn != null) {
+                if (dsfo.getDatasetFieldType().isPrimitive()) {
+                    if (!dsfo.getDatasetFieldType().getFieldType().equals("email")) {
+                        compareValues(dsfo, dsfn, false);
                     }
-                    break; //if found go to next dataset field
+                } else {
+                    compareValues(dsfo, dsfn, true);
                 }
-            }
-            if (deleted && !dsfo.isEmpty()) {
+            } else if (!dsfo.isEmpty()) {
                 if (dsfo.getDatasetFieldType().isPrimitive()) {
                     if (dsfo.getDatasetFieldType().isControlledVocabulary()) {
                         updateBlockSummary(dsfo, 0, dsfo.getControlledVocabularyValues().size(), 0);
@@ -85,13 +196,7 @@ public final class DatasetVersionDifference {
             }
         }
         for (DatasetField dsfn : newVersion.getDatasetFields()) {
-            boolean added = true;
-            for (DatasetField dsfo : originalVersion.getDatasetFields()) {
-                if (dsfo.getDatasetFieldType().equals(dsfn.getDatasetFieldType())) {
-                    added = false;
-                    break;
-                }
-            }
+            boolean added = !originalFieldTypes.contains(dsfn.getDatasetFieldType());
 
             if (added && !dsfn.isEmpty()) {
                 if (dsfn.getDatasetFieldType().isPrimitive()){
@@ -106,46 +211,30 @@ public final class DatasetVersionDifference {
                 addToSummary(null, dsfn);
             }
         }
-        
-        // TODO: ? 
-        // It looks like we are going through the filemetadatas in both versions, 
-        // *sequentially* (i.e. at the cost of O(N*M)), to select the lists of 
-        // changed, deleted and added files between the 2 versions... But why 
-        // are we doing it, if we are doing virtually the same thing inside 
-        // the initDatasetFilesDifferenceList(), below - but in a more efficient 
-        // way (sorting both lists, then goint through them in parallel, at the 
-        // cost of (N+M) max.? 
-        // -- 4.6 Nov. 2016
-        
+
+        Map<DataFile, FileMetadata> newFilesByDataFile = new HashMap<>();
+        for (FileMetadata fmdn : newVersion.getFileMetadatas()) {
+            newFilesByDataFile.putIfAbsent(fmdn.getDataFile(), fmdn);
+        }
+        Set<DataFile> originalDataFiles = new HashSet<>();
         for (FileMetadata fmdo : originalVersion.getFileMetadatas()) {
-            boolean deleted = true;
-            for (FileMetadata fmdn : newVersion.getFileMetadatas()) {
-                if (fmdo.getDataFile().equals(fmdn.getDataFile())) {
-                    deleted = false;
-                    if (!compareFileMetadatas(fmdo, fmdn)) {
-                        changedFileMetadata.add(fmdo);
-                        changedFileMetadata.add(fmdn);
-                    }
-                    if (!variableMetadataUtil.compareVariableMetadata(fmdo,fmdn) || !compareVarGroup(fmdo, fmdn)) {
-                        changedVariableMetadata.add(fmdo);
-                        changedVariableMetadata.add(fmdn);
-                    }
-                    break;
+            originalDataFiles.add(fmdo.getDataFile());
+            FileMetadata fmdn = newFilesByDataFile.get(fmdo.getDataFile());
+            if (fmdn != null) {
+                if (!compareFileMetadatas(fmdo, fmdn)) {
+                    changedFileMetadata.add(fmdo);
+                    changedFileMetadata.add(fmdn);
                 }
-            }
-            if (deleted) {
+                if (!variableMetadataUtil.compareVariableMetadata(fmdo,fmdn) || !compareVarGroup(fmdo, fmdn)) {
+                    changedVariableMetadata.add(fmdo);
+                    changedVariableMetadata.add(fmdn);
+                }
+            } else {
                 removedFiles.add(fmdo);
             }
         }
         for (FileMetadata fmdn : newVersion.getFileMetadatas()) {
-            boolean added = true;
-            for (FileMetadata fmdo : originalVersion.getFileMetadatas()) {
-                if (fmdo.getDataFile().equals(fmdn.getDataFile())) {
-                    added = false;
-                    break;
-                }
-            }
-            if (added) {
+            if (!originalDataFiles.contains(fmdn.getDataFile())) {
                 addedFiles.add(fmdn);
             }
         }        
@@ -177,34 +266,26 @@ public final class DatasetVersionDifference {
         if (addedFiles.isEmpty() || removedFiles.isEmpty()) {
             return;
         }
-        List<FileMetadata> addedToReplaced = new ArrayList<>();
-        List<FileMetadata> removedToReplaced = new ArrayList<>();
-        for (FileMetadata added : addedFiles) {
-            DataFile addedDF = added.getDataFile();
-            Long replacedId = addedDF.getPreviousDataFileId();
-            if (added.getDataFile().getPreviousDataFileId() != null){
-            }
-            for (FileMetadata removed : removedFiles) {
-                DataFile test = removed.getDataFile();
-                if (test.getId().equals(replacedId)) {                  
-                    addedToReplaced.add(added);
-                    removedToReplaced.add(removed);
-                    FileMetadata[] replacedArray = new FileMetadata[2];
-                    replacedArray[0] = removed;
-                    replacedArray[1] = added;
-                    replacedFiles.add(replacedArray);
-                }
-            }
-        }
-        if(addedToReplaced.isEmpty()){
-        } else{
-            addedToReplaced.stream().forEach((delete) -> {
-                addedFiles.remove(delete);
-            });
-            removedToReplaced.stream().forEach((delete) -> {
-                removedFiles.remove(delete);
-            });
+        Map<Long, FileMetadata> removedByFileId = new HashMap<>();
+        for (FileMetadata removed : removedFiles) {
+            removedByFileId.putIfAbsent(removed.getDataFile().getId(), removed);
         }
+        Set<FileMetadata> addedToReplaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<FileMetadata> removedToReplaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (FileMetadata added : addedFiles) {
+            Long replacedId = added.getDataFile().getPreviousDataFileId();
+            FileMetadata removed = (replacedId == null) ? null : removedByFileId.get(replacedId);
+            if (removed != null) {
+                addedToReplaced.add(added);
+                removedToReplaced.add(removed);
+                FileMetadata[] replacedArray = new FileMetadata[2];
+                replacedArray[0] = removed;
+                replacedArray[1] = added;
+                replacedFiles.add(replacedArray);
+            }
+        }
+        addedFiles.removeIf(addedToReplaced::contains);
+        removedFiles.removeIf(removedToReplaced::contains);
     }
        
     private void getTermsDifferences() {
@@ -653,41 +734,46 @@ public final class DatasetVersionDifference {
 
     public String getFileNote() {
         String retString = "";
+        int addedCount = fileCount("added", addedFiles.size());
+        int removedCount = fileCount("removed", removedFiles.size());
+        int replacedCount = fileCount("replaced", replacedFiles.size());
+        int changedCount = fileCount("changed", changedFileMetadata.size() / 2);
+        int variableMetadataChangedCount = fileCount("variableMetadataChanged", changedVariableMetadata.size() / 2);
 
-        if (addedFiles.size() > 0) {
-            retString = BundleUtil.getStringFromBundle("dataset.version.file.added", Arrays.asList(addedFiles.size()+""));
+        if (addedCount > 0) {
+            retString = BundleUtil.getStringFromBundle("dataset.version.file.added", Arrays.asList(addedCount+""));
         }
 
-        if (removedFiles.size() > 0) {
+        if (removedCount > 0) {
             if (retString.isEmpty()) {
-                retString = BundleUtil.getStringFromBundle("dataset.version.file.removed", Arrays.asList(removedFiles.size()+""));
+                retString = BundleUtil.getStringFromBundle("dataset.version.file.removed", Arrays.asList(removedCount+""));
             } else {
-                retString += BundleUtil.getStringFromBundle("dataset.version.file.removed2", Arrays.asList(removedFiles.size()+""));
+                retString += BundleUtil.getStringFromBundle("dataset.version.file.removed2", Arrays.asList(removedCount+""));
             }
         }
         
-        if (replacedFiles.size() > 0) {
+        if (replacedCount > 0) {
             if (retString.isEmpty()) {
-                retString = BundleUtil.getStringFromBundle("dataset.version.file.replaced", Arrays.asList(replacedFiles.size()+""));
+                retString = BundleUtil.getStringFromBundle("dataset.version.file.replaced", Arrays.asList(replacedCount+""));
             } else {
-                retString += BundleUtil.getStringFromBundle("dataset.version.file.replaced2", Arrays.asList(replacedFiles.size()+""));
+                retString += BundleUtil.getStringFromBundle("dataset.version.file.replaced2", Arrays.asList(replacedCount+""));
             }
         }
         
 
-        if (changedFileMetadata.size() > 0) {
+        if (changedCount > 0) {
             if (retString.isEmpty()) {
-                retString = BundleUtil.getStringFromBundle("dataset.version.file.changed", Arrays.asList(changedFileMetadata.size() / 2+""));
+                retString = BundleUtil.getStringFromBundle("dataset.version.file.changed", Arrays.asList(changedCount+""));
             } else {
-                retString += BundleUtil.getStringFromBundle("dataset.version.file.changed2", Arrays.asList(changedFileMetadata.size() / 2+""));
+                retString += BundleUtil.getStringFromBundle("dataset.version.file.changed2", Arrays.asList(changedCount+""));
             }
         }
 
-        if (changedVariableMetadata.size()  > 0) {
+        if (variableMetadataChangedCount > 0) {
             if (retString.isEmpty()) {
-                retString = BundleUtil.getStringFromBundle("dataset.version.variablemetadata.changed", Arrays.asList(changedVariableMetadata.size() / 2+""));
+                retString = BundleUtil.getStringFromBundle("dataset.version.variablemetadata.changed", Arrays.asList(variableMetadataChangedCount+""));
             } else {
-                retString += BundleUtil.getStringFromBundle("dataset.version.variablemetadata.changed2", Arrays.asList(changedVariableMetadata.size() / 2+""));
+                retString += BundleUtil.getStringFromBundle("dataset.version.variablemetadata.changed2", Arrays.asList(variableMetadataChangedCount+""));
             }
         }
 
@@ -697,6 +783,10 @@ public final class DatasetVersionDifference {
 
         return retString;
     }
+
+    private int fileCount(String key, int computed) {
+        return (fileSummary != null) ? fileSummary.getInt(key, 0) : computed;
+    }
     
     public List<datasetReplaceFileItem> getDatasetFilesReplacementList() {
         return datasetFilesReplacementList;
@@ -1,6 +1,7 @@
 package edu.harvard.iq.dataverse;
 
 import edu.harvard.iq.dataverse.FileSearchCriteria.FileAccessStatus;
+import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import jakarta.ejb.Stateless;
 import jakarta.inject.Named;
 import jakarta.persistence.EntityManager;
@@ -19,6 +20,11 @@ import static edu.harvard.iq.dataverse.DataFileTag.TagLabelToTypes;
 @Named
 public class DatasetVersionFilesServiceBean implements Serializable {
 
+    /**
+     * Number of file metadatas fetched at once when streaming the files of a version.
+     */
+    public static final int FILE_METADATA_PAGE_SIZE = 1000;
+
     @PersistenceContext(unitName = "VDCNet-ejbPU")
     private EntityManager em;
 
@@ -42,6 +48,63 @@ public class DatasetVersionFilesServiceBean implements Serializable {
         All, Original, Archival
     }
 
+    /**
+     * Aggregate data about the files of a DatasetVersion, as returned by
+     * {@link DatasetVersionFilesServiceBean#getFilesSummary(DatasetVersion)}
+     */
+    public static class FilesSummary implements Serializable {
+
+        private final long fileCount;
+        private final long restrictedFileCount;
+        private final long tabularFileCount;
+        private final long filesInFoldersCount;
+        private final long activelyEmbargoedFileCount;
+        private final long retentionExpiredFileCount;
+        private final Set<String> storageDriverIds;
+
+        public FilesSummary(long fileCount, long restrictedFileCount, long tabularFileCount, long filesInFoldersCount,
+                            long activelyEmbargoedFileCount, long retentionExpiredFileCount, Set<String> storageDriverIds) {
+            this.fileCount = fileCount;
+            this.restrictedFileCount = restrictedFileCount;
+            this.tabularFileCount = tabularFileCount;
+            this.filesInFoldersCount = filesInFoldersCount;
+            this.activelyEmbargoedFileCount = activelyEmbargoedFileCount;
+            this.retentionExpiredFileCount = retentionExpiredFileCount;
+            this.storageDriverIds = storageDriverIds;
+        }
+
+        public long getFileCount() {
+            return fileCount;
+        }
+
+        public long getRestrictedFileCount() {
+            return restrictedFileCount;
+        }
+
+        public long getTabularFileCount() {
+            return tabularFileCount;
+        }
+
+        public long getFilesInFoldersCount() {
+            return filesInFoldersCount;
+        }
+
+        public long getActivelyEmbargoedFileCount() {
+            return activelyEmbargoedFileCount;
+        }
+
+        public long getRetentionExpiredFileCount() {
+            return retentionExpiredFileCount;
+        }
+
+        /**
+         * @return the ids of the storage drivers the files are stored with
+         */
+        public Set<String> getStorageDriverIds() {
+            return storageDriverIds;
+        }
+    }
+
     /**
      * Given a DatasetVersion, returns its total file metadata count
      *
@@ -181,6 +244,199 @@ public class DatasetVersionFilesServiceBean implements Serializable {
         return typedQuery.getResultList();
     }
 
+    /**
+     * Returns one page of the file metadatas of a DatasetVersion, in the same order
+     * as {@link DatasetVersion#getFileMetadatas()}, with everything needed to print
+     * them as JSON fetched along (see {@link DatasetVersionServiceBean#findDeep(Object)}).
+     *
+     * @param datasetVersion the DatasetVersion to access
+     * @param offset         index of the first file metadata of the page
+     * @param limit          maximum number of file metadatas in the page
+     * @return a FileMetadata list from the specified DatasetVersion
+     */
+    public List<FileMetadata> getFileMetadatasPage(DatasetVersion datasetVersion, int offset, int limit) {
+        return fetchFileDataAlong(em.createQuery("SELECT o FROM FileMetadata o WHERE o.datasetVersion.id = :datasetVersionId ORDER BY o.label, o.id", FileMetadata.class))
+                .setParameter("datasetVersionId", datasetVersion.getId())
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Returns the file metadatas with the given ids, in the order of the ids, with
+     * the same data fetched along as {@link #getFileMetadatasPage(DatasetVersion, int, int)}.
+     *
+     * @param fileMetadataIds the ids of the file metadatas, typically one page of
+     *                        {@link #getFileMetadataIdsInDisplayOrder}
+     * @return a FileMetadata list, without the ids that were not found
+     */
+    public List<FileMetadata> getFileMetadatasByIds(List<Long> fileMetadataIds) {
+        if (fileMetadataIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, FileMetadata> byId = new HashMap<>();
+        for (FileMetadata fileMetadata : fetchFileDataAlong(em.createQuery("SELECT o FROM FileMetadata o WHERE o.id IN :ids", FileMetadata.class))
+                .setParameter("ids", fileMetadataIds)
+                .getResultList()) {
+            byId.put(fileMetadata.getId(), fileMetadata);
+        }
+        List<FileMetadata> fileMetadatas = new ArrayList<>(byId.size());
+        for (Long id : fileMetadataIds) {
+            FileMetadata fileMetadata = byId.get(id);
+            if (fileMetadata != null) {
+                fileMetadatas.add(fileMetadata);
+            }
+        }
+        return fileMetadatas;
+    }
+
+    /**
+     * Returns the ids of the file metadatas of a DatasetVersion, in the order the
+     * dataset page lists them (that of {@link edu.harvard.iq.dataverse.util.DataFileComparator}).
+     * Only the columns the files are sorted on are read, not the file metadatas themselves.
+     *
+     * @param datasetVersion the DatasetVersion to access
+     * @param dataFileIds    the ids of the data files to keep, or null to keep all of them
+     * @param byFolder       whether to group the files by folder first
+     * @param byCategory     whether to order the files by the rank of their categories next
+     *                       (see {@link FileMetadata#getCategorySortOrder()})
+     * @param field          what to order the files by last: "date", "type", "size" or the label
+     * @param ascending      whether to order that field in ascending order
+     * @return the ids of the file metadatas
+     */
+    public List<Long> getFileMetadataIdsInDisplayOrder(DatasetVersion datasetVersion, Set<Long> dataFileIds,
+                                                       boolean byFolder, boolean byCategory, String field, boolean ascending) {
+        Map<String, Long> categorySortOrder = byCategory ? FileMetadata.getCategorySortOrder() : null;
+        Map<Long, Long> categoryRanks = categorySortOrder != null ? getCategoryRanks(datasetVersion, categorySortOrder) : new HashMap<>();
+
+        List<Object[]> rows = em.createNativeQuery("SELECT fm.id, fm.datafile_id, fm.label, fm.directorylabel, "
+                        + "df.contenttype, df.filesize, COALESCE(o.publicationdate, o.createdate) "
+                        + "FROM filemetadata fm JOIN datafile df ON df.id = fm.datafile_id JOIN dvobject o ON o.id = fm.datafile_id "
+                        + "WHERE fm.datasetversion_id = ?1")
+                .setParameter(1, datasetVersion.getId())
+                .getResultList();
+        List<FileSortKey> sortKeys = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            long dataFileId = ((Number) row[1]).longValue();
+            if (dataFileIds != null && !dataFileIds.contains(dataFileId)) {
+                continue;
+            }
+            long id = ((Number) row[0]).longValue();
+            sortKeys.add(new FileSortKey(id,
+                    row[3] == null ? "" : ((String) row[3]).toUpperCase(),
+                    categoryRanks.getOrDefault(id, Long.MAX_VALUE),
+                    ((String) row[2]).toUpperCase(),
+                    row[4] == null ? "" : (String) row[4],
+                    row[5] == null ? 0 : ((Number) row[5]).longValue(),
+                    (Date) row[6]));
+        }
+
+        Comparator<FileSortKey> fieldOrder = switch (field == null ? "" : field) {
+            case "date" -> Comparator.comparing(k -> k.date, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "type" -> Comparator.comparing(k -> k.contentType);
+            case "size" -> Comparator.comparingLong(k -> k.filesize);
+            default -> Comparator.comparing(k -> k.label);
+        };
+        // Ties are broken by id, so that paging through the files is stable
+        Comparator<FileSortKey> order = (ascending ? fieldOrder : fieldOrder.reversed()).thenComparingLong(k -> k.id);
+        if (categorySortOrder != null) {
+            order = Comparator.<FileSortKey>comparingLong(k -> k.categoryRank).thenComparing(order);
+        }
+        if (byFolder) {
+            // Files outside of any folder come first
+            order = Comparator.<FileSortKey, Boolean>comparing(k -> !k.folder.isEmpty())
+                    .thenComparing(k -> k.folder)
+                    .thenComparing(order);
+        }
+        sortKeys.sort(order);
+
+        List<Long> ids = new ArrayList<>(sortKeys.size());
+        for (FileSortKey sortKey : sortKeys) {
+            ids.add(sortKey.id);
+        }
+        return ids;
+    }
+
+    /**
+     * The values a file metadata is sorted on in {@link #getFileMetadataIdsInDisplayOrder}
+     */
+    private static class FileSortKey {
+
+        private final long id;
+        private final String folder;
+        private final long categoryRank;
+        private final String label;
+        private final String contentType;
+        private final long filesize;
+        private final Date date;
+
+        FileSortKey(long id, String folder, long categoryRank, String label, String contentType, long filesize, Date date) {
+            this.id = id;
+            this.folder = folder;
+            this.categoryRank = categoryRank;
+            this.label = label;
+            this.contentType = contentType;
+            this.filesize = filesize;
+            this.date = date;
+        }
+    }
+
+    /**
+     * @return the best (lowest) rank of the categories of each file metadata of the
+     * version that has a ranked category, by file metadata id
+     */
+    private Map<Long, Long> getCategoryRanks(DatasetVersion datasetVersion, Map<String, Long> categorySortOrder) {
+        List<Object[]> rows = em.createNativeQuery("SELECT fc.filemetadatas_id, c.name FROM filemetadata_datafilecategory fc "
+                        + "JOIN datafilecategory c ON c.id = fc.filecategories_id JOIN filemetadata fm ON fm.id = fc.filemetadatas_id "
+                        + "WHERE fm.datasetversion_id = ?1")
+                .setParameter(1, datasetVersion.getId())
+                .getResultList();
+        Map<Long, Long> ranks = new HashMap<>();
+        for (Object[] row : rows) {
+            Long rank = categorySortOrder.get(((String) row[1]).toUpperCase());
+            if (rank != null) {
+                ranks.merge(((Number) row[0]).longValue(), rank, Math::min);
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * Given a DatasetVersion, returns the counts and storage drivers of its files,
+     * computed in the database rather than by going through its file metadatas
+     *
+     * @param datasetVersion the DatasetVersion to access
+     * @return the summary of the files of the version
+     */
+    public FilesSummary getFilesSummary(DatasetVersion datasetVersion) {
+        Object[] counts = (Object[]) em.createNativeQuery("SELECT COUNT(*), "
+                        + "COUNT(*) FILTER (WHERE fm.restricted), "
+                        + "COUNT(*) FILTER (WHERE EXISTS (SELECT 1 FROM datatable dt WHERE dt.datafile_id = fm.datafile_id)), "
+                        + "COUNT(*) FILTER (WHERE fm.directorylabel IS NOT NULL), "
+                        + "COUNT(*) FILTER (WHERE e.dateavailable > CURRENT_DATE), "
+                        + "COUNT(*) FILTER (WHERE r.dateunavailable < CURRENT_DATE) "
+                        + "FROM filemetadata fm JOIN datafile df ON df.id = fm.datafile_id "
+                        + "LEFT JOIN embargo e ON e.id = df.embargo_id LEFT JOIN retention r ON r.id = df.retention_id "
+                        + "WHERE fm.datasetversion_id = ?1")
+                .setParameter(1, datasetVersion.getId())
+                .getSingleResult();
+
+        Set<String> storageDriverIds = new HashSet<>();
+        List<?> driverIds = em.createNativeQuery("SELECT DISTINCT CASE WHEN POSITION('" + DataAccess.SEPARATOR + "' IN o.storageidentifier) > 1 "
+                        + "THEN SPLIT_PART(o.storageidentifier, '" + DataAccess.SEPARATOR + "', 1) END "
+                        + "FROM dvobject o JOIN filemetadata fm ON fm.datafile_id = o.id WHERE fm.datasetversion_id = ?1")
+                .setParameter(1, datasetVersion.getId())
+                .getResultList();
+        for (Object driverId : driverIds) {
+            // same default as DataAccess.getStorageDriverFromIdentifier()
+            storageDriverIds.add(driverId == null ? DataAccess.DEFAULT_STORAGE_DRIVER_IDENTIFIER : (String) driverId);
+        }
+
+        return new FilesSummary(((Number) counts[0]).longValue(), ((Number) counts[1]).longValue(),
+                ((Number) counts[2]).longValue(), ((Number) counts[3]).longValue(),
+                ((Number) counts[4]).longValue(), ((Number) counts[5]).longValue(), storageDriverIds);
+    }
+
     /**
      * Returns the total download size of all files for a particular DatasetVersion
      *
@@ -319,6 +575,8 @@ public class DatasetVersionFilesServiceBean implements Serializable {
             }
             default -> orderList.add(criteriaBuilder.asc(label));
         }
+        // Ties are broken by id, so that paging through the results is stable
+        orderList.add(criteriaBuilder.asc(fileMetadataRoot.get("id")));
         return orderList;
     }
 
@@ -354,6 +612,25 @@ public class DatasetVersionFilesServiceBean implements Serializable {
         return (result == null) ? 0 : result;
     }
 
+    /**
+     * Sets the hints to fetch what is shown or printed for each file along with a
+     * query for file metadatas aliased as "o". Single-valued relations are joined;
+     * collections are batch-read, as joining them would break the paging.
+     */
+    private static TypedQuery<FileMetadata> fetchFileDataAlong(TypedQuery<FileMetadata> query) {
+        return query
+                .setHint("eclipselink.left-join-fetch", "o.dataFile.ingestRequest")
+                .setHint("eclipselink.left-join-fetch", "o.dataFile.thumbnailForDataset")
+                .setHint("eclipselink.left-join-fetch", "o.dataFile.embargo")
+                .setHint("eclipselink.left-join-fetch", "o.dataFile.retention")
+                .setHint("eclipselink.left-join-fetch", "o.dataFile.releaseUser")
+                .setHint("eclipselink.left-join-fetch", "o.dataFile.creator")
+                .setHint("eclipselink.batch.type", "IN")
+                .setHint("eclipselink.batch", "o.dataFile.dataTables")
+                .setHint("eclipselink.batch", "o.dataFile.dataFileTags")
+                .setHint("eclipselink.batch", "o.fileCategories");
+    }
+
     private Map<String, Long> getStringLongMapResultFromQuery(CriteriaQuery<Tuple> criteriaQuery) {
         List<Tuple> categoryNameOccurrences = em.createQuery(criteriaQuery).getResultList();
         Map<String, Long> result = new HashMap<>();
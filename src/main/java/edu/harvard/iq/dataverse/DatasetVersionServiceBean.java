@@ -17,11 +17,15 @@ import edu.harvard.iq.dataverse.util.SystemConfig;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.ejb.EJB;
@@ -887,6 +891,62 @@ public class DatasetVersionServiceBean implements java.io.Serializable {
         return null;
     }
     
+    /**
+     * Batch version of the first step of {@link #getThumbnailByVersionId(Long)}:
+     * finds the already generated thumbnails of several versions in 1 query,
+     * and assigns the ones found to their datasets, in 1 more. Unlike the
+     * single version method, this does not generate thumbnails.
+     *
+     * @param versionIds the ids of the versions
+     * @return the ids of the thumbnail files, by version id. Versions without
+     *         an already generated thumbnail are missing.
+     */
+    public Map<Long, Long> getGeneratedThumbnailsByVersionIds(Collection<Long> versionIds) {
+        Map<Long, Long> thumbnailFileIds = new HashMap<>();
+        if (versionIds == null || versionIds.isEmpty()) {
+            return thumbnailFileIds;
+        }
+
+        List<Object[]> results;
+        try {
+            results = em.createNativeQuery("SELECT DISTINCT ON (fm.datasetversion_id) fm.datasetversion_id, df.id "
+                    + "FROM datafile df, filemetadata fm, dvobject o "
+                    + "WHERE fm.datasetversion_id IN (" + StringUtils.join(versionIds, ", ") + ") "
+                    + "AND df.id = o.id "
+                    + "AND fm.datafile_id = df.id "
+                    + "AND df.restricted = false "
+                    + "AND df.embargo_id is null "
+                    + "AND df.retention_id is null "
+                    + "AND o.previewImageAvailable = true "
+                    + "ORDER BY fm.datasetversion_id, df.id").getResultList();
+        } catch (Exception ex) {
+            logger.fine("Failed to look up the generated thumbnails of versions " + versionIds + ": " + ex.getMessage());
+            return thumbnailFileIds;
+        }
+
+        for (Object[] result : results) {
+            thumbnailFileIds.put(((Number) result[0]).longValue(), ((Number) result[1]).longValue());
+        }
+        assignDatasetThumbnailsByNativeQuery(thumbnailFileIds);
+        return thumbnailFileIds;
+    }
+    
+    private void assignDatasetThumbnailsByNativeQuery(Map<Long, Long> dataFileIdsByVersionId) {
+        if (dataFileIdsByVersionId.isEmpty()) {
+            return;
+        }
+        List<String> values = new ArrayList<>();
+        dataFileIdsByVersionId.forEach((versionId, dataFileId) -> values.add("(" + versionId + ", " + dataFileId + ")"));
+        try {
+            em.createNativeQuery("UPDATE dataset SET thumbnailfile_id = v.datafile_id"
+                    + " FROM datasetversion dv, (VALUES " + String.join(", ", values) + ") AS v (version_id, datafile_id)"
+                    + " WHERE dv.id = v.version_id AND dataset.id = dv.dataset_id"
+                    + " AND dataset.thumbnailfile_id IS DISTINCT FROM v.datafile_id").executeUpdate();
+        } catch (Exception ex) {
+            // it's ok to just ignore... 
+        }
+    }
+    
     private void assignDatasetThumbnailByNativeQuery(Long versionId, Long dataFileId) {
         try {
             em.createNativeQuery("UPDATE dataset SET thumbnailfile_id=" + dataFileId + " WHERE id in (SELECT dataset_id FROM datasetversion WHERE id=" + versionId + ")").executeUpdate();
@@ -994,6 +1054,82 @@ public class DatasetVersionServiceBean implements java.io.Serializable {
         }
     }
     
+    /**
+     * Populates the dataset cards of a page of search results: 1 query for all
+     * the cards, plus 1 (or, for tabular thumbnails, 3) for the thumbnail files
+     * assigned to their datasets.
+     *
+     * @param solrSearchResults the dataset cards
+     */
+    public void populateDatasetSearchCards(List<SolrSearchResult> solrSearchResults) {
+        Set<Long> datasetVersionIds = new HashSet<>();
+        for (SolrSearchResult solrSearchResult : solrSearchResults) {
+            if (solrSearchResult.getEntityId() != null) {
+                datasetVersionIds.add(solrSearchResult.getDatasetVersionId());
+            }
+        }
+        
+        if (datasetVersionIds.isEmpty()) {
+            return;
+        }
+        
+        List<Object[]> searchResults;
+        
+        try {
+            searchResults = em.createNativeQuery("SELECT t0.ID, t0.VERSIONSTATE, t1.ALIAS, t2.THUMBNAILFILE_ID, t2.USEGENERICTHUMBNAIL, t3.STORAGEIDENTIFIER, t2.ID FROM DATASETVERSION t0 JOIN DATASET t2 ON t2.ID = t0.DATASET_ID JOIN DVOBJECT t3 ON t3.ID = t2.ID JOIN DATAVERSE t1 ON t1.ID = t3.OWNER_ID WHERE t0.ID IN (" 
+                    + StringUtils.join(datasetVersionIds, ", ") + ")").getResultList();
+        } catch (Exception ex) {
+            return;
+        }
+        
+        Map<Long, Object[]> searchResultsByVersionId = new HashMap<>();
+        Set<Long> thumbnailFileIds = new HashSet<>();
+        for (Object[] searchResult : searchResults) {
+            searchResultsByVersionId.put(((Number) searchResult[0]).longValue(), searchResult);
+            if (searchResult[3] != null) {
+                thumbnailFileIds.add(((Number) searchResult[3]).longValue());
+            }
+        }
+        
+        Map<Long, DataFile> thumbnailFiles = datafileService.findCheapAndEasy(thumbnailFileIds);
+        
+        for (SolrSearchResult solrSearchResult : solrSearchResults) {
+            Object[] searchResult = searchResultsByVersionId.get(solrSearchResult.getDatasetVersionId());
+            // (the version must belong to the dataset of the card)
+            if (searchResult == null || !solrSearchResult.getEntityId().equals(((Number) searchResult[6]).longValue())) {
+                continue;
+            }
+            
+            if ("DEACCESSIONED".equals(searchResult[1])) {
+                solrSearchResult.setDeaccessionedState(true);
+            }
+            
+            if (searchResult[2] != null) {
+                solrSearchResult.setDataverseAlias((String) searchResult[2]);
+            }
+            
+            Dataset datasetEntity = new Dataset();
+            GlobalId globalId = PidUtil.parseAsGlobalID(solrSearchResult.getIdentifier());
+            
+            datasetEntity.setProtocol(globalId.getProtocol());
+            datasetEntity.setAuthority(globalId.getAuthority());
+            datasetEntity.setIdentifier(globalId.getIdentifier());
+            if (searchResult[5] != null) {
+                datasetEntity.setStorageIdentifier(searchResult[5].toString());
+            }
+            if (searchResult[3] != null) {
+                // This is the image file specifically assigned as the "icon" for
+                // the dataset:
+                DataFile thumbnailFile = thumbnailFiles.get(((Number) searchResult[3]).longValue());
+                if (thumbnailFile != null) {
+                    datasetEntity.setThumbnailFile(thumbnailFile);
+                }
+            }
+            datasetEntity.setUseGenericThumbnail(Boolean.TRUE.equals(searchResult[4]));
+            solrSearchResult.setEntity(datasetEntity);
+        }
+    }
+    
     /**
      * Return a list of the checksum Strings for files in the specified DatasetVersion
      * 
@@ -5,6 +5,7 @@ import edu.harvard.iq.dataverse.authorization.Permission;
 import edu.harvard.iq.dataverse.authorization.RoleAssignee;
 import edu.harvard.iq.dataverse.authorization.users.User;
 import edu.harvard.iq.dataverse.authorization.RoleAssignmentSet;
+import edu.harvard.iq.dataverse.mydata.MyDataRoleIndexServiceBean;
 import edu.harvard.iq.dataverse.search.IndexAsync;
 import edu.harvard.iq.dataverse.search.IndexResponse;
 import edu.harvard.iq.dataverse.search.IndexServiceBean;
@@ -46,6 +47,8 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
     SolrIndexServiceBean solrIndexService;
     @EJB
     IndexAsync indexAsync;
+    @EJB
+    MyDataRoleIndexServiceBean myDataRoleIndexService;
 
     public DataverseRole save(DataverseRole aRole) {
         if (aRole.getId() == null) {
@@ -76,6 +79,7 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
         } else {
             assignment = em.merge(assignment);
         }
+        myDataRoleIndexService.invalidate(assignment.getAssigneeIdentifier());
         /**
          * @todo update permissionModificationTime here.
          */
@@ -142,6 +146,7 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
             em.refresh(role);
         }
         em.refresh(assignee);
+        myDataRoleIndexService.invalidate(assignee.getIdentifier());
     }
 
     public void revoke(RoleAssignment ra) {
@@ -149,6 +154,7 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
             ra = em.merge(ra);
         }
         em.remove(ra);
+        myDataRoleIndexService.invalidate(ra.getAssigneeIdentifier());
         /**
          * @todo update permissionModificationTime here.
          */
@@ -170,10 +176,37 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
 
             reindexSet.add(ra.getDefinitionPoint());
         }
+        myDataRoleIndexService.invalidate(assignee.getIdentifier());
 
         indexAsync.indexRoles(reindexSet);
     }
 
+    /**
+     * Removes all the role assignments made on {@code definitionPoint}, as
+     * part of deleting it. No reindexing is done, the object is going away.
+     *
+     * @param definitionPoint the object about to be deleted
+     */
+    public void revokeAllOn(DvObject definitionPoint) {
+        if (definitionPoint.getId() == null) {
+            return;
+        }
+        for (RoleAssignment ra : directRoleAssignments(definitionPoint)) {
+            em.remove(ra);
+            myDataRoleIndexService.invalidate(ra.getAssigneeIdentifier());
+        }
+    }
+
+    /**
+     * Drops the cached "My Data" role assignments of an assignee whose
+     * assignments were changed outside of this bean.
+     *
+     * @param assigneeIdentifier
+     */
+    public void roleAssignmentsChanged(String assigneeIdentifier) {
+        myDataRoleIndexService.invalidate(assigneeIdentifier);
+    }
+
     public RoleAssignmentSet roleAssignments(User user, Dataverse dv) {
         RoleAssignmentSet retVal = new RoleAssignmentSet(user);
         while (dv != null) {
@@ -27,12 +27,15 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 import java.util.Properties;
+import java.util.Set;
 
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
@@ -76,6 +79,9 @@ public class DataverseServiceBean implements java.io.Serializable {
     @EJB
     DatasetServiceBean datasetService;
     
+    @EJB
+    DvObjectServiceBean dvObjectService;
+    
     @EJB
     DataverseLinkingServiceBean dataverseLinkingService;
 
@@ -344,8 +350,18 @@ public class DataverseServiceBean implements java.io.Serializable {
     }
     
     public String getDataverseLogoThumbnailAsBase64ById(Long dvId) {
-     
-        File dataverseLogoFile = getLogoById(dvId);
+        return getDataverseLogoThumbnailAsBase64(getLogoById(dvId));
+    }
+    
+    /**
+     * Same as {@link #getDataverseLogoThumbnailAsBase64ById(Long)}, for a logo
+     * already looked up with {@link #findLogoFileNamesByIds(Collection)}.
+     */
+    public String getDataverseLogoThumbnailAsBase64ById(Long dvId, String logoFileName) {
+        return getDataverseLogoThumbnailAsBase64(getLogoFile(dvId, logoFileName));
+    }
+    
+    private String getDataverseLogoThumbnailAsBase64(File dataverseLogoFile) {
         
         if (dataverseLogoFile != null) {
             String logoThumbNailPath;
@@ -388,6 +404,10 @@ public class DataverseServiceBean implements java.io.Serializable {
             return null;
         }
         
+        return getLogoFile(id, logoFileName);
+    }
+    
+    private File getLogoFile(Long id, String logoFileName) {
         if (logoFileName != null && !logoFileName.isEmpty()) {
             Properties p = System.getProperties();
             String domainRoot = p.getProperty("com.sun.aas.instanceRoot");
@@ -404,6 +424,34 @@ public class DataverseServiceBean implements java.io.Serializable {
         return null;         
     }
     
+    /**
+     * Looks up the logos of several dataverses in 1 query.
+     *
+     * @param ids the ids of the dataverses
+     * @return the file names of the logos, by dataverse id. Dataverses without
+     *         a logo are missing.
+     */
+    public Map<Long, String> findLogoFileNamesByIds(Collection<Long> ids) {
+        Map<Long, String> logoFileNames = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return logoFileNames;
+        }
+        
+        List<Object[]> results;
+        try {
+            results = em.createNativeQuery("SELECT dataverse_id, logo FROM dataversetheme WHERE dataverse_id IN (" + StringUtils.join(ids, ", ") + ")").getResultList();
+        } catch (Exception ex) {
+            return logoFileNames;
+        }
+        
+        for (Object[] result : results) {
+            if (result[1] != null && !((String) result[1]).isEmpty()) {
+                logoFileNames.put(((Number) result[0]).longValue(), (String) result[1]);
+            }
+        }
+        return logoFileNames;
+    }
+    
     public DataverseTheme findDataverseThemeByIdQuick(Long id) {
         if (id == null) {
             return null; 
@@ -656,6 +704,35 @@ public class DataverseServiceBean implements java.io.Serializable {
     }
     
     
+    /**
+     * Batch version of {@link #getParentAliasString(SolrSearchResult)}, in 1
+     * query.
+     *
+     * @param dvObjectIds the ids of the objects
+     * @return the aliases of the dataverses owning the objects, by object id.
+     *         Objects without an owner are missing.
+     */
+    public Map<Long, String> getParentAliasStrings(Collection<Long> dvObjectIds) {
+        Map<Long, String> parentAliases = new HashMap<>();
+        if (dvObjectIds == null || dvObjectIds.isEmpty()) {
+            return parentAliases;
+        }
+        
+        List<Object[]> searchResults;
+        try {
+            searchResults = em.createNativeQuery("SELECT t2.ID, t0.ALIAS FROM DATAVERSE t0, DVOBJECT t2 WHERE (t0.ID = t2.OWNER_ID) AND (t2.ID IN (" + StringUtils.join(dvObjectIds, ", ") + "))").getResultList();
+        } catch (Exception ex) {
+            return parentAliases;
+        }
+        
+        for (Object[] searchResult : searchResults) {
+            if (searchResult[1] != null) {
+                parentAliases.put(((Number) searchResult[0]).longValue(), (String) searchResult[1]);
+            }
+        }
+        return parentAliases;
+    }
+    
     public void populateDvSearchCard(SolrSearchResult solrSearchResult) {
   
         Long dvId = solrSearchResult.getEntityId();
@@ -705,61 +782,74 @@ public class DataverseServiceBean implements java.io.Serializable {
         }
     }
     
-    // function to recursively find ids of all children of a dataverse that 
-    // are also of type dataverse
-    public List<Long> findAllDataverseDataverseChildren(Long dvId) {
-        // get list of Dataverse children
-        List<Long> dataverseChildren = findIdsByOwnerId(dvId);
+    /**
+     * Populates the dataverse cards of a page of search results, in 1 query
+     * for all of them.
+     *
+     * @param solrSearchResults the dataverse cards
+     */
+    public void populateDvSearchCards(List<SolrSearchResult> solrSearchResults) {
+        Set<Long> dvIds = new HashSet<>();
+        for (SolrSearchResult solrSearchResult : solrSearchResults) {
+            if (solrSearchResult.getEntityId() != null) {
+                dvIds.add(solrSearchResult.getEntityId());
+            }
+        }
         
-        if (dataverseChildren == null) {
-            return dataverseChildren;
-        } else {
-            List<Long> newChildren = new ArrayList<>();
-            for (Long childDvId : dataverseChildren) {
-                newChildren.addAll(findAllDataverseDataverseChildren(childDvId));
+        if (dvIds.isEmpty()) {
+            return;
+        }
+        
+        List<Object[]> searchResults;
+        
+        try {
+            searchResults = em.createNativeQuery("SELECT t0.ID, t0.AFFILIATION, t0.ALIAS, t2.ALIAS FROM DATAVERSE t0 JOIN DVOBJECT t1 ON t1.ID = t0.ID LEFT JOIN DATAVERSE t2 ON t2.ID = t1.OWNER_ID WHERE t0.ID IN (" + StringUtils.join(dvIds, ", ") + ")").getResultList();
+        } catch (Exception ex) {
+            return;
+        }
+        
+        Map<Long, Object[]> searchResultsById = new HashMap<>();
+        for (Object[] searchResult : searchResults) {
+            searchResultsById.put(((Number) searchResult[0]).longValue(), searchResult);
+        }
+        
+        for (SolrSearchResult solrSearchResult : solrSearchResults) {
+            Object[] searchResult = searchResultsById.get(solrSearchResult.getEntityId());
+            if (searchResult == null) {
+                continue;
+            }
+            
+            if (searchResult[1] != null) {
+                solrSearchResult.setDataverseAffiliation((String) searchResult[1]);
+            }
+            
+            if (searchResult[2] != null) {
+                solrSearchResult.setDataverseAlias((String) searchResult[2]);
+            }
+            
+            if (searchResult[3] != null) {
+                solrSearchResult.setDataverseParentAlias((String) searchResult[3]);
             }
-            dataverseChildren.addAll(newChildren);
-            return dataverseChildren;
         }
     }
     
-    // function to recursively find ids of all children of a dataverse that are 
-    // of type dataset
+    // finds the ids of all the dataverses under a dataverse, at any depth
+    public List<Long> findAllDataverseDataverseChildren(Long dvId) {
+        return dvObjectService.findDescendantIds(dvId, DvObject.DType.Dataverse.getDType());
+    }
+    
+    // finds the ids of all the datasets under a dataverse, at any depth
     public List<Long> findAllDataverseDatasetChildren(Long dvId) {
-        // get list of Dataverse children
-        List<Long> dataverseChildren = findIdsByOwnerId(dvId);
-        // get list of Dataset children
-        List<Long> datasetChildren = datasetService.findIdsByOwnerId(dvId);
-        
-        if (dataverseChildren == null) {
-            return datasetChildren;
-        } else {
-            for (Long childDvId : dataverseChildren) {
-                datasetChildren.addAll(findAllDataverseDatasetChildren(childDvId));
-            }
-            return datasetChildren;
-        }
+        return dvObjectService.findDescendantIds(dvId, DvObject.DType.Dataset.getDType());
     }
     
     public String addRoleAssignmentsToChildren(Dataverse owner, ArrayList<String> rolesToInherit,
             boolean inheritAllRoles) {
         /*
-         * This query recursively finds all Dataverses that are inside/children of the
-         * specified one. It recursively finds dvobjects of dtype 'Dataverse' whose
-         * owner_id equals an id already in the list and then returns the list of ids
-         * found, excluding the id of the original specified Dataverse.
+         * All Dataverses that are inside/children of the specified one, at any depth,
+         * excluding the original specified Dataverse.
          */
-        String qstr = "WITH RECURSIVE path_elements AS ((" + " SELECT id, dtype FROM dvobject WHERE id in ("
-                + owner.getId() + "))" + " UNION\n"
-                + " SELECT o.id, o.dtype FROM path_elements p, dvobject o WHERE o.owner_id = p.id and o.dtype='Dataverse') "
-                + "SELECT id FROM path_elements WHERE id !=" + owner.getId() + ";";
-
-        List<Integer> childIds;
-        try {
-            childIds = em.createNativeQuery(qstr).getResultList();
-        } catch (Exception ex) {
-            childIds = null;
-        }
+        List<Long> childIds = findAllDataverseDataverseChildren(owner.getId());
 
         // Set up to track the set of users/groups that get assigned a role and those
         // that don't
@@ -772,14 +862,13 @@ public class DataverseServiceBean implements java.io.Serializable {
 
         List<Dataverse> children = new ArrayList<Dataverse>();
 
-        for (int i = 0; i < childIds.size(); i++) {
-            Integer childId = childIds.get(i);
-            Dataverse child = find(new Long(childId.longValue()));
+        for (Long childId : childIds) {
+            Dataverse child = find(childId);
             if (child != null) {
                 // Add to the list of Dataverses
                 children.add(child);
                 // Add ids and aliases to the tracking arrays
-                dataverseIds.add(childId.longValue());
+                dataverseIds.add(childId);
                 dataverseAliases.add(child.getAlias());
             }
         }
@@ -6,6 +6,7 @@ import edu.harvard.iq.dataverse.storageuse.StorageQuota;
 
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
@@ -142,6 +143,17 @@ public abstract class DvObject extends DataverseEntity implements java.io.Serial
     private String storageIdentifier;
     
     @Column(insertable = false, updatable = false) private String dtype;
+
+    /**
+     * Ids of the owners of this object, from the root down to its direct owner,
+     * as {@code /<root id>/.../<owner id>/} ({@code /} for the root). Maintained
+     * by the database on insert and whenever the owner changes, so it is only
+     * available on objects read from the database, and goes stale in memory
+     * when this object or one of its owners is moved (see
+     * {@link #getAncestorPath()}).
+     */
+    @Column(insertable = false, updatable = false, columnDefinition = "TEXT")
+    private String ancestorPath;
     
     /*
     * Add DOI related fields
@@ -255,6 +267,58 @@ public abstract class DvObject extends DataverseEntity implements java.io.Serial
         return (DvObjectContainer)owner;
     }
 
+    /**
+     * @return The ancestor path read from the database, if it still ends with
+     *         the direct owner in memory; {@code null} if the object was not
+     *         read from the database, or if it got a new owner since (the
+     *         database updates the stored paths on a move, but not the ones of
+     *         the objects already loaded).
+     */
+    public String getAncestorPath() {
+        if (ancestorPath == null) {
+            return null;
+        }
+        DvObject currentOwner = getOwner();
+        if (currentOwner == null) {
+            return "/".equals(ancestorPath) ? ancestorPath : null;
+        }
+        return ancestorPath.endsWith("/" + currentOwner.getId() + "/") ? ancestorPath : null;
+    }
+
+    /**
+     * Sets the ancestor path as if read from the database, for tests.
+     */
+    void setAncestorPath(String ancestorPath) {
+        this.ancestorPath = ancestorPath;
+    }
+
+    /**
+     * @return The ids of the owners of this object, from the root down to its
+     *         direct owner, or {@code null} if the ancestor path is not
+     *         available (see {@link #getAncestorPath()}).
+     */
+    public List<Long> getAncestorIds() {
+        return parseAncestorPath(getAncestorPath());
+    }
+
+    /**
+     * @param ancestorPath an ancestor path, as stored in the dvobject table
+     * @return the ids in the path, from the root down, or {@code null} if
+     *         {@code ancestorPath} is {@code null}.
+     */
+    public static List<Long> parseAncestorPath(String ancestorPath) {
+        if (ancestorPath == null) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String id : ancestorPath.split("/")) {
+            if (!id.isEmpty()) {
+                ids.add(Long.valueOf(id));
+            }
+        }
+        return ids;
+    }
+
     public Long getId() {
         return id;
     }
@@ -318,7 +318,7 @@ public class DvObjectServiceBean implements java.io.Serializable {
     /**
      * Used to calculate the dvObject tree paths for the search results on the
      * dataverse page. (In order to determine if "linked" or not).
-     * *done in recursive 1 query!*
+     * Read from the materialized ancestor paths, in 1 indexed query.
      * 
      * @param objectIds
      * @return 
@@ -327,6 +327,105 @@ public class DvObjectServiceBean implements java.io.Serializable {
         if (objectIds == null || objectIds.size() < 1) {
             return null;
         }
+
+        List<Object[]> searchResults = em.createNativeQuery("SELECT id, ancestorpath FROM dvobject WHERE id IN ("
+                + StringUtils.join(objectIds, ", ") + ")").getResultList();
+        if (searchResults.isEmpty()) {
+            return null;
+        }
+
+        Map<Long, String> ret = new HashMap<>();
+        for (Object[] result : searchResults) {
+            if (result[1] == null) {
+                return getObjectPathsByIdsRecursively(objectIds);
+            }
+            Long objectId = ((Number) result[0]).longValue();
+            StringBuilder treePath = new StringBuilder();
+            for (Long ancestorId : DvObject.parseAncestorPath((String) result[1])) {
+                // the root dataverse is not part of the paths
+                if (ancestorId != 1L) {
+                    treePath.append("/").append(ancestorId);
+                }
+            }
+            treePath.append("/").append(objectId);
+            logger.fine("OBJECT PATH: returning " + treePath + " for " + objectId);
+            ret.put(objectId, treePath.toString());
+        }
+        for (Long objectId : objectIds) {
+            ret.putIfAbsent(objectId, "/" + objectId);
+        }
+        return ret;
+    }
+
+    /**
+     * @param id the id of a {@link DvObject}
+     * @return the ids of the owners of the object, from the root down to its
+     *         direct owner, or {@code null} if there is no such object.
+     */
+    public List<Long> findAncestorIds(Long id) {
+        try {
+            return DvObject.parseAncestorPath((String) em.createNativeQuery("SELECT ancestorpath FROM dvobject WHERE id = ?1")
+                    .setParameter(1, id)
+                    .getSingleResult());
+        } catch (NoResultException nre) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds all the objects under an object, at any depth, in 1 indexed query.
+     *
+     * @param id the id of a {@link DvObject}
+     * @param dtype if not {@code null}, only return objects of this type
+     *              ({@code Dataverse}, {@code Dataset} or {@code DataFile})
+     * @return the ids of the objects under the object
+     */
+    public List<Long> findDescendantIds(Long id, String dtype) {
+        String pattern = findDescendantPathPattern(id);
+        if (pattern == null) {
+            return new ArrayList<>();
+        }
+
+        Query query = em.createNativeQuery("SELECT id FROM dvobject WHERE ancestorpath LIKE ?1"
+                + (dtype == null ? "" : " AND dtype = ?2") + " ORDER BY id")
+                .setParameter(1, pattern);
+        if (dtype != null) {
+            query.setParameter(2, dtype);
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Object result : query.getResultList()) {
+            ids.add(((Number) result).longValue());
+        }
+        return ids;
+    }
+
+    /**
+     * @param id the id of a {@link DvObject}
+     * @return a {@code LIKE} pattern matching the ancestor paths of all the
+     *         objects under the object, or {@code null} if there is no such
+     *         object.
+     */
+    public String findDescendantPathPattern(Long id) {
+        List<Long> ancestorIds = findAncestorIds(id);
+        if (ancestorIds == null) {
+            return null;
+        }
+        StringBuilder prefix = new StringBuilder("/");
+        for (Long ancestorId : ancestorIds) {
+            prefix.append(ancestorId).append("/");
+        }
+        return prefix.append(id).append("/%").toString();
+    }
+
+    /**
+     * Computes the same paths as {@link #getObjectPathsByIds(Set)}, by walking
+     * the owner_id column. Used for objects whose ancestor path is missing.
+     * *done in recursive 1 query!*
+     */
+    private Map<Long, String> getObjectPathsByIdsRecursively(Set<Long> objectIds){
+        if (objectIds == null || objectIds.size() < 1) {
+            return null;
+        }
         
         String datasetIdStr = StringUtils.join(objectIds, ", ");
         
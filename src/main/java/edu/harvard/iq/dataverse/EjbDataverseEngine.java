@@ -104,6 +104,9 @@ public class EjbDataverseEngine {
     @EJB
     DataFileServiceBean dataFileService;
 
+    @EJB
+    ThumbnailServiceBean thumbnailService;
+
     @EJB
     TemplateServiceBean templateService;
     
@@ -453,6 +456,11 @@ public class EjbDataverseEngine {
                     return dataFileService;
                 }
 
+                @Override
+                public ThumbnailServiceBean thumbnails() {
+                    return thumbnailService;
+                }
+
                 @Override
                 public EntityManager em() {
                     return em;
@@ -0,0 +1,354 @@
+package edu.harvard.iq.dataverse;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Resolves external vocabulary terms against the vocabulary services configured
+ * in :CVocConf, and caches the resolved values.
+ *
+ * Terms are fetched in parallel, by at most dataverse.cvoc.threads workers
+ * running on the managed executor of the application server, over pooled
+ * connections. Callers wait at most
+ * dataverse.cvoc.timeout seconds for a batch; values arriving later are stored
+ * in the background (in their own transaction), as are refreshes of values older
+ * than dataverse.cvoc.refresh-after seconds. Saving a dataset thus never waits
+ * long on a slow vocabulary service. Values stored in the background do not
+ * trigger any reindexing: the datasets using them show them in the search index
+ * the next time they are indexed.
+ *
+ * Each request to a vocabulary service (connecting, waiting for a pooled
+ * connection, and reading) also times out after dataverse.cvoc.timeout seconds,
+ * so that a hung service cannot hold the fetching threads indefinitely.
+ *
+ * The resolved values are persisted as {@link ExternalVocabularyValue}s; reads
+ * of those (e.g. while indexing) go through a short-lived in-memory cache.
+ *
+ * @see DatasetFieldServiceBean#registerExternalVocabValues(java.util.List)
+ */
+@Singleton
+public class ExternalVocabularyResolverServiceBean {
+
+    private static final Logger logger = Logger.getLogger(ExternalVocabularyResolverServiceBean.class.getCanonicalName());
+
+    @EJB
+    DatasetFieldServiceBean datasetFieldService;
+
+    @Resource
+    ManagedExecutorService executor;
+
+    private int maxWorkers;
+    private final Queue<Runnable> queuedFetches = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger workers = new AtomicInteger();
+    private CloseableHttpClient httpClient;
+    private Cache<String, Optional<JsonObject>> valueCache;
+    private final Set<String> refreshesInProgress = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A term to fetch, with the URL to fetch it from and the configuration of
+     * its field.
+     */
+    public static final class TermRequest {
+
+        private final String term;
+        private final String retrievalUri;
+        private final JsonObject cvocEntry;
+
+        public TermRequest(String term, String retrievalUri, JsonObject cvocEntry) {
+            this.term = term;
+            this.retrievalUri = retrievalUri;
+            this.cvocEntry = cvocEntry;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public String getRetrievalUri() {
+            return retrievalUri;
+        }
+
+        public JsonObject getCvocEntry() {
+            return cvocEntry;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        maxWorkers = JvmSettings.CVOC_THREADS.lookup(Integer.class);
+
+        int timeoutMillis = (int) TimeUnit.SECONDS.toMillis(JvmSettings.CVOC_TIMEOUT.lookup(Integer.class));
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(timeoutMillis)
+                .setConnectionRequestTimeout(timeoutMillis)
+                .setSocketTimeout(timeoutMillis)
+                .build();
+
+        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+        cm.setMaxTotal(maxWorkers);
+        cm.setDefaultMaxPerRoute(maxWorkers);
+        httpClient = HttpClients.custom()
+                .setConnectionManager(cm)
+                .setDefaultRequestConfig(requestConfig)
+                .addInterceptorLast((HttpResponse response, HttpContext context) -> {
+                    if (response.getStatusLine().getStatusCode() == 504) {
+                        //Throwing an exception triggers the retry handler
+                        throw new IOException("Retry due to 504 response");
+                    }
+                })
+                //The retry handler will also do retries for network errors/other things that cause an IOException
+                .setRetryHandler(new DefaultHttpRequestRetryHandler(3, false))
+                .build();
+
+        valueCache = Caffeine.newBuilder()
+                .maximumSize(JvmSettings.CVOC_CACHE_MAXSIZE.lookup(Integer.class))
+                .expireAfterWrite(Duration.of(JvmSettings.CVOC_CACHE_MAXAGE.lookup(Integer.class), ChronoUnit.SECONDS))
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // (the executor belongs to the application server; the running
+        // workers stop once the queue is empty)
+        queuedFetches.clear();
+        try {
+            httpClient.close();
+        } catch (IOException ioe) {
+            logger.fine("Problem closing the external vocabulary http client: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Fetches the passed terms in parallel, and waits for them at most
+     * dataverse.cvoc.timeout seconds. Terms fetched after that are stored in
+     * the background.
+     *
+     * @param requests the terms to fetch
+     * @return the (filtered) values of the terms fetched in time, by term.
+     *         Terms that failed to resolve are missing.
+     */
+    @Lock(LockType.READ)
+    public Map<String, String> resolve(Collection<TermRequest> requests) {
+        Map<String, CompletableFuture<String>> fetches = new LinkedHashMap<>();
+        for (TermRequest request : requests) {
+            if (!fetches.containsKey(request.getTerm())) {
+                fetches.put(request.getTerm(), CompletableFuture.supplyAsync(() -> fetch(request), this::queueFetch));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(fetches.values().toArray(new CompletableFuture[0]))
+                    .get(JvmSettings.CVOC_TIMEOUT.lookup(Integer.class), TimeUnit.SECONDS);
+        } catch (TimeoutException te) {
+            logger.warning("Timed out resolving external vocabulary terms, the remaining ones will be stored in the background");
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            // fetch() does not throw; nothing to do here
+            logger.log(Level.FINE, "Unexpected failure resolving external vocabulary terms", ee);
+        }
+
+        Map<String, String> values = new HashMap<>();
+        fetches.forEach((term, fetch) -> {
+            if (fetch.isDone()) {
+                String value = fetch.getNow(null);
+                if (value != null) {
+                    values.put(term, value);
+                }
+            } else {
+                fetch.thenAccept(value -> store(term, value));
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Re-fetches and stores the passed terms in the background. Terms already
+     * being refreshed are skipped.
+     *
+     * @param requests the terms to refresh
+     */
+    @Lock(LockType.READ)
+    public void refreshInBackground(Collection<TermRequest> requests) {
+        for (TermRequest request : requests) {
+            String term = request.getTerm();
+            if (refreshesInProgress.add(term)) {
+                CompletableFuture.supplyAsync(() -> fetch(request), this::queueFetch)
+                        .thenAccept(value -> store(term, value))
+                        .whenComplete((v, t) -> refreshesInProgress.remove(term));
+            }
+        }
+    }
+
+    /**
+     * @param evv a stored value
+     * @return whether the value is due for a refresh
+     */
+    public boolean isStale(ExternalVocabularyValue evv) {
+        if (evv.getLastUpdateDate() == null) {
+            return true;
+        }
+        Instant refreshAfter = evv.getLastUpdateDate().toInstant()
+                .plusSeconds(JvmSettings.CVOC_REFRESH_AFTER.lookup(Integer.class));
+        return refreshAfter.isBefore(Instant.now());
+    }
+
+    /**
+     * @param termUri the term
+     * @param loader reads the stored value of a term, if not cached yet
+     * @return the stored value of the term, or {@code null} if there is none.
+     */
+    @Lock(LockType.READ)
+    public JsonObject getValue(String termUri, Function<String, JsonObject> loader) {
+        return valueCache.get(termUri, uri -> Optional.ofNullable(loader.apply(uri))).orElse(null);
+    }
+
+    /**
+     * Drops the cached value of a term whose stored value has changed.
+     *
+     * @param termUri the term
+     */
+    @Lock(LockType.READ)
+    public void invalidate(String termUri) {
+        valueCache.invalidate(termUri);
+    }
+
+    /**
+     * Queues a fetch, and starts a worker to run it if fewer than
+     * dataverse.cvoc.threads are running.
+     */
+    private void queueFetch(Runnable fetch) {
+        queuedFetches.add(fetch);
+        startWorker();
+    }
+
+    private void startWorker() {
+        while (!queuedFetches.isEmpty()) {
+            int running = workers.get();
+            if (running >= maxWorkers) {
+                return;
+            }
+            if (workers.compareAndSet(running, running + 1)) {
+                try {
+                    executor.execute(this::work);
+                } catch (RejectedExecutionException ree) {
+                    workers.decrementAndGet();
+                    logger.warning("Executor rejected an external vocabulary worker, the queued terms wait for the next one");
+                }
+                return;
+            }
+        }
+    }
+
+    private void work() {
+        try {
+            Runnable fetch;
+            while ((fetch = queuedFetches.poll()) != null) {
+                fetch.run();
+            }
+        } finally {
+            workers.decrementAndGet();
+        }
+        // (a fetch may have been queued after the last poll, while all the
+        // workers were still counted as running)
+        startWorker();
+    }
+
+    private void store(String term, String value) {
+        if (value == null) {
+            return;
+        }
+        try {
+            datasetFieldService.storeExternalVocabularyValue(term, value);
+        } catch (RuntimeException e) {
+            logger.warning("Problem storing external vocabulary value for " + term + " : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Performs a call to the external service to retrieve information about a term.
+     *
+     * @return the filtered response, as a string, or {@code null} if the term
+     *         could not be retrieved.
+     */
+    String fetch(TermRequest request) {
+        String retrievalUri = request.getRetrievalUri();
+        logger.fine("Didn't find " + request.getTerm() + ", calling " + retrievalUri);
+        try {
+            HttpGet httpGet = new HttpGet(retrievalUri);
+            //application/json+ld is for backward compatibility
+            httpGet.addHeader("Accept", "application/ld+json, application/json+ld, application/json");
+            //Adding others custom HTTP request headers if exists
+            final JsonObject headers = request.getCvocEntry().getJsonObject("headers");
+            if (headers != null) {
+                for (final String hKey : headers.keySet()) {
+                    httpGet.addHeader(hKey, headers.getString(hKey));
+                }
+            }
+            try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
+                String data = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode != 200) {
+                    logger.severe("Received response code : " + statusCode + " when retrieving " + retrievalUri + " : " + data);
+                    return null;
+                }
+                logger.fine("Returned data: " + data);
+                try (JsonReader jsonReader = Json.createReader(new StringReader(data))) {
+                    JsonObject filtered = DatasetFieldServiceBean.filterResponse(request.getCvocEntry(), jsonReader.readObject(), request.getTerm());
+                    return (filtered == null) ? null : filtered.toString();
+                }
+            }
+        } catch (IOException ioe) {
+            logger.severe("IOException when retrieving url: " + retrievalUri + " : " + ioe.getMessage());
+        } catch (RuntimeException e) {
+            logger.severe("Error retrieving: " + retrievalUri + " : " + e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package edu.harvard.iq.dataverse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.primefaces.model.FilterMeta;
+import org.primefaces.model.LazyDataModel;
+import org.primefaces.model.SortMeta;
+
+/**
+ * The files table of the dataset page. Only the ids of the file metadatas to
+ * list, already filtered and sorted, are kept; the file metadatas themselves
+ * are loaded one page at a time, as the table is paged through.
+ */
+public class FileMetadataLazyDataModel extends LazyDataModel<FileMetadata> {
+
+    private final DatasetVersionFilesServiceBean datasetVersionFilesService;
+    private final List<Long> fileMetadataIds;
+    private List<FileMetadata> page = Collections.emptyList();
+
+    /**
+     * @param datasetVersionFilesService the service to load the pages with
+     * @param fileMetadataIds            the ids of the file metadatas to list, in order
+     */
+    public FileMetadataLazyDataModel(DatasetVersionFilesServiceBean datasetVersionFilesService, List<Long> fileMetadataIds) {
+        this.datasetVersionFilesService = datasetVersionFilesService;
+        this.fileMetadataIds = fileMetadataIds;
+    }
+
+    /**
+     * @return the number of files listed, on all the pages
+     */
+    public int size() {
+        return fileMetadataIds.size();
+    }
+
+    @Override
+    public int count(Map<String, FilterMeta> filterBy) {
+        return fileMetadataIds.size();
+    }
+
+    @Override
+    public List<FileMetadata> load(int first, int pageSize, Map<String, SortMeta> sortBy, Map<String, FilterMeta> filterBy) {
+        // Sorting and filtering are done by the page (see DatasetPage.selectFileMetadatasForDisplay())
+        int from = Math.min(Math.max(first, 0), fileMetadataIds.size());
+        int to = Math.min(from + pageSize, fileMetadataIds.size());
+        page = datasetVersionFilesService.getFileMetadatasByIds(new ArrayList<>(fileMetadataIds.subList(from, to)));
+        return page;
+    }
+
+    @Override
+    public String getRowKey(FileMetadata fileMetadata) {
+        return fileMetadata.getId().toString();
+    }
+
+    /**
+     * Files selected on other pages than the current one are loaded on their own.
+     */
+    @Override
+    public FileMetadata getRowData(String rowKey) {
+        Long id;
+        try {
+            id = Long.valueOf(rowKey);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        for (FileMetadata fileMetadata : page) {
+            if (id.equals(fileMetadata.getId())) {
+                return fileMetadata;
+            }
+        }
+        if (!fileMetadataIds.contains(id)) {
+            return null;
+        }
+        List<FileMetadata> found = datasetVersionFilesService.getFileMetadatasByIds(List.of(id));
+        return found.isEmpty() ? null : found.get(0);
+    }
+}
@@ -16,6 +16,7 @@ import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
 import edu.harvard.iq.dataverse.mydata.MyDataFilterParams;
 import edu.harvard.iq.dataverse.privateurl.PrivateUrlUtil;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -219,6 +220,49 @@ public class RoleAssigneeServiceBean {
 
     }
 
+    /**
+     * The identifiers a role assignment may be made to for the user of the
+     * given MyData filter params: the user itself plus all of the user's
+     * explicit and runtime groups. Same set as used by
+     * {@link #getAssigneeAndRoleIdListFor(MyDataFilterParams)}.
+     *
+     * @param filterParams
+     * @return the assignee identifiers, or null if the user has no identifier
+     */
+    public List<String> getAssigneeIdentifiersFor(MyDataFilterParams filterParams) {
+
+        if (filterParams == null){
+            throw new NullPointerException("Cannot be null! filterParams must be an instance of MyDataFilterParams");
+        }
+
+        AuthenticatedUser au = filterParams.getAuthenticatedUser();
+        if (au.getUserIdentifier() == null) {
+            return null;
+        }
+        String roleAssigneeIdentifier = "@" + au.getUserIdentifier();
+        roleAssigneeIdentifier = roleAssigneeIdentifier.replaceAll("\\s", "");   // remove spaces from string
+
+        Set<String> identifiers = new LinkedHashSet<>();
+        identifiers.add(roleAssigneeIdentifier);
+        List<String> userExplicitGroups = getUserExplicitGroups(au);
+        if (userExplicitGroups != null) {
+            for (String alias : userExplicitGroups) {
+                if (alias != null) {
+                    identifiers.add("&explicit/" + alias);
+                }
+            }
+        }
+        List<String> userRunTimeGroups = getUserRuntimeGroups(filterParams.getDataverseRequest());
+        if (userRunTimeGroups != null) {
+            for (String identifier : userRunTimeGroups) {
+                if (identifier != null) {
+                    identifiers.add(identifier);
+                }
+            }
+        }
+        return new ArrayList<>(identifiers);
+    }
+
     public List<Long> getRoleIdListForGivenAssigneeDvObject(DataverseRequest dataverseRequest, List<Long> roleIdList, Long defPointId) {
         if (dataverseRequest == null){
             throw new NullPointerException("dataverseRequest cannot be null!");
@@ -0,0 +1,201 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.FileUtil;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+
+/**
+ * Generates thumbnails in the background, with at most
+ * dataverse.thumbnails.threads workers running on the managed executor of the
+ * application server, so that rendering a page never waits on the storage (or
+ * on ImageMagick) to decide whether to show a thumbnail.
+ *
+ * The outcome is persisted on the file: the sizes generated (see
+ * {@link DataFile#getThumbnailSizes()}), or the failure flag if no thumbnail
+ * can be generated. Requests for a thumbnail already queued are ignored, and
+ * requests beyond dataverse.thumbnails.queue-size are dropped; the next view
+ * of the file requests it again.
+ *
+ * New files get the standard sizes requested as soon as they are saved (see
+ * {@link #requestStandardThumbnails(List)}), so that they are usually ready
+ * by the time the files are first shown.
+ */
+@Singleton
+public class ThumbnailServiceBean {
+
+    private static final Logger logger = Logger.getLogger(ThumbnailServiceBean.class.getCanonicalName());
+
+    @EJB
+    DataFileServiceBean dataFileService;
+
+    @Resource
+    ManagedExecutorService executor;
+
+    private int maxWorkers;
+    private BlockingQueue<Runnable> jobs;
+    private final AtomicInteger workers = new AtomicInteger();
+    private final Set<String> pendingThumbnails = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The sizes shown on the dataset and file pages and in the search cards.
+     */
+    static final int[] STANDARD_SIZES = {
+            ImageThumbConverter.DEFAULT_CARDIMAGE_SIZE,
+            ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE,
+            ImageThumbConverter.DEFAULT_PREVIEW_SIZE
+    };
+
+    @PostConstruct
+    void init() {
+        maxWorkers = JvmSettings.THUMBNAILS_THREADS.lookup(Integer.class);
+        jobs = new LinkedBlockingQueue<>(JvmSettings.THUMBNAILS_QUEUE_SIZE.lookup(Integer.class));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // (the executor belongs to the application server; the running
+        // workers stop once the queue is empty)
+        jobs.clear();
+    }
+
+    /**
+     * Queues the generation of a thumbnail, unless it is queued already.
+     *
+     * @param fileId the id of the file
+     * @param size the thumbnail size
+     */
+    @Lock(LockType.READ)
+    public void requestThumbnail(Long fileId, int size) {
+        requestThumbnails(fileId, size);
+    }
+
+    /**
+     * Queues the generation of the standard thumbnail sizes of the new files
+     * that support thumbnails.
+     *
+     * @param files the files just saved
+     */
+    @Lock(LockType.READ)
+    public void requestStandardThumbnails(List<DataFile> files) {
+        for (DataFile file : files) {
+            if (needsThumbnails(file)) {
+                requestThumbnails(file.getId(), STANDARD_SIZES);
+            }
+        }
+    }
+
+    /**
+     * Queues the generation of several sizes of thumbnail of a file, as 1
+     * job, so that the file is read only once. Does nothing if the same
+     * sizes are queued already.
+     *
+     * @param fileId the id of the file
+     * @param sizes the thumbnail sizes
+     */
+    @Lock(LockType.READ)
+    public void requestThumbnails(Long fileId, int... sizes) {
+        if (fileId == null || sizes.length == 0) {
+            return;
+        }
+        String key = fileId + ":" + Arrays.toString(sizes);
+        if (!pendingThumbnails.add(key)) {
+            return;
+        }
+        boolean queued = jobs.offer(() -> {
+            try {
+                generateThumbnails(fileId, sizes);
+            } finally {
+                pendingThumbnails.remove(key);
+            }
+        });
+        if (!queued) {
+            pendingThumbnails.remove(key);
+            logger.fine("Thumbnail queue is full, not generating the thumbnails of size " + Arrays.toString(sizes) + " for file " + fileId + " now");
+            return;
+        }
+        startWorker();
+    }
+
+    /**
+     * Starts another worker on the executor, unless there are no jobs or
+     * dataverse.thumbnails.threads workers are running already.
+     */
+    private void startWorker() {
+        while (!jobs.isEmpty()) {
+            int running = workers.get();
+            if (running >= maxWorkers) {
+                return;
+            }
+            if (workers.compareAndSet(running, running + 1)) {
+                try {
+                    executor.execute(this::work);
+                } catch (RejectedExecutionException ree) {
+                    workers.decrementAndGet();
+                    logger.fine("Executor rejected a thumbnail worker, the queued thumbnails wait for the next one");
+                }
+                return;
+            }
+        }
+    }
+
+    private void work() {
+        try {
+            Runnable job;
+            while ((job = jobs.poll()) != null) {
+                job.run();
+            }
+        } finally {
+            workers.decrementAndGet();
+        }
+        // (a job may have been queued after the last poll, while all the
+        // workers were still counted as running)
+        startWorker();
+    }
+
+    static boolean needsThumbnails(DataFile file) {
+        return file.getId() != null
+                && !file.isHarvested()
+                && !file.isPreviewImageAvailable()
+                && !file.isPreviewImageFail()
+                && FileUtil.isThumbnailSupported(file);
+    }
+
+    void generateThumbnails(Long fileId, int... sizes) {
+        try {
+            DataFile file = dataFileService.find(fileId);
+            if (file == null || file.isPreviewImageFail()) {
+                return;
+            }
+            // (the thumbnail may have been requested because a recorded size
+            // turned out to be missing - so look at the storage itself)
+            file.setThumbnailSizes(null);
+            List<Integer> available = ImageThumbConverter.generateThumbnails(file, sizes);
+            for (int size : available) {
+                dataFileService.recordThumbnailSize(fileId, size);
+            }
+            if (available.isEmpty() && file.isPreviewImageFail()) {
+                dataFileService.recordThumbnailFailure(fileId);
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to generate the thumbnails of size " + Arrays.toString(sizes) + " for file " + fileId, e);
+        }
+    }
+}
@@ -9,12 +9,16 @@ import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.dataset.DatasetUtil;
+import edu.harvard.iq.dataverse.search.SearchCardServiceBean;
 import edu.harvard.iq.dataverse.search.SolrSearchResult;
 import edu.harvard.iq.dataverse.util.SystemConfig;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import jakarta.ejb.EJB;
@@ -43,10 +47,44 @@ public class ThumbnailServiceWrapper implements java.io.Serializable  {
     DatasetVersionServiceBean datasetVersionService;
     @EJB
     DataFileServiceBean dataFileService;
+    @EJB
+    SearchCardServiceBean searchCardService;
     
     private Map<Long, String> dvobjectThumbnailsMap = new HashMap<>();
     private Map<Long, DvObject> dvobjectViewMap = new HashMap<>();
     private Map<Long, Boolean> hasThumbMap = new HashMap<>();
+    // looked up by prefetchCardImages(), for a page of search results:
+    private Map<Long, String> dataverseLogoMap = new HashMap<>();
+    private Map<Long, Long> versionThumbnailMap = new HashMap<>();
+    private Set<Long> releasedVersionIds = new HashSet<>();
+
+    /**
+     * Looks up what the card images of a page of search results need from the
+     * database all at once: the logos of the dataverses, and the thumbnails
+     * of the dataset versions. Call before the get*CardImage* methods below,
+     * and {@link #resetObjectMaps()} when done with the page.
+     *
+     * @param results the populated search results
+     */
+    public void prefetchCardImages(List<SolrSearchResult> results) {
+        Set<Long> dataverseIds = new HashSet<>();
+        for (SolrSearchResult result : results) {
+            if (result.getType().equals("dataverses") && result.getEntityId() != null) {
+                dataverseIds.add(result.getEntityId());
+            } else if (result.getType().equals("datasets") && result.isPublishedState()) {
+                releasedVersionIds.add(result.getDatasetVersionId());
+            }
+        }
+        
+        if (!dataverseIds.isEmpty()) {
+            Map<Long, String> logoFileNames = dataverseService.findLogoFileNamesByIds(dataverseIds);
+            for (Long dataverseId : dataverseIds) {
+                dataverseLogoMap.put(dataverseId, logoFileNames.get(dataverseId));
+            }
+        }
+        
+        versionThumbnailMap.putAll(searchCardService.findVersionThumbnails(results));
+    }
 
     // it's the responsibility of the user - to make sure the search result
     // passed to this method is of the Datafile type!
@@ -188,7 +226,7 @@ public class ThumbnailServiceWrapper implements java.io.Serializable  {
             // If no other logo we attempt to auto-select via the optimized, native
             // query-based method
             // from the DatasetVersionService:
-            if (!hasDatasetLogo && datasetVersionService.getThumbnailByVersionId(versionId) == null) {
+            if (!hasDatasetLogo && getThumbnailByVersionId(versionId) == null) {
                 return null;
             }
         }
@@ -199,16 +237,31 @@ public class ThumbnailServiceWrapper implements java.io.Serializable  {
         
     }
     
+    private Long getThumbnailByVersionId(Long versionId) {
+        if (versionThumbnailMap.containsKey(versionId)) {
+            return versionThumbnailMap.get(versionId);
+        }
+        return searchCardService.getVersionThumbnail(versionId, releasedVersionIds.contains(versionId));
+    }
+    
     // it's the responsibility of the user - to make sure the search result
     // passed to this method is of the Dataverse type!
     public String getDataverseCardImageAsBase64Url(SolrSearchResult result) {
-        return dataverseService.getDataverseLogoThumbnailAsBase64ById(result.getEntityId());
+        Long dataverseId = result.getEntityId();
+        if (dataverseLogoMap.containsKey(dataverseId)) {
+            String logoFileName = dataverseLogoMap.get(dataverseId);
+            return logoFileName == null ? null : dataverseService.getDataverseLogoThumbnailAsBase64ById(dataverseId, logoFileName);
+        }
+        return dataverseService.getDataverseLogoThumbnailAsBase64ById(dataverseId);
     }
     
     public void resetObjectMaps() {
         dvobjectThumbnailsMap = new HashMap<>();
         dvobjectViewMap = new HashMap<>();
         hasThumbMap = new HashMap<>();
+        dataverseLogoMap = new HashMap<>();
+        versionThumbnailMap = new HashMap<>();
+        releasedVersionIds = new HashSet<>();
     }
 
     
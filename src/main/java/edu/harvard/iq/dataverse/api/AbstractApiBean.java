@@ -39,6 +39,7 @@ import jakarta.ejb.EJB;
 import jakarta.ejb.EJBException;
 import jakarta.json.*;
 import jakarta.json.JsonValue.ValueType;
+import jakarta.json.stream.JsonGenerator;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
@@ -50,6 +51,7 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.ResponseBuilder;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import java.io.InputStream;
 import java.net.URI;
@@ -57,6 +59,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -702,6 +705,31 @@ public abstract class AbstractApiBean {
                 .type(MediaType.APPLICATION_JSON).build();
     }
 
+    /**
+     * Returns an OK response whose data is written directly to the response
+     * stream by {@code dataWriter}, rather than built in memory first. Use for
+     * potentially huge payloads. Note that the data is written after the API
+     * method returns, so failures at that point can't change the response status.
+     *
+     * @param totalCount value of the "totalCount" field, or {@code null} to omit it.
+     * @param dataWriter writes a single JSON value, the "data" of the response.
+     */
+    protected Response okStreaming( Long totalCount, Consumer<JsonGenerator> dataWriter ) {
+        StreamingOutput stream = os -> {
+            try (JsonGenerator generator = Json.createGenerator(os)) {
+                generator.writeStartObject()
+                        .write("status", ApiConstants.STATUS_OK);
+                if (totalCount != null) {
+                    generator.write("totalCount", totalCount);
+                }
+                generator.writeKey("data");
+                dataWriter.accept(generator);
+                generator.writeEnd();
+            }
+        };
+        return Response.ok(stream).type(MediaType.APPLICATION_JSON).build();
+    }
+
     protected Response ok( JsonArray ja ) {
         return Response.ok(Json.createObjectBuilder()
             .add("status", ApiConstants.STATUS_OK)
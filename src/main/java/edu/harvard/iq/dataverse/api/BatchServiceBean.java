@@ -6,23 +6,36 @@ import edu.harvard.iq.dataverse.DataverseServiceBean;
 import edu.harvard.iq.dataverse.api.imports.ImportException;
 import edu.harvard.iq.dataverse.api.imports.ImportUtil;
 import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jakarta.annotation.Resource;
 import jakarta.ejb.Asynchronous;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.json.Json;
 import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObjectBuilder;
 
 /**
  * EJB for kicking off big batch jobs asynchronously from the REST API  (BatchImport.java)
+ * 
+ * The files are imported on the managed executor of the application server, 
+ * dataverse.import.batch-threads at a time;
+ * each file is imported in its own transaction (see ImportServiceBean.handleFile()), 
+ * so a failing file doesn't affect the others.
  * @author ellenk
  */
 @Stateless
@@ -33,6 +46,8 @@ public class BatchServiceBean {
     DataverseServiceBean dataverseService;
     @EJB
     ImportServiceBean importService;
+    @Resource
+    ManagedExecutorService executor;
     
 
     @Asynchronous
@@ -40,6 +55,7 @@ public class BatchServiceBean {
         logger.info("BEGIN IMPORT");
         PrintWriter validationLog = null;
         PrintWriter cleanupLog = null;
+        Semaphore importSlots = new Semaphore(JvmSettings.IMPORT_BATCH_THREADS.lookup(Integer.class));
         try {
         JsonArrayBuilder status = Json.createArrayBuilder();
         Date timestamp = new Date();
@@ -50,24 +66,27 @@ public class BatchServiceBean {
         cleanupLog = new PrintWriter(new FileWriter( System.getProperty("com.sun.aas.instanceRoot") + File.separator + "logs" + File.separator + "cleanupLog"+  formatter.format(timestamp)+".txt"));
         File dir = new File(fileDir);
         if (dir.isDirectory()) {
+            List<Future<JsonObjectBuilder>> fileImports = new ArrayList<>();
             for (File file : dir.listFiles()) {
                 if (!file.isHidden()) {
                     if (file.isDirectory()) {
                         try {
-                            status.add(handleDirectory(dataverseRequest, file, importType, validationLog, cleanupLog, createDV));
+                            status.add(handleDirectory(dataverseRequest, file, importType, validationLog, cleanupLog, createDV, importSlots));
                         } catch (ImportException e) {
                             logger.log(Level.SEVERE, "Exception in handleDirectory() for "+ file.getName(),e);
                         }
                     } else {
-                        try {
-                            status.add(importService.handleFile(dataverseRequest, owner, file, importType, validationLog, cleanupLog));
-                        } catch(ImportException e) {
-                             logger.log(Level.SEVERE, "Exception in handleFile() for "+ file.getName(),e);
-                        }
-
+                        fileImports.add(submitFile(importSlots, dataverseRequest, owner, file, importType, validationLog, cleanupLog));
                     }
                 }
             }
+            for (Future<JsonObjectBuilder> fileImport : fileImports) {
+                try {
+                    status.add(fileImport.get());
+                } catch (ExecutionException e) {
+                    logger.log(Level.SEVERE, "Exception in handleFile()", e.getCause());
+                }
+            }
         } else {
             status.add(importService.handleFile(dataverseRequest, owner, dir, importType, validationLog, cleanupLog));
 
@@ -83,7 +102,7 @@ public class BatchServiceBean {
 
     }
 
-    public JsonArrayBuilder handleDirectory(DataverseRequest dataverseRequest, File dir, ImportUtil.ImportType importType, PrintWriter validationLog, PrintWriter cleanupLog, Boolean createDV) throws ImportException{
+    private JsonArrayBuilder handleDirectory(DataverseRequest dataverseRequest, File dir, ImportUtil.ImportType importType, PrintWriter validationLog, PrintWriter cleanupLog, Boolean createDV, Semaphore importSlots) throws ImportException, InterruptedException {
         JsonArrayBuilder status = Json.createArrayBuilder();
         Dataverse owner = dataverseService.findByAlias(dir.getName());
         if (owner == null ) {
@@ -94,17 +113,42 @@ public class BatchServiceBean {
                 throw new ImportException("Can't find dataverse with identifier='" + dir.getName() + "'");
             }
         }
+        List<File> files = new ArrayList<>();
+        List<Future<JsonObjectBuilder>> fileImports = new ArrayList<>();
         for (File file : dir.listFiles()) {
             if (!file.isHidden()) {
-                try {
-                    JsonObjectBuilder fileStatus = importService.handleFile(dataverseRequest, owner, file, importType, validationLog, cleanupLog);
-                    status.add(fileStatus);
-                } catch (ImportException | IOException e) {
-                    status.add(Json.createObjectBuilder().add("importStatus", "Exception importing " + file.getName() + ", message = " + e.getMessage()));
-                }
+                files.add(file);
+                fileImports.add(submitFile(importSlots, dataverseRequest, owner, file, importType, validationLog, cleanupLog));
+            }
+        }
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                status.add(fileImports.get(i).get());
+            } catch (ExecutionException e) {
+                status.add(Json.createObjectBuilder().add("importStatus", "Exception importing " + files.get(i).getName() + ", message = " + e.getCause().getMessage()));
             }
         }
         return status;
     }
 
+    /**
+     * Submits the import of a file to the executor, once fewer than
+     * dataverse.import.batch-threads imports of the batch are running.
+     */
+    private Future<JsonObjectBuilder> submitFile(Semaphore importSlots, DataverseRequest dataverseRequest, Dataverse owner, File file, ImportUtil.ImportType importType, PrintWriter validationLog, PrintWriter cleanupLog) throws InterruptedException {
+        importSlots.acquire();
+        try {
+            return executor.submit(() -> {
+                try {
+                    return importService.handleFile(dataverseRequest, owner, file, importType, validationLog, cleanupLog);
+                } finally {
+                    importSlots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            importSlots.release();
+            throw e;
+        }
+    }
+
 }
@@ -325,7 +325,7 @@ public class Datasets extends AbstractApiBean {
             // longer exist in the database, before attempting to delete 
             // the physical files)
             if (!deleteStorageLocations.isEmpty()) {
-                fileService.finalizeFileDeletes(deleteStorageLocations);
+                fileService.finalizeDatasetFileDeletes(deleteStorageLocations);
             }
 
             return ok("Dataset " + id + " destroyed");
@@ -419,12 +419,28 @@ public class Datasets extends AbstractApiBean {
 
         return response( req -> {
             Dataset dataset = findDatasetOrDie(id);
-            Boolean deepLookup = excludeFiles == null ? true : !excludeFiles;
+            boolean includeFiles = excludeFiles == null ? true : !excludeFiles;
 
-            return ok( execCommand( new ListVersionsCommand(req, dataset, offset, limit, deepLookup) )
-                                .stream()
-                                .map( d -> json(d, deepLookup) )
+            // No deep lookup: the files of each version are streamed page by page.
+            List<DatasetVersion> versions = execCommand( new ListVersionsCommand(req, dataset, offset, limit, false) );
+            if (!includeFiles) {
+                return ok( versions.stream()
+                                .map( d -> json(d, false) )
                                 .collect(toJsonArray()));
+            }
+
+            List<JsonObject> versionJsons = versions.stream()
+                    .map( d -> json(d, false).build() )
+                    .collect(Collectors.toList());
+            return okStreaming(null, generator -> {
+                generator.writeStartArray();
+                for (int i = 0; i < versions.size(); i++) {
+                    DatasetVersion version = versions.get(i);
+                    writeDatasetVersion(generator, versionJsons.get(i), DatasetVersionFilesServiceBean.FILE_METADATA_PAGE_SIZE,
+                            (pageOffset, pageLimit) -> datasetVersionFilesServiceBean.getFileMetadatasPage(version, pageOffset, pageLimit));
+                }
+                generator.writeEnd();
+            });
         }, getRequestUser(crc));
     }
     
@@ -457,15 +473,19 @@ public class Datasets extends AbstractApiBean {
                 return notFound("Dataset version not found");
             }
 
-            if (excludeFiles == null ? true : !excludeFiles) {
-                requestedDatasetVersion = datasetversionService.findDeep(requestedDatasetVersion.getId());
-            }
-
             JsonObjectBuilder jsonBuilder = json(requestedDatasetVersion,
                                                  null, 
-                                                 excludeFiles == null ? true : !excludeFiles, 
+                                                 false, 
                                                  returnOwners);
-            return ok(jsonBuilder);
+            if (!checkPerms) {
+                return ok(jsonBuilder);
+            }
+
+            // The files are streamed page by page, instead of looking up the
+            // whole version deep and printing it in memory.
+            JsonObject versionJson = jsonBuilder.build();
+            return okStreaming(null, generator -> writeDatasetVersion(generator, versionJson, DatasetVersionFilesServiceBean.FILE_METADATA_PAGE_SIZE,
+                    (pageOffset, pageLimit) -> datasetVersionFilesServiceBean.getFileMetadatasPage(requestedDatasetVersion, pageOffset, pageLimit)));
 
         }, getRequestUser(crc));
     }
@@ -507,8 +527,17 @@ public class Datasets extends AbstractApiBean {
             } catch (IllegalArgumentException e) {
                 return badRequest(BundleUtil.getStringFromBundle("datasets.api.version.files.invalid.access.status", List.of(accessStatus)));
             }
-            return ok(jsonFileMetadatas(datasetVersionFilesServiceBean.getFileMetadatas(datasetVersion, limit, offset, fileSearchCriteria, fileOrderCriteria)),
-                    datasetVersionFilesServiceBean.getFileMetadataCount(datasetVersion, fileSearchCriteria));
+            long totalCount = datasetVersionFilesServiceBean.getFileMetadataCount(datasetVersion, fileSearchCriteria);
+            int first = offset != null ? offset : 0;
+            // Streamed page by page, within the range requested by the caller.
+            return okStreaming(totalCount, generator -> writeFileMetadatas(generator, DatasetVersionFilesServiceBean.FILE_METADATA_PAGE_SIZE,
+                    (pageOffset, pageLimit) -> {
+                        int remaining = (limit != null) ? limit - pageOffset : pageLimit;
+                        if (remaining <= 0) {
+                            return Collections.emptyList();
+                        }
+                        return datasetVersionFilesServiceBean.getFileMetadatas(datasetVersion, Math.min(pageLimit, remaining), first + pageOffset, fileSearchCriteria, fileOrderCriteria);
+                    }));
         }, getRequestUser(crc));
     }
 
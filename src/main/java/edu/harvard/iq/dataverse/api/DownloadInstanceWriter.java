@@ -38,9 +38,14 @@ import java.io.FileInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.inject.Inject;
@@ -49,6 +54,7 @@ import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.RedirectionException;
 import jakarta.ws.rs.ServiceUnavailableException;
 import jakarta.ws.rs.core.HttpHeaders;
+import org.apache.commons.io.IOUtils;
 import org.apache.tika.mime.MimeType;
 import org.apache.tika.mime.MimeTypeException;
 import org.apache.tika.mime.MimeTypes;
@@ -69,6 +75,12 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
 
     private static final Logger logger = Logger.getLogger(DownloadInstanceWriter.class.getCanonicalName());
 
+    // the size of the reads from local files
+    private static final int LOCAL_FILE_BUFFER_SIZE = 256 * 1024;
+
+    // the maximum number of ranges in a Range header
+    static final int MAX_RANGES = 50;
+
     @Override
     public boolean isWriteable(Class<?> clazz, Type type, Annotation[] annotation, MediaType mediaType) {
         return clazz == DownloadInstance.class;
@@ -450,8 +462,39 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
 
                 } 
 
-                try (InputStream instream = storageIO.getInputStream()) {
-                    if (instream != null) {
+                // User may have requested a rangeHeader of bytes.
+                // Ranges are only supported when the size of the content 
+                // stream is known (i.e., it's not a dynamically generated 
+                // stream. 
+                List<Range> ranges = new ArrayList<>();
+                String rangeHeader = null;
+                HttpHeaders headers = di.getRequestHttpHeaders();
+                if (headers != null) {
+                    rangeHeader = headers.getHeaderString("Range");
+                }
+
+                long contentSize = getContentSize(storageIO);
+                if (contentSize > 0) {
+                    try {
+                        ranges = getRanges(rangeHeader, contentSize);
+                    } catch (Exception ex) {
+                        logger.fine("Exception caught processing Range header: " + ex.getLocalizedMessage());
+                        throw new ClientErrorException("Error due to Range header: " + ex.getLocalizedMessage(), Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE);
+                    }
+                } else if (rangeHeader != null) {
+                    // Content size unknown, must be a dynamically
+                    // generated stream, such as a subsetting request.
+                    // We do NOT want to support rangeHeader requests on such streams:
+                    throw new NotFoundException("Range headers are not supported on dynamically-generated content, such as tabular subsetting.");
+                }
+
+                // Stores that can read a portion of an object (S3, Swift, 
+                // remote overlays) serve the ranges with ranged reads, without
+                // opening the stream of the whole object: 
+                boolean rangeReads = !ranges.isEmpty() && storageIO.isRangeReadSupported();
+
+                try (InputStream instream = rangeReads ? null : storageIO.getInputStream()) {
+                    if (rangeReads || instream != null) {
                         // headers:
 
                         String fileName = storageIO.getFileName();
@@ -463,146 +506,84 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                         // a space to + so we change it back to a space (%20).
                         String finalFileName = URLEncoder.encode(fileName, "UTF-8").replaceAll("\\+", "%20");
                         httpHeaders.add("Content-disposition", "attachment; filename=\"" + finalFileName + "\"");
-                        httpHeaders.add("Content-Type", mimeType + "; name=\"" + finalFileName + "\"");
-
-                        long contentSize;
-                        
-                        // User may have requested a rangeHeader of bytes.
-                        // Ranges are only supported when the size of the content 
-                        // stream is known (i.e., it's not a dynamically generated 
-                        // stream. 
-                        List<Range> ranges = new ArrayList<>();
-                        String rangeHeader = null;
-                        HttpHeaders headers = di.getRequestHttpHeaders();
-                        if (headers != null) {
-                            rangeHeader = headers.getHeaderString("Range");
-                        }
-                        long offset = 0;
-                        long leftToRead = -1L; 
-                        // Moving the "left to read" var. here; - since we may need 
-                        // to start counting our rangeHeader bytes outside the main .write()
-                        // loop, if it's a tabular file with a header. 
-                        
-                        if ((contentSize = getContentSize(storageIO)) > 0) {
-                            try {
-                                ranges = getRanges(rangeHeader, contentSize);
-                            } catch (Exception ex) {
-                                logger.fine("Exception caught processing Range header: " + ex.getLocalizedMessage());
-                                throw new ClientErrorException("Error due to Range header: " + ex.getLocalizedMessage(), Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE);
-                            }
-                            
-                            if (ranges.isEmpty()) {
+
+                        // (for multiple ranges, the header of each part of 
+                        // the multipart/byteranges response; and its end)
+                        List<byte[]> partHeaders = new ArrayList<>();
+                        byte[] multipartEnd = null;
+
+                        if (ranges.isEmpty()) {
+                            httpHeaders.add("Content-Type", mimeType + "; name=\"" + finalFileName + "\"");
+                            if (contentSize > 0) {
                                 logger.fine("Content size (retrieved from the AccessObject): " + contentSize);
                                 httpHeaders.add("Content-Length", contentSize);
-                            } else  {
-                                // For now we only support a single rangeHeader.
-                                long rangeContentSize = ranges.get(0).getLength();
-                                logger.fine("Content size (Range header in use): " + rangeContentSize);
-                                httpHeaders.add("Content-Length", rangeContentSize);
-                                
-                                offset = ranges.get(0).getStart();
-                                leftToRead = rangeContentSize;
-                                httpHeaders.add("Accept-Ranges", "bytes");
-                                httpHeaders.add("Content-Range", "bytes "+offset+"-"+(offset+rangeContentSize-1)+"/"+contentSize);
-
                             }
+                        } else if (ranges.size() == 1) {
+                            httpHeaders.add("Content-Type", mimeType + "; name=\"" + finalFileName + "\"");
+                            Range range = ranges.get(0);
+                            logger.fine("Content size (Range header in use): " + range.getLength());
+                            httpHeaders.add("Content-Length", range.getLength());
+                            httpHeaders.add("Accept-Ranges", "bytes");
+                            httpHeaders.add("Content-Range", "bytes " + range.getStart() + "-" + range.getEnd() + "/" + contentSize);
                         } else {
-                            // Content size unknown, must be a dynamically
-                            // generated stream, such as a subsetting request.
-                            // We do NOT want to support rangeHeader requests on such streams:
-                            if (rangeHeader != null) {
-                                throw new NotFoundException("Range headers are not supported on dynamically-generated content, such as tabular subsetting.");
+                            String boundary = UUID.randomUUID().toString().replace("-", "");
+                            long multipartSize = 0;
+                            for (Range range : ranges) {
+                                byte[] partHeader = getMultipartHeader(boundary, mimeType, range, contentSize, partHeaders.isEmpty()).getBytes(StandardCharsets.UTF_8);
+                                partHeaders.add(partHeader);
+                                multipartSize += partHeader.length + range.getLength();
                             }
-                            
+                            multipartEnd = getMultipartEnd(boundary).getBytes(StandardCharsets.UTF_8);
+                            multipartSize += multipartEnd.length;
+
+                            logger.fine("Content size (multiple ranges in use): " + multipartSize);
+                            httpHeaders.add("Content-Type", "multipart/byteranges; boundary=" + boundary);
+                            httpHeaders.add("Content-Length", multipartSize);
+                            httpHeaders.add("Accept-Ranges", "bytes");
                         }
 
                         // (the httpHeaders map must be modified *before* writing any
                         // data in the output stream!)
-                        int bufsize;
-                        byte[] bffr = new byte[4 * 8192];
-
-                        // Before writing out any bytes from the input stream, write
-                        // any extra content, such as the variable header for the 
-                        // subsettable files: 
-                        if (storageIO.getVarHeader() != null) {
-                            logger.fine("storageIO.getVarHeader().getBytes().length: " + storageIO.getVarHeader().getBytes().length);
-                            if (storageIO.getVarHeader().getBytes().length > 0) {
-                                // If a rangeHeader is not being requested, let's call that the normal case.
-                                // Write the entire line of variable headers. Later, the rest of the file
-                                // will be written.
-                                if (ranges.isEmpty()) {
-                                    logger.fine("writing the entire variable header");
-                                    outstream.write(storageIO.getVarHeader().getBytes());
-                                } else {
-                                    // Range requested. Since the output stream of a 
-                                    // tabular file is made up of the varHeader and the body of 
-                                    // the physical file, we should assume that the requested 
-                                    // rangeHeader may span any portion of the combined stream.
-                                    // Thus we may or may not have to write the header, or a 
-                                    // portion thereof. 
-                                    int headerLength = storageIO.getVarHeader().getBytes().length;
-                                    if (offset >= headerLength) {
-                                        // We can skip the entire header. 
-                                        // All we need to do is adjust the byte offset 
-                                        // in the physical file; the number of bytes
-                                        // left to write stays unchanged, since we haven't
-                                        // written anything.
-                                        logger.fine("Skipping the variable header completely.");
-                                        offset -= headerLength;
-                                    } else {
-                                        // We need to write some portion of the header; 
-                                        // Once we are done, we may or may not still have 
-                                        // some bytes left to write from the main physical file.
-                                        if (offset + leftToRead <= headerLength) {
-                                            // This is a more straightforward case - we just need to 
-                                            // write a portion of the header, and then we are done!
-                                            logger.fine("Writing this many bytes of the variable header line: " + leftToRead);
-                                            outstream.write(Arrays.copyOfRange(storageIO.getVarHeader().getBytes(), (int)offset, (int)offset + (int)leftToRead));
-                                            // set "left to read" to zero, indicating that we are done:
-                                            leftToRead = 0; 
-                                        } else {
-                                            // write the requested portion of the header:
-                                            logger.fine("Writing this many bytes of the variable header line: " + (headerLength - offset));
-                                            outstream.write(Arrays.copyOfRange(storageIO.getVarHeader().getBytes(), (int)offset, headerLength));
-                                            // and adjust the file offset and remaining number of bytes accordingly: 
-                                            leftToRead -= (headerLength - offset);
-                                            offset = 0;
-                                        }
-                                        
-                                    }
-                                }
-                            }
-                        }
 
-                        // Dynamic streams, etc. Normal operation. No leftToRead.
                         if (ranges.isEmpty()) {
+                            // Dynamic streams, etc. Normal operation.
                             logger.fine("Normal, non-range request of file id " + dataFile.getId());
-                            while ((bufsize = instream.read(bffr)) != -1) {
-                                outstream.write(bffr, 0, bufsize);
+
+                            // Before writing out any bytes from the input stream, write
+                            // any extra content, such as the variable header for the 
+                            // subsettable files: 
+                            if (storageIO.getVarHeader() != null && storageIO.getVarHeader().getBytes().length > 0) {
+                                logger.fine("writing the entire variable header");
+                                outstream.write(storageIO.getVarHeader().getBytes());
                             }
-                        } else if (leftToRead > 0) {
-                            // This is a rangeHeader request, and we still have bytes to read 
-                            // (for a tabular file, we may have already written enough
-                            // bytes from the variable header!)
-                            storageIO.setOffset(offset);
-                            // Thinking about it, we could just do instream.skip(offset) 
-                            // here... But I would like to have this offset functionality 
-                            // in StorageIO, for any future cases where we may not 
-                            // be able to do that on the stream directly (?) -- L.A.
-                            logger.fine("Range request of file id " + dataFile.getId());
-                            // Read a rangeHeader of bytes instead of the whole file. We'll count down as we write.
-                            // For now we only support a single rangeHeader.
-                            while ((bufsize = instream.read(bffr)) != -1) {
-                                if ((leftToRead -= bufsize) > 0) {
-                                    // Just do a normal write. Potentially lots to go. Don't break.
+
+                            // Files on the local file system (and their stored 
+                            // originals) are served straight from their FileChannel, 
+                            // with positioned reads: 
+                            FileChannel localFileChannel = getLocalFileChannel(storageIO);
+                            if (localFileChannel != null) {
+                                writeFileChannel(localFileChannel, 0, localFileChannel.size(), outstream);
+                            } else {
+                                int bufsize;
+                                byte[] bffr = new byte[4 * 8192];
+                                while ((bufsize = instream.read(bffr)) != -1) {
                                     outstream.write(bffr, 0, bufsize);
-                                } else {
-                                    // Get those last bytes or bytes equal to bufsize. Last one. Then break.
-                                    outstream.write(bffr, 0, (int) leftToRead + bufsize);
-                                    break;
                                 }
                             }
-
+                        } else {
+                            logger.fine("Range request of file id " + dataFile.getId() + ", ranges: " + ranges.size());
+                            // (the position in the input stream of the whole 
+                            // object, when the ranges are read from it)
+                            long streamPosition = 0;
+                            for (int i = 0; i < ranges.size(); i++) {
+                                if (multipartEnd != null) {
+                                    outstream.write(partHeaders.get(i));
+                                }
+                                streamPosition = writeRange(storageIO, instream, streamPosition, ranges.get(i), outstream);
+                            }
+                            if (multipartEnd != null) {
+                                outstream.write(multipartEnd);
+                            }
                         }
 
                         logger.fine("di conversion param: " + di.getConversionParam() + ", value: " + di.getConversionParamValue());
@@ -634,6 +615,120 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
 
     }
 
+    /*
+     * Returns the FileChannel of a local file that is to be served as is, 
+     * or null if the content is read some other way (remote storage, 
+     * generated content, etc.)
+     */
+    private static FileChannel getLocalFileChannel(StorageIO<?> storageIO) throws IOException {
+        Channel channel = storageIO.getChannel();
+        if (channel instanceof FileChannel && channel.isOpen()) {
+            return (FileChannel) channel;
+        }
+        return null;
+    }
+
+    /**
+     * Writes a portion of a local file to the output stream, with positioned
+     * reads of LOCAL_FILE_BUFFER_SIZE bytes; without going through the
+     * InputStream of the file, and without skipping over the bytes before the
+     * portion.
+     *
+     * @param channel the channel of the file
+     * @param position the offset of the first byte to write
+     * @param length the number of bytes to write (fewer are written if the
+     *               file ends before)
+     * @param outstream the output stream
+     * @throws IOException
+     */
+    static void writeFileChannel(FileChannel channel, long position, long length, OutputStream outstream) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(LOCAL_FILE_BUFFER_SIZE, Math.max(length, 1)));
+        long end = position + length;
+        while (position < end) {
+            buffer.clear();
+            if (end - position < buffer.capacity()) {
+                buffer.limit((int) (end - position));
+            }
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            outstream.write(buffer.array(), 0, read);
+            position += read;
+        }
+    }
+
+    /*
+     * Writes one range of the content (the variable header of a tabular file, 
+     * if any, followed by the stored object) to the output stream. The bytes 
+     * of the stored object are read with a ranged read from the storage if 
+     * supported, or from the FileChannel of a local file; otherwise by 
+     * skipping forward in the input stream of the whole object, which is at 
+     * streamPosition (the ranges are in ascending order, so it never needs 
+     * to go back). Returns the new position in that stream.
+     */
+    static long writeRange(StorageIO<?> storageIO, InputStream instream, long streamPosition, Range range, OutputStream outstream) throws IOException {
+        long offset = range.getStart();
+        long leftToRead = range.getLength();
+
+        // Since the output stream of a tabular file is made up of the varHeader 
+        // and the body of the physical file, the requested range may span any 
+        // portion of the combined stream. Thus we may or may not have to write 
+        // the header, or a portion thereof: 
+        if (storageIO.getVarHeader() != null) {
+            byte[] varHeader = storageIO.getVarHeader().getBytes();
+            if (offset >= varHeader.length) {
+                // We can skip the entire header; all we need to do is adjust 
+                // the byte offset in the physical file.
+                offset -= varHeader.length;
+            } else {
+                int headerEnd = (int) Math.min(varHeader.length, offset + leftToRead);
+                logger.fine("Writing this many bytes of the variable header line: " + (headerEnd - offset));
+                outstream.write(varHeader, (int) offset, headerEnd - (int) offset);
+                leftToRead -= headerEnd - offset;
+                offset = 0;
+            }
+        }
+
+        if (leftToRead <= 0) {
+            return streamPosition;
+        }
+
+        if (storageIO.isRangeReadSupported()) {
+            try (InputStream rangeStream = storageIO.getRangeInputStream(offset, leftToRead)) {
+                IOUtils.copyLarge(rangeStream, outstream, 0, leftToRead);
+            }
+            return streamPosition;
+        }
+
+        FileChannel localFileChannel = getLocalFileChannel(storageIO);
+        if (localFileChannel != null) {
+            writeFileChannel(localFileChannel, offset, leftToRead, outstream);
+            return streamPosition;
+        }
+
+        IOUtils.skipFully(instream, offset - streamPosition);
+        return offset + IOUtils.copyLarge(instream, outstream, 0, leftToRead);
+    }
+
+    /**
+     * @return The header of a part of a multipart/byteranges response,
+     * including the delimiter that precedes it.
+     */
+    static String getMultipartHeader(String boundary, String mimeType, Range range, long contentSize, boolean firstPart) {
+        return (firstPart ? "" : "\r\n") + "--" + boundary + "\r\n"
+                + "Content-Type: " + mimeType + "\r\n"
+                + "Content-Range: bytes " + range.getStart() + "-" + range.getEnd() + "/" + contentSize + "\r\n"
+                + "\r\n";
+    }
+
+    /**
+     * @return The closing delimiter of a multipart/byteranges response.
+     */
+    static String getMultipartEnd(String boundary) {
+        return "\r\n--" + boundary + "--\r\n";
+    }
+
     private boolean isAuxiliaryObjectCached(StorageIO storageIO, String auxiliaryTag) {
         try {
             return storageIO.isAuxObjectCached(auxiliaryTag);
@@ -744,6 +839,9 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
     }
 
     /**
+     * Multiple ranges are sorted, and the ones that overlap or are adjacent
+     * are coalesced, so that they can be written in one pass over the content.
+     *
      * @param range "bytes 0-10" for example. Found in the "Range" HTTP header.
      * @param fileSize File size in bytes.
      * @throws RunTimeException on any problems processing the Range header.
@@ -756,27 +854,24 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
         if (range != null) {
             logger.fine("Range header supplied: " + range);
 
-            // Technically this regex supports multiple ranges.
-            // Below we have a check to enforce a single range.
             if (!range.matches("^bytes=\\d*-\\d*(,\\d*-\\d*)*$")) {
                 throw new RuntimeException("The format is bytes=<range-start>-<range-end> where start and end are optional.");
             }
 
             // The 6 is to remove "bytes="
             String[] parts = range.substring(6).split(",");
-            if (parts.length > 1) {
-                // Only allow a single range.
-                throw new RuntimeException("Only one range is allowed.");
+            if (parts.length > MAX_RANGES) {
+                throw new RuntimeException("No more than " + MAX_RANGES + " ranges are allowed.");
             }
-            // This loop is here in case we ever want to support multiple ranges.
             for (String part : parts) {
 
                 long start = getRangeStart(part);
                 long end = getRangeEnd(part);
 
                 if (start == -1) {
-                    // start does not exist. Base start off of how many bytes from end.
-                    start = fileSize - end;
+                    // start does not exist. Base start off of how many bytes from end
+                    // (all of them, if more bytes than the size of the file are asked for).
+                    start = Math.max(fileSize - end, 0);
                     end = fileSize - 1;
                 } else if (end == -1 || end > fileSize - 1) {
                     // Set end when it doesn't exist.
@@ -792,6 +887,20 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                 ranges.add(new Range(start, end));
 
             }
+
+            if (ranges.size() > 1) {
+                ranges.sort(Comparator.comparingLong(Range::getStart));
+                List<Range> coalesced = new ArrayList<>();
+                for (Range next : ranges) {
+                    Range last = coalesced.isEmpty() ? null : coalesced.get(coalesced.size() - 1);
+                    if (last != null && next.getStart() <= last.getEnd() + 1) {
+                        coalesced.set(coalesced.size() - 1, new Range(last.getStart(), Math.max(last.getEnd(), next.getEnd())));
+                    } else {
+                        coalesced.add(next);
+                    }
+                }
+                ranges = coalesced;
+            }
         }
 
         return ranges;
@@ -28,6 +28,7 @@ import edu.harvard.iq.dataverse.search.DvObjectSolrDoc;
 import edu.harvard.iq.dataverse.search.FacetCategory;
 import edu.harvard.iq.dataverse.search.FileView;
 import edu.harvard.iq.dataverse.search.IndexBatchServiceBean;
+import edu.harvard.iq.dataverse.search.IndexQueueServiceBean;
 import edu.harvard.iq.dataverse.search.IndexResponse;
 import edu.harvard.iq.dataverse.search.IndexServiceBean;
 import edu.harvard.iq.dataverse.search.IndexUtil;
@@ -96,6 +97,8 @@ public class Index extends AbstractApiBean {
     DatasetFieldServiceBean datasetFieldService;
     @EJB
     SearchFilesServiceBean searchFilesService;
+    @EJB
+    IndexQueueServiceBean indexQueueService;
 
     public static String contentChanged = "contentChanged";
     public static String contentIndexed = "contentIndexed";
@@ -408,6 +411,16 @@ public class Index extends AbstractApiBean {
             return ok("Index Status Batch Job initiated, check log for job status.");
         }
     }
+    /**
+     * Reports the depth and lag of the persistent index queue.
+     * @return queue status
+     */
+    @GET
+    @Path("queue")
+    public Response indexQueueStatus() {
+        return ok(indexQueueService.getStatus());
+    }
+
      /**
      * Deletes "orphan" Solr documents (that don't match anything in the database).
      * @param sync - optional parameter, if set, then run the command 
@@ -17,7 +17,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.Map;
 import java.util.logging.Level;
@@ -117,6 +119,28 @@ public class ImportDDIServiceBean {
         return datasetDTO;
     }
     
+    /**
+     * Same as {@link #doImport(ImportType, String)}, but parses the DDI
+     * straight from the file, so that large records (e.g. with long
+     * variable-level dataDscr sections) are never held in memory whole. The
+     * encoding is taken from the XML declaration.
+     */
+    public DatasetDTO doImport(ImportType importType, File ddiFile) throws XMLStreamException, ImportException, IOException {
+        XMLInputFactory xmlFactory = javax.xml.stream.XMLInputFactory.newInstance();
+        xmlFactory.setProperty("javax.xml.stream.isCoalescing", true);
+        DatasetDTO datasetDTO = this.initializeDataset();
+
+        try (InputStream in = Files.newInputStream(ddiFile.toPath())) {
+            XMLStreamReader xmlr = xmlFactory.createXMLStreamReader(in);
+            try {
+                processDDI(importType, xmlr, datasetDTO, new HashMap<>());
+            } finally {
+                xmlr.close();
+            }
+        }
+        return datasetDTO;
+    }
+
     public void importFileMetadata(DatasetVersion dv, String xmlToParse) {
         
     } 
@@ -271,7 +295,12 @@ public class ImportDDIServiceBean {
                     // metadata using the direct (non-harvesting) import API. 
                     // EMK TODO: add this back in for ImportType.NEW
                     //processFileDscr(xmlr, datasetDTO, filesMap);
-                } 
+                } else if (xmlr.getLocalName().equals("dataDscr")) {
+                    // the variable-level metadata is not imported (see 
+                    // above); it can be most of a large DDI, so we skip 
+                    // over it without looking at the individual elements:
+                    skipElement(xmlr);
+                }
 
             } else if (event == XMLStreamConstants.END_ELEMENT) {
                 if (xmlr.getLocalName().equals("codeBook")) return;
@@ -279,6 +308,24 @@ public class ImportDDIServiceBean {
         }
     }
 
+    /**
+     * Moves the reader, positioned on a start element, to the matching end 
+     * element.
+     */
+    static void skipElement(XMLStreamReader xmlr) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = xmlr.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.END_DOCUMENT) {
+                throw new XMLStreamException("Unexpected end of document");
+            }
+        }
+    }
+
   private void processDocDscr(XMLStreamReader xmlr, DatasetDTO datasetDTO) throws XMLStreamException {
         for (int event = xmlr.next(); event != XMLStreamConstants.END_DOCUMENT; event = xmlr.next()) {
             if (event == XMLStreamConstants.START_ELEMENT) {
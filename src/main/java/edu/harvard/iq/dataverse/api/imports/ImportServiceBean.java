@@ -156,10 +156,15 @@ public class ImportServiceBean {
     public JsonObjectBuilder handleFile(DataverseRequest dataverseRequest, Dataverse owner, File file, ImportType importType, PrintWriter validationLog, PrintWriter cleanupLog) throws ImportException, IOException {
 
         System.out.println("handling file: " + file.getAbsolutePath());
-        String ddiXMLToParse;
         try {
-            ddiXMLToParse = new String(Files.readAllBytes(file.toPath()));
-            JsonObjectBuilder status = doImport(dataverseRequest, owner, ddiXMLToParse,file.getParentFile().getName() + "/" + file.getName(), importType, cleanupLog);
+            DatasetDTO dsDTO;
+            try {
+                // (parsed straight from the file, rather than read into a String first)
+                dsDTO = importDDIService.doImport(importType, file);
+            } catch (XMLStreamException e) {
+                throw new ImportException("XMLStreamException" + e);
+            }
+            JsonObjectBuilder status = doImport(dataverseRequest, owner, dsDTO, file.getParentFile().getName() + "/" + file.getName(), importType, cleanupLog);
             status.add("file", file.getName());
             logger.log(Level.INFO, "completed doImport {0}/{1}", new Object[]{file.getParentFile().getName(), file.getName()});
             return status;
@@ -223,13 +228,12 @@ public class ImportServiceBean {
         if ("ddi".equalsIgnoreCase(metadataFormat) || "oai_ddi".equals(metadataFormat) 
                 || metadataFormat.toLowerCase().matches("^oai_ddi.*")) {
             try {
-                String xmlToParse = new String(Files.readAllBytes(metadataFile.toPath()));
                 // TODO: 
                 // import type should be configurable - it should be possible to 
                 // select whether you want to harvest with or without files, 
                 // ImportType.HARVEST vs. ImportType.HARVEST_WITH_FILES
                 logger.fine("importing DDI "+metadataFile.getAbsolutePath());
-                dsDTO = importDDIService.doImport(ImportType.HARVEST, xmlToParse);
+                dsDTO = importDDIService.doImport(ImportType.HARVEST, metadataFile);
             } catch (IOException | XMLStreamException | ImportException e) {
                 throw new ImportException("Failed to process DDI XML record: "+ e.getClass() + " (" + e.getMessage() + ")");
             }
@@ -401,9 +405,6 @@ public class ImportServiceBean {
     }
     
     public JsonObjectBuilder doImport(DataverseRequest dataverseRequest, Dataverse owner, String xmlToParse, String fileName, ImportType importType, PrintWriter cleanupLog) throws ImportException, IOException {
-
-        String status = "";
-        Long createdId = null;
         DatasetDTO dsDTO = null;
         try {
            
@@ -411,6 +412,13 @@ public class ImportServiceBean {
         } catch (XMLStreamException e) {
             throw new ImportException("XMLStreamException" + e);
         }
+        return doImport(dataverseRequest, owner, dsDTO, fileName, importType, cleanupLog);
+    }
+
+    private JsonObjectBuilder doImport(DataverseRequest dataverseRequest, Dataverse owner, DatasetDTO dsDTO, String fileName, ImportType importType, PrintWriter cleanupLog) throws ImportException, IOException {
+
+        String status = "";
+        Long createdId = null;
         // convert DTO to Json, 
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
         String json = gson.toJson(dsDTO);
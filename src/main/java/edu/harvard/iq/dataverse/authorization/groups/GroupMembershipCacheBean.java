@@ -0,0 +1,72 @@
+package edu.harvard.iq.dataverse.authorization.groups;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.TransactionUtil;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Short-lived cache of resolved group memberships, keyed by user and source
+ * IP address of a request. Resolving the groups of a request queries the IP,
+ * Shibboleth, mail domain and explicit group tables and walks the explicit
+ * group ancestors, which is too costly to do for every search.
+ *
+ * The cache is cleared whenever a group is created, changed or deleted on
+ * this node, and again once that change is committed. Entries expire after dataverse.groups.membership-cache.max-age
+ * seconds, which bounds how long changes made on other nodes (or changes to
+ * a user's verified email address) take to show up.
+ */
+@Singleton
+public class GroupMembershipCacheBean {
+
+    private static final Logger logger = Logger.getLogger(GroupMembershipCacheBean.class.getCanonicalName());
+
+    private final Cache<String, Set<String>> groupAliasesByRequest = Caffeine.newBuilder()
+            .maximumSize(JvmSettings.GROUPS_MEMBERSHIP_CACHE_MAXSIZE.lookup(Integer.class))
+            .expireAfterWrite(Duration.of(JvmSettings.GROUPS_MEMBERSHIP_CACHE_MAXAGE.lookup(Integer.class), ChronoUnit.SECONDS))
+            .build();
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * @param req The request whose group memberships we seek.
+     * @param loader Resolves the aliases if they are not cached yet.
+     * @return The cached (or freshly loaded) aliases of the groups of {@code req},
+     *         sorted, so that queries built from them are stable across requests.
+     */
+    @Lock(LockType.READ)
+    public Set<String> getGroupAliases(DataverseRequest req, Supplier<Set<String>> loader) {
+        return groupAliasesByRequest.get(cacheKey(req), k -> Collections.unmodifiableSet(new TreeSet<>(loader.get())));
+    }
+
+    /**
+     * Drops all cached memberships. Called on any group change, as a single
+     * change may affect the memberships of many users and addresses. The cache
+     * is cleared again when the caller's transaction completes, as concurrent
+     * requests may have cached the old memberships until the change committed.
+     */
+    @Lock(LockType.READ)
+    public void invalidateAll() {
+        logger.fine("Group definitions changed, clearing the group membership cache");
+        groupAliasesByRequest.invalidateAll();
+        TransactionUtil.runAfterCompletion(transactionRegistry, groupAliasesByRequest::invalidateAll);
+    }
+
+    static String cacheKey(DataverseRequest req) {
+        return req.getUser().getIdentifier() + "|" + req.getSourceAddress();
+    }
+}
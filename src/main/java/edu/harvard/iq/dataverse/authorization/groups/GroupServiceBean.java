@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -49,6 +50,8 @@ public class GroupServiceBean {
     ExplicitGroupServiceBean explicitGroupService;
     @EJB
     MailDomainGroupServiceBean mailDomainGroupService;
+    @EJB
+    GroupMembershipCacheBean membershipCache;
     
     private final Map<String, GroupProvider> groupProviders = new HashMap<>();
     
@@ -182,6 +185,22 @@ public class GroupServiceBean {
                              .collect( toSet());
     }
     
+    /**
+     * The aliases of all the groups {@code req} is part of, including their
+     * ancestors, i.e. the aliases of {@code collectAncestors(groupsFor(req))}.
+     * The result is cached for a short time per user and IP address, see
+     * {@link GroupMembershipCacheBean}.
+     * 
+     * @param req The request whose group memberships we seek.
+     * @return The aliases of the groups of {@code req} and their ancestors.
+     */
+    public Set<String> collectAncestorAliases( DataverseRequest req ) {
+        return membershipCache.getGroupAliases(req, () -> collectAncestors(groupsFor(req)).stream()
+                .map(Group::getAlias)
+                .filter(Objects::nonNull)
+                .collect(toSet()));
+    }
+    
     /**
      * Collections of groups may include {@link ExplicitGroup}s, which have a 
      * recursive structure (more precisely, a Composite Pattern}. This has many 
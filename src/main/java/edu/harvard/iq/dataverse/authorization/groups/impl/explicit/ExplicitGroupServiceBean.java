@@ -3,6 +3,7 @@ package edu.harvard.iq.dataverse.authorization.groups.impl.explicit;
 import edu.harvard.iq.dataverse.DvObject;
 import edu.harvard.iq.dataverse.RoleAssigneeServiceBean;
 import edu.harvard.iq.dataverse.authorization.RoleAssignee;
+import edu.harvard.iq.dataverse.authorization.groups.GroupMembershipCacheBean;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import java.util.Collections;
 import java.util.HashSet;
@@ -34,6 +35,8 @@ public class ExplicitGroupServiceBean {
     private static final Logger logger = Logger.getLogger(ExplicitGroupServiceBean.class.getName());
     @EJB
     private RoleAssigneeServiceBean roleAssigneeSvc;
+    @EJB
+    GroupMembershipCacheBean membershipCache;
     
     @PersistenceContext(unitName = "VDCNet-ejbPU")
     protected EntityManager em;
@@ -75,6 +78,7 @@ public class ExplicitGroupServiceBean {
     }
     
     public ExplicitGroup persist( ExplicitGroup g ) {
+        membershipCache.invalidateAll();
         if ( g.getId() == null ) {
             em.persist( g );
             return g;
@@ -126,6 +130,7 @@ public class ExplicitGroupServiceBean {
 
     public void removeGroup(ExplicitGroup explicitGroup) {
         em.remove( explicitGroup );
+        membershipCache.invalidateAll();
     }
     
     /**
@@ -272,6 +277,7 @@ public class ExplicitGroupServiceBean {
      * @param assignee User or Group 
      */
     public void revokeAllGroupsForAssignee(RoleAssignee assignee) {
+        membershipCache.invalidateAll();
         if (assignee instanceof AuthenticatedUser) {
             em.createNativeQuery("DELETE FROM explicitgroup_authenticateduser WHERE containedauthenticatedusers_id=" + ((AuthenticatedUser) assignee).getId()).executeUpdate();
         } else if (assignee instanceof ExplicitGroup) {
@@ -0,0 +1,214 @@
+package edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress;
+
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv4Address;
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv6Address;
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IpAddress;
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IpAddressRange;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable, in-memory index of the address ranges of a set of {@link IpGroup}s.
+ *
+ * The ranges are flattened into a sorted list of disjoint segments, each
+ * holding the groups that contain all of its addresses. Finding the groups
+ * containing an address is then a single binary search, regardless of the
+ * number of groups and ranges, and does not touch the database.
+ *
+ * The index keeps its own copy of the group data. Groups returned by
+ * {@link #findGroupsContaining(IpAddress)} are fresh, detached instances,
+ * so callers are free to keep (or change) them.
+ *
+ * @see IpGroupsServiceBean#findAllIncludingIp(IpAddress)
+ */
+public final class IpGroupIndex {
+
+    private final GroupData[] groups;
+    private final Segments ipv4Segments;
+    private final Segments ipv6Segments;
+
+    private IpGroupIndex(GroupData[] groups, Segments ipv4Segments, Segments ipv6Segments) {
+        this.groups = groups;
+        this.ipv4Segments = ipv4Segments;
+        this.ipv6Segments = ipv6Segments;
+    }
+
+    /**
+     * Builds an index over the ranges of the passed groups.
+     * @param ipGroups The groups to index. Not retained by the index.
+     * @return The index.
+     */
+    public static IpGroupIndex build(Collection<IpGroup> ipGroups) {
+        GroupData[] groups = new GroupData[ipGroups.size()];
+        Map<BigInteger, List<Integer>> ipv4Boundaries = new TreeMap<>();
+        Map<BigInteger, List<Integer>> ipv6Boundaries = new TreeMap<>();
+
+        int groupIdx = 0;
+        for (IpGroup grp : ipGroups) {
+            GroupData data = new GroupData(grp);
+            for (IpAddress[] range : data.ranges) {
+                boolean isV4 = range[0] instanceof IPv4Address;
+                Map<BigInteger, List<Integer>> boundaries = isV4 ? ipv4Boundaries : ipv6Boundaries;
+                BigInteger bottom = toBigInteger(range[0]);
+                BigInteger top = toBigInteger(range[1]);
+                if (bottom.compareTo(top) > 0) {
+                    // ranges are not normalized on input
+                    BigInteger tmp = bottom;
+                    bottom = top;
+                    top = tmp;
+                }
+                // group enters at the bottom of the range (encoded as i+1),
+                // and leaves right after its top (encoded as -(i+1)).
+                boundaries.computeIfAbsent(bottom, k -> new ArrayList<>()).add(groupIdx + 1);
+                boundaries.computeIfAbsent(top.add(BigInteger.ONE), k -> new ArrayList<>()).add(-(groupIdx + 1));
+            }
+            groups[groupIdx++] = data;
+        }
+
+        return new IpGroupIndex(groups, Segments.sweep(ipv4Boundaries, groups.length),
+                                        Segments.sweep(ipv6Boundaries, groups.length));
+    }
+
+    /**
+     * @param ipa The address.
+     * @return Detached copies of all the indexed groups that contain {@code ipa}.
+     */
+    public Set<IpGroup> findGroupsContaining(IpAddress ipa) {
+        final Segments segments;
+        if (ipa instanceof IPv4Address) {
+            segments = ipv4Segments;
+        } else if (ipa instanceof IPv6Address) {
+            segments = ipv6Segments;
+        } else {
+            throw new IllegalArgumentException("Unknown IpAddress type: " + ipa.getClass() + " (for IpAddress:" + ipa + ")");
+        }
+
+        int[] groupIdxs = segments.lookup(toBigInteger(ipa));
+        Set<IpGroup> result = new HashSet<>();
+        for (int idx : groupIdxs) {
+            result.add(groups[idx].toIpGroup());
+        }
+        return result;
+    }
+
+    /**
+     * @return Number of indexed groups.
+     */
+    public int size() {
+        return groups.length;
+    }
+
+    static BigInteger toBigInteger(IpAddress ipa) {
+        if (ipa instanceof IPv4Address) {
+            return ((IPv4Address) ipa).toBigInteger();
+        }
+        IPv6Address ip6 = (IPv6Address) ipa;
+        BigInteger res = BigInteger.ZERO;
+        for (int i = 0; i < 8; i++) {
+            res = res.shiftLeft(16).or(BigInteger.valueOf(ip6.get(i) & 0xffff));
+        }
+        return res;
+    }
+
+    /**
+     * Disjoint, sorted address segments of one address family. Segment
+     * {@code i} starts at {@code starts[i]} and ends right before
+     * {@code starts[i+1]}; the last segment is always empty.
+     */
+    private static final class Segments {
+
+        private static final int[] NO_GROUPS = new int[0];
+
+        private final BigInteger[] starts;
+        private final int[][] groupIdxs;
+
+        private Segments(BigInteger[] starts, int[][] groupIdxs) {
+            this.starts = starts;
+            this.groupIdxs = groupIdxs;
+        }
+
+        static Segments sweep(Map<BigInteger, List<Integer>> boundaries, int groupCount) {
+            BigInteger[] starts = new BigInteger[boundaries.size()];
+            int[][] groupIdxs = new int[boundaries.size()][];
+            // a group may have overlapping ranges, so count how many of its ranges are open.
+            int[] openRanges = new int[groupCount];
+            Set<Integer> active = new TreeSet<>();
+
+            int segment = 0;
+            for (Map.Entry<BigInteger, List<Integer>> boundary : boundaries.entrySet()) {
+                for (int change : boundary.getValue()) {
+                    int idx = Math.abs(change) - 1;
+                    openRanges[idx] += (change > 0) ? 1 : -1;
+                    if (openRanges[idx] > 0) {
+                        active.add(idx);
+                    } else {
+                        active.remove(idx);
+                    }
+                }
+                starts[segment] = boundary.getKey();
+                groupIdxs[segment] = active.isEmpty() ? NO_GROUPS : active.stream().mapToInt(Integer::intValue).toArray();
+                segment++;
+            }
+            return new Segments(starts, groupIdxs);
+        }
+
+        int[] lookup(BigInteger address) {
+            int pos = Arrays.binarySearch(starts, address);
+            if (pos < 0) {
+                // not a segment start: use the segment the address falls into, if any.
+                pos = -pos - 2;
+                if (pos < 0) {
+                    return NO_GROUPS;
+                }
+            }
+            return groupIdxs[pos];
+        }
+    }
+
+    /**
+     * The data of an indexed group, detached from the persistence context.
+     */
+    private static final class GroupData {
+
+        private final Long id;
+        private final String alias;
+        private final String displayName;
+        private final String description;
+        private final List<IpAddress[]> ranges = new ArrayList<>();
+
+        GroupData(IpGroup grp) {
+            id = grp.getId();
+            alias = grp.getPersistedGroupAlias();
+            displayName = grp.getDisplayName();
+            description = grp.getDescription();
+            if (grp.getIpv4Ranges() != null) {
+                grp.getIpv4Ranges().forEach(r -> ranges.add(new IpAddress[]{r.getBottom(), r.getTop()}));
+            }
+            if (grp.getIpv6Ranges() != null) {
+                grp.getIpv6Ranges().forEach(r -> ranges.add(new IpAddress[]{r.getBottom(), r.getTop()}));
+            }
+        }
+
+        IpGroup toIpGroup() {
+            IpGroup grp = new IpGroup();
+            grp.setId(id);
+            grp.setPersistedGroupAlias(alias);
+            grp.setDisplayName(displayName);
+            grp.setDescription(description);
+            grp.setIpv4Ranges(new HashSet<>());
+            grp.setIpv6Ranges(new HashSet<>());
+            for (IpAddress[] range : ranges) {
+                grp.add(IpAddressRange.make(range[0], range[1]));
+            }
+            return grp;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.TransactionUtil;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Holds the current {@link IpGroupIndex} of this node.
+ *
+ * The index is built lazily, dropped whenever an IP group is stored or deleted
+ * on this node (and again once that change is committed), and rebuilt once it is older than dataverse.groups.ip-index.max-age
+ * seconds, which bounds how long changes made on other nodes take to show up.
+ */
+@Singleton
+public class IpGroupIndexBean {
+
+    private static final Logger logger = Logger.getLogger(IpGroupIndexBean.class.getCanonicalName());
+
+    private volatile IpGroupIndex index;
+    private volatile long indexBuiltAt;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * @param loader Loads all IP groups, in case the index has to be (re)built.
+     * @return The current index.
+     */
+    @Lock(LockType.READ)
+    public IpGroupIndex getIndex(Supplier<List<IpGroup>> loader) {
+        IpGroupIndex current = index;
+        long maxAge = TimeUnit.SECONDS.toNanos(JvmSettings.GROUPS_IP_INDEX_MAXAGE.lookup(Integer.class));
+        if (current == null || System.nanoTime() - indexBuiltAt > maxAge) {
+            // Concurrent rebuilds are harmless; the last one wins.
+            long builtAt = System.nanoTime();
+            current = IpGroupIndex.build(loader.get());
+            index = current;
+            indexBuiltAt = builtAt;
+            logger.fine("Built IP group index of " + current.size() + " groups");
+        }
+        return current;
+    }
+
+    /**
+     * Drops the index; the next lookup rebuilds it. The index is dropped again
+     * when the caller's transaction completes, as a lookup in the meantime
+     * rebuilds it from the rows as they were before the change.
+     */
+    @Lock(LockType.READ)
+    public void invalidate() {
+        index = null;
+        TransactionUtil.runAfterCompletion(transactionRegistry, () -> index = null);
+    }
+}
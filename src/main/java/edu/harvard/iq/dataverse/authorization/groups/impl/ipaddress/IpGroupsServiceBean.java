@@ -3,10 +3,8 @@ package edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress;
 import edu.harvard.iq.dataverse.RoleAssigneeServiceBean;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogServiceBean;
-import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv4Address;
-import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv6Address;
+import edu.harvard.iq.dataverse.authorization.groups.GroupMembershipCacheBean;
 import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IpAddress;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -37,6 +35,12 @@ public class IpGroupsServiceBean {
     @EJB
     RoleAssigneeServiceBean roleAssigneeSvc;
     
+    @EJB
+    GroupMembershipCacheBean membershipCache;
+    
+    @EJB
+    IpGroupIndexBean ipGroupIndex;
+    
     /**
      * Stores (inserts/updates) the passed IP group.
      * @param grp The group to store.
@@ -50,6 +54,8 @@ public class IpGroupsServiceBean {
             alr.setInfo( grp.getDisplayName() );
         }
         alr.setInfo( alr.getInfo() + "// " + grp.getRanges() );
+        membershipCache.invalidateAll();
+        ipGroupIndex.invalidate();
         
         if ( grp.getId() == null ) {
             if ( grp.getPersistedGroupAlias() != null ) {
@@ -97,27 +103,17 @@ public class IpGroupsServiceBean {
         return em.createNamedQuery("IpGroup.findAll", IpGroup.class).getResultList();
     }
     
+    /**
+     * Finds the groups whose ranges contain the passed address. Served from an
+     * in-memory index, so the returned groups are detached from the persistence
+     * context; use {@link #get(long)} for a managed instance.
+     * 
+     * @param ipa The address.
+     * @return The groups containing {@code ipa}.
+     * @see IpGroupIndex
+     */
     public Set<IpGroup> findAllIncludingIp( IpAddress ipa ) {
-        if ( ipa instanceof IPv4Address ) {
-            IPv4Address ip4 = (IPv4Address) ipa;
-            List<IpGroup> groupList = em.createNamedQuery("IPv4Range.findGroupsContainingAddressAsLong", IpGroup.class)
-                    .setParameter("addressAsLong", ip4.toBigInteger()).getResultList();
-            return new HashSet<>(groupList);
-
-        } else if ( ipa instanceof IPv6Address ) {
-            IPv6Address ip6 = (IPv6Address) ipa;
-            long[] ip6arr = ip6.toLongArray();
-            List<IpGroup> groupList = em.createNamedQuery("IPv6Range.findGroupsContainingABCD", IpGroup.class)
-                    .setParameter("a", ip6arr[0])
-                    .setParameter("b", ip6arr[1])
-                    .setParameter("c", ip6arr[2])
-                    .setParameter("d", ip6arr[3])
-                    .getResultList();
-            return new HashSet<>(groupList);
-
-        } else {
-            throw new IllegalArgumentException( "Unknown IpAddress type: " + ipa.getClass() + " (for IpAddress:" + ipa + ")" );
-        }
+        return ipGroupIndex.getIndex(this::findAll).findGroupsContaining(ipa);
     }
     
     /**
@@ -131,6 +127,8 @@ public class IpGroupsServiceBean {
         alr.setInfo( grp.getIdentifier() );
         if ( roleAssigneeSvc.getAssignmentsFor(grp.getIdentifier()).isEmpty() ) {
             em.remove( grp );
+            membershipCache.invalidateAll();
+            ipGroupIndex.invalidate();
             actionLogSvc.log(alr);
             
         } else {
@@ -2,6 +2,7 @@ package edu.harvard.iq.dataverse.authorization.groups.impl.maildomain;
 
 import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogServiceBean;
+import edu.harvard.iq.dataverse.authorization.groups.GroupMembershipCacheBean;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.confirmemail.ConfirmEmailServiceBean;
 
@@ -37,6 +38,8 @@ public class MailDomainGroupServiceBean {
     ConfirmEmailServiceBean confirmEmailSvc;
     @Inject
     ActionLogServiceBean actionLogSvc;
+    @Inject
+    GroupMembershipCacheBean membershipCache;
     
     MailDomainGroupProvider provider;
     List<MailDomainGroup> simpleGroups = Collections.EMPTY_LIST;
@@ -152,6 +155,7 @@ public class MailDomainGroupServiceBean {
             // (triggering persistence once we leave the function)
             if (old.isPresent()) {
                 old.get().update(grp);
+                membershipCache.invalidateAll();
                 
                 alr.setActionSubType("mailDomainUpdate");
                 actionLogSvc.log( alr );
@@ -167,6 +171,7 @@ public class MailDomainGroupServiceBean {
         }
         // or add new ...
         em.persist(grp);
+        membershipCache.invalidateAll();
         actionLogSvc.log( alr );
         
         return grp;
@@ -184,6 +189,7 @@ public class MailDomainGroupServiceBean {
     
         Optional<MailDomainGroup> tbd = findByAlias(groupAlias);
         em.remove(tbd.orElseThrow(() -> new NotFoundException("Cannot find a group with alias "+groupAlias)));
+        membershipCache.invalidateAll();
         actionLogSvc.log( alr );
     }
     
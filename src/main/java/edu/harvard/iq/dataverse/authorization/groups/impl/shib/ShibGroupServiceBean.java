@@ -4,6 +4,7 @@ import edu.harvard.iq.dataverse.RoleAssigneeServiceBean;
 import edu.harvard.iq.dataverse.RoleAssignment;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogServiceBean;
+import edu.harvard.iq.dataverse.authorization.groups.GroupMembershipCacheBean;
 import edu.harvard.iq.dataverse.authorization.groups.GroupServiceBean;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import java.util.ArrayList;
@@ -39,6 +40,8 @@ public class ShibGroupServiceBean {
     GroupServiceBean groupService;
     @EJB
     ActionLogServiceBean actionLogSvc;
+    @EJB
+    GroupMembershipCacheBean membershipCache;
 
     /**
      * @return A ShibGroup or null.
@@ -67,6 +70,7 @@ public class ShibGroupServiceBean {
         em.persist(institutionalGroup);
         em.flush();
         ShibGroup merged = em.merge(institutionalGroup);
+        membershipCache.invalidateAll();
 
         actionLogSvc.log(alr);
         return merged;
@@ -102,6 +106,7 @@ public class ShibGroupServiceBean {
         List<RoleAssignment> assignments = roleAssigneeSvc.getAssignmentsFor(doomed.getIdentifier());
         if (assignments.isEmpty()) {
             em.remove(doomed);
+            membershipCache.invalidateAll();
             actionLogSvc.log(alr);
             return true;
         } else {
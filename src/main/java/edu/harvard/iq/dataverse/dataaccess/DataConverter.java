@@ -41,17 +41,19 @@ import edu.harvard.iq.dataverse.datavariable.DataVariable;
 import edu.harvard.iq.dataverse.datavariable.VariableCategory;
 import edu.harvard.iq.dataverse.util.FileUtil;
 import edu.harvard.iq.dataverse.rserve.*;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 
@@ -75,6 +77,8 @@ public class DataConverter {
     public static String FILE_TYPE_RDATA = "RData";
     
     public static String SERVICE_REQUEST_CONVERT = "convert";
+
+    private static final ConcurrentHashMap<String, Object> conversionsInProgress = new ConcurrentHashMap<>();
     
     
     public static StorageIO<DataFile> performFormatConversion(DataFile file, StorageIO<DataFile> storageIO, String formatRequested, String formatType) {
@@ -91,50 +95,48 @@ public class DataConverter {
         
         InputStream convertedFileStream = null;
         long convertedFileSize = 0;
-        
-        // We may already have a cached copy of this
-        // format:
-        try {
-            convertedFileStream = Channels.newInputStream((ReadableByteChannel) storageIO.openAuxChannel(formatRequested));
-            convertedFileSize = storageIO.getAuxObjectSize(formatRequested);
-        } catch (IOException ioex) {
-            logger.fine("No cached copy for file format "+formatRequested+", file "+file.getStorageIdentifier());
-            convertedFileStream = null;
-        }
-
-        // If not cached, run the conversion:
-        if (convertedFileStream == null) {
 
-            File tabFile = downloadFromStorageIO(storageIO);
-
-            if (tabFile == null) {
-                return null;
-            }
-
-            if (tabFile.length() > 0) {
-                File formatConvertedFile = runFormatConversion(file, tabFile, formatRequested);
-
-                // cache the result for future use:
-                if (formatConvertedFile != null && formatConvertedFile.exists()) {
-
-                    try {
-                        storageIO.savePathAsAux(Paths.get(formatConvertedFile.getAbsolutePath()), formatRequested);
-
-                    } catch (IOException ex) {
-                        logger.warning("failed to save cached format " + formatRequested + " for " + file.getStorageIdentifier());
-                        // We'll assume that this is a non-fatal condition.
-                    }
+        // Concurrent requests for the same format of the same file wait for
+        // the first one to run the conversion, and are then served the
+        // cached copy:
+        String conversionKey = file.getId() + ":" + formatRequested;
+        Object conversionLock = conversionsInProgress.computeIfAbsent(conversionKey, k -> new Object());
+        synchronized (conversionLock) {
+            try {
+                // We may already have a cached copy of this
+                // format:
+                try {
+                    convertedFileStream = Channels.newInputStream((ReadableByteChannel) storageIO.openAuxChannel(formatRequested));
+                    convertedFileSize = storageIO.getAuxObjectSize(formatRequested);
+                } catch (IOException ioex) {
+                    logger.fine("No cached copy for file format "+formatRequested+", file "+file.getStorageIdentifier());
+                    convertedFileStream = null;
+                }
 
-                    // re-open the generated file:
-                    try {
-                        convertedFileStream = new FileInputStream(formatConvertedFile);
-                        convertedFileSize = formatConvertedFile.length();
-                    } catch (FileNotFoundException ioex) {
-                        logger.warning("Failed to open generated format " + formatRequested + " for " + file.getStorageIdentifier());
-                        return null;
+                // If not cached, run the conversion (and cache the result for 
+                // future use):
+                if (convertedFileStream == null) {
+                    File formatConvertedFile = convertAndCache(file, storageIO, formatRequested);
+
+                    if (formatConvertedFile != null) {
+                        // re-open the generated file; unless this is the
+                        // tab file itself, it is a temp file, to be deleted
+                        // once it's been served:
+                        try {
+                            convertedFileSize = formatConvertedFile.length();
+                            if (FILE_TYPE_TAB.equals(formatRequested)) {
+                                convertedFileStream = new FileInputStream(formatConvertedFile);
+                            } else {
+                                convertedFileStream = Files.newInputStream(formatConvertedFile.toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+                            }
+                        } catch (IOException ioex) {
+                            logger.warning("Failed to open generated format " + formatRequested + " for " + file.getStorageIdentifier());
+                            return null;
+                        }
                     }
                 }
-
+            } finally {
+                conversionsInProgress.remove(conversionKey, conversionLock);
             }
         }
 
@@ -163,6 +165,102 @@ public class DataConverter {
         return null;
     }
 
+    /**
+     * Generates and caches a format of a tabular file, unless it is cached
+     * already; so that later downloads in this format are served from the
+     * cache. Used to pre-generate the RData format after ingest (see
+     * dataverse.rserve.pregenerate-rdata).
+     *
+     * @param file the ingested tabular file
+     * @param formatRequested the format, e.g. {@link #FILE_TYPE_RDATA}
+     * @return true if the format is now cached
+     */
+    public static boolean generateCachedFormat(DataFile file, String formatRequested) {
+        if (!file.isTabularData()) {
+            return false;
+        }
+
+        String conversionKey = file.getId() + ":" + formatRequested;
+        Object conversionLock = conversionsInProgress.computeIfAbsent(conversionKey, k -> new Object());
+        synchronized (conversionLock) {
+            try {
+                StorageIO<DataFile> storageIO = file.getStorageIO();
+                if (storageIO.isAuxObjectCached(formatRequested)) {
+                    return true;
+                }
+
+                File formatConvertedFile = convertAndCache(file, storageIO, formatRequested);
+                if (formatConvertedFile == null) {
+                    return false;
+                }
+                if (!FILE_TYPE_TAB.equals(formatRequested)) {
+                    formatConvertedFile.delete();
+                }
+                return storageIO.isAuxObjectCached(formatRequested);
+            } catch (IOException ioex) {
+                logger.warning("Failed to generate format " + formatRequested + " for " + file.getStorageIdentifier() + ": " + ioex.getMessage());
+                return false;
+            } finally {
+                conversionsInProgress.remove(conversionKey, conversionLock);
+            }
+        }
+    }
+
+    /*
+     * Runs the conversion, and saves the result as an aux object. 
+     * The tab file is only downloaded (from a remote store) when the 
+     * conversion needs it; RData of an ingested Stata or SPSS file is made 
+     * from the stored original.
+     * Returns the converted file, or null if the conversion failed. 
+     */
+    private static File convertAndCache(DataFile file, StorageIO<DataFile> storageIO, String formatRequested) {
+        File tabFile = null;
+        boolean tempTabFile = false;
+
+        if (!convertsFromStoredOriginal(file, formatRequested)) {
+            tabFile = downloadFromStorageIO(storageIO);
+
+            if (tabFile == null) {
+                return null;
+            }
+            tempTabFile = !storageIO.isLocalFile();
+
+            if (tabFile.length() == 0) {
+                if (tempTabFile) {
+                    tabFile.delete();
+                }
+                return null;
+            }
+        }
+
+        File formatConvertedFile = runFormatConversion(file, tabFile, formatRequested);
+
+        if (tempTabFile && !tabFile.equals(formatConvertedFile)) {
+            tabFile.delete();
+        }
+
+        if (formatConvertedFile == null || !formatConvertedFile.exists()) {
+            return null;
+        }
+
+        try {
+            storageIO.savePathAsAux(Paths.get(formatConvertedFile.getAbsolutePath()), formatRequested);
+
+        } catch (IOException ex) {
+            logger.warning("failed to save cached format " + formatRequested + " for " + file.getStorageIdentifier());
+            // We'll assume that this is a non-fatal condition.
+        }
+
+        return formatConvertedFile;
+    }
+
+    static boolean convertsFromStoredOriginal(DataFile file, String formatRequested) {
+        String origFormat = file.getOriginalFileFormat();
+        return FILE_TYPE_RDATA.equals(formatRequested)
+                && origFormat != null
+                && (origFormat.contains("stata") || origFormat.contains("spss"));
+    }
+
     public static File downloadFromStorageIO(StorageIO<DataFile> storageIO) {
         if (storageIO.isLocalFile()){
             try {
@@ -201,9 +299,10 @@ public class DataConverter {
 
     // Method for (subsettable) file format conversion.
     // The method needs the subsettable file saved on disk as in the
-    // TAB-delimited format.
+    // TAB-delimited format (unless the format is made from the stored 
+    // original, in which case tabFile is null).
     // Meaning, if this is a remote subsettable file, it needs to be downloaded
-    // and stored locally as a temporary file (See performFormatConversion() method)
+    // and stored locally as a temporary file (See convertAndCache() method)
     // The method below takes the tab file and sends it to the R server
     // (possibly running on a remote host) and gets back the transformed copy,
     // providing error-checking and diagnostics in the process.
@@ -231,7 +330,7 @@ public class DataConverter {
         if ("RData".equals(formatRequested)) {
             String origFormat = file.getOriginalFileFormat();
             Map<String, String> resultInfo;
-            if (origFormat.contains("stata") || origFormat.contains("spss")){
+            if (convertsFromStoredOriginal(file, formatRequested)){
                 if (origFormat.contains("stata")){
                     origFormat = "dta";
                 } else if (origFormat.contains("sav")){
@@ -242,10 +341,23 @@ public class DataConverter {
                     
                 try {
                     StorageIO<DataFile> storageIO = file.getStorageIO();
-                    long size = storageIO.getAuxObjectSize("orig");
-                    try (ReadableByteChannel origChannel = (ReadableByteChannel) storageIO.openAuxChannel("orig")) {
-                      File origFile = downloadFromByteChannel(origChannel, size);
-                      resultInfo = dfs.directConvert(origFile, origFormat);
+                    if (storageIO.isLocalFile()) {
+                        // no need to copy a local original:
+                        resultInfo = dfs.directConvert(storageIO.getAuxObjectAsPath("orig").toFile(), origFormat);
+                    } else {
+                        long size = storageIO.getAuxObjectSize("orig");
+                        File origFile;
+                        try (ReadableByteChannel origChannel = (ReadableByteChannel) storageIO.openAuxChannel("orig")) {
+                            origFile = downloadFromByteChannel(origChannel, size);
+                        }
+                        if (origFile == null) {
+                            return null;
+                        }
+                        try {
+                            resultInfo = dfs.directConvert(origFile, origFormat);
+                        } finally {
+                            origFile.delete();
+                        }
                     }
                 } catch (IOException ex) {
                     ex.printStackTrace();
@@ -24,18 +24,24 @@ import java.io.InputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
 import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 
 import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.DataFileServiceBean;
+import edu.harvard.iq.dataverse.ThumbnailServiceBean;
 import edu.harvard.iq.dataverse.util.FileUtil;
 import edu.harvard.iq.dataverse.util.SystemConfig;
 import java.io.ByteArrayOutputStream;
@@ -116,12 +122,99 @@ public class ImageThumbConverter {
             return false;
         }
 
-        if (isThumbnailCached(storageIO, size)) {
-            logger.fine("Found cached thumbnail for " + file.getId());
+        // the sizes already generated are recorded on the file, so we don't
+        // need to look at the storage for those:
+        if (file.isThumbnailSizeAvailable(size)) {
+            logger.fine("Thumbnail of size " + size + " recorded as cached for " + file.getId());
             return true;
         }
-        return generateThumbnail(file, storageIO, size);
 
+        if (isThumbnailCached(storageIO, size) || generateThumbnail(file, storageIO, size)) {
+            logger.fine("Found or generated cached thumbnail for " + file.getId());
+            recordThumbnailSize(file, size);
+            return true;
+        }
+        return false;
+
+    }
+
+    private static void recordThumbnailSize(DataFile file, int size) {
+        if (file.addThumbnailSize(size) && file.getId() != null) {
+            try {
+                CDI.current().select(DataFileServiceBean.class).get().recordThumbnailSize(file.getId(), size);
+            } catch (RuntimeException e) {
+                // (not running in the application server - e.g. a unit test; 
+                // the size will be recorded the next time)
+                logger.fine("Could not record thumbnail size " + size + " for " + file.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void requestThumbnail(DataFile file, int size) {
+        try {
+            CDI.current().select(ThumbnailServiceBean.class).get().requestThumbnail(file.getId(), size);
+        } catch (RuntimeException e) {
+            logger.fine("Could not request thumbnail size " + size + " for " + file.getId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Makes sure thumbnails of all the given sizes are cached for a file,
+     * generating the missing ones. For images, the source is read only once
+     * (subsampled, see {@link #readImage(InputStream, int)}) for all the
+     * sizes. Used by the background thumbnail workers.
+     *
+     * @param file the file
+     * @param sizes the thumbnail sizes
+     * @return the sizes now cached. If none could be generated, the file is
+     *         flagged as a thumbnail failure (in memory; the caller persists it).
+     */
+    public static List<Integer> generateThumbnails(DataFile file, int... sizes) {
+        List<Integer> available = new ArrayList<>();
+
+        if (!FileUtil.isThumbnailSupported(file) || file.isHarvested() || file.isPreviewImageFail()) {
+            return available;
+        }
+
+        StorageIO<DataFile> storageIO;
+        try {
+            storageIO = file.getStorageIO();
+        } catch (IOException ioEx) {
+            logger.fine("Could not open the storage of file " + file.getId() + ": " + ioEx.getMessage());
+            return available;
+        }
+
+        List<Integer> missing = new ArrayList<>();
+        for (int size : sizes) {
+            if (isThumbnailCached(storageIO, size)) {
+                available.add(size);
+            } else {
+                missing.add(size);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            if (file.getContentType().substring(0, 6).equalsIgnoreCase("image/")) {
+                List<Integer> generated = generateImageThumbnails(storageIO, missing);
+                if (generated.isEmpty() && available.isEmpty()) {
+                    file.setPreviewImageFail(true);
+                    file.setPreviewImageAvailable(false);
+                    logger.fine("No thumbnail generated for " + file.getId());
+                }
+                available.addAll(generated);
+            } else {
+                for (int size : missing) {
+                    if (generateThumbnail(file, storageIO, size)) {
+                        available.add(size);
+                    }
+                }
+            }
+        }
+
+        for (int size : available) {
+            file.addThumbnailSize(size);
+        }
+        return available;
     }
 
     private static boolean generateThumbnail(DataFile file, StorageIO<DataFile> storageIO, int size) {
@@ -189,8 +282,9 @@ public class ImageThumbConverter {
                     logger.warning("Cleaning up zero sized thumbnail ID: "+ storageIO.getDataFile().getId());
                     storageIO.getDataFile().setPreviewImageFail(true);
                     storageIO.getDataFile().setPreviewImageAvailable(false);
+                    storageIO.getDataFile().setThumbnailSizes(null);
                     DataFileServiceBean datafileService = CDI.current().select(DataFileServiceBean.class).get();
-                    datafileService.save(storageIO.getDataFile());
+                    datafileService.recordThumbnailFailure(storageIO.getDataFile().getId());
                     
                     // Now that we have marked this File as a thumbnail failure, 
                     // no reason not to try and delete this 0-size cache here: 
@@ -304,51 +398,103 @@ public class ImageThumbConverter {
     }
 
     private static boolean generateImageThumbnail(StorageIO<DataFile> storageIO, int size) {
+        return generateImageThumbnails(storageIO, List.of(size)).contains(size);
+    }
+
+    private static List<Integer> generateImageThumbnails(StorageIO<DataFile> storageIO, List<Integer> sizes) {
+        List<Integer> generated = new ArrayList<>();
 
         if (isImageOverSizeLimit(storageIO.getDataFile().getFilesize())) {
             logger.fine("Image file too large - skipping");
-            return false;
+            return generated;
+        }
+
+        int largestSize = 0;
+        for (int size : sizes) {
+            largestSize = Math.max(largestSize, size);
         }
 
+        BufferedImage image;
         try {
             storageIO.open();
-            try(InputStream inputStream = storageIO.getInputStream()) {
-              return generateImageThumbnailFromInputStream(storageIO, size, inputStream);
+            try (InputStream inputStream = storageIO.getInputStream()) {
+                logger.fine("attempting to read the image file, " + storageIO.getDataFile().getStorageIdentifier());
+                image = readImage(inputStream, largestSize);
             }
         } catch (IOException ioex) {
-            logger.warning("caught IOException trying to open an input stream for " + storageIO.getDataFile().getStorageIdentifier() + ioex);
-            return false;
+            logger.warning("caught IOException trying to read the image " + storageIO.getDataFile().getStorageIdentifier() + ioex);
+            return generated;
+        } catch (Exception ex) {
+            logger.warning("Caught exception attempting to read the image file " + storageIO.getDataFile().getStorageIdentifier() + ": " + ex.getMessage());
+            return generated;
         }
-        
+
+        if (image == null) {
+            logger.warning("could not read image " + storageIO.getDataFile().getStorageIdentifier());
+            return generated;
+        }
+
+        for (int size : sizes) {
+            if (generateImageThumbnailFromImage(storageIO, size, image)) {
+                generated.add(size);
+            }
+        }
+        image.flush();
+        return generated;
     }
 
-    /*
-     * This is the actual workhorse method that does the rescaling of the full 
-     * size image: 
+    /**
+     * Reads an image, subsampled while decoding so that its longer side is
+     * no more than about twice the size of the largest thumbnail wanted. This
+     * keeps the memory used by one thumbnail job small, however large the
+     * image is.
+     *
+     * @return the (subsampled) image, or {@code null} if it can't be read.
      */
-    private static boolean generateImageThumbnailFromInputStream(StorageIO<DataFile> storageIO, int size, InputStream inputStream) {
+    static BufferedImage readImage(InputStream inputStream, int size) throws IOException {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            if (imageInputStream == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                logger.fine("image dimensions: " + width + "x" + height);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = getSubsampling(width, height, size);
+                if (subsampling > 1) {
+                    logger.fine("reading every " + subsampling + "th pixel of the image");
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
 
-        BufferedImage fullSizeImage;
-        boolean thumbnailGenerated = false;
+    static int getSubsampling(int width, int height, int size) {
+        return Math.max(1, Math.max(width, height) / (2 * size));
+    }
 
-        try {
-            logger.fine("attempting to read the image file with ImageIO.read(InputStream), " + storageIO.getDataFile().getStorageIdentifier());
-            fullSizeImage = ImageIO.read(inputStream);
-        } catch (Exception ioex) {
-            logger.warning("Caught exception attempting to read the image file with ImageIO.read(InputStream)");
-            return false;
-        }
+    /*
+     * This is the actual workhorse method that does the rescaling of the  
+     * (subsampled) image, and saves the result: 
+     */
+    private static boolean generateImageThumbnailFromImage(StorageIO<DataFile> storageIO, int size, BufferedImage fullSizeImage) {
 
-        if (fullSizeImage == null) {
-            logger.warning("could not read image with ImageIO.read()");
-            return false;
-        }
+        boolean thumbnailGenerated = false;
 
         int width = fullSizeImage.getWidth(null);
         int height = fullSizeImage.getHeight(null);
 
-        logger.fine("image dimensions: " + width + "x" + height + "(" + storageIO.getDataFile().getStorageIdentifier() + ")");
-
         OutputStream outputStream = null;
 
         // With some storage drivers, we can open a WritableChannel, or OutputStream 
@@ -462,6 +608,17 @@ public class ImageThumbConverter {
             return null;
         }
 
+        // This is used to render pages, so we don't touch the storage unless
+        // the file's thumbnail status says there is something to read; 
+        // thumbnails not generated yet are generated in the background.
+        if (file.isPreviewImageFail() || file.isHarvested()) {
+            return null;
+        }
+        if (!file.isThumbnailSizeAvailable(size) && !file.isPreviewImageAvailable()) {
+            requestThumbnail(file, size);
+            return null;
+        }
+
         // skip the "isAvailable()" check - and just try to open the cached object. 
         // if we can't open it, then we'll try to generate it. In other words, we are doing it in 
         // the reverse order - and his way we can save one extra lookup, for a thumbnail 
@@ -486,21 +643,14 @@ public class ImageThumbConverter {
         if (cachedThumbnailChannel == null) {
             logger.fine("Null channel for aux object " + THUMBNAIL_SUFFIX + size);
 
-            // try to generate, if not available and hasn't failed before
-            if(generateThumbnail(file, storageIO, size)) {
-                try {
-                    cachedThumbnailChannel = storageIO.openAuxChannel(THUMBNAIL_SUFFIX + size);
-                } catch (Exception ioEx) {
-                    cachedThumbnailChannel = null;
-                }
-            }
-
-            // if still null - give up:
-            if (cachedThumbnailChannel == null) {
-                return null;
-            }
+            // not generated in this size yet (or no longer there) - have it
+            // generated in the background, if it hasn't failed before:
+            requestThumbnail(file, size);
+            return null;
         }
 
+        recordThumbnailSize(file, size);
+
         InputStream cachedThumbnailInputStream = Channels.newInputStream((ReadableByteChannel) cachedThumbnailChannel);
 
         return getImageAsBase64FromInputStream(cachedThumbnailInputStream); //, cachedThumbnailSize);
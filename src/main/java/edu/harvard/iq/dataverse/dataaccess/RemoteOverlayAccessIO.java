@@ -8,6 +8,7 @@ import edu.harvard.iq.dataverse.datavariable.DataVariable;
 import edu.harvard.iq.dataverse.util.UrlSignerUtil;
 
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -20,6 +21,7 @@ import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
@@ -212,6 +214,46 @@ public class RemoteOverlayAccessIO<T extends DvObject> extends AbstractRemoteOve
         return super.getInputStream();
     }
 
+    @Override
+    public boolean isRangeReadSupported() {
+        return true;
+    }
+
+    @Override
+    public InputStream getRangeInputStream(long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        HttpGet get = new HttpGet(generateTemporaryDownloadUrl(null, null, null));
+        get.addHeader("Range", "bytes=" + offset + "-" + (offset + length - 1));
+        CloseableHttpResponse response = getSharedHttpClient().execute(get, localContext);
+        try {
+            int code = response.getStatusLine().getStatusCode();
+            switch (code) {
+            case 206:
+                return response.getEntity().getContent();
+            case 200:
+                // The remote server ignored the Range header; skip to the
+                // offset in the whole file. Closing the response (rather than
+                // the content stream) aborts the rest of the transfer.
+                InputStream content = response.getEntity().getContent();
+                IOUtils.skipFully(content, offset);
+                return new FilterInputStream(content) {
+                    @Override
+                    public void close() throws IOException {
+                        response.close();
+                    }
+                };
+            default:
+                logger.warning("Response from " + get.getURI().toString() + " was " + code);
+                throw new IOException("Cannot retrieve range " + offset + "-" + (offset + length - 1) + " of: " + baseUrl + "/" + path + " code: " + code);
+            }
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        }
+    }
+
     @Override
     public Channel getChannel() throws IOException {
         if (super.getChannel() == null) {
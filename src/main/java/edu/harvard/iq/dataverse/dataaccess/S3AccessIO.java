@@ -14,6 +14,7 @@ import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.iterable.S3Objects;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectRequest;
@@ -28,8 +29,7 @@ import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
-import com.amazonaws.services.s3.model.ListObjectsRequest;
-import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
 import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
@@ -58,21 +58,43 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.io.IOUtils;
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
 
+import jakarta.enterprise.inject.spi.CDI;
 import jakarta.json.Json;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.validation.constraints.NotNull;
@@ -97,6 +119,8 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     static final String PROXY_URL = "proxy-url";
     static final String BUCKET_NAME = "bucket-name";
     static final String MIN_PART_SIZE = "min-part-size";
+    static final String UPLOAD_PART_SIZE = "upload-part-size";
+    static final String UPLOAD_THREADS = "upload-threads";
     static final String CUSTOM_ENDPOINT_REGION = "custom-endpoint-region";
     static final String PATH_STYLE_ACCESS = "path-style-access";
     static final String PAYLOAD_SIGNING = "payload-signing";
@@ -106,7 +130,13 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     private boolean mainDriver = true;
 
     private static HashMap<String, AmazonS3> driverClientMap = new HashMap<String,AmazonS3>();
-    private static HashMap<String, TransferManager> driverTMMap = new HashMap<String,TransferManager>();
+    private static Map<String, TransferManager> driverTMMap = new ConcurrentHashMap<String,TransferManager>();
+
+    // the maximum number of keys in a DeleteObjects request
+    static final int DELETE_BATCH_SIZE = 1000;
+    // the number of DeleteObjects requests sent in parallel
+    static final int DELETE_THREADS = 4;
+    private static ExecutorService deleteExecutor = null;
 
     public S3AccessIO(T dvObject, DataAccessRequest req, String driverId) {
         super(dvObject, req, driverId);
@@ -151,6 +181,7 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         bucketName = getBucketName(driverId);
         this.setIsLocalFile(false);
         this.s3 = s3client;
+        this.tm = s3client == null ? null : buildTransferManager(s3client, driverId);
     }
     
     private AmazonS3 s3 = null;
@@ -309,7 +340,25 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
 
         return super.getInputStream();
     }
-    
+
+    @Override
+    public boolean isRangeReadSupported() {
+        return true;
+    }
+
+    @Override
+    public InputStream getRangeInputStream(long offset, long length) throws IOException {
+        if (length <= 0) {
+            // (an empty range would be ignored by S3, returning the whole object)
+            return InputStream.nullInputStream();
+        }
+        try {
+            return s3.getObject(new GetObjectRequest(bucketName, key).withRange(offset, offset + length - 1)).getObjectContent();
+        } catch (SdkClientException sce) {
+            throw new IOException("Cannot get range " + offset + "-" + (offset + length - 1) + " of S3 object " + key + " (" + sce.getMessage() + ")");
+        }
+    }
+
     @Override
     public Channel getChannel() throws IOException {
         if(super.getChannel()==null) {
@@ -337,13 +386,13 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         try {
             File inputFile = fileSystemPath.toFile();
             if (dvObject instanceof DataFile) {
-                tm.upload(new PutObjectRequest(bucketName, key, inputFile)).waitForCompletion();
+                upload(new PutObjectRequest(bucketName, key, inputFile), inputFile.length());
                 newFileSize = inputFile.length();
             } else {
                 throw new IOException("DvObject type other than datafile is not yet supported");
             }
 
-        } catch (SdkClientException | InterruptedException ioex ) {
+        } catch (SdkClientException ioex) {
             String failureMsg = ioex.getMessage();
             if (failureMsg == null) {
                 failureMsg = "S3AccessIO: Unknown exception occured while uploading a local file into S3Object "+key;
@@ -389,7 +438,7 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
             ObjectMetadata metadata = new ObjectMetadata();
             metadata.setContentLength(filesize);
             try {
-                s3.putObject(bucketName, key, inputStream, metadata);
+                upload(new PutObjectRequest(bucketName, key, inputStream, metadata), filesize);
             } catch (SdkClientException ioex) {
                 String failureMsg = ioex.getMessage();
                 if (failureMsg == null) {
@@ -414,7 +463,7 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         File tempFile = createTempFile(tempPath, inputStream);
         
         try {
-            s3.putObject(bucketName, key, tempFile);
+            upload(new PutObjectRequest(bucketName, key, tempFile), tempFile.length());
         } catch (SdkClientException ioex) {
             String failureMsg = ioex.getMessage();
             if (failureMsg == null) {
@@ -532,7 +581,7 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         String destinationKey = getDestinationKey(auxItemTag);
         try {
             File inputFile = fileSystemPath.toFile();
-            s3.putObject(new PutObjectRequest(bucketName, destinationKey, inputFile));            
+            upload(new PutObjectRequest(bucketName, destinationKey, inputFile), inputFile.length());
         } catch (AmazonClientException ase) {
             logger.warning("Caught an AmazonClientException in S3AccessIO.savePathAsAux():    " + ase.getMessage());
             throw new IOException("S3AccessIO: Failed to save path as an auxiliary object.");
@@ -551,7 +600,7 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
             ObjectMetadata metadata = new ObjectMetadata();
             metadata.setContentLength(filesize);
             try {
-                s3.putObject(bucketName, destinationKey, inputStream, metadata);
+                upload(new PutObjectRequest(bucketName, destinationKey, inputStream, metadata), filesize);
             } catch (SdkClientException ioex) {
                 String failureMsg = ioex.getMessage();
 
@@ -598,7 +647,7 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         String destinationKey = getDestinationKey(auxItemTag);
         
         try {
-            s3.putObject(bucketName, destinationKey, tempFile);
+            upload(new PutObjectRequest(bucketName, destinationKey, tempFile), tempFile.length());
         } catch (SdkClientException ioex) {
             String failureMsg = ioex.getMessage();
 
@@ -611,6 +660,44 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         tempFile.delete();
     }
     
+    /*
+     * Uploads an object with the TransferManager of the driver: as a multipart
+     * upload if it is larger than the upload-part-size of the driver, with the
+     * parts of a file uploaded in parallel (up to upload-threads at a time,
+     * read from the file as they are sent, so that the memory used does not
+     * grow with the part size or the number of threads). The size of the
+     * object and the time the upload took are recorded in the s3_upload_bytes
+     * and s3_upload_time metrics, tagged with the driver id, from which the
+     * upload throughput can be followed.
+     */
+    private void upload(PutObjectRequest putObjectRequest, long size) throws IOException {
+        long start = System.nanoTime();
+        try {
+            tm.upload(putObjectRequest).waitForCompletion();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("S3AccessIO: Interrupted while uploading S3Object " + putObjectRequest.getKey());
+        }
+        long nanos = System.nanoTime() - start;
+        logger.fine("Uploaded " + size + " bytes to " + putObjectRequest.getKey() + " in " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+        recordUpload(driverId, size, nanos);
+    }
+
+    private static void recordUpload(String driverId, long size, long nanos) {
+        try {
+            MetricRegistry metricRegistry = CDI.current().select(MetricRegistry.class).get();
+            Tag driverTag = new Tag("driver", driverId);
+            metricRegistry.counter(Metadata.builder().withName("s3_upload_bytes")
+                    .withDescription("Displays the number of bytes uploaded to an S3 store")
+                    .withUnit(MetricUnits.BYTES).build(), driverTag).inc(size);
+            metricRegistry.timer(Metadata.builder().withName("s3_upload_time")
+                    .withDescription("Displays how long uploads to an S3 store take")
+                    .withUnit(MetricUnits.NANOSECONDS).build(), driverTag).update(Duration.ofNanos(nanos));
+        } catch (RuntimeException e) {
+            logger.log(Level.FINE, "Metrics are not available, not recording the S3 upload", e);
+        }
+    }
+
     //Helper method for supporting saving streams with unknown length to S3
     //We save those streams to a file and then upload the file
     private File createTempFile(Path path, InputStream inputStream) throws IOException {
@@ -638,36 +725,17 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         String prefix = getDestinationKey("");
 
         List<String> ret = new ArrayList<>();
-        ListObjectsRequest req = new ListObjectsRequest().withBucketName(bucketName).withPrefix(prefix);
-        ObjectListing storedAuxFilesList = null; 
         try {
-            storedAuxFilesList = s3.listObjects(req);
-        } catch (SdkClientException sce) {
-            throw new IOException ("S3 listAuxObjects: failed to get a listing for "+prefix);
-        }
-        if (storedAuxFilesList == null) {
-            return ret;
-        }
-        List<S3ObjectSummary> storedAuxFilesSummary = storedAuxFilesList.getObjectSummaries();
-        try {
-            while (storedAuxFilesList.isTruncated()) {
-                logger.fine("S3 listAuxObjects: going to next page of list");
-                storedAuxFilesList = s3.listNextBatchOfObjects(storedAuxFilesList);
-                if (storedAuxFilesList != null) {
-                    storedAuxFilesSummary.addAll(storedAuxFilesList.getObjectSummaries());
-                }
+            for (S3ObjectSummary item : listObjects(prefix)) {
+                String destinationKey = item.getKey();
+                String fileName = destinationKey.substring(destinationKey.lastIndexOf(".") + 1);
+                logger.fine("S3 cached aux object fileName: " + fileName);
+                ret.add(fileName);
             }
         } catch (AmazonClientException ase) {
             //logger.warning("Caught an AmazonServiceException in S3AccessIO.listAuxObjects():    " + ase.getMessage());
             throw new IOException("S3AccessIO: Failed to get aux objects for listing.");
         }
-
-        for (S3ObjectSummary item : storedAuxFilesSummary) {
-            String destinationKey = item.getKey();
-            String fileName = destinationKey.substring(destinationKey.lastIndexOf(".") + 1);
-            logger.fine("S3 cached aux object fileName: " + fileName);
-            ret.add(fileName);
-        }
         return ret;
     }
 
@@ -693,45 +761,146 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         
         String prefix = getDestinationKey("");
 
-        List<S3ObjectSummary> storedAuxFilesSummary = null;
+        // (the keys are deleted a page of the listing at a time, as the 
+        // listing goes)
+        logger.fine("Trying to delete auxiliary files...");
+        int failed;
         try {
-            ListObjectsRequest req = new ListObjectsRequest().withBucketName(bucketName).withPrefix(prefix);
-            ObjectListing storedAuxFilesList = s3.listObjects(req);
-            if (storedAuxFilesList == null) {
-                // nothing to delete
-                return; 
-            }
-            storedAuxFilesSummary = storedAuxFilesList.getObjectSummaries();
-            while (storedAuxFilesList.isTruncated()) {
-                storedAuxFilesList = s3.listNextBatchOfObjects(storedAuxFilesList);
-                if (storedAuxFilesList != null) {
-                    storedAuxFilesSummary.addAll(storedAuxFilesList.getObjectSummaries());
-                }
-            }
+            failed = deleteObjects(s3, bucketName, () -> StreamSupport.stream(listObjects(prefix).spliterator(), false)
+                    .map(S3ObjectSummary::getKey).iterator());
         } catch (AmazonClientException ase) {
             throw new IOException("S3AccessIO: Failed to get aux objects for listing to delete.");
         }
+        if (failed > 0) {
+            throw new IOException("S3AccessIO: Failed to delete one or more auxiliary objects.");
+        }
+    }
 
-        DeleteObjectsRequest multiObjectDeleteRequest = new DeleteObjectsRequest(bucketName);
-        List<KeyVersion> keys = new ArrayList<>();
+    /*
+     * Lists the objects with the given prefix lazily, getting the next page 
+     * of (up to 1000) objects from S3 as the iteration reaches it. The 
+     * iteration throws an AmazonClientException if getting a page fails.
+     */
+    private Iterable<S3ObjectSummary> listObjects(String prefix) {
+        return S3Objects.withPrefix(s3, bucketName, prefix).withBatchSize(DELETE_BATCH_SIZE);
+    }
 
-        for (S3ObjectSummary item : storedAuxFilesSummary) {
-            String destinationKey = item.getKey();
-            keys.add(new KeyVersion(destinationKey));
+    /**
+     * Deletes objects with DeleteObjects requests of up to DELETE_BATCH_SIZE
+     * keys (the maximum allowed by S3), sending up to DELETE_THREADS of them
+     * in parallel while the rest of the keys are got. A batch that fails is
+     * logged, and the deletion goes on with the next ones.
+     *
+     * @param s3 the client
+     * @param bucketName the bucket
+     * @param keys the keys of the objects, possibly iterated over lazily
+     * @return the number of objects that could not be deleted
+     */
+    static int deleteObjects(AmazonS3 s3, String bucketName, Iterable<String> keys) {
+        Deque<Future<Integer>> inFlight = new ArrayDeque<>();
+        int failed = 0;
+        List<KeyVersion> batch = new ArrayList<>();
+        Iterator<String> keyIterator = keys.iterator();
+        while (keyIterator.hasNext()) {
+            batch.add(new KeyVersion(keyIterator.next()));
+            if (batch.size() == DELETE_BATCH_SIZE || !keyIterator.hasNext()) {
+                if (inFlight.size() == DELETE_THREADS) {
+                    failed += getFailedDeletes(inFlight.poll());
+                }
+                DeleteObjectsRequest multiObjectDeleteRequest = new DeleteObjectsRequest(bucketName).withKeys(batch).withQuiet(true);
+                inFlight.add(getDeleteExecutor().submit(() -> deleteBatch(s3, multiObjectDeleteRequest)));
+                batch = new ArrayList<>();
+            }
         }
-        //Check if the list of auxiliary files for a data file is empty
-        if (keys.isEmpty()) {
-            logger.fine("S3AccessIO: No auxiliary objects to delete.");
-            return;
+        while (!inFlight.isEmpty()) {
+            failed += getFailedDeletes(inFlight.poll());
         }
-        multiObjectDeleteRequest.setKeys(keys);
+        return failed;
+    }
 
-        logger.fine("Trying to delete auxiliary files...");
+    /**
+     * Deletes the objects of the files of a dataset that is being destroyed,
+     * with their aux objects. Rather than a listing and a delete per file,
+     * the folder of the dataset is listed once, and the objects of the files
+     * in it are deleted in batches, as the listing goes. (The objects of the
+     * dataset itself, in the same folder, are left alone.)
+     *
+     * @param driverId the S3 driver of the files
+     * @param storageLocations the locations of the files, as returned by
+     *        {@link #getStorageLocation()}, without the driver id
+     * @return the number of objects that could not be deleted
+     */
+    public static int deleteFileObjects(String driverId, Collection<String> storageLocations) {
+        AmazonS3 s3 = getClient(driverId);
+        // bucket -> folder of the dataset -> the main keys of the files
+        Map<String, Map<String, Set<String>>> mainKeys = new HashMap<>();
+        for (String storageLocation : storageLocations) {
+            String bucket = storageLocation.substring(0, storageLocation.indexOf('/'));
+            String mainKey = storageLocation.substring(storageLocation.indexOf('/') + 1);
+            String prefix = mainKey.substring(0, mainKey.lastIndexOf('/') + 1);
+            mainKeys.computeIfAbsent(bucket, b -> new HashMap<>()).computeIfAbsent(prefix, p -> new HashSet<>()).add(mainKey);
+        }
+        int failed = 0;
+        for (Map.Entry<String, Map<String, Set<String>>> bucket : mainKeys.entrySet()) {
+            for (Map.Entry<String, Set<String>> folder : bucket.getValue().entrySet()) {
+                String prefix = folder.getKey();
+                Set<String> keys = folder.getValue();
+                failed += deleteObjects(s3, bucket.getKey(), () -> StreamSupport.stream(
+                        S3Objects.withPrefix(s3, bucket.getKey(), prefix).withBatchSize(DELETE_BATCH_SIZE).spliterator(), false)
+                        .map(S3ObjectSummary::getKey)
+                        .filter(key -> keys.contains(getMainKey(key, prefix)))
+                        .iterator());
+            }
+        }
+        return failed;
+    }
+
+    /*
+     * The key of the main object of a file, from the key of one of its aux
+     * objects (<main key>.<aux tag>).
+     */
+    static String getMainKey(String key, String prefix) {
+        int auxSeparator = key.indexOf('.', prefix.length());
+        return auxSeparator < 0 ? key : key.substring(0, auxSeparator);
+    }
+
+    private static int deleteBatch(AmazonS3 s3, DeleteObjectsRequest multiObjectDeleteRequest) {
+        int size = multiObjectDeleteRequest.getKeys().size();
         try {
             s3.deleteObjects(multiObjectDeleteRequest);
-        } catch (SdkClientException e) {
-            throw new IOException("S3AccessIO: Failed to delete one or more auxiliary objects.");
+            logger.fine("S3AccessIO: Deleted " + size + " objects");
+            return 0;
+        } catch (MultiObjectDeleteException mode) {
+            logger.warning("S3AccessIO: Unable to delete " + mode.getErrors().size() + " of " + size + " objects, e.g. "
+                    + mode.getErrors().get(0).getKey() + ": " + mode.getErrors().get(0).getMessage());
+            return mode.getErrors().size();
+        } catch (AmazonClientException ase) {
+            logger.warning("S3AccessIO: Unable to delete " + size + " objects    " + ase.getMessage());
+            return size;
+        }
+    }
+
+    private static int getFailedDeletes(Future<Integer> deletion) {
+        try {
+            return deletion.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Interrupted while deleting S3 objects", ie);
+        } catch (ExecutionException ee) {
+            throw new AmazonClientException("Failed to delete S3 objects", ee.getCause());
+        }
+    }
+
+    private static synchronized ExecutorService getDeleteExecutor() {
+        if (deleteExecutor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            deleteExecutor = Executors.newFixedThreadPool(DELETE_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "s3-delete-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
         }
+        return deleteExecutor;
     }
 
     //TODO: Do we need this? - Answer: yes! 
@@ -1129,17 +1298,61 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     }
 
 
-    private static TransferManager getTransferManager(String driverId) {
-        if(driverTMMap.containsKey(driverId)) {
-            return driverTMMap.get(driverId);
-        } else {
-            // building a TransferManager instance to support multipart uploading for files over 4gb.
-            TransferManager manager = TransferManagerBuilder.standard()
-                    .withS3Client(getClient(driverId))
-                    .build();
-            driverTMMap.put(driverId,  manager);
-            return manager;
+    static long getUploadPartSize(String driverId) {
+        // the SDK default; the minimum part size allowed by S3 is 5 MB
+        long partSize = 16 * 1024 * 1024l;
+
+        String partLength = getConfigParamForDriver(driverId, UPLOAD_PART_SIZE);
+        try {
+            if (partLength != null) {
+                long val = Long.parseLong(partLength);
+                if (val >= 5 * 1024 * 1024l) {
+                    partSize = val;
+                } else {
+                    logger.warning(5 * 1024 * 1024l + " is the minimum part size allowed for jvm option dataverse.files." + driverId + ".upload-part-size");
+                }
+            }
+        } catch (NumberFormatException nfe) {
+            logger.warning("Unable to parse dataverse.files." + driverId + ".upload-part-size as long: " + partLength);
+        }
+        return partSize;
+    }
+
+    static int getUploadThreads(String driverId) {
+        int threads = 10;
+
+        String threadCount = getConfigParamForDriver(driverId, UPLOAD_THREADS);
+        try {
+            if (threadCount != null) {
+                threads = Math.max(Integer.parseInt(threadCount), 1);
+            }
+        } catch (NumberFormatException nfe) {
+            logger.warning("Unable to parse dataverse.files." + driverId + ".upload-threads as int: " + threadCount);
         }
+        return threads;
+    }
+
+    private static TransferManager getTransferManager(String driverId) {
+        return driverTMMap.computeIfAbsent(driverId, id -> buildTransferManager(getClient(id), id));
+    }
+
+    private static TransferManager buildTransferManager(AmazonS3 client, String driverId) {
+        // building a TransferManager instance to support multipart uploading,
+        // in parallel parts, for all the objects saved by Dataverse.
+        long partSize = getUploadPartSize(driverId);
+        int threads = getUploadThreads(driverId);
+        logger.fine("Uploads to " + driverId + " use parts of " + partSize + " bytes, " + threads + " at a time");
+        AtomicInteger threadNumber = new AtomicInteger();
+        return TransferManagerBuilder.standard()
+                .withS3Client(client)
+                .withMultipartUploadThreshold(partSize)
+                .withMinimumUploadPartSize(partSize)
+                .withExecutorFactory(() -> Executors.newFixedThreadPool(threads, runnable -> {
+                    Thread thread = new Thread(runnable, "s3-upload-" + driverId + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
     }
 
 
@@ -1356,7 +1569,7 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         return true;
     }
     
-    private List<String> listAllFiles() throws IOException {
+    private String getDatasetPrefix() throws IOException {
         if (!this.canWrite()) {
             open();
         }
@@ -1364,66 +1577,35 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         if (dataset == null) {
             throw new IOException("This S3AccessIO object hasn't been properly initialized.");
         }
-        String prefix = dataset.getAuthorityForFileStorage() + "/" + dataset.getIdentifierForFileStorage() + "/";
+        return dataset.getAuthorityForFileStorage() + "/" + dataset.getIdentifierForFileStorage() + "/";
+    }
+
+    private List<String> listAllFiles() throws IOException {
+        String prefix = getDatasetPrefix();
 
         List<String> ret = new ArrayList<>();
-        ListObjectsRequest req = new ListObjectsRequest().withBucketName(bucketName).withPrefix(prefix);
-        ObjectListing storedFilesList = null; 
-        try {
-            storedFilesList = s3.listObjects(req);
-        } catch (SdkClientException sce) {
-            throw new IOException ("S3 listObjects: failed to get a listing for " + prefix);
-        }
-        if (storedFilesList == null) {
-            return ret;
-        }
-        List<S3ObjectSummary> storedFilesSummary = storedFilesList.getObjectSummaries();
         try {
-            while (storedFilesList.isTruncated()) {
-                logger.fine("S3 listObjects: going to next page of list");
-                storedFilesList = s3.listNextBatchOfObjects(storedFilesList);
-                if (storedFilesList != null) {
-                    storedFilesSummary.addAll(storedFilesList.getObjectSummaries());
-                }
+            for (S3ObjectSummary item : listObjects(prefix)) {
+                String fileName = item.getKey().substring(prefix.length());
+                ret.add(fileName);
             }
         } catch (AmazonClientException ase) {
             //logger.warning("Caught an AmazonServiceException in S3AccessIO.listObjects():    " + ase.getMessage());
             throw new IOException("S3AccessIO: Failed to get objects for listing.");
         }
-
-        for (S3ObjectSummary item : storedFilesSummary) {
-            String fileName = item.getKey().substring(prefix.length());
-            ret.add(fileName);
-        }
         return ret;
     }
 
-    private void deleteFile(String fileName) throws IOException {
-        if (!this.canWrite()) {
-            open();
-        }
-        Dataset dataset = this.getDataset();
-        if (dataset == null) {
-            throw new IOException("This S3AccessIO object hasn't been properly initialized.");
-        }
-        String prefix = dataset.getAuthorityForFileStorage() + "/" + dataset.getIdentifierForFileStorage() + "/";
-
-        try {
-            DeleteObjectRequest dor = new DeleteObjectRequest(bucketName, prefix + fileName);
-            s3.deleteObject(dor);
-        } catch (AmazonClientException ase) {
-            logger.warning("S3AccessIO: Unable to delete object    " + ase.getMessage());
-        }
-    }
-
     @Override
     public List<String> cleanUp(Predicate<String> filter, boolean dryRun) throws IOException {
         List<String> toDelete = this.listAllFiles().stream().filter(filter).collect(Collectors.toList());
         if (dryRun) {
             return toDelete;
         }
-        for (String f : toDelete) {
-            this.deleteFile(f);
+        String prefix = getDatasetPrefix();
+        int failed = deleteObjects(s3, bucketName, toDelete.stream().map(f -> prefix + f).collect(Collectors.toList()));
+        if (failed > 0) {
+            logger.warning("S3AccessIO: Unable to delete " + failed + " of " + toDelete.size() + " objects in " + prefix);
         }
         return toDelete;
     }
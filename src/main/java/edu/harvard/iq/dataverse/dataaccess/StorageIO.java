@@ -304,6 +304,30 @@ public abstract class StorageIO<T extends DvObject> {
         return in;
     }
 
+    /**
+     * Whether {@link #getRangeInputStream(long, long)} is implemented, i.e.
+     * whether a portion of the object can be read from the storage without
+     * reading the object from the start.
+     */
+    public boolean isRangeReadSupported() {
+        return false;
+    }
+
+    /**
+     * Opens a new InputStream of a portion of the object (e.g. to serve a
+     * Range request), only getting the requested bytes from the storage. The
+     * stream is separate from the one returned by getInputStream(), and must
+     * be closed by the caller.
+     *
+     * @param offset the offset of the first byte, in the stored object (i.e.
+     *               not counting the variable header of a tabular file)
+     * @param length the number of bytes
+     * @throws IOException
+     */
+    public InputStream getRangeInputStream(long offset, long length) throws IOException {
+        throw new UnsupportedDataAccessOperationException("Range reads are not supported by this storage type");
+    }
+
     public OutputStream getOutputStream() throws IOException {
         return out;
     }
@@ -24,6 +24,7 @@ import java.io.IOException;
 import edu.harvard.iq.dataverse.DataFile;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.logging.Logger;
 
@@ -67,6 +68,11 @@ public class StoredOriginalFile {
                     dataFile.getDataTable().getOriginalFileSize() : 
                     storageIO.getAuxObjectSize(SAVED_ORIGINAL_FILENAME_EXTENSION);
             inputStreamIO = new InputStreamIO(Channels.newInputStream((ReadableByteChannel) storedOriginalChannel), storedOriginalSize);
+            if (storedOriginalChannel instanceof FileChannel) {
+                // (so that a local original can be served from its channel
+                // directly, see DownloadInstanceWriter)
+                inputStreamIO.setChannel(storedOriginalChannel);
+            }
             logger.fine("Opened stored original file as Aux "+SAVED_ORIGINAL_FILENAME_EXTENSION);
         } catch (IOException ioEx) {
         	IOUtils.closeQuietly(storedOriginalChannel);
@@ -12,6 +12,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.security.InvalidKeyException;
@@ -31,6 +32,8 @@ import javax.crypto.spec.SecretKeySpec;
 import org.javaswift.joss.client.factory.AccountFactory;
 import static org.javaswift.joss.client.factory.AuthenticationMethod.BASIC;
 import static org.javaswift.joss.client.factory.AuthenticationMethod.KEYSTONE_V3;
+import org.javaswift.joss.headers.object.range.MidPartRange;
+import org.javaswift.joss.instructions.DownloadInstructions;
 import org.javaswift.joss.model.Account;
 import org.javaswift.joss.model.Container;
 import org.javaswift.joss.model.StoredObject;
@@ -129,14 +132,10 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
             }
 
             if (isReadAccess) {
-                InputStream fin = openSwiftFileAsInputStream();
-
-                if (fin == null) {
-                    throw new IOException("Failed to open Swift file " + getStorageLocation());
-                }
-
-                this.setInputStream(fin);
-                setChannel(Channels.newChannel(fin));
+                // (the object itself is only downloaded once its InputStream 
+                // is asked for; a Range request may only need a portion of it)
+                swiftFileObject = initializeSwiftFileObject(false);
+                this.setSize(swiftFileObject.getContentLength());
 
                 if (dataFile.getContentType() != null
                         && dataFile.getContentType().equals("text/tab-separated-values")
@@ -496,6 +495,54 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
         return true;
     }
 
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (super.getInputStream() == null && isReadAccess && swiftFileObject != null) {
+            InputStream fin = swiftFileObject.downloadObjectAsInputStream();
+
+            if (fin == null) {
+                throw new IOException("Failed to open Swift file " + getStorageLocation());
+            }
+
+            setInputStream(fin);
+            setChannel(Channels.newChannel(fin));
+        }
+        return super.getInputStream();
+    }
+
+    @Override
+    public Channel getChannel() throws IOException {
+        if (super.getChannel() == null) {
+            getInputStream();
+        }
+        return channel;
+    }
+
+    @Override
+    public ReadableByteChannel getReadChannel() throws IOException {
+        //Make sure StorageIO.channel variable exists
+        getChannel();
+        return super.getReadChannel();
+    }
+
+    @Override
+    public boolean isRangeReadSupported() {
+        return true;
+    }
+
+    @Override
+    public InputStream getRangeInputStream(long offset, long length) throws IOException {
+        if (swiftFileObject == null) {
+            throw new IOException("Swift file " + getStorageLocation() + " is not open");
+        }
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        DownloadInstructions downloadInstructions = new DownloadInstructions();
+        downloadInstructions.setRange(new MidPartRange(offset, offset + length - 1));
+        return swiftFileObject.downloadObjectAsInputStream(downloadInstructions);
+    }
+
     @Override
     public WritableByteChannel getWriteChannel() throws IOException {
         throw new UnsupportedDataAccessOperationException("SwiftAccessIO: there are no write Channels associated with Swift objects.");
@@ -22,6 +22,7 @@ import edu.harvard.iq.dataverse.PermissionServiceBean;
 import edu.harvard.iq.dataverse.RoleAssigneeServiceBean;
 import edu.harvard.iq.dataverse.search.SearchServiceBean;
 import edu.harvard.iq.dataverse.TemplateServiceBean;
+import edu.harvard.iq.dataverse.ThumbnailServiceBean;
 import edu.harvard.iq.dataverse.UserNotificationServiceBean;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogServiceBean;
 import edu.harvard.iq.dataverse.authorization.AuthenticationServiceBean;
@@ -92,6 +93,8 @@ public interface CommandContext {
 
     public DataFileServiceBean files();
 
+    public ThumbnailServiceBean thumbnails();
+
     public TemplateServiceBean templates();
 
     public SavedSearchServiceBean savedSearches();
@@ -141,6 +141,14 @@ public abstract class AbstractCreateDatasetCommand extends AbstractDatasetComman
         return theDataset;
     }
 
+    @Override
+    public boolean onSuccess(CommandContext ctxt, Object r) {
+        // Generate the thumbnails of the files the dataset was created with
+        // in the background now, rather than when they are first shown:
+        ctxt.thumbnails().requestStandardThumbnails(((Dataset) r).getFiles());
+        return true;
+    }
+
     @Override
     public int hashCode() {
         return 97 + Objects.hashCode(getDataset());
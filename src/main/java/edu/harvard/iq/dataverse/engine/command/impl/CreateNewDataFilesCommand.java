@@ -14,6 +14,7 @@ import edu.harvard.iq.dataverse.engine.command.exception.CommandException;
 import edu.harvard.iq.dataverse.engine.command.exception.CommandExecutionException;
 import edu.harvard.iq.dataverse.ingest.IngestServiceShapefileHelper;
 import edu.harvard.iq.dataverse.Dataverse;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
 import edu.harvard.iq.dataverse.storageuse.UploadSessionQuotaLimit;
 import edu.harvard.iq.dataverse.util.file.FileExceedsStorageQuotaException;
 import edu.harvard.iq.dataverse.util.BundleUtil;
@@ -49,11 +50,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import jakarta.enterprise.inject.spi.CDI;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -69,6 +76,8 @@ import org.apache.commons.lang3.StringUtils;
 //@RequiredPermissions( Permission.EditDataset )
 public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileResult> {
     private static final Logger logger = Logger.getLogger(CreateNewDataFilesCommand.class.getCanonicalName());
+    // how long to wait for the zip entries being unpacked when giving up on a zip file
+    private static final long UNZIP_TERMINATION_TIMEOUT_MINUTES = 10;
     
     private final DatasetVersion version;
     private final InputStream inputStream;
@@ -136,6 +145,7 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
         }
         String finalType = null;
         File newFile = null;    // this File will be used for a single-file, local (non-direct) upload
+        String tempFileChecksum = null; // (calculated while saving the temp file)
         long fileSize = -1; 
 
 
@@ -148,7 +158,7 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                     // temp files will always be stored on the local filesystem.
                     // -- L.A. Jul. 2014
                     logger.fine("Will attempt to save the file as: " + tempFile.toString());
-                    Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                    tempFileChecksum = FileUtil.copyAndCalculateChecksum(inputStream, tempFile, newCheckSumType);
                 } catch (IOException ioex) {
                     throw new CommandExecutionException("Failed to save the upload as a temp file (temp disk space?)", ioex, this);
                 }
@@ -261,8 +271,7 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
             } else if (finalType.equals("application/zip")) {
 
                 ZipFile zipFile = null;
-                ZipInputStream unZippedIn = null;
-                ZipEntry zipEntry = null;
+                ExecutorService executor = null;
 
                 int fileNumberLimit = ctxt.systemConfig().getZipUploadFilesLimit();
                 Long combinedUnzippedFileSize = 0L;
@@ -314,6 +323,7 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                      */
 
                     int numberOfUnpackableFiles = 0; 
+                    List<ZipEntry> unpackableEntries = new ArrayList<>();
                      
                     /**
                      * Note that we can't just use zipFile.size(),
@@ -333,6 +343,7 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                             // start with "._") 
                             if (!shortName.startsWith("._") && !shortName.startsWith(".DS_Store") && !"".equals(shortName)) {
                                 numberOfUnpackableFiles++;
+                                unpackableEntries.add(entry);
                                 if (numberOfUnpackableFiles > fileNumberLimit) {
                                     logger.warning("Zip upload - too many files in the zip to process individually.");
                                     warningMessage = "The number of files in the zip archive is over the limit (" + fileNumberLimit
@@ -366,114 +377,59 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                     }
                     
                     // OK we're still here - that means we can proceed unzipping. 
+                    // The entries are read from the ZipFile we already have open, 
+                    // dataverse.files.unzip-threads at a time; the DataFiles 
+                    // are added in the order of the entries in the archive. 
+                    // (the sizes declared in the zip directory, checked above, 
+                    // may be missing or wrong, so the limits are checked 
+                    // again against the bytes actually unpacked)
                     
-                    // Close the ZipFile, re-open as ZipInputStream: 
-                    zipFile.close(); 
-                    // reset:
-                    combinedUnzippedFileSize = 0L;
-
-                    if (charset != null) {
-                        unZippedIn = new ZipInputStream(new FileInputStream(tempFile.toFile()), charset);
-                    } else {
-                        unZippedIn = new ZipInputStream(new FileInputStream(tempFile.toFile()));
+                    AtomicLong unzippedBytes = new AtomicLong();
+                    AtomicBoolean unzipAbandoned = new AtomicBoolean();
+                    final Long unzippedQuotaLimit = storageQuotaLimit;
+                    DataFile.ChecksumType checksumType = ctxt.systemConfig().getFileFixityChecksumAlgorithm();
+                    executor = Executors.newFixedThreadPool(JvmSettings.FILES_UNZIP_THREADS.lookup(Integer.class));
+                    
+                    List<Future<DataFile>> unpackedEntries = new ArrayList<>();
+                    for (ZipEntry entry : unpackableEntries) {
+                        final ZipFile archive = zipFile;
+                        unpackedEntries.add(executor.submit(() -> unzipAbandoned.get() ? null
+                                : unpackZipEntry(archive, entry, checksumType, fileSizeLimit, unzippedQuotaLimit, unzippedBytes)));
                     }
-
-                    while (true) {
-                        try {
-                            zipEntry = unZippedIn.getNextEntry();
-                        } catch (IllegalArgumentException iaex) {
-                            // Note:
-                            // ZipInputStream documentation doesn't even mention that
-                            // getNextEntry() throws an IllegalArgumentException!
-                            // but that's what happens if the file name of the next
-                            // entry is not valid in the current CharSet.
-                            // -- L.A.
-                            warningMessage = "Failed to unpack Zip file. (Unknown Character Set used in a file name?) Saving the file as is.";
-                            logger.warning(warningMessage);
-                            throw new IOException();
-                        }
-
-                        if (zipEntry == null) {
-                            break;
-                        }
-                        // Note that some zip entries may be directories - we
-                        // simply skip them:
-
-                        if (!zipEntry.isDirectory()) {
-                            if (datafiles.size() > fileNumberLimit) {
-                                logger.warning("Zip upload - too many files.");
-                                warningMessage = "The number of files in the zip archive is over the limit (" + fileNumberLimit
-                                        + "); please upload a zip archive with fewer files, if you want them to be ingested "
-                                        + "as individual DataFiles.";
-                                throw new IOException();
-                            }
-
-                            String fileEntryName = zipEntry.getName();
-                            logger.fine("ZipEntry, file: " + fileEntryName);
-
-                            if (fileEntryName != null && !fileEntryName.equals("")) {
-
-                                String shortName = fileEntryName.replaceFirst("^.*[\\/]", "");
-
-                                // Check if it's a "fake" file - a zip archive entry
-                                // created for a MacOS X filesystem element: (these
-                                // start with "._")
-                                if (!shortName.startsWith("._") && !shortName.startsWith(".DS_Store") && !"".equals(shortName)) {
-                                    // OK, this seems like an OK file entry - we'll try
-                                    // to read it and create a DataFile with it:
-
-                                    String storageIdentifier = FileUtil.generateStorageIdentifier();
-                                    File unzippedFile = new File(getFilesTempDirectory() + "/" + storageIdentifier);
-                                    Files.copy(unZippedIn, unzippedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                                    // No need to check the size of this unpacked file against the size limit, 
-                                    // since we've already checked for that in the first pass.
-                                    
-                                    DataFile datafile = FileUtil.createSingleDataFile(version, null, storageIdentifier, shortName,
-                                            MIME_TYPE_UNDETERMINED_DEFAULT,
-                                            ctxt.systemConfig().getFileFixityChecksumAlgorithm(), null, false);
-                                    
-                                    if (!fileEntryName.equals(shortName)) {
-                                        // If the filename looks like a hierarchical folder name (i.e., contains slashes and backslashes),
-                                        // we'll extract the directory name; then subject it to some "aggressive sanitizing" - strip all 
-                                        // the leading, trailing and duplicate slashes; then replace all the characters that 
-                                        // don't pass our validation rules.
-                                        String directoryName = fileEntryName.replaceFirst("[\\\\/][\\\\/]*[^\\\\/]*$", "");
-                                        directoryName = StringUtil.sanitizeFileDirectory(directoryName, true);
-                                        // if (!"".equals(directoryName)) {
-                                        if (!StringUtil.isEmpty(directoryName)) {
-                                            logger.fine("setting the directory label to " + directoryName);
-                                            datafile.getFileMetadata().setDirectoryLabel(directoryName);
-                                        }
-                                    }
-
-                                    if (datafile != null) {
-                                        // We have created this datafile with the mime type "unknown";
-                                        // Now that we have it saved in a temporary location,
-                                        // let's try and determine its real type:
-
-                                        String tempFileName = getFilesTempDirectory() + "/" + datafile.getStorageIdentifier();
-
-                                        try {
-                                            recognizedType = determineFileType(unzippedFile, shortName);
-                                            // null the File explicitly, to release any open FDs:
-                                            unzippedFile = null;
-                                            logger.fine("File utility recognized unzipped file as " + recognizedType);
-                                            if (recognizedType != null && !recognizedType.equals("")) {
-                                                datafile.setContentType(recognizedType);
-                                            }
-                                        } catch (Exception ex) {
-                                            logger.warning("Failed to run the file utility mime type check on file " + fileName);
-                                        }
-
-                                        datafiles.add(datafile);
-                                        combinedUnzippedFileSize += datafile.getFilesize();
-                                    }
+                    
+                    try {
+                        for (Future<DataFile> unpackedEntry : unpackedEntries) {
+                            try {
+                                DataFile datafile = unpackedEntry.get();
+                                if (datafile != null) {
+                                    datafiles.add(datafile);
+                                }
+                            } catch (ExecutionException ex) {
+                                Throwable cause = ex.getCause();
+                                if (cause instanceof IOException) {
+                                    throw (IOException) cause;
+                                } else if (cause instanceof FileExceedsMaxSizeException) {
+                                    throw (FileExceedsMaxSizeException) cause;
+                                } else if (cause instanceof CommandException) {
+                                    throw (CommandException) cause;
                                 }
+                                throw new IOException("Failed to unpack a zip entry", cause);
+                            } catch (InterruptedException ex) {
+                                Thread.currentThread().interrupt();
+                                throw new IOException("Interrupted while unpacking the zip file", ex);
                             }
                         }
-                        unZippedIn.closeEntry();
-
+                    } catch (IOException | FileExceedsMaxSizeException | CommandException | RuntimeException ex) {
+                        // Giving up on unpacking: the entries not started yet 
+                        // are skipped, and the temp files of the ones unpacked 
+                        // (including those still being unpacked) are removed, 
+                        // before the zip file is closed below: 
+                        unzipAbandoned.set(true);
+                        discardUnpackedEntries(executor, unpackedEntries);
+                        executor = null;
+                        throw ex;
                     }
+                    combinedUnzippedFileSize = unzippedBytes.get();
 
                 } catch (IOException ioex) {
                     // just clear the datafiles list and let
@@ -495,16 +451,14 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                     //datafiles.clear();
                     throw new CommandExecutionException(fesqx.getMessage(), fesqx, this);
                 }*/ finally {
+                    if (executor != null) {
+                        executor.shutdown();
+                    }
                     if (zipFile != null) {
                         try {
                             zipFile.close();
                         } catch (Exception zEx) {}
                     }
-                    if (unZippedIn != null) {
-                        try {
-                            unZippedIn.close();
-                        } catch (Exception zEx) {}
-                    }
                 }
                 if (!datafiles.isEmpty()) {
                     // remove the uploaded zip file:
@@ -699,7 +653,8 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
             throw new CommandExecutionException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.quota_exceeded"), bytesToHumanReadable(fileSize), bytesToHumanReadable(storageQuotaLimit)), this);
         } 
         
-        DataFile datafile = FileUtil.createSingleDataFile(version, newFile, newStorageIdentifier, fileName, finalType, newCheckSumType, newCheckSum);
+        DataFile datafile = FileUtil.createSingleDataFile(version, newFile, newStorageIdentifier, fileName, finalType, newCheckSumType, 
+                newFile != null && StringUtils.isEmpty(newCheckSum) ? tempFileChecksum : newCheckSum);
 
         if (datafile != null) {
 
@@ -730,7 +685,125 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
 
         return CreateDataFileResult.error(fileName, finalType);
     }   // end createDataFiles
+
+    /**
+     * Unpacks one file from an uploaded zip archive into the temp directory, 
+     * and creates a DataFile for it. Called by several threads at once, for
+     * the entries of the same archive. 
+     * 
+     * @param unzippedBytes the bytes unpacked from the archive so far, by all
+     *                      the threads, to check the storage quota against
+     */
+    private DataFile unpackZipEntry(ZipFile zipFile, ZipEntry zipEntry, DataFile.ChecksumType checksumType, Long fileSizeLimit, Long storageQuotaLimit, AtomicLong unzippedBytes) throws IOException, FileExceedsMaxSizeException, CommandException {
+        String fileEntryName = zipEntry.getName();
+        logger.fine("ZipEntry, file: " + fileEntryName);
+        String shortName = fileEntryName.replaceFirst("^.*[\\/]", "");
+
+        String storageIdentifier = FileUtil.generateStorageIdentifier();
+        File unzippedFile = new File(getFilesTempDirectory() + "/" + storageIdentifier);
+        String checksum;
+        long unzippedSize;
+        boolean unpacked = false;
+        try {
+            try (InputStream unZippedIn = zipFile.getInputStream(zipEntry)) {
+                checksum = FileUtil.copyAndCalculateChecksum(unZippedIn, unzippedFile.toPath(), checksumType);
+            }
+
+            unzippedSize = unzippedFile.length();
+            if (fileSizeLimit != null && unzippedSize > fileSizeLimit) {
+                throw new FileExceedsMaxSizeException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.file_exceeds_limit"), bytesToHumanReadable(unzippedSize), bytesToHumanReadable(fileSizeLimit)));
+            }
+            long combinedUnzippedSize = unzippedBytes.addAndGet(unzippedSize);
+            if (storageQuotaLimit != null && combinedUnzippedSize > storageQuotaLimit) {
+                throw new CommandExecutionException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.unzipped.quota_exceeded"), bytesToHumanReadable(storageQuotaLimit)), this);
+            }
+            unpacked = true;
+        } finally {
+            if (!unpacked) {
+                // (the other unpacked entries are removed by the caller)
+                deleteUnpackedFile(storageIdentifier);
+            }
+        }
+
+        DataFile datafile = FileUtil.createSingleDataFile(version, null, storageIdentifier, shortName,
+                MIME_TYPE_UNDETERMINED_DEFAULT, checksumType, checksum, false);
+        if (datafile == null) {
+            return null;
+        }
+        datafile.setFilesize(unzippedSize);
+
+        if (!fileEntryName.equals(shortName)) {
+            // If the filename looks like a hierarchical folder name (i.e., contains slashes and backslashes),
+            // we'll extract the directory name; then subject it to some "aggressive sanitizing" - strip all 
+            // the leading, trailing and duplicate slashes; then replace all the characters that 
+            // don't pass our validation rules.
+            String directoryName = fileEntryName.replaceFirst("[\\\\/][\\\\/]*[^\\\\/]*$", "");
+            directoryName = StringUtil.sanitizeFileDirectory(directoryName, true);
+            if (!StringUtil.isEmpty(directoryName)) {
+                logger.fine("setting the directory label to " + directoryName);
+                datafile.getFileMetadata().setDirectoryLabel(directoryName);
+            }
+        }
+
+        // We have created this datafile with the mime type "unknown";
+        // Now that we have it saved in a temporary location,
+        // let's try and determine its real type:
+        try {
+            String recognizedType = determineFileType(unzippedFile, shortName);
+            logger.fine("File utility recognized unzipped file as " + recognizedType);
+            if (recognizedType != null && !recognizedType.equals("")) {
+                datafile.setContentType(recognizedType);
+            }
+        } catch (Exception ex) {
+            logger.warning("Failed to run the file utility mime type check on file " + fileEntryName);
+        }
+
+        return datafile;
+    }
     
+    /**
+     * Stops the unpacking of a zip archive that is given up on. The entries
+     * that were not started yet are skipped (the caller has told them so);
+     * the ones being unpacked are waited for, rather than interrupted, as
+     * they are reading from the archive that is about to be closed. Then the
+     * temp files of all the entries unpacked are removed.
+     */
+    private void discardUnpackedEntries(ExecutorService executor, List<Future<DataFile>> unpackedEntries) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(UNZIP_TERMINATION_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                logger.warning("Unpacking of the zip entries did not stop in time; some temp files may be left behind");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for (Future<DataFile> unpackedEntry : unpackedEntries) {
+            if (!unpackedEntry.isDone()) {
+                continue;
+            }
+            try {
+                DataFile datafile = unpackedEntry.get();
+                if (datafile != null) {
+                    deleteUnpackedFile(datafile.getStorageIdentifier());
+                }
+            } catch (ExecutionException ex) {
+                // (a failed entry has removed its own temp file)
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void deleteUnpackedFile(String storageIdentifier) {
+        try {
+            Files.deleteIfExists(Paths.get(getFilesTempDirectory(), storageIdentifier));
+        } catch (IOException ioex) {
+            // do nothing - it's just a temp file.
+            logger.warning("Could not remove temp file " + storageIdentifier);
+        }
+    }
+
     @Override
     public Map<String, Set<Permission>> getRequiredPermissions() {
         Map<String, Set<Permission>> ret = new HashMap<>();
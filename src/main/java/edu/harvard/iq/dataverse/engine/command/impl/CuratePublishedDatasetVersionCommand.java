@@ -155,6 +155,9 @@ public class CuratePublishedDatasetVersionCommand extends AbstractDatasetCommand
         // Update modification time on the published version and the dataset
         updateVersion.setLastUpdateTime(getTimestamp());
         tempDataset.setModificationTime(getTimestamp());
+        // The stored difference summary no longer matches the curated version;
+        // the versions tab falls back to computing it.
+        updateVersion.setVersionDifferenceSummary(null);
         ctxt.em().merge(updateVersion);
         Dataset savedDataset = ctxt.em().merge(tempDataset);
 
@@ -217,6 +217,7 @@ public class DeleteDataFileCommand extends AbstractVoidCommand {
             }
         }
         DataFile doomedAndMerged = ctxt.em().merge(doomed);
+        ctxt.roles().revokeAllOn(doomedAndMerged);
         ctxt.em().remove(doomedAndMerged);
         /**
          * @todo consider adding an em.flush here (despite the performance
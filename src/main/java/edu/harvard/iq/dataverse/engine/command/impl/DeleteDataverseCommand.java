@@ -3,7 +3,6 @@ package edu.harvard.iq.dataverse.engine.command.impl;
 import edu.harvard.iq.dataverse.Dataverse;
 import edu.harvard.iq.dataverse.DataverseFieldTypeInputLevel;
 import edu.harvard.iq.dataverse.authorization.DataverseRole;
-import edu.harvard.iq.dataverse.RoleAssignment;
 import edu.harvard.iq.dataverse.authorization.Permission;
 import edu.harvard.iq.dataverse.authorization.groups.impl.explicit.ExplicitGroup;
 import edu.harvard.iq.dataverse.engine.command.AbstractVoidCommand;
@@ -56,9 +55,7 @@ public class DeleteDataverseCommand extends AbstractVoidCommand {
          } */
         
         // ASSIGNMENTS
-        for ( RoleAssignment ra : ctxt.roles().directRoleAssignments(doomed) ) {
-            ctxt.em().remove(ra);
-        }
+        ctxt.roles().revokeAllOn(doomed);
         // ROLES
         for ( DataverseRole ra : ctxt.roles().findByOwnerId(doomed.getId()) ) {
             ctxt.em().remove(ra);
@@ -222,6 +222,14 @@ public class FinalizeDatasetPublicationCommand extends AbstractPublishDatasetCom
             }
             theDataset.getLatestVersion().setVersionState(RELEASED);
         }
+
+        // Store the summary of what changed since the prior version, so the
+        // versions tab does not have to compare both versions on every view.
+        try {
+            theDataset.getLatestVersion().updateVersionDifferenceSummary();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not compute the version difference summary of dataset " + theDataset.getId(), e);
+        }
         
         final Dataset ds = ctxt.em().merge(theDataset);
         //Remove any pre-pub workflow lock (not needed as WorkflowServiceBean.workflowComplete() should already have removed it after setting the finalizePublication lock?)
@@ -101,6 +101,8 @@ public class MergeInAccountCommand extends AbstractVoidCommand {
         int resultCount = ctxt.em().createNamedQuery("RoleAssignment.deleteAllByAssigneeIdentifier", RoleAssignment.class).
                         setParameter("assigneeIdentifier", consumedAU.getIdentifier())
                         .executeUpdate();
+        ctxt.roles().roleAssignmentsChanged(consumedAU.getIdentifier());
+        ctxt.roles().roleAssignmentsChanged(ongoingAU.getIdentifier());
         
         // DatasetVersionUser
         for (DatasetVersionUser user : ctxt.datasetVersion().getDatasetVersionUsersByAuthenticatedUser(consumedAU)) {
@@ -49,6 +49,7 @@ public class MoveDataverseCommand extends AbstractVoidCommand {
     final Dataverse moved;
     final Dataverse destination;
     final Boolean force;
+    private final List<Long> linkedDatasetIds = new ArrayList<>();
 
     public MoveDataverseCommand(DataverseRequest aRequest, Dataverse moved, Dataverse destination, Boolean force) {
         super(aRequest, dv("moved", moved),
@@ -291,20 +292,30 @@ public class MoveDataverseCommand extends AbstractVoidCommand {
         // OK, move
         moved.setOwner(destination);
         ctxt.dataverses().save(moved);
+        // have the database update the ancestor paths of everything under the dataverse
+        ctxt.em().flush();
         
         long moveDvEnd = System.currentTimeMillis();
         logger.info("Dataverse move took " + (moveDvEnd - moveDvStart) + " milliseconds");
         
-	//TODO: indexing should be moved to an on Success method
-        ctxt.indexBatch().indexDataverseRecursively(moved);
-        
-        //REindex datasets linked to moved dv
-        if (moved.getDatasetLinkingDataverses() != null && !moved.getDatasetLinkingDataverses().isEmpty()) {
+        if (moved.getDatasetLinkingDataverses() != null) {
             for (DatasetLinkingDataverse dld : moved.getDatasetLinkingDataverses()) {
-                Dataset linkedDS = ctxt.datasets().find(dld.getDataset().getId());
-                ctxt.index().asyncIndexDataset(linkedDS, true);
-
+                linkedDatasetIds.add(dld.getDataset().getId());
             }
         }
     }
+
+    @Override
+    public boolean onSuccess(CommandContext ctxt, Object r) {
+        // The subtree is reindexed from the ancestor paths in the database,
+        // so only once the move (and the paths updated with it) is committed
+        ctxt.indexBatch().indexMovedDataverse(moved);
+
+        //REindex datasets linked to moved dv
+        for (Long linkedDatasetId : linkedDatasetIds) {
+            Dataset linkedDS = ctxt.datasets().find(linkedDatasetId);
+            ctxt.index().asyncIndexDataset(linkedDS, true);
+        }
+        return true;
+    }
 }
@@ -18,7 +18,9 @@ import edu.harvard.iq.dataverse.util.DatasetFieldUtil;
 import edu.harvard.iq.dataverse.util.FileMetadataUtil;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,6 +37,8 @@ public class UpdateDatasetVersionCommand extends AbstractDatasetCommand<Dataset>
     private final List<FileMetadata> filesToDelete;
     private boolean validateLenient = false;
     private final DatasetVersion clone;
+    // the files added by this update (their ids are only known once saved)
+    private final Set<String> newFileStorageIdentifiers = new HashSet<>();
     final FileMetadata fmVarMet;
     
     public UpdateDatasetVersionCommand(Dataset theDataset, DataverseRequest aRequest) {
@@ -157,6 +161,9 @@ public class UpdateDatasetVersionCommand extends AbstractDatasetCommand<Dataset>
 
             for (DataFile dataFile : theDataset.getFiles()) {
                 if (dataFile.getCreateDate() == null) {
+                    if (dataFile.getStorageIdentifier() != null) {
+                        newFileStorageIdentifiers.add(dataFile.getStorageIdentifier());
+                    }
                     dataFile.setCreateDate(getTimestamp());
                     dataFile.setCreator((AuthenticatedUser) getUser());
                 }
@@ -295,6 +302,16 @@ public class UpdateDatasetVersionCommand extends AbstractDatasetCommand<Dataset>
         // (it will be scheduled then for later indexing of the newest version).
         // See the documentation of asyncIndexDataset method for more details.
         ctxt.index().asyncIndexDataset((Dataset) r, true);
+
+        // Generate the thumbnails of the files added by this update in the
+        // background now, rather than when they are first shown:
+        List<DataFile> newFiles = new ArrayList<>();
+        for (DataFile dataFile : ((Dataset) r).getFiles()) {
+            if (newFileStorageIdentifiers.contains(dataFile.getStorageIdentifier())) {
+                newFiles.add(dataFile);
+            }
+        }
+        ctxt.thumbnails().requestStandardThumbnails(newFiles);
         return true;
     }
 
@@ -23,11 +23,14 @@ package edu.harvard.iq.dataverse.ingest;
 import edu.harvard.iq.dataverse.*;
 import edu.harvard.iq.dataverse.authorization.AuthenticationServiceBean;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
 import edu.harvard.iq.dataverse.util.BundleUtil;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Logger;
 import jakarta.ejb.ActivationConfigProperty;
 import jakarta.ejb.EJB;
@@ -70,6 +73,7 @@ public class IngestMessageBean implements MessageListener {
         IngestMessage ingestMessage = null;
 
         AuthenticatedUser authenticatedUser = null;
+        List<Long> ingestedFileIds = new ArrayList<>();
         
         try {
             ObjectMessage om = (ObjectMessage) message;
@@ -107,6 +111,7 @@ public class IngestMessageBean implements MessageListener {
                     if (ingestService.ingestAsTabular(datafile_id)) {
                         //Thread.sleep(10000);
                         logger.fine("Finished ingest job;");
+                        ingestedFileIds.add(datafile_id);
                         // We used to list the successfully ingested files in the "success"
                         // and "mixed success and failure" emails. Now we never list successfully
                         // ingested files so this line is commented out.
@@ -188,6 +193,13 @@ public class IngestMessageBean implements MessageListener {
                 ex.printStackTrace(); // application was unable to remove the datasetLock
             }
         }
+
+        // With the dataset unlocked, pre-generate the RData format of the 
+        // ingested files in the background, so that their first download in 
+        // this format doesn't have to wait for Rserve:
+        if (!ingestedFileIds.isEmpty() && JvmSettings.RSERVE_PREGENERATE_RDATA.lookupOptional(Boolean.class).orElse(false)) {
+            ingestService.pregenerateRData(ingestedFileIds);
+        }
     }
  
     
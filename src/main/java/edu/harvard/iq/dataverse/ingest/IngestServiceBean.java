@@ -44,6 +44,7 @@ import edu.harvard.iq.dataverse.MetadataBlock;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import edu.harvard.iq.dataverse.dataaccess.DataAccessOption;
+import edu.harvard.iq.dataverse.dataaccess.DataConverter;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
 import edu.harvard.iq.dataverse.dataaccess.S3AccessIO;
@@ -119,6 +120,8 @@ import jakarta.jms.Queue;
 import jakarta.jms.QueueConnectionFactory;
 import jakarta.annotation.Resource;
 import jakarta.ejb.Asynchronous;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.jms.JMSException;
 import jakarta.jms.QueueConnection;
 import jakarta.jms.QueueSender;
@@ -2123,6 +2126,26 @@ public class IngestServiceBean {
         logger.info("Finished repairing tabular data files that were missing the original file sizes.");
     }
     
+    // This method generates and caches the RData format of freshly ingested 
+    // files, so that their first download in this format doesn't have to 
+    // wait for Rserve. 
+    // It is @Asynchronous so that the ingest job doesn't wait for it either, 
+    // and runs outside of a transaction, as a conversion may take a while. 
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void pregenerateRData(List<Long> datafileIds) {
+        for (Long fileId : datafileIds) {
+            try {
+                DataFile datafile = fileService.find(fileId);
+                if (datafile != null && !DataConverter.generateCachedFormat(datafile, DataConverter.FILE_TYPE_RDATA)) {
+                    logger.warning("Failed to pre-generate the RData format of file id " + fileId);
+                }
+            } catch (Exception ex) {
+                logger.warning("Failed to pre-generate the RData format of file id " + fileId + ": " + ex.getMessage());
+            }
+        }
+    }
+    
     // This method fixes a datatable object that's missing the format type of 
     // the ingested original. It will check the saved original file to 
     // determine the type. 
@@ -24,10 +24,10 @@ import edu.harvard.iq.dataverse.datavariable.DataVariable;
 import edu.harvard.iq.dataverse.ingest.tabulardata.spi.*;
 //import edu.harvard.iq.dataverse.ingest.plugin.metadata.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import static java.lang.System.*;
 import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
 
 /**
  * An abstract superclass for reading and writing of a statistical data file.
@@ -164,11 +164,13 @@ public abstract class TabularDataFileReader {
          */
         String escapedString = rawString.replace("\\", "\\\\");
         // escape quotes: 
-        escapedString = escapedString.replaceAll("\"", Matcher.quoteReplacement("\\\""));
+        // (literal replacements - this is called for every string value
+        // in the file, so no regular expressions)
+        escapedString = escapedString.replace("\"", "\\\"");
         // escape tabs and new lines:
-        escapedString = escapedString.replaceAll("\t", Matcher.quoteReplacement("\\t"));
-        escapedString = escapedString.replaceAll("\n", Matcher.quoteReplacement("\\n"));
-        escapedString = escapedString.replaceAll("\r", Matcher.quoteReplacement("\\r"));
+        escapedString = escapedString.replace("\t", "\\t");
+        escapedString = escapedString.replace("\n", "\\n");
+        escapedString = escapedString.replace("\r", "\\r");
         
         // the escaped version of the string is stored in the tab file 
         // enclosed in double-quotes; this is in order to be able 
@@ -180,6 +182,18 @@ public abstract class TabularDataFileReader {
         return escapedString;
     }
     
+    /**
+     * Creates the writer for the tab-delimited file that a reader produces.
+     * The writer is buffered, and does not flush on every line; it must be
+     * closed once the last line is written.
+     *
+     * @param fileOutTab the stream of the tab-delimited file
+     * @return a new, buffered UTF-8 <code>PrintWriter</code>
+     */
+    protected PrintWriter createTabFileWriter(OutputStream fileOutTab) {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(fileOutTab, StandardCharsets.UTF_8), 64 * 1024));
+    }
+
     protected String generateVariableHeader(List<DataVariable> dvs) {
         String varHeader = null;
 
@@ -10,8 +10,11 @@ import java.util.logging.Logger;
 public class DataReader {
     private static Logger logger = Logger.getLogger(DTAFileReader.class.getPackage().getName());
     private BufferedInputStream stream;
-    private int DEFAULT_BUFFER_SIZE = 8192;// * 2;
+    private int DEFAULT_BUFFER_SIZE = 64 * 1024;
     private byte[] buffer;
+    // a view of the buffer, in the byte order of the file, that the numeric
+    // values are decoded from in place:
+    private ByteBuffer numeric_buffer;
     private int buffer_size;
     private long byte_offset;
     private int buffer_byte_offset;
@@ -22,11 +25,12 @@ public class DataReader {
     }
 
     public DataReader(BufferedInputStream stream, int size) throws IOException {
-        if (buffer_size > 0) {
+        if (size > 0) {
             this.DEFAULT_BUFFER_SIZE = size;
         }
         this.stream = stream;
         buffer = new byte[DEFAULT_BUFFER_SIZE];
+        numeric_buffer = ByteBuffer.wrap(buffer);
         byte_offset = 0;
         buffer_byte_offset = 0;
 
@@ -35,6 +39,7 @@ public class DataReader {
 
     public void setLSF(boolean lsf) {
         LSF = lsf;
+        numeric_buffer.order(lsf ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
     }
 
     // this returns the *absolute* byte offest in the stream. 
@@ -61,59 +66,86 @@ public class DataReader {
             System.arraycopy(buffer, buffer_byte_offset, bytes, 0, n);
             buffer_byte_offset += n;
         } else {
-            int bytes_read = 0;
-
             // copy any bytes left in the buffer into the return array:
-            if (this.buffer_size - buffer_byte_offset > 0) {
-                logger.fine("reading the remaining " + (this.buffer_size - buffer_byte_offset) + " bytes from the buffer");
-                System.arraycopy(buffer, buffer_byte_offset, bytes, 0, this.buffer_size - buffer_byte_offset);
-                //buffer_byte_offset = this.buffer_size;
-                bytes_read = this.buffer_size - buffer_byte_offset;
-                buffer_byte_offset = this.buffer_size;
-            }
-
-            int morebytes = bufferMoreBytes();
-            logger.fine("buffered " + morebytes + " bytes");
+            int bytes_read = this.buffer_size - buffer_byte_offset;
+            System.arraycopy(buffer, buffer_byte_offset, bytes, 0, bytes_read);
+            buffer_byte_offset = this.buffer_size;
 
             /* 
-             * keep reading and buffering buffer-size chunks, until
-             * we read the requested number of bytes.
+             * keep buffering and copying, until we read the requested 
+             * number of bytes:
              */
-            while (n - bytes_read > this.buffer_size) {
-                logger.fine("copying a full buffer-worth of bytes into the return array");
-                System.arraycopy(buffer, buffer_byte_offset, bytes, bytes_read, this.buffer_size);
-                //buffer_byte_offset = this.buffer_size;
-                bytes_read += this.buffer_size;
-                buffer_byte_offset = this.buffer_size;
-                morebytes = bufferMoreBytes();
-                logger.fine("buffered "+morebytes+" bytes");
+            while (bytes_read < n) {
+                if (bufferMoreBytes() < 1) {
+                    throw new IOException("reached the end of data stream prematurely.");
+                }
+                int chunk = Math.min(n - bytes_read, this.buffer_size);
+                System.arraycopy(buffer, 0, bytes, bytes_read, chunk);
+                bytes_read += chunk;
+                buffer_byte_offset = chunk;
             }
-
-            /* 
-             * finally, copy the last not-a-full-buffer-worth of bytes 
-             * into the return buffer:
-             */
-            logger.fine("copying the remaining " + (n - bytes_read) + " bytes.");
-            System.arraycopy(buffer, 0, bytes, bytes_read, n - bytes_read);
-            buffer_byte_offset = n - bytes_read;
         }
 
         return bytes;
     }
 
+    /* 
+     * Skips the next n bytes; the bytes past the buffer are skipped in 
+     * the stream, without reading them into memory.
+     */
+    public void skipBytes(long n) throws IOException {
+        if (n < 0) {
+            throw new IOException("DataReader.skipBytes called to skip a negative number of bytes.");
+        }
+        long buffered = Math.min(n, this.buffer_size - buffer_byte_offset);
+        buffer_byte_offset += (int) buffered;
+
+        long remaining = n - buffered;
+        while (remaining > 0) {
+            long skipped = stream.skip(remaining);
+            if (skipped < 1) {
+                // skip() may skip nothing without being at the end of
+                // the stream; read() tells the 2 cases apart:
+                if (stream.read() < 0) {
+                    throw new IOException("reached the end of data stream prematurely.");
+                }
+                skipped = 1;
+            }
+            // (the buffer is empty at this point, so the skipped bytes 
+            // go straight into the offset of the next buffer)
+            byte_offset += skipped;
+            remaining -= skipped;
+        }
+    }
+
+    /* 
+     * Makes sure that at least n bytes are available in the buffer,
+     * past the current offset, so that they can be read in place.
+     */
+    private void ensureBuffered(int n) throws IOException {
+        while (this.buffer_size - buffer_byte_offset < n) {
+            if (bufferMoreBytes() < 1) {
+                throw new IOException("reached the end of data stream prematurely.");
+            }
+        }
+    }
+
     /* 
      * This method tries to read and buffer the DEFAULT_BUFFER_SIZE bytes
-     * and sets the current buffer size accordingly.
+     * and sets the current buffer size accordingly. The bytes not yet
+     * read from the buffer are kept, at the beginning of the buffer.
+     * Returns the number of bytes added to the buffer, or -1 at the end 
+     * of the stream.
      */
     private int bufferMoreBytes() throws IOException {
         int actual_bytes_read;
         byte_offset += buffer_byte_offset;
 
-        if (byte_offset == 0 || buffer_byte_offset == buffer_size) {
+        if (buffer_byte_offset == buffer_size) {
             actual_bytes_read = stream.read(buffer, 0, DEFAULT_BUFFER_SIZE);
             // set the current buffer size to the actual number of 
             // bytes read: 
-            this.buffer_size = actual_bytes_read;
+            this.buffer_size = Math.max(actual_bytes_read, 0);
 
             // reset the current buffer offset and increment the total
             // byte offset by the size of the last buffer - that should be 
@@ -123,7 +155,7 @@ public class DataReader {
             System.arraycopy(buffer, buffer_byte_offset, buffer, 0, buffer_size - buffer_byte_offset);
             this.buffer_size = buffer_size - buffer_byte_offset;
             actual_bytes_read = stream.read(buffer, buffer_size, DEFAULT_BUFFER_SIZE - buffer_size);
-            buffer_size += actual_bytes_read;
+            buffer_size += Math.max(actual_bytes_read, 0);
 
         } else {
             throw new IOException("Offset already past the buffer boundary");
@@ -134,13 +166,12 @@ public class DataReader {
     }
 
     /*
-     * Checks that LSF is not null, and sets the buffer byte order accordingly
+     * Checks that LSF is not null (the byte order of the numeric buffer is 
+     * set along with it, in setLSF())
      */
-    private void checkLSF(ByteBuffer buffer) throws IOException{
+    private void checkLSF() throws IOException {
         if (LSF == null) {
             throw new IOException("Byte order not determined for reading numeric values.");
-        } else if (LSF) {
-            buffer.order(ByteOrder.LITTLE_ENDIAN);
         }
     }
 
@@ -188,9 +219,10 @@ public class DataReader {
      * (signed integer and floating-point types), and to read numeric 
      * values encoded as unsigned bytes in various sections of the file, 
      * advertising the lengths of the data sections that follow. 
-     * Note that the internal methods bytesToInt() and bytesToSignedInt()
-     * will throw an exception if LSF (byte order flag) has not yet been 
-     * set.
+     * The values are decoded in place, from the internal buffer, without
+     * allocating anything per value.
+     * Note that these methods will throw an exception if LSF (byte order 
+     * flag) has not yet been set.
      */
     // Unsigned integer methods readUInt() and readUShort()
     // return long (8 byte) and int (4 byte) integers for overflow reasons
@@ -207,42 +239,40 @@ public class DataReader {
     }
 
     public short readShort() throws IOException {
-        ByteBuffer byte_buffer = ByteBuffer.wrap(readBytes(2));
-        checkLSF(byte_buffer);
-        return byte_buffer.getShort();
+        checkLSF();
+        ensureBuffered(2);
+        short ret = numeric_buffer.getShort(buffer_byte_offset);
+        buffer_byte_offset += 2;
+        return ret;
     }
 
     public int readInt() throws IOException {
-        ByteBuffer byte_buffer = ByteBuffer.wrap(readBytes(4));
-        checkLSF(byte_buffer);
-        return byte_buffer.getInt();
+        checkLSF();
+        ensureBuffered(4);
+        int ret = numeric_buffer.getInt(buffer_byte_offset);
+        buffer_byte_offset += 4;
+        return ret;
     }
 
     public long readULong(int n) throws IOException {
-        byte[] raw_bytes = readBytes(n);
-        if (LSF == null) {
-            throw new IOException("Byte order not determined for reading numeric values.");
-        }
-
+        checkLSF();
         if (n != 2 && n != 4 && n != 6 && n != 8) {
             throw new IOException("Unsupported number of bytes in an integer: " + n);
         }
-        long ret = 0;
-        short unsigned_byte_value;
+        ensureBuffered(n);
 
+        long ret = 0;
         for (int i = 0; i < n; i++) {
+            int unsigned_byte_value;
             if (LSF) {
-                unsigned_byte_value = raw_bytes[i];
+                unsigned_byte_value = buffer[buffer_byte_offset + i] & 0xFF;
             } else {
-                unsigned_byte_value = raw_bytes[n - i - 1];
-            }
-
-            if (unsigned_byte_value < 0) {
-                unsigned_byte_value += 256;
+                unsigned_byte_value = buffer[buffer_byte_offset + n - i - 1] & 0xFF;
             }
-
-            ret += unsigned_byte_value * (1L << (8 * i));
+            ret |= (long) unsigned_byte_value << (8 * i);
         }
+        buffer_byte_offset += n;
+
         if(ret < 0){
             throw new IOException("Sorry for hoping this wouldn't be used with values over 2^63-1");
         }
@@ -251,15 +281,19 @@ public class DataReader {
 
     // Floating point reader methods: 
     public double readDouble() throws IOException {
-        ByteBuffer byte_buffer = ByteBuffer.wrap(readBytes(8));
-        checkLSF(byte_buffer);
-        return byte_buffer.getDouble();
+        checkLSF();
+        ensureBuffered(8);
+        double ret = numeric_buffer.getDouble(buffer_byte_offset);
+        buffer_byte_offset += 8;
+        return ret;
     }
 
     public float readFloat() throws IOException {
-        ByteBuffer byte_buffer = ByteBuffer.wrap(readBytes(4));
-        checkLSF(byte_buffer);
-        return byte_buffer.getFloat();
+        checkLSF();
+        ensureBuffered(4);
+        float ret = numeric_buffer.getFloat(buffer_byte_offset);
+        buffer_byte_offset += 4;
+        return ret;
     }
 
 
@@ -385,7 +419,7 @@ public class DataReader {
             if (number < 0) {
                 throw new IOException("<negative number of bytes in skipDefinedSection(\"tag\")?>");
             }
-            byte[] skipped_bytes = readBytes((int) number);
+            skipBytes(number);
             readClosingTag(tag);
             logger.fine("read closing tag </" + tag + ">;");
 
@@ -403,7 +437,10 @@ public class DataReader {
             return (tag).equals(new String(Arrays.copyOfRange(buffer, buffer_byte_offset, buffer_byte_offset+n),"US-ASCII"));
         }
         else{
-            bufferMoreBytes();
+            if (bufferMoreBytes() < 1) {
+                // (not enough bytes left in the stream for the tag)
+                return false;
+            }
             return checkTag(tag);
         }
 
@@ -447,7 +484,9 @@ public class DataReader {
         }
         if (buffer_byte_offset == this.buffer_size) {
             // buffer empty; 
-            bufferMoreBytes();
+            if (bufferMoreBytes() < 1) {
+                throw new IOException("reached the end of data stream prematurely.");
+            }
         }
 
         int cached_offset = buffer_byte_offset;
@@ -458,7 +497,9 @@ public class DataReader {
             if (buffer_byte_offset == this.buffer_size) {
                 logger.fine("reached the end of buffer in readPrimitiveSectionBytes; offset " + buffer_byte_offset);
                 cached_bytes = mergeCachedBytes(cached_bytes, cached_offset);
-                bufferMoreBytes();
+                if (bufferMoreBytes() < 1) {
+                    throw new IOException("reached the end of data stream prematurely.");
+                }
                 cached_offset = 0;
             }
         }
@@ -1,12 +1,13 @@
 package edu.harvard.iq.dataverse.ingest.tabulardata.impl.plugins.dta;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.text.ParseException;
@@ -21,7 +22,6 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.logging.Logger;
@@ -735,7 +735,7 @@ public class NewDTAFileReader extends TabularDataFileReader {
         ingesteddata.setTabDelimitedFile(tabDelimitedDataFile);
 
         FileOutputStream fileOutTab = new FileOutputStream(tabDelimitedDataFile);
-        PrintWriter pwout = new PrintWriter(new OutputStreamWriter(fileOutTab, "utf8"), true);
+        PrintWriter pwout = createTabFileWriter(fileOutTab);
 
         // add the variable header here, if needed
         if (variableHeaderLine != null) {
@@ -994,14 +994,13 @@ public class NewDTAFileReader extends TabularDataFileReader {
             reader.readOpeningTag(TAG_STRLS);
 
             File intermediateTabFile = ingesteddata.getTabDelimitedFile();
-            FileInputStream fileInTab = new FileInputStream(intermediateTabFile);
-
-            Scanner scanner = new Scanner(fileInTab);
-            scanner.useDelimiter("\\n");
+            // (the values in the intermediate file have their new lines
+            // escaped, so every line is 1 observation)
+            BufferedReader tabReader = Files.newBufferedReader(intermediateTabFile.toPath(), StandardCharsets.UTF_8);
 
             File finalTabFile = File.createTempFile("finalTabfile.", ".tab");
             FileOutputStream fileOutTab = new FileOutputStream(finalTabFile);
-            PrintWriter pwout = new PrintWriter(new OutputStreamWriter(fileOutTab, "utf8"), true);
+            PrintWriter pwout = createTabFileWriter(fileOutTab);
 
             logger.fine("Setting the tab-delimited file to " + finalTabFile.getName());
             ingesteddata.setTabDelimitedFile(finalTabFile);
@@ -1014,8 +1013,9 @@ public class NewDTAFileReader extends TabularDataFileReader {
             //@todo: adjust for the case of storing the file with the variable header
 
             for (int obsindex = 0; obsindex < nobs; obsindex++) {
-                if (scanner.hasNext()) {
-                    line = (scanner.next()).split("\t", -1);
+                String tabLine = tabReader.readLine();
+                if (tabLine != null) {
+                    line = tabLine.split("\t", -1);
 
                     for (int varindex = 0; varindex < nvar; varindex++) {
                         if ("STRL".equals(variableTypes[varindex])) {
@@ -1069,7 +1069,7 @@ public class NewDTAFileReader extends TabularDataFileReader {
                 }
             }
 
-            scanner.close();
+            tabReader.close();
             pwout.close();
 
             reader.readClosingTag(TAG_STRLS);
@@ -1115,7 +1115,7 @@ public class PORFileReader  extends TabularDataFileReader{
 
         try {
             fileOutTab = new FileOutputStream(tabDelimitedDataFile);
-            pwout = new PrintWriter(new OutputStreamWriter(fileOutTab, "utf8"), true);
+            pwout = createTabFileWriter(fileOutTab);
 
             variableFormatTypeList = new String[varQnty];
             for (int i = 0; i < varQnty; i++) {
@@ -334,13 +334,11 @@ public class RDATAFileReader extends TabularDataFileReader {
       int bytesRead = 0;
       RFileOutputStream outStream = null;
       RConnection rServerConnection = null;
+      boolean written = false;
       
       try {
-        LOG.fine("RDATAFileReader: Opening R connection");
-        rServerConnection = new RConnection(RSERVE_HOST, RSERVE_PORT);
-        
-        LOG.fine("RDATAFileReader: Logging into R connection");
-        rServerConnection.login(RSERVE_USER, RSERVE_PASSWORD);
+        LOG.fine("RDATAFileReader: Getting an R connection from the pool");
+        rServerConnection = RserveConnectionPool.getInstance().borrowConnection();
         
         LOG.fine("RDATAFileReader: Attempting to create file");
         outStream = rServerConnection.createFile(mDataFile.getAbsolutePath());
@@ -363,6 +361,8 @@ public class RDATAFileReader extends TabularDataFileReader {
           outStream.write(buffer);
           bytesRead++;
         }
+        outStream.close();
+        written = true;
       }
       catch (IOException ex) {
         LOG.warning("RDATAFileReader: Could not write to file");
@@ -371,11 +371,12 @@ public class RDATAFileReader extends TabularDataFileReader {
       catch (NullPointerException ex) {
         LOG.warning("RDATAFileReader: Data file has not been specified");
       }
-      
-      // Closing R server connection
-      if (rServerConnection != null) {
-        LOG.fine("RDATAFileReader: Closing R server connection");
-        rServerConnection.close();
+      finally {
+        // Releasing R server connection
+        if (rServerConnection != null) {
+          LOG.fine("RDATAFileReader: Releasing R server connection");
+          RserveConnectionPool.getInstance().releaseConnection(rServerConnection, written);
+        }
       }
       
       return mDataFile;
@@ -548,10 +549,12 @@ public class RDATAFileReader extends TabularDataFileReader {
       return null;
     }
     
+    RConnection rServeConnection = null;
+    boolean copied = false;
+
     try {
-      // Open connection to R-serve
-      RConnection rServeConnection = new RConnection(RSERVE_HOST, RSERVE_PORT);
-      rServeConnection.login(RSERVE_USER, RSERVE_PASSWORD);
+      // Get a connection to R-serve
+      rServeConnection = RserveConnectionPool.getInstance().borrowConnection();
       
       // Open file for reading from R-serve
       RFileInputStream rServeInputStream = rServeConnection.openFile(target.getAbsolutePath());
@@ -570,14 +573,18 @@ public class RDATAFileReader extends TabularDataFileReader {
       LOG.fine(String.format("RDATAFileReader: Finished copying to source `%s`", destination.getAbsolutePath()));
       
       
-      LOG.fine("RDATAFileReader: Closing CSVFileReader R Connection");
-      rServeConnection.close();
+      rServeInputStream.close();
+      copied = true;
     }
     /*
      * TO DO: Make this error catching more intelligent
      */
     catch (Exception ex) {
     }
+    finally {
+      LOG.fine("RDATAFileReader: Releasing CSVFileReader R Connection");
+      RserveConnectionPool.getInstance().releaseConnection(rServeConnection, copied);
+    }
     
     return destination;
   }
@@ -24,7 +24,6 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
@@ -2347,7 +2346,7 @@ public class SAVFileReader  extends TabularDataFileReader{
 
             fileOutTab = new FileOutputStream(tabDelimitedDataFile);
             
-            pwout = new PrintWriter(new OutputStreamWriter(fileOutTab, "utf8"), true);
+            pwout = createTabFileWriter(fileOutTab);
 
         } catch (FileNotFoundException ex) {
             ex.printStackTrace();
@@ -2,6 +2,7 @@ package edu.harvard.iq.dataverse.metrics;
 
 import edu.harvard.iq.dataverse.DatasetVersion;
 import edu.harvard.iq.dataverse.Dataverse;
+import edu.harvard.iq.dataverse.DvObjectServiceBean;
 import edu.harvard.iq.dataverse.GuestbookResponse;
 import edu.harvard.iq.dataverse.Metric;
 import edu.harvard.iq.dataverse.makedatacount.MakeDataCountUtil.MetricType;
@@ -10,11 +11,11 @@ import static edu.harvard.iq.dataverse.metrics.MetricsUtil.*;
 import edu.harvard.iq.dataverse.util.SystemConfig;
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
@@ -48,6 +49,8 @@ public class MetricsServiceBean implements Serializable {
     private EntityManager em;
     @EJB
     SystemConfig systemConfig;
+    @EJB
+    DvObjectServiceBean dvObjectService;
 
     /** Dataverses */
 
@@ -365,13 +368,13 @@ public class MetricsServiceBean implements Serializable {
 
 
     public JsonArray filesByType(Dataverse d) {
-        // SELECT DISTINCT df.contenttype, sum(df.filesize) FROM datafile df, dvObject ob where ob.id = df.id and dob.owner_id< group by df.contenttype
         // ToDo - published only?
-        Query query = em.createNativeQuery("SELECT DISTINCT df.contenttype, count(df.id), coalesce(sum(df.filesize), 0) "
-                + " FROM DataFile df, DvObject ob"
-                + " where ob.id = df.id "
-                + ((d == null) ? "" : "and ob.owner_id in (" + getCommaSeparatedIdStringForSubtree(d, "Dataset") + ")\n")
-                + "group by df.contenttype;");
+        // Aggregates the metricsfiletypemonth rollup, kept up to date by triggers on datafile and dvobject
+        Query query = em.createNativeQuery("SELECT NULLIF(m.contenttype, ''), sum(m.filecount)::bigint, sum(m.filesize) "
+                + " FROM metricsfiletypemonth m\n"
+                + ((d == null) ? "" : "join dvobject ds on ds.id = m.dataset_id\n"
+                        + "where " + getPublishedDatasetsInSubtreeCondition(d, "ds") + "\n")
+                + "group by m.contenttype;");
         JsonArrayBuilder jab = Json.createArrayBuilder();
         try {
             List<Object[]> results = query.getResultList();
@@ -391,13 +394,13 @@ public class MetricsServiceBean implements Serializable {
     }
 
     public JsonArray filesByTypeTimeSeries(Dataverse d, boolean published) {
-        Query query = em.createNativeQuery("SELECT DISTINCT to_char(" + (published ? "ob.publicationdate" : "ob.createdate") + ",'YYYY-MM') as date, df.contenttype, count(df.id), coalesce(sum(df.filesize),0) "
-                + " FROM DataFile df, DvObject ob"
-                + " where ob.id = df.id "
-                + (published ? "and publicationdate is not null\n" : " and createdate is not null\n")
-                + ((d == null) ? "" : "and ob.owner_id in (" + getCommaSeparatedIdStringForSubtree(d, "Dataset") + ")\n")
-                + "group by df.contenttype,\n"
-                + (published ? " to_char(ob.publicationdate,'YYYY-MM') order by  to_char(ob.publicationdate,'YYYY-MM');" : " to_char(ob.createdate,'YYYY-MM') order by  to_char(ob.createdate,'YYYY-MM');")
+        String month = published ? "m.publicationmonth" : "m.createmonth";
+        Query query = em.createNativeQuery("SELECT " + month + " as date, NULLIF(m.contenttype, ''), sum(m.filecount)::bigint, sum(m.filesize) "
+                + " FROM metricsfiletypemonth m\n"
+                + ((d == null) ? "" : "join dvobject ds on ds.id = m.dataset_id\n")
+                + "where " + month + " <> ''\n"
+                + ((d == null) ? "" : "and " + getPublishedDatasetsInSubtreeCondition(d, "ds") + "\n")
+                + "group by " + month + ", m.contenttype order by " + month + ";"
                 );
         logger.log(Level.FINE, "Metric query: {0}", query);
         List<Object[]> results = query.getResultList();
@@ -411,22 +414,19 @@ public class MetricsServiceBean implements Serializable {
 
     public JsonArray downloadsTimeSeries(Dataverse d) {
         // ToDo - published only?
-        Query earlyDateQuery = em.createNativeQuery(""
-                + "select responsetime from guestbookresponse\n"
-                + "ORDER BY responsetime LIMIT 1;");
-
-        Timestamp earlyDateTimestamp = (Timestamp) earlyDateQuery.getSingleResult();
-        LocalDate earliestDate = earlyDateTimestamp.toLocalDateTime().toLocalDate().minusMonths(1);
-        String earliest = earliestDate.format(DateTimeFormatter.ofPattern(YEAR_AND_MONTH_PATTERN));
+        // Aggregates the metricsdownloadmonth rollup, kept up to date by triggers on guestbookresponse
+        String earliestMonth = getEarliestDownloadMonth();
+        YearMonth earliestDate = (earliestMonth == null) ? YearMonth.now() : YearMonth.parse(earliestMonth);
+        String earliest = earliestDate.minusMonths(1).format(DateTimeFormatter.ofPattern(YEAR_AND_MONTH_PATTERN));
 
         // Counts historic guestbook records without date as occurring in the month
         // prior to the first dated counts
         Query query = em.createNativeQuery(""
-                + "select  distinct COALESCE(to_char(responsetime, 'YYYY-MM'),'" + earliest + "') as date, count(id)\n"
-                + "from guestbookresponse\n"
-                + ((d == null) ? "" : "where dataset_id in (" + getCommaSeparatedIdStringForSubtree(d, "Dataset") + ")")
-                + ((d == null) ? "where ":" and ") + "eventtype!='" + GuestbookResponse.ACCESS_REQUEST +"'\n"
-                + " group by COALESCE(to_char(responsetime, 'YYYY-MM'),'" + earliest + "') order by  COALESCE(to_char(responsetime, 'YYYY-MM'),'" + earliest + "');");
+                + "select COALESCE(NULLIF(m.responsemonth, ''), '" + earliest + "') as date, sum(m.downloadcount)::bigint\n"
+                + "from metricsdownloadmonth m\n"
+                + ((d == null) ? "" : "join dvobject ds on ds.id = m.dataset_id\n"
+                        + "where " + getPublishedDatasetsInSubtreeCondition(d, "ds") + "\n")
+                + "group by 1 order by 1;");
 
         logger.log(Level.FINE, "Metric query: {0}", query);
         List<Object[]> results = query.getResultList();
@@ -441,37 +441,31 @@ public class MetricsServiceBean implements Serializable {
      */
     public long downloadsToMonth(String yyyymm, Dataverse d) throws ParseException {
         // ToDo - published only?
-        Query earlyDateQuery = em.createNativeQuery(""
-                + "select responsetime from guestbookresponse\n"
-               + "ORDER BY responsetime LIMIT 1;"
-        );
+        String earliestMonth = getEarliestDownloadMonth();
+        Date dateQueried = yyyymmFormat.parse(yyyymm);
 
-        try {
-            Timestamp earlyDateTimestamp = (Timestamp) earlyDateQuery.getSingleResult();
-            Date earliestDate = new Date(earlyDateTimestamp.getTime());
-
-            Date dateQueried = yyyymmFormat.parse(yyyymm);
-
-            if (!dateQueried.before(earliestDate)) {
-                Query query = em.createNativeQuery(""
-                        + "select count(id)\n"
-                        + "from guestbookresponse\n"
-                        + "where (date_trunc('month', responsetime) <=  to_date('" + yyyymm + "','YYYY-MM')"
-                        + "or responsetime is NULL)\n" // includes historic guestbook records without date
-                        + "and eventtype!='" + GuestbookResponse.ACCESS_REQUEST +"'\n"
-                    + ((d==null) ? ";": "AND dataset_id in (" + getCommaSeparatedIdStringForSubtree(d, "Dataset") + ");")
-                );
-                logger.log(Level.FINE, "Metric query: {0}", query);
-                return (long) query.getSingleResult();
-            } else {
-                // When we query before the earliest dated record, return 0;
-                return 0L;
-            }
-        } catch (NoResultException e) {
-            //If earlyDateQuery.getSingleResult is null, then there are no guestbooks and we can return 0
+        if (earliestMonth == null || dateQueried.before(yyyymmFormat.parse(earliestMonth))) {
+            // When there are no dated records, or we query before the earliest one, return 0;
             return 0L;
         }
+        Query query = em.createNativeQuery(""
+                + "select COALESCE(sum(m.downloadcount), 0)::bigint\n"
+                + "from metricsdownloadmonth m\n"
+                + ((d == null) ? "" : "join dvobject ds on ds.id = m.dataset_id\n")
+                + "where m.responsemonth <= '" + yyyymm + "'\n" // includes historic guestbook records without date ('')
+                + ((d == null) ? ";" : "and " + getPublishedDatasetsInSubtreeCondition(d, "ds") + ";")
+        );
+        logger.log(Level.FINE, "Metric query: {0}", query);
+        return (long) query.getSingleResult();
+    }
 
+    /**
+     * @return the earliest month (YYYY-MM) with dated downloads, or null if
+     * there are none
+     */
+    private String getEarliestDownloadMonth() {
+        Query query = em.createNativeQuery("select min(responsemonth) from metricsdownloadmonth where responsemonth <> '';");
+        return (String) query.getSingleResult();
     }
 
     public long downloadsPastDays(int days, Dataverse d) {
@@ -793,6 +787,21 @@ public class MetricsServiceBean implements Serializable {
     // Modified from DANS
     // https://github.com/DANS-KNAW/dataverse/blob/dans-develop/src/main/java/edu/harvard/iq/dataverse/metrics/MetricsDansServiceBean.java
 
+    /**
+     * Condition on the dvobject row of a dataset (with the given alias) for it
+     * to be one of the published datasets in the subtree of d, the same set as
+     * getCommaSeparatedIdStringForSubtree(d, "Dataset") but using the indexed
+     * ancestorpath instead of walking the subtree.
+     */
+    private String getPublishedDatasetsInSubtreeCondition(Dataverse d, String alias) {
+        String pattern = dvObjectService.findDescendantPathPattern(d.getId());
+        if (pattern == null) {
+            return "false";
+        }
+        return alias + ".ancestorpath like '" + pattern + "' and " + alias + ".dtype = 'Dataset' and "
+                + alias + ".publicationdate is not null";
+    }
+
     /**
      *
      * @param dvId - parent dataverse id
@@ -28,8 +28,10 @@ import edu.harvard.iq.dataverse.search.SearchFields;
 import edu.harvard.iq.dataverse.search.SortBy;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 import jakarta.ejb.EJB;
 import jakarta.inject.Inject;
@@ -84,6 +86,8 @@ public class DataRetrieverAPI extends AbstractApiBean {
     GroupServiceBean groupService;
     @EJB
     DatasetServiceBean datasetService;
+    @EJB
+    MyDataRoleIndexServiceBean myDataRoleIndexService;
     
     private List<DataverseRole> roleList;
     private DataverseRolePermissionHelper rolePermissionHelper;
@@ -343,7 +347,8 @@ public class DataRetrieverAPI extends AbstractApiBean {
         myDataFinder = new MyDataFinder(rolePermissionHelper,
                                         roleAssigneeService,
                                         dvObjectServiceBean, 
-                                        groupService);
+                                        groupService,
+                                        myDataRoleIndexService);
         this.myDataFinder.runFindDataSteps(filterParams);
         if (myDataFinder.hasError()){
             return this.getJSONErrorString(myDataFinder.getErrorMessage(), myDataFinder.getErrorMessage());
@@ -495,6 +500,15 @@ public class DataRetrieverAPI extends AbstractApiBean {
         JsonObjectBuilder myDataCardInfo;
         JsonArrayBuilder rolesForCard;
         
+        // look up the parent aliases of all the cards at once:
+        Set<Long> idsNeedingParentAlias = new HashSet<>();
+        for (SolrSearchResult doc : solrQueryResponse.getSolrSearchResults()){
+            if (doc.getEntity() != null && !doc.getEntity().isInstanceofDataFile() && doc.getEntityId() != null){
+                idsNeedingParentAlias.add(doc.getEntityId());
+            }
+        }
+        Map<Long, String> parentAliases = dataverseService.getParentAliasStrings(idsNeedingParentAlias);
+        
         for (SolrSearchResult doc : solrQueryResponse.getSolrSearchResults()){
             // -------------------------------------------
             // (a) Get core card data from solr
@@ -503,7 +517,7 @@ public class DataRetrieverAPI extends AbstractApiBean {
             myDataCardInfo = doc.getJsonForMyData(isValid(doc));
             
             if (doc.getEntity() != null && !doc.getEntity().isInstanceofDataFile()){
-                String parentAlias = dataverseService.getParentAliasString(doc);
+                String parentAlias = parentAliases.getOrDefault(doc.getEntityId(), "");
                 myDataCardInfo.add("parent_alias",parentAlias);
             }
             
@@ -49,6 +49,7 @@ public class MyDataFinder {
     private RoleAssigneeServiceBean roleAssigneeService;
     private DvObjectServiceBean dvObjectServiceBean;
     private GroupServiceBean groupService;
+    private MyDataRoleIndexServiceBean roleIndexService;
     //private RoleAssigneeServiceBean roleService = new RoleAssigneeServiceBean();
     //private MyDataQueryHelperServiceBean myDataQueryHelperService;
     // --------------------
@@ -72,6 +73,10 @@ public class MyDataFinder {
 
     private List<Long> directDvObjectIds = new ArrayList<>();
 
+    // When the role index is used, step 1 already knows the type and owner
+    // of each definition point: { dvObject id : [id, dtype, owner id] }
+    private Map<Long, Object[]> indexedDvObjectInfo = null;
+
     // Lists later used to format Solr Queries
     //
     // ----------------------------
@@ -95,6 +100,15 @@ public class MyDataFinder {
         this.loadHarvestedDataverseIds();
     }
 
+    /**
+     * Use the per-assignee role index instead of querying role assignments
+     * and dvobject info from the database on each run.
+     */
+    public MyDataFinder(DataverseRolePermissionHelper rolePermissionHelper, RoleAssigneeServiceBean roleAssigneeService, DvObjectServiceBean dvObjectServiceBean, GroupServiceBean groupService, MyDataRoleIndexServiceBean roleIndexService) {
+        this(rolePermissionHelper, roleAssigneeService, dvObjectServiceBean, groupService);
+        this.roleIndexService = roleIndexService;
+    }
+
     private void loadHarvestedDataverseIds(){
 
         for (Long id : dvObjectServiceBean.getAllHarvestedDataverseIds()){
@@ -139,6 +153,7 @@ public class MyDataFinder {
         this.idsWithFilePermissions = new HashMap<>();  // { role id : true }
 
         this.directDvObjectIds = new ArrayList<>();
+        this.indexedDvObjectInfo = null;
 
         // Lists later used to format Solr Queries
         //
@@ -322,14 +337,16 @@ public class MyDataFinder {
         SolrQueryFormatter sqf = new SolrQueryFormatter();
 
         // Build clauses
+        //  - the terms parser keeps large id lists cheap to parse and the
+        //    sorted ids keep the fq cacheable by Solr
         String entityIdClause = null;
         if (distinctEntityIds.size() > 0){
-            entityIdClause = sqf.buildIdQuery(distinctEntityIds, SearchFields.ENTITY_ID, null);
+            entityIdClause = sqf.buildTermsQuery(distinctEntityIds, SearchFields.ENTITY_ID, null);
         }
 
         String parentIdClause = null;
         if (distinctParentIds.size() > 0){
-            parentIdClause = sqf.buildIdQuery(distinctParentIds, SearchFields.PARENT_ID, "datasets OR files");
+            parentIdClause = sqf.buildTermsQuery(distinctParentIds, SearchFields.PARENT_ID, "datasets OR files");
         }
 
         if ((entityIdClause != null) && (parentIdClause != null)){
@@ -430,9 +447,49 @@ public class MyDataFinder {
     }
 
 
+    /**
+     * Same rows as RoleAssigneeServiceBean.getAssigneeAndRoleIdListFor
+     * ([definition point id, role id]), read from the role index. Also
+     * remembers the type and owner of each definition point for step 2.
+     */
+    private List<Object[]> getAssigneeAndRoleIdListFromIndex() {
+
+        List<String> assigneeIdentifiers = this.roleAssigneeService.getAssigneeIdentifiersFor(filterParams);
+        if (assigneeIdentifiers == null) {
+            return null;
+        }
+
+        List<Long> roleIds = this.filterParams.getRoleIds();
+        Set<Long> selectedRoleIds = new HashSet<>();
+        if (roleIds != null) {
+            for (Long roleId : roleIds) {
+                if (roleId != null) {
+                    selectedRoleIds.add(roleId);
+                }
+            }
+        }
+
+        List<Object[]> results = new ArrayList<>();
+        this.indexedDvObjectInfo = new HashMap<>();
+        for (MyDataRoleIndexServiceBean.Entry entry : this.roleIndexService.getAssignments(assigneeIdentifiers)) {
+            if (!selectedRoleIds.isEmpty() && !selectedRoleIds.contains(entry.getRoleId())) {
+                continue;
+            }
+            results.add(new Object[]{entry.getDefinitionPointId(), entry.getRoleId()});
+            this.indexedDvObjectInfo.put(entry.getDefinitionPointId(),
+                    new Object[]{entry.getDefinitionPointId(), entry.getDtype(), entry.getOwnerId()});
+        }
+        return results;
+    }
+
     private boolean runStep1RoleAssignments() {
 
-        List<Object[]> results = this.roleAssigneeService.getAssigneeAndRoleIdListFor(filterParams);
+        List<Object[]> results;
+        if (this.roleIndexService != null) {
+            results = this.getAssigneeAndRoleIdListFromIndex();
+        } else {
+            results = this.roleAssigneeService.getAssigneeAndRoleIdListFor(filterParams);
+        }
 
         //logger.info("runStep1RoleAssignments results: " + results.toString());
 
@@ -495,14 +552,21 @@ public class MyDataFinder {
         }
         //msgt("runStep2DirectAssignments");
 
-        List<Object[]> results = this.dvObjectServiceBean.getDvObjectInfoForMyData(directDvObjectIds);
+        List<Object[]> results;
+        if (this.indexedDvObjectInfo != null) {
+            results = new ArrayList<>();
+            for (Long id : new HashSet<>(directDvObjectIds)) {
+                results.add(this.indexedDvObjectInfo.get(id));
+            }
+        } else {
+            results = this.dvObjectServiceBean.getDvObjectInfoForMyData(directDvObjectIds);
+        }
 //List<RoleAssignment> results = this.roleAssigneeService.getAssignmentsFor(this.userIdentifier);
         if (results.isEmpty()){
             this.addErrorMessage(BundleUtil.getStringFromBundle("myDataFinder.error.result.no.dvobject"));
             return false;
         }
 
-        Integer dvIdAsInteger;
         Long dvId;
         String dtype;
         Long parentId;
@@ -511,8 +575,7 @@ public class MyDataFinder {
         // Iterate through assigned objects
         // -----------------------------------------------
         for (Object[] ra : results) {
-            dvIdAsInteger = (Integer)ra[0];     // ?? Why?
-            dvId = new Long(dvIdAsInteger);
+            dvId = ((Number)ra[0]).longValue();     // Integer from the db, Long from the role index
             dtype = (String)ra[1];
             parentId = (Long)ra[2];
 
@@ -563,6 +626,7 @@ public class MyDataFinder {
         // Direct ids no longer needed
         //
         this.directDvObjectIds = null;
+        this.indexedDvObjectInfo = null;
 
         return true;
     }
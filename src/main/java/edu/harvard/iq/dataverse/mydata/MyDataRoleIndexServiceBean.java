@@ -0,0 +1,149 @@
+package edu.harvard.iq.dataverse.mydata;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.TransactionUtil;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Per-assignee index of the role assignments behind the "My Data" page.
+ *
+ * For every assignee identifier (a user "@jdoe" or a group "&explicit/1-curators")
+ * the index holds the definition points the assignee has roles on, together
+ * with the DvObject type and owner of each definition point. This replaces the
+ * two queries MyDataFinder used to run on every request (role assignments,
+ * then dvobject info for all of them) with a single lookup per assignee.
+ *
+ * Entries are dropped whenever a role assignment of the assignee changes on
+ * this node (see {@link edu.harvard.iq.dataverse.DataverseRoleServiceBean}),
+ * and again once that change is committed. Entries expire after dataverse.mydata.role-index.max-age seconds, which bounds
+ * staleness caused by changes made on other nodes or by moving objects.
+ */
+@Singleton
+public class MyDataRoleIndexServiceBean {
+
+    private static final Logger logger = Logger.getLogger(MyDataRoleIndexServiceBean.class.getCanonicalName());
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    private EntityManager em;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final Cache<String, List<Entry>> assignmentsByAssignee = Caffeine.newBuilder()
+            .maximumSize(JvmSettings.MYDATA_ROLE_INDEX_MAXSIZE.lookup(Integer.class))
+            .expireAfterWrite(Duration.of(JvmSettings.MYDATA_ROLE_INDEX_MAXAGE.lookup(Integer.class), ChronoUnit.SECONDS))
+            .build();
+
+    /**
+     * One role assignment of an assignee, with the type and owner of the
+     * object the role is assigned on.
+     */
+    public static final class Entry {
+
+        private final Long definitionPointId;
+        private final Long roleId;
+        private final String dtype;
+        private final Long ownerId;
+
+        Entry(Long definitionPointId, Long roleId, String dtype, Long ownerId) {
+            this.definitionPointId = definitionPointId;
+            this.roleId = roleId;
+            this.dtype = dtype;
+            this.ownerId = ownerId;
+        }
+
+        public Long getDefinitionPointId() {
+            return definitionPointId;
+        }
+
+        public Long getRoleId() {
+            return roleId;
+        }
+
+        public String getDtype() {
+            return dtype;
+        }
+
+        public Long getOwnerId() {
+            return ownerId;
+        }
+    }
+
+    /**
+     * @param assigneeIdentifiers the user and group identifiers to look up
+     * @return all role assignments of the given assignees; each assignee not
+     *         yet in the index is loaded with a single query.
+     */
+    @Lock(LockType.READ)
+    public List<Entry> getAssignments(Collection<String> assigneeIdentifiers) {
+        List<Entry> entries = new ArrayList<>();
+        if (assigneeIdentifiers == null) {
+            return entries;
+        }
+        for (String assigneeIdentifier : assigneeIdentifiers) {
+            if (assigneeIdentifier != null) {
+                entries.addAll(assignmentsByAssignee.get(assigneeIdentifier, this::loadAssignments));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Drop the entry of an assignee whose role assignments have changed; it
+     * is rebuilt on the next lookup. The entry is dropped again when the
+     * caller's transaction completes, as concurrent requests may have loaded
+     * the old assignments until the change committed.
+     *
+     * @param assigneeIdentifier
+     */
+    @Lock(LockType.READ)
+    public void invalidate(String assigneeIdentifier) {
+        if (assigneeIdentifier != null) {
+            assignmentsByAssignee.invalidate(assigneeIdentifier);
+            TransactionUtil.runAfterCompletion(transactionRegistry, () -> assignmentsByAssignee.invalidate(assigneeIdentifier));
+        }
+    }
+
+    @Lock(LockType.READ)
+    public void invalidateAll() {
+        assignmentsByAssignee.invalidateAll();
+        TransactionUtil.runAfterCompletion(transactionRegistry, assignmentsByAssignee::invalidateAll);
+    }
+
+    private List<Entry> loadAssignments(String assigneeIdentifier) {
+        String qstr = "SELECT r.definitionpoint_id, r.role_id, dv.dtype, dv.owner_id";
+        qstr += " FROM roleassignment r, dvobject dv";
+        qstr += " WHERE dv.id = r.definitionpoint_id";
+        qstr += " AND r.assigneeidentifier = ?1";
+
+        List<Object[]> results = em.createNativeQuery(qstr)
+                .setParameter(1, assigneeIdentifier)
+                .getResultList();
+
+        List<Entry> entries = new ArrayList<>(results.size());
+        for (Object[] row : results) {
+            entries.add(new Entry(toLong(row[0]), toLong(row[1]), (String) row[2], toLong(row[3])));
+        }
+        logger.fine("Loaded " + entries.size() + " role assignments for " + assigneeIdentifier);
+        return Collections.unmodifiableList(entries);
+    }
+
+    private static Long toLong(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+}
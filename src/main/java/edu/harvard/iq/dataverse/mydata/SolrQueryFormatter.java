@@ -12,6 +12,7 @@ import edu.harvard.iq.dataverse.search.SearchFields;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -118,4 +119,43 @@ public class SolrQueryFormatter {
         return StringUtils.join(queryClauseParts, " OR ");
         
     }
+
+    /**
+     *  Build a clause using Solr's "terms" query parser, e.g.
+     *      _query_:"{!terms f=entityId}1,2,3"
+     *
+     *  Unlike buildIdQuery, this is not limited to 1024 boolean clauses and
+     *  is much cheaper for Solr to parse when there are thousands of ids.
+     *  The ids are sorted so the same set of ids always produces the same
+     *  string, which lets Solr reuse the filterCache entry across pages.
+     *
+     * @param idListSet
+     * @param paramName
+     * @param dvObjectType
+     * @return
+     */
+    public String buildTermsQuery(Set<Long> idListSet, String paramName, String dvObjectType){
+        if (paramName == null){
+            throw new NullPointerException("paramName cannot be null");
+        }
+        if ((idListSet == null)||(idListSet.isEmpty())){
+            return null;
+        }
+
+        Set<Long> sortedIds = new TreeSet<>();
+        for (Long id : idListSet) {
+            if (id != null){
+                sortedIds.add(id);
+            }
+        }
+        if (sortedIds.isEmpty()){
+            return null;
+        }
+
+        String qPart = "_query_:\"{!terms f=" + paramName + "}" + StringUtils.join(sortedIds, ",") + "\"";
+        if (dvObjectType != null){
+            qPart = "(" + qPart + " AND " + SearchFields.TYPE + ":(" + dvObjectType + "))";
+        }
+        return qPart;
+    }
 }
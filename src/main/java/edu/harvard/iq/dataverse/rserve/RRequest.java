@@ -55,17 +55,21 @@ public class RRequest {
    */
   public REXP eval () {
     REXP result = null;
+    boolean succeeded = false;
     
     try {
       open();
       
-      result = mRC.eval(mScript);
+      if (mRC != null) {
+        result = mRC.eval(mScript);
+        succeeded = true;
+      }
     }
     catch (RserveException e) {
       LOG.warning(String.format("RRequest: %s", e.getMessage()));
     }
     finally {
-      close();
+      close(succeeded);
     }
     
     return result;
@@ -80,16 +84,14 @@ public class RRequest {
   }
   /*
    * Open the R Connection
+   * (gets a logged-in connection from the RserveConnectionPool)
    */
   private void open () {
     LOG.fine(String.format("RRequest: Attempting connection to RSERVE %s on port %d", mHost, mPort));
 
     try {
       // Attempt connection
-      mRC = new RConnection(mHost, mPort);
-      
-      // Attempt login
-      mRC.login(mUser, mPassword);
+      mRC = RserveConnectionPool.getInstance().borrowConnection();
       
       // SERVER VERSION
       LOG.fine("SERVER VERSION = " + mRC.getServerVersion());
@@ -118,9 +120,11 @@ public class RRequest {
   }
   /*
    * Close the R Connection
+   * (releases it to the pool; it is reused, unless the request failed)
    */
-  private void close () {
-    mRC.close();
+  private void close (boolean reusable) {
+    RserveConnectionPool.getInstance().releaseConnection(mRC, reusable);
+    mRC = null;
   }
   /*
    * Get R Connection
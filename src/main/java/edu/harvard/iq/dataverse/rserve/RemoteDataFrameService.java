@@ -76,10 +76,7 @@ public class RemoteDataFrameService {
     
     // These settings have sane defaults in resources/META-INF/microprofile-config.properties,
     // ready to be overridden by a sysadmin
-    private final String RSERVE_HOST;
-    private final String RSERVE_USER;
-    private final String RSERVE_PWD;
-    private final int    RSERVE_PORT;
+    // (the connection settings are read by the RserveConnectionPool)
     private final String RSERVE_TMP_DIR;
         
     private static String DATAVERSE_R_FUNCTIONS = "scripts/dataverse_r_functions.R";
@@ -93,10 +90,6 @@ public class RemoteDataFrameService {
         // These settings have sane defaults in resources/META-INF/microprofile-config.properties,
         // ready to be overridden by a sysadmin. Config sources have their own caches, so adding
         // these here means the setting can be changed dynamically without too much overhead.
-        this.RSERVE_HOST = JvmSettings.RSERVE_HOST.lookup();
-        this.RSERVE_USER = JvmSettings.RSERVE_USER.lookup();
-        this.RSERVE_PWD = JvmSettings.RSERVE_PASSWORD.lookup();
-        this.RSERVE_PORT = JvmSettings.RSERVE_PORT.lookup(Integer.class);
         this.RSERVE_TMP_DIR = JvmSettings.RSERVE_TEMPDIR.lookup();
         
         
@@ -117,8 +110,10 @@ public class RemoteDataFrameService {
     public Map<String, String> directConvert(File originalFile, String fmt){
         
         Map<String, String> result = new HashMap<>();
+        RConnection connection = null;
+        boolean succeeded = false;
         try {
-            RConnection connection = setupConnection();
+            connection = setupConnection();
             // send the data file to the Rserve side:
             InputStream inFile = new BufferedInputStream(new FileInputStream(originalFile));
 
@@ -158,11 +153,13 @@ public class RemoteDataFrameService {
             String deleteLine = "file.remove('"+tempFileNameIn+"')";
             connection.eval(deleteLine);
  
-            connection.close();
+            succeeded = true;
         
         } catch (IOException | REXPMismatchException | RserveException e) {
             logger.severe(e.getMessage());
             result.put("RexecError", "true");
+        } finally {
+            RserveConnectionPool.getInstance().releaseConnection(connection, succeeded);
         }
         
         return result;
@@ -183,9 +180,11 @@ public class RemoteDataFrameService {
         logger.fine("RemoteDataFrameService: execute() starts here.");
     
         Map<String, String> result = new HashMap<>();
+        RConnection connection = null;
+        boolean succeeded = false;
         
         try {
-            RConnection connection = setupConnection();
+            connection = setupConnection();
             // send the data file to the Rserve side:
             InputStream inFile = new BufferedInputStream(new FileInputStream(
                                      jobRequest.getTabularDataFileName()));
@@ -461,9 +460,12 @@ public class RemoteDataFrameService {
             logger.fine("wbFileSize="+wbFileSize);
             
             result.putAll(buildResult(connection, dsnprfx, wbFileSize, result));
+            succeeded = true;
         } catch (Exception e) {
             logger.severe(e.getMessage());
             result.put("RexecError", "true");
+        } finally {
+            RserveConnectionPool.getInstance().releaseConnection(connection, succeeded);
         }
         
         return result;
@@ -490,19 +492,15 @@ public class RemoteDataFrameService {
         
         String deleteLine = "file.remove('"+tempFileNameIn+"')";
         connection.eval(deleteLine);
-        connection.close();
         return result;
     }
 
+    /*
+     * Gets an Rserve connection from the pool; it must be released back to
+     * the pool (rather than closed) when the job is done.
+     */
     private RConnection setupConnection() throws REXPMismatchException, RserveException {
-        // Set up an Rserve connection
-        logger.fine("RSERVE_USER="+RSERVE_USER+"[default=rserve]");
-        logger.fine("RSERVE_PASSWORD="+RSERVE_PWD+"[default=rserve]");
-        logger.fine("RSERVE_PORT="+RSERVE_PORT+"[default=6311]");
-        logger.fine("RSERVE_HOST="+RSERVE_HOST);
-        RConnection connection = new RConnection(RSERVE_HOST, RSERVE_PORT);
-        connection.login(RSERVE_USER, RSERVE_PWD);
-        logger.fine(">" + connection.eval("R.version$version.string").asString() + "<");
+        RConnection connection = RserveConnectionPool.getInstance().borrowConnection();
         // check working directories
         // This needs to be done *before* we try to create any files
         // there!
@@ -532,18 +530,15 @@ public class RemoteDataFrameService {
         }
 
         File preprocessedDataFile = null; 
+        RConnection connection = null;
+        boolean succeeded = false;
         
         try {
             
-            // Set up an Rserve connection
+            // Set up an Rserve connection (this also checks the working 
+            // directory)
             
-            RConnection connection = new RConnection(RSERVE_HOST, RSERVE_PORT);
-
-            connection.login(RSERVE_USER, RSERVE_PWD);            
-            // check working directories
-            // This needs to be done *before* we try to create any files 
-            // there!
-            setupWorkingDirectory(connection);
+            connection = setupConnection();
             
             // send the tabular data file to the Rserve side:
             
@@ -603,10 +598,12 @@ public class RemoteDataFrameService {
             String deleteLine = "file.remove('"+tempFileNameOut+"')";
             connection.eval(deleteLine);
             
-            connection.close();
+            succeeded = true;
         } catch (Exception ex){
             ex.printStackTrace();
             return null ;
+        } finally {
+            RserveConnectionPool.getInstance().releaseConnection(connection, succeeded);
         }
 
             
@@ -0,0 +1,234 @@
+package edu.harvard.iq.dataverse.rserve;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.enterprise.inject.spi.CDI;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Timer;
+import org.rosuda.REngine.REXPMismatchException;
+import org.rosuda.REngine.Rserve.RConnection;
+import org.rosuda.REngine.Rserve.RserveException;
+
+/**
+ * A bounded pool of logged-in Rserve connections, shared by the RData ingest
+ * and the format conversions.
+ *
+ * At most dataverse.rserve.max-connections connections are in use at a time;
+ * a request for a connection waits for one to be released, for at most
+ * dataverse.rserve.wait-timeout seconds. Released connections are kept open
+ * (with their R workspace cleared and their working directory reset, but the
+ * R packages loaded) and are checked
+ * before they are handed out again. The time spent waiting for, and using, the
+ * connections is recorded as the rserve_connection_wait_time and
+ * rserve_connection_use_time metrics.
+ *
+ * A connection must be released with {@link #releaseConnection(RConnection, boolean)}
+ * once the job is done with it, rather than closed.
+ */
+public class RserveConnectionPool {
+
+    private static final Logger logger = Logger.getLogger(RserveConnectionPool.class.getCanonicalName());
+
+    private static RserveConnectionPool instance;
+
+    interface ConnectionFactory {
+        RConnection connect() throws RserveException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final Semaphore permits;
+    private final long waitTimeoutMillis;
+    private final Timer waitTimer;
+    private final Timer useTimer;
+
+    private final Deque<RConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    // the connections handed out, with the time they were handed out:
+    private final Map<RConnection, Long> leasedConnections = new ConcurrentHashMap<>();
+    // the working directory of each open connection when it was opened:
+    private final Map<RConnection, String> initialDirectories = new ConcurrentHashMap<>();
+
+    RserveConnectionPool(ConnectionFactory connectionFactory, int maxConnections, long waitTimeoutMillis, Timer waitTimer, Timer useTimer) {
+        this.connectionFactory = connectionFactory;
+        this.permits = new Semaphore(maxConnections, true);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.waitTimer = waitTimer;
+        this.useTimer = useTimer;
+    }
+
+    public static synchronized RserveConnectionPool getInstance() {
+        if (instance == null) {
+            String host = JvmSettings.RSERVE_HOST.lookup();
+            int port = JvmSettings.RSERVE_PORT.lookup(Integer.class);
+            String user = JvmSettings.RSERVE_USER.lookup();
+            String password = JvmSettings.RSERVE_PASSWORD.lookup();
+
+            ConnectionFactory connectionFactory = () -> {
+                logger.fine("Opening a new Rserve connection to " + host + ":" + port);
+                RConnection connection = new RConnection(host, port);
+                try {
+                    connection.login(user, password);
+                } catch (RserveException rse) {
+                    connection.close();
+                    throw rse;
+                }
+                return connection;
+            };
+
+            Timer waitTimer = null;
+            Timer useTimer = null;
+            try {
+                MetricRegistry metricRegistry = CDI.current().select(MetricRegistry.class).get();
+                waitTimer = metricRegistry.timer(Metadata.builder().withName("rserve_connection_wait_time")
+                        .withDescription("Displays how long does it take to get an Rserve connection")
+                        .withUnit(MetricUnits.NANOSECONDS).build());
+                useTimer = metricRegistry.timer(Metadata.builder().withName("rserve_connection_use_time")
+                        .withDescription("Displays how long an Rserve connection is used for (e.g. to convert a file)")
+                        .withUnit(MetricUnits.NANOSECONDS).build());
+            } catch (RuntimeException e) {
+                logger.log(Level.FINE, "Metrics are not available, not recording the Rserve connection times", e);
+            }
+
+            instance = new RserveConnectionPool(connectionFactory,
+                    JvmSettings.RSERVE_MAX_CONNECTIONS.lookup(Integer.class),
+                    TimeUnit.SECONDS.toMillis(JvmSettings.RSERVE_WAIT_TIMEOUT.lookup(Integer.class)),
+                    waitTimer, useTimer);
+        }
+        return instance;
+    }
+
+    /**
+     * Gets a connection, waiting for one to be released if as many as allowed
+     * are in use already.
+     *
+     * @return a logged-in connection, with an empty R workspace
+     * @throws RserveException if no connection became available in time, or
+     *                         if a new connection could not be opened
+     */
+    public RConnection borrowConnection() throws RserveException {
+        long waitStart = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RserveException(null, "Interrupted while waiting for an Rserve connection");
+        }
+        long waited = System.nanoTime() - waitStart;
+        if (waitTimer != null) {
+            waitTimer.update(Duration.ofNanos(waited));
+        }
+        if (!acquired) {
+            throw new RserveException(null, "Timed out after " + waitTimeoutMillis + " ms waiting for an Rserve connection");
+        }
+
+        try {
+            RConnection connection;
+            while ((connection = idleConnections.pollFirst()) != null && !isHealthy(connection)) {
+                logger.fine("Discarding an idle Rserve connection that is no longer usable");
+                close(connection);
+            }
+            if (connection == null) {
+                connection = openConnection();
+            }
+            leasedConnections.put(connection, System.nanoTime());
+            logger.fine("Got an Rserve connection after waiting " + TimeUnit.NANOSECONDS.toMillis(waited) + " ms");
+            return connection;
+        } catch (RserveException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases a connection got from {@link #borrowConnection()}.
+     *
+     * @param connection the connection
+     * @param reusable false if the job using the connection failed, in which
+     *                 case the connection is closed rather than kept for the
+     *                 next job
+     */
+    public void releaseConnection(RConnection connection, boolean reusable) {
+        if (connection == null) {
+            return;
+        }
+        Long leaseStart = leasedConnections.remove(connection);
+        if (leaseStart == null) {
+            logger.warning("Releasing an Rserve connection that was not borrowed from the pool (or was released already)");
+            return;
+        }
+        long used = System.nanoTime() - leaseStart;
+        if (useTimer != null) {
+            useTimer.update(Duration.ofNanos(used));
+        }
+        logger.fine("Released an Rserve connection after using it for " + TimeUnit.NANOSECONDS.toMillis(used) + " ms");
+
+        try {
+            if (reusable && clearWorkspace(connection)) {
+                idleConnections.offerFirst(connection);
+            } else {
+                close(connection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    int getIdleConnectionCount() {
+        return idleConnections.size();
+    }
+
+    private static boolean isHealthy(RConnection connection) {
+        if (!connection.isConnected()) {
+            return false;
+        }
+        try {
+            connection.voidEval("invisible(TRUE)");
+            return true;
+        } catch (RserveException rse) {
+            return false;
+        }
+    }
+
+    private RConnection openConnection() throws RserveException {
+        RConnection connection = connectionFactory.connect();
+        try {
+            initialDirectories.put(connection, connection.eval("getwd()").asString());
+        } catch (RserveException | REXPMismatchException | RuntimeException e) {
+            connection.close();
+            throw new RserveException(connection, "Failed to get the working directory of the new Rserve connection: " + e.getMessage());
+        }
+        return connection;
+    }
+
+    private void close(RConnection connection) {
+        initialDirectories.remove(connection);
+        connection.close();
+    }
+
+    // jobs may change the working directory (e.g. the RData ingest does), so
+    // it is reset along with the workspace:
+    private boolean clearWorkspace(RConnection connection) {
+        String initialDirectory = initialDirectories.get(connection);
+        if (initialDirectory == null) {
+            return false;
+        }
+        try {
+            connection.voidEval("rm(list = ls(all.names = TRUE))");
+            connection.voidEval("setwd(\"" + initialDirectory.replace("\\", "\\\\").replace("\"", "\\\"") + "\")");
+            return true;
+        } catch (RserveException rse) {
+            logger.log(Level.FINE, "Failed to clear the R workspace, closing the Rserve connection", rse);
+            return false;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package edu.harvard.iq.dataverse.search;
 import edu.harvard.iq.dataverse.DvObject;
 import edu.harvard.iq.dataverse.RoleAssignment;
 import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.ejb.Asynchronous;
@@ -14,31 +16,81 @@ public class IndexAsync {
 
     private static final Logger logger = Logger.getLogger(IndexAsync.class.getCanonicalName());
 
+    // The following two sets are only changed in the synchronized methods below.
+    // They coalesce bursts of role changes on the same definition point (e.g. bulk
+    // role assignment) the same way IndexServiceBean coalesces dataset indexing:
+    // at most one permission indexing runs per definition point, and all changes
+    // requested meanwhile are picked up by a single rerun.
+
+    // ids of the definition points whose permissions are being indexed right now
+    private static final Set<Long> INDEXING_NOW = ConcurrentHashMap.newKeySet();
+    // ids of the definition points changed again while being indexed
+    private static final Set<Long> REQUESTED_AGAIN = ConcurrentHashMap.newKeySet();
+
     @EJB
     SolrIndexServiceBean solrIndexService;
 
     @Asynchronous
     public void indexRole(RoleAssignment roleAssignment) {
-        try {
-            Thread.sleep(1000); //we wait to ensure a nested native query are up to date
-        } catch (InterruptedException ex) {
-            Logger.getLogger(IndexAsync.class.getName()).log(Level.SEVERE, null, ex);
-        }
-        IndexResponse indexResponse = solrIndexService.indexPermissionsOnSelfAndChildren(roleAssignment.getDefinitionPoint());
-        logger.fine("output from indexing operations: " + indexResponse);
+        indexPermissionsCoalesced(roleAssignment.getDefinitionPoint());
     }
     
     @Asynchronous 
     public void indexRoles(Collection<DvObject> dvObjects) {
-        try {
-            Thread.sleep(1000); //we wait to ensure a nested native query are up to date
-        } catch (InterruptedException ex) {
-            Logger.getLogger(IndexAsync.class.getName()).log(Level.SEVERE, null, ex);
-        }
         for (DvObject dvObject : dvObjects) {
-            IndexResponse indexResponse = solrIndexService.indexPermissionsOnSelfAndChildren(dvObject);
-            logger.fine("output from permission indexing operations (dvobject " + dvObject.getId() + ": " + indexResponse);
+            indexPermissionsCoalesced(dvObject);
+        }
+    }
+
+    private void indexPermissionsCoalesced(DvObject definitionPoint) {
+        Long id = definitionPoint.getId();
+        if (!startIndexing(id)) {
+            logger.fine("permissions of dvobject " + id + " are being indexed already, they will be indexed again afterwards");
+            return;
+        }
+        do {
+            try {
+                Thread.sleep(1000); //we wait to ensure a nested native query are up to date
+            } catch (InterruptedException ex) {
+                Logger.getLogger(IndexAsync.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            try {
+                // looked up again, so that the latest role assignments are used
+                IndexResponse indexResponse = solrIndexService.indexPermissionsOnSelfAndChildren(id);
+                logger.fine("output from permission indexing operations (dvobject " + id + "): " + indexResponse);
+            } catch (RuntimeException e) {
+                // keep going, or the definition point could never be indexed again
+                logger.log(Level.WARNING, "Failed to index permissions of dvobject " + id, e);
+            }
+        } while (isRequestedAgain(id));
+    }
+
+    /**
+     * @return {@code true} if the caller should index the permissions of the
+     *         definition point, {@code false} if that is being done already
+     *         and the running indexing will do it again afterwards.
+     */
+    synchronized private static boolean startIndexing(Long id) {
+        if (INDEXING_NOW.contains(id)) {
+            REQUESTED_AGAIN.add(id);
+            return false;
+        }
+        INDEXING_NOW.add(id);
+        return true;
+    }
+
+    /**
+     * Called when the indexing of the permissions of a definition point has
+     * finished.
+     *
+     * @return {@code true} if the permissions have to be indexed again
+     */
+    synchronized private static boolean isRequestedAgain(Long id) {
+        if (REQUESTED_AGAIN.remove(id)) {
+            return true;
         }
+        INDEXING_NOW.remove(id);
+        return false;
     }
 
 }
@@ -1,9 +1,13 @@
 package edu.harvard.iq.dataverse.search;
 
+import edu.harvard.iq.dataverse.Dataset;
 import edu.harvard.iq.dataverse.DatasetServiceBean;
 import edu.harvard.iq.dataverse.Dataverse;
 import edu.harvard.iq.dataverse.DataverseServiceBean;
+import edu.harvard.iq.dataverse.DvObject;
 import edu.harvard.iq.dataverse.DvObjectServiceBean;
+import edu.harvard.iq.dataverse.batch.util.LoggingUtil;
+import edu.harvard.iq.dataverse.search.IndexQueueEntry.Priority;
 import edu.harvard.iq.dataverse.util.SystemConfig;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -15,6 +19,7 @@ import jakarta.ejb.AsyncResult;
 import jakarta.ejb.Asynchronous;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
 import jakarta.inject.Named;
 import jakarta.json.Json;
 import jakarta.json.JsonArrayBuilder;
@@ -24,6 +29,8 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.apache.solr.client.solrj.SolrServerException;
 
+import static jakarta.ejb.TransactionAttributeType.REQUIRES_NEW;
+
 @Named
 @Stateless
 public class IndexBatchServiceBean {
@@ -44,7 +51,11 @@ public class IndexBatchServiceBean {
     @EJB
     DvObjectServiceBean dvObjectService;
     @EJB
+    SubtreeIndexServiceBean subtreeIndexService;
+    @EJB
     SystemConfig systemConfig;
+    @EJB
+    IndexQueueServiceBean indexQueueService;
     
     @Asynchronous
     public Future<JsonObjectBuilder> indexStatus() {
@@ -220,6 +231,69 @@ public class IndexBatchServiceBean {
         return new AsyncResult<>(status);
     }
         
+    /**
+     * Runs {@link IndexServiceBean#indexDatasetQueued} in the background, see
+     * {@link IndexServiceBean#asyncIndexDataset(Dataset, boolean)}.
+     */
+    @Asynchronous
+    public void indexDatasetInBackground(Dataset dataset, boolean doNormalSolrDocCleanUp) {
+        indexService.indexDatasetQueued(dataset, doNormalSolrDocCleanUp, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Indexes the object of an entry of the persistent index queue claimed by
+     * this server, in a transaction of its own, and records its completion in
+     * the queue. A failure is left to the caller to record, see
+     * {@link IndexServiceBean#indexNextQueued()}, as it may also come from the
+     * commit of the transaction.
+     *
+     * @param entry the claimed entry
+     * @return the entry again if the indexing of the object was requested
+     *         again meanwhile, to be indexed once more, or {@code null}
+     * @throws IllegalStateException if the object was not found, or could not
+     *                               be indexed
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public IndexQueueEntry indexQueuedInNewTransaction(IndexQueueEntry entry) {
+        Long id = entry.getDvObjectId();
+        DvObject dvObject = dvObjectService.findDvObject(id);
+        if (dvObject == null) {
+            // the entry is kept, and retried like a failed indexing, rather
+            // than dropped: the object may just not be visible yet
+            throw new IllegalStateException("dvobject " + id + " not found");
+        }
+        if (entry.getAttempts() > 0) {
+            logger.info("indexing queued dvobject " + id + " (attempt " + (entry.getAttempts() + 1) + ")");
+        }
+        try {
+            if (dvObject.isInstanceofDataset()) {
+                indexService.indexDataset(datasetService.findDeep(id), entry.isCleanUp());
+            } else if (dvObject.isInstanceofDataverse()) {
+                indexService.indexDataverse((Dataverse) dvObject);
+            }
+        } catch (Exception e) { // catch all possible exceptions, so that the failure is logged with the object
+            String failureLogText = "Indexing failed.";
+            if (dvObject.isInstanceofDataset()) {
+                failureLogText += " You can kickoff a re-index of this dataset with: \r\n curl http://localhost:8080/api/admin/index/datasets/" + id;
+            }
+            failureLogText += "\r\n" + e.getLocalizedMessage();
+            LoggingUtil.writeOnSuccessFailureLog(null, failureLogText, dvObject);
+            throw new IllegalStateException(e.getLocalizedMessage(), e);
+        }
+        return indexQueueService.completed(id, entry.getGeneration());
+    }
+
+    /**
+     * Brings the index up to date after a dataverse was moved, without
+     * reindexing everything under it.
+     *
+     * @see SubtreeIndexServiceBean#reindexMovedSubtree(Dataverse)
+     */
+    @Asynchronous
+    public Future<String> indexMovedDataverse(Dataverse dataverse) {
+        return new AsyncResult<>(subtreeIndexService.reindexMovedSubtree(dataverse));
+    }
+
     @Asynchronous
     public void indexDataverseRecursively(Dataverse dataverse) {
         long start = System.currentTimeMillis();
@@ -0,0 +1,123 @@
+package edu.harvard.iq.dataverse.search;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A pending (re)indexing of a {@link edu.harvard.iq.dataverse.DvObject}.
+ *
+ * There is at most one entry per object: requesting the indexing of an object
+ * that is queued already bumps the generation of its entry, so that an
+ * indexing that was running meanwhile does not remove it.
+ *
+ * @see IndexQueueServiceBean
+ */
+@Entity
+@Table(name = "indexqueue")
+public class IndexQueueEntry implements Serializable {
+
+    /**
+     * Entries of a lower priority are processed first.
+     */
+    public enum Priority {
+        /** Changes made by users, waiting to see them in search results. */
+        INTERACTIVE,
+        /** Reindexing of many objects at once. */
+        BULK
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "dvobject_id", nullable = false, unique = true)
+    private Long dvObjectId;
+
+    @Column(nullable = false)
+    private int priority;
+
+    @Column(nullable = false)
+    private boolean cleanUp;
+
+    @Column(nullable = false)
+    private Timestamp requestTime;
+
+    @Column(nullable = false)
+    private int generation;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private Timestamp nextAttemptTime;
+
+    private String claimedBy;
+
+    private Timestamp claimTime;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getDvObjectId() {
+        return dvObjectId;
+    }
+
+    public Priority getPriority() {
+        return Priority.values()[priority];
+    }
+
+    /**
+     * @return whether to do the normal clean up of stale Solr documents when
+     *         indexing a dataset
+     */
+    public boolean isCleanUp() {
+        return cleanUp;
+    }
+
+    /**
+     * @return when the indexing was first requested
+     */
+    public Timestamp getRequestTime() {
+        return requestTime;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the number of failed attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public Timestamp getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    /**
+     * @return the application server indexing the object right now, if any
+     */
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public Timestamp getClaimTime() {
+        return claimTime;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,252 @@
+package edu.harvard.iq.dataverse.search;
+
+import edu.harvard.iq.dataverse.search.IndexQueueEntry.Priority;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Logger;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.inject.Named;
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.NoResultException;
+import jakarta.persistence.PersistenceContext;
+
+import static jakarta.ejb.TransactionAttributeType.REQUIRES_NEW;
+
+/**
+ * Persistent queue of pending (re)indexings, shared by all the application
+ * servers using the database.
+ *
+ * Every indexing is recorded here when it is requested, claimed by the
+ * server that gets to do it, most urgent first, and removed once it succeeded.
+ * Failed indexings are retried with an exponential backoff, up to
+ * dataverse.solr.index-queue.max-attempts times. Servers renew the claims of
+ * the indexings they are running every minute, so that the indexings of a
+ * server that went away (e.g. during a redeploy) are picked up again once
+ * their claim is older than dataverse.solr.index-queue.claim-timeout seconds;
+ * see {@link IndexServiceBean#processIndexQueue()}. Each transition is
+ * committed on its own, so that the other servers see it right away.
+ */
+@Named
+@Stateless
+public class IndexQueueServiceBean {
+
+    private static final Logger logger = Logger.getLogger(IndexQueueServiceBean.class.getCanonicalName());
+
+    /**
+     * Identifies this application server (process) in claims.
+     */
+    static final String NODE = ManagementFactory.getRuntimeMXBean().getName();
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    EntityManager em;
+
+    /**
+     * Records that an object needs to be indexed. If the object is queued
+     * already, its entry is updated rather than duplicated, and it is retried
+     * right away even if it failed before. The entry is left unclaimed, to be
+     * picked up by {@link #claim(int)} in the order of its priority.
+     *
+     * @param dvObjectId the object to index
+     * @param priority the priority of the indexing
+     * @param cleanUp whether to do the normal Solr document clean up
+     * @return the generation of the entry of the object
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public int enqueue(Long dvObjectId, Priority priority, boolean cleanUp) {
+        return ((Number) em.createNativeQuery("INSERT INTO indexqueue"
+                + " (dvobject_id, priority, cleanup, requesttime, generation, attempts, nextattempttime, claimedby, claimtime)"
+                + " VALUES (?1, ?2, ?3, now(), 0, 0, now(), NULL, NULL)"
+                + " ON CONFLICT (dvobject_id) DO UPDATE SET"
+                + " priority = LEAST(indexqueue.priority, EXCLUDED.priority),"
+                + " cleanup = indexqueue.cleanup OR EXCLUDED.cleanup,"
+                + " generation = indexqueue.generation + 1,"
+                + " attempts = 0, nextattempttime = now()"
+                + " RETURNING generation")
+                .setParameter(1, dvObjectId)
+                .setParameter(2, priority.ordinal())
+                .setParameter(3, cleanUp)
+                .getSingleResult()).intValue();
+    }
+
+    /**
+     * @param dvObjectId an object
+     * @return the generation of the entry of the object, or {@code null} if
+     *         it is not queued
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public Integer findGeneration(Long dvObjectId) {
+        try {
+            return ((Number) em.createNativeQuery("SELECT generation FROM indexqueue WHERE dvobject_id = ?1")
+                    .setParameter(1, dvObjectId)
+                    .getSingleResult()).intValue();
+        } catch (NoResultException nre) {
+            return null;
+        }
+    }
+
+    /**
+     * Removes the entry of an indexed object, unless its indexing was requested
+     * again since the indexing started. In that case the entry stays claimed
+     * by this server, which is expected to index the object again.
+     *
+     * @param dvObjectId the indexed object
+     * @param generation the generation of its entry when the indexing started
+     * @return the entry of the object if it has to be indexed again, or
+     *         {@code null}
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public IndexQueueEntry completed(Long dvObjectId, Integer generation) {
+        if (generation == null) {
+            return null;
+        }
+        int removed = em.createNativeQuery("DELETE FROM indexqueue WHERE dvobject_id = ?1 AND generation = ?2")
+                .setParameter(1, dvObjectId)
+                .setParameter(2, generation)
+                .executeUpdate();
+        if (removed > 0) {
+            return null;
+        }
+        em.createNativeQuery("UPDATE indexqueue SET claimedby = ?2, claimtime = now() WHERE dvobject_id = ?1")
+                .setParameter(1, dvObjectId)
+                .setParameter(2, NODE)
+                .executeUpdate();
+        List<IndexQueueEntry> entries = em.createQuery("SELECT e FROM IndexQueueEntry e WHERE e.dvObjectId = :id", IndexQueueEntry.class)
+                .setParameter("id", dvObjectId)
+                .getResultList();
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    /**
+     * Releases the entry of an object that failed to index, to be retried after
+     * dataverse.solr.index-queue.retry-delay seconds, doubled for every failed
+     * attempt, up to dataverse.solr.index-queue.max-retry-delay seconds. After
+     * dataverse.solr.index-queue.max-attempts failed attempts, the entry is
+     * kept but no longer retried, until the indexing of the object is
+     * requested again.
+     *
+     * @param dvObjectId the object
+     * @param error what went wrong
+     * @return whether the indexing will be retried
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public boolean failed(Long dvObjectId, String error) {
+        List<?> attempts = em.createNativeQuery("UPDATE indexqueue SET attempts = attempts + 1, lasterror = ?2, claimedby = NULL, claimtime = NULL,"
+                + " nextattempttime = now() + make_interval(secs => LEAST(?3 * power(2, attempts), ?4))"
+                + " WHERE dvobject_id = ?1"
+                + " RETURNING attempts")
+                .setParameter(1, dvObjectId)
+                .setParameter(2, error)
+                .setParameter(3, JvmSettings.INDEX_QUEUE_RETRY_DELAY.lookup(Integer.class))
+                .setParameter(4, JvmSettings.INDEX_QUEUE_MAX_RETRY_DELAY.lookup(Integer.class))
+                .getResultList();
+        if (attempts.isEmpty()) {
+            return false;
+        }
+        if (((Number) attempts.get(0)).intValue() >= JvmSettings.INDEX_QUEUE_MAX_ATTEMPTS.lookup(Integer.class)) {
+            logger.severe("Giving up indexing dvobject " + dvObjectId + " after " + attempts.get(0) + " failed attempts: " + error);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drops the entry of an object that no longer exists.
+     *
+     * @param dvObjectId the object
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public void remove(Long dvObjectId) {
+        em.createNativeQuery("DELETE FROM indexqueue WHERE dvobject_id = ?1")
+                .setParameter(1, dvObjectId)
+                .executeUpdate();
+    }
+
+    /**
+     * Renews the claims of this server on the entries of objects it is still
+     * indexing, so that they are not taken over by other servers.
+     *
+     * @param dvObjectIds the objects being indexed
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public void renewClaims(Collection<Long> dvObjectIds) {
+        if (dvObjectIds.isEmpty()) {
+            return;
+        }
+        em.createQuery("UPDATE IndexQueueEntry e SET e.claimTime = CURRENT_TIMESTAMP WHERE e.claimedBy = :node AND e.dvObjectId IN :ids")
+                .setParameter("node", NODE)
+                .setParameter("ids", dvObjectIds)
+                .executeUpdate();
+    }
+
+    /**
+     * Claims entries that are due, for this server to index: new ones, those
+     * released after failures and those whose claim timed out. Entries of a
+     * lower priority come first, then the oldest ones. Entries claimed by
+     * another server meanwhile are skipped, so that each entry is claimed by
+     * only one server, and so are entries that failed too often.
+     *
+     * @param max the maximum number of entries to claim
+     * @return the claimed entries
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public List<IndexQueueEntry> claim(int max) {
+        List<Long> ids = new ArrayList<>();
+        for (Object id : em.createNativeQuery("UPDATE indexqueue SET claimedby = ?1, claimtime = now() WHERE id IN ("
+                + " SELECT id FROM indexqueue"
+                + " WHERE attempts < ?4 AND ((claimedby IS NULL AND nextattempttime <= now())"
+                + " OR claimtime < now() - make_interval(secs => ?2))"
+                + " ORDER BY priority, requesttime LIMIT ?3 FOR UPDATE SKIP LOCKED)"
+                + " RETURNING id")
+                .setParameter(1, NODE)
+                .setParameter(2, JvmSettings.INDEX_QUEUE_CLAIM_TIMEOUT.lookup(Integer.class))
+                .setParameter(3, max)
+                .setParameter(4, JvmSettings.INDEX_QUEUE_MAX_ATTEMPTS.lookup(Integer.class))
+                .getResultList()) {
+            ids.add(((Number) id).longValue());
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery("SELECT e FROM IndexQueueEntry e WHERE e.id IN :ids ORDER BY e.priority, e.requestTime", IndexQueueEntry.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * @return the depth of the queue by priority, the number of entries that
+     *         failed at least once and are still retried, the number of
+     *         entries that are no longer retried, and the lag: how long ago
+     *         the oldest pending indexing was requested, in seconds
+     */
+    public JsonObjectBuilder getStatus() {
+        JsonObjectBuilder depth = Json.createObjectBuilder();
+        for (Priority priority : Priority.values()) {
+            depth.add(priority.name().toLowerCase(), 0);
+        }
+        List<Object[]> rows = em.createNativeQuery("SELECT priority, COUNT(*) FROM indexqueue GROUP BY priority").getResultList();
+        long total = 0;
+        for (Object[] row : rows) {
+            long count = ((Number) row[1]).longValue();
+            depth.add(Priority.values()[((Number) row[0]).intValue()].name().toLowerCase(), count);
+            total += count;
+        }
+        Object[] stats = (Object[]) em.createNativeQuery("SELECT COUNT(*) FILTER (WHERE attempts > 0 AND attempts < ?1),"
+                + " COUNT(*) FILTER (WHERE attempts >= ?1),"
+                + " COALESCE(EXTRACT(EPOCH FROM now() - MIN(requesttime) FILTER (WHERE attempts < ?1)), 0) FROM indexqueue")
+                .setParameter(1, JvmSettings.INDEX_QUEUE_MAX_ATTEMPTS.lookup(Integer.class))
+                .getSingleResult();
+        logger.fine("index queue depth: " + total);
+        return Json.createObjectBuilder()
+                .add("depth", total)
+                .add("depthByPriority", depth)
+                .add("failing", ((Number) stats[0]).longValue())
+                .add("dead", ((Number) stats[1]).longValue())
+                .add("lagSeconds", ((Number) stats[2]).longValue());
+    }
+}
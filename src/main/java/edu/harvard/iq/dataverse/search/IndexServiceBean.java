@@ -13,6 +13,7 @@ import edu.harvard.iq.dataverse.datavariable.VariableMetadata;
 import edu.harvard.iq.dataverse.datavariable.VariableMetadataUtil;
 import edu.harvard.iq.dataverse.datavariable.VariableServiceBean;
 import edu.harvard.iq.dataverse.harvest.client.HarvestingClient;
+import edu.harvard.iq.dataverse.search.IndexQueueEntry.Priority;
 import edu.harvard.iq.dataverse.search.IndexableDataset.DatasetState;
 import edu.harvard.iq.dataverse.settings.FeatureFlags;
 import edu.harvard.iq.dataverse.settings.JvmSettings;
@@ -20,6 +21,7 @@ import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import edu.harvard.iq.dataverse.util.FileUtil;
 import edu.harvard.iq.dataverse.util.StringUtil;
 import edu.harvard.iq.dataverse.util.SystemConfig;
+import edu.harvard.iq.dataverse.util.TransactionUtil;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Timestamp;
@@ -44,20 +46,25 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
 import jakarta.annotation.PreDestroy;
 import jakarta.ejb.AsyncResult;
 import jakarta.ejb.Asynchronous;
 import jakarta.ejb.EJB;
 import jakarta.ejb.EJBException;
+import jakarta.ejb.Schedule;
 import jakarta.ejb.Stateless;
 import jakarta.ejb.TransactionAttribute;
+import static jakarta.ejb.TransactionAttributeType.NOT_SUPPORTED;
 import static jakarta.ejb.TransactionAttributeType.REQUIRES_NEW;
+import static jakarta.ejb.TransactionAttributeType.SUPPORTS;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.json.JsonObject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -127,10 +134,16 @@ public class IndexServiceBean {
     
     @EJB
     IndexBatchServiceBean indexBatchService;
+
+    @EJB
+    IndexQueueServiceBean indexQueueService;
     
     @EJB
     DatasetFieldServiceBean datasetFieldService;
 
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
     public static final String solrDocIdentifierDataverse = "dataverse_";
     public static final String solrDocIdentifierFile = "datafile_";
     public static final String solrDocIdentifierDataset = "dataset_";
@@ -335,7 +348,7 @@ public class IndexServiceBean {
     public void indexDatasetInNewTransaction(Long datasetId) { //Dataset dataset) {
         boolean doNormalSolrDocCleanUp = false;
         Dataset dataset = datasetService.findDeep(datasetId);
-        asyncIndexDataset(dataset, doNormalSolrDocCleanUp);
+        indexDatasetQueued(dataset, doNormalSolrDocCleanUp, Priority.BULK);
         dataset = null;
     }
     
@@ -346,6 +359,10 @@ public class IndexServiceBean {
     private static final Map<Long, Dataset> NEXT_TO_INDEX = new ConcurrentHashMap<>();
     // indexingNow is a set of dataset ids of datasets being indexed asynchronously right now
     private static final Map<Long, Boolean> INDEXING_NOW = new ConcurrentHashMap<>();
+    // ids of the objects of the index queue claimed and being indexed by this server right now, see renewIndexQueueClaims
+    private static final Set<Long> CLAIMED_NOW = ConcurrentHashMap.newKeySet();
+    // maximum number of queued indexings done by one run of processIndexQueue
+    private static final int INDEX_QUEUE_BATCH_SIZE = 10;
     // semaphore for async indexing
     private static final Semaphore ASYNC_INDEX_SEMAPHORE = new Semaphore(JvmSettings.MAX_ASYNC_INDEXES.lookupOptional(Integer.class).orElse(4), true);
     
@@ -408,14 +425,41 @@ public class IndexServiceBean {
      * one are skipped for the optimization reasons. For a more in depth discussion,
      * see the pull request: https://github.com/IQSS/dataverse/pull/9558
      * 
+     * The indexing is recorded in the persistent index queue, which does the
+     * skipping across all the servers: once the indexing gets a permit, it
+     * indexes the most urgent entry of the queue, which is not necessarily this
+     * dataset. If the queue cannot be used, the dataset is indexed right away,
+     * with the skipping done in memory.
+     * 
+     * The indexing is recorded, and started in the background, only once the
+     * transaction of the caller (if any) has committed: the queued indexing
+     * loads the dataset again, and would not see the changes of the caller
+     * before. Nothing is indexed if the transaction is rolled back.
+     * 
      * @param dataset                The dataset to be indexed.
      * @param doNormalSolrDocCleanUp Flag for normal Solr doc clean up.
      */
-    @Asynchronous
+    @TransactionAttribute(SUPPORTS)
     public void asyncIndexDataset(Dataset dataset, boolean doNormalSolrDocCleanUp) {
+        TransactionUtil.runAfterCommit(transactionRegistry,
+                () -> indexBatchService.indexDatasetInBackground(dataset, doNormalSolrDocCleanUp));
+    }
+
+    /**
+     * Records the indexing of a dataset in the persistent index queue and
+     * indexes the most urgent entry of the queue, see
+     * {@link #asyncIndexDataset(Dataset, boolean)}. Waits for a permit from the
+     * semaphore, so it is meant to run in the background.
+     */
+    public void indexDatasetQueued(Dataset dataset, boolean doNormalSolrDocCleanUp, Priority priority) {
+        boolean queued = enqueue(dataset.getId(), priority, doNormalSolrDocCleanUp);
         try {
             acquirePermitFromSemaphore();
-            doAyncIndexDataset(dataset, doNormalSolrDocCleanUp);
+            if (queued) {
+                indexNextQueued();
+            } else {
+                doAyncIndexDataset(dataset, doNormalSolrDocCleanUp);
+            }
         } catch (InterruptedException e) {
             String failureLogText = "Indexing failed: interrupted. You can kickoff a re-index of this dataset with: \r\n curl http://localhost:8080/api/admin/index/datasets/" + dataset.getId().toString();
             failureLogText += "\r\n" + e.getLocalizedMessage();
@@ -441,22 +485,118 @@ public class IndexServiceBean {
         }
     }
 
+    /**
+     * Claims the most urgent due entry of the persistent index queue and
+     * indexes its object, each time in a new transaction, for as long as the
+     * indexing of the object is requested again meanwhile. The caller must
+     * hold a permit from the semaphore.
+     *
+     * @return whether there was an entry to index
+     */
+    boolean indexNextQueued() {
+        List<IndexQueueEntry> claimed;
+        try {
+            claimed = indexQueueService.claim(1);
+        } catch (Exception e) {
+            logger.warning("Failed to claim an entry of the index queue: " + e.getMessage());
+            return false;
+        }
+        if (claimed.isEmpty()) {
+            return false;
+        }
+        IndexQueueEntry entry = claimed.get(0);
+        Long id = entry.getDvObjectId();
+        CLAIMED_NOW.add(id);
+        try {
+            while (entry != null) {
+                try (var timeContext = indexTimer.time()) {
+                    entry = indexBatchService.indexQueuedInNewTransaction(entry);
+                } catch (Exception e) {
+                    logger.warning("Failed to index queued dvobject " + id + ": " + e.getMessage());
+                    // the only place where the failure is recorded in the queue,
+                    // as the transaction of the indexing may have been rolled back
+                    failQueued(id, e);
+                    entry = null;
+                }
+            }
+        } finally {
+            CLAIMED_NOW.remove(id);
+        }
+        return true;
+    }
+
     @Asynchronous
     public void asyncIndexDatasetList(List<Dataset> datasets, boolean doNormalSolrDocCleanUp) {
         for(Dataset dataset : datasets) {
+            indexDatasetQueued(dataset, true, Priority.BULK);
+        }
+    }
+    
+    /**
+     * Indexes the entries of the persistent index queue that are due on this
+     * server and were not picked up by the indexing calls: retries of failed
+     * indexings, and indexings left behind by servers that went away. Runs on
+     * every server; each entry is claimed by only one. Every entry takes a
+     * permit from the semaphore and gets a transaction of its own.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    @TransactionAttribute(NOT_SUPPORTED)
+    public void processIndexQueue() {
+        for (int i = 0; i < INDEX_QUEUE_BATCH_SIZE; i++) {
             try {
                 acquirePermitFromSemaphore();
-                doAyncIndexDataset(dataset, true);
             } catch (InterruptedException e) {
-                String failureLogText = "Indexing failed: interrupted. You can kickoff a re-index of this dataset with: \r\n curl http://localhost:8080/api/admin/index/datasets/" + dataset.getId().toString();
-                failureLogText += "\r\n" + e.getLocalizedMessage();
-                LoggingUtil.writeOnSuccessFailureLog(null, failureLogText, dataset);
+                logger.warning("Processing of the index queue interrupted");
+                return;
+            }
+            try {
+                if (!indexNextQueued()) {
+                    return;
+                }
             } finally {
                 ASYNC_INDEX_SEMAPHORE.release();
             }
         }
     }
-    
+
+    /**
+     * Keeps the claims of this server on the queued indexings it is running
+     * from timing out, see dataverse.solr.index-queue.claim-timeout.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void renewIndexQueueClaims() {
+        try {
+            indexQueueService.renewClaims(new ArrayList<>(CLAIMED_NOW));
+        } catch (Exception e) {
+            logger.warning("Failed to renew the claims on the index queue: " + e.getMessage());
+        }
+    }
+
+    // The queue is a safety net: problems with it are logged, but do not stop the indexing itself
+
+    private boolean enqueue(Long id, Priority priority, boolean doNormalSolrDocCleanUp) {
+        try {
+            indexQueueService.enqueue(id, priority, doNormalSolrDocCleanUp);
+            return true;
+        } catch (Exception e) {
+            logger.warning("Failed to add dvobject " + id + " to the index queue: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void failQueued(Long id, Exception failure) {
+        // the failure of a bean method comes wrapped by the container
+        Throwable cause = failure;
+        while (cause instanceof EJBException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        try {
+            indexQueueService.failed(id, String.valueOf(cause.getLocalizedMessage()));
+        } catch (Exception e) {
+            logger.warning("Failed to record the failed indexing of dvobject " + id + " in the index queue: " + e.getMessage());
+        }
+    }
+
     public void indexDvObject(DvObject objectIn) throws  SolrServerException, IOException {
         if (objectIn.isInstanceofDataset() ){
             asyncIndexDataset((Dataset)objectIn, true);
@@ -1743,6 +1883,19 @@ public class IndexServiceBean {
             topOfPath = rootDataverse;
         }
         if (!dataverse.equals(rootDataverse)) {
+            // null if not loaded, or stale after a move in this persistence context
+            List<Long> ancestorIds = dataverse.getAncestorIds();
+            if (ancestorIds != null && !ancestorIds.isEmpty()) {
+                // the ancestor path lists the owners from the root down, without
+                // recursing through them
+                for (Long ancestorId : ancestorIds) {
+                    if (!ancestorId.equals(rootDataverse.getId())) {
+                        segments.add(ancestorId.toString());
+                    }
+                }
+                segments.add(dataverse.getId().toString());
+                return segments;
+            }
             // important when creating root dataverse
             if (dataverse.getOwner() != null) {
                 findPathSegments(dataverse.getOwner(), segments, topOfPath);
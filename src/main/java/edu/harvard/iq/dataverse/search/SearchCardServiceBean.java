@@ -0,0 +1,163 @@
+package edu.harvard.iq.dataverse.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.harvard.iq.dataverse.DataFileServiceBean;
+import edu.harvard.iq.dataverse.Dataset;
+import edu.harvard.iq.dataverse.DatasetVersionServiceBean;
+import edu.harvard.iq.dataverse.DataverseServiceBean;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+
+/**
+ * Hydrates a page of search results ("cards") with the database values the
+ * cards show, with a fixed number of queries per page rather than a few
+ * queries per card.
+ *
+ * Whether a published dataset version has an automatically selected thumbnail
+ * does not change once the version is published, so that answer is cached
+ * across requests, for at most dataverse.search.thumbnail-cache.max-age
+ * seconds (which bounds the effect of e.g. restricting a published file).
+ */
+@Singleton
+public class SearchCardServiceBean {
+
+    private static final Logger logger = Logger.getLogger(SearchCardServiceBean.class.getCanonicalName());
+
+    @EJB
+    DataverseServiceBean dataverseService;
+    @EJB
+    DatasetVersionServiceBean datasetVersionService;
+    @EJB
+    DataFileServiceBean dataFileService;
+
+    private final Cache<Long, Optional<Long>> releasedVersionThumbnails = Caffeine.newBuilder()
+            .maximumSize(JvmSettings.SEARCH_THUMBNAIL_CACHE_MAXSIZE.lookup(Integer.class))
+            .expireAfterWrite(Duration.of(JvmSettings.SEARCH_THUMBNAIL_CACHE_MAXAGE.lookup(Integer.class), ChronoUnit.SECONDS))
+            .build();
+
+    /**
+     * Populates the dataverse, dataset and file cards of a page of search
+     * results, in 1 batch per type of card.
+     *
+     * @param solrSearchResults the cards, with their entity ids
+     */
+    @Lock(LockType.READ)
+    public void populateSearchCards(List<SolrSearchResult> solrSearchResults) {
+        List<SolrSearchResult> dataverseCards = new ArrayList<>();
+        List<SolrSearchResult> datasetCards = new ArrayList<>();
+        List<SolrSearchResult> fileCards = new ArrayList<>();
+        for (SolrSearchResult solrSearchResult : solrSearchResults) {
+            if (solrSearchResult.getType().equals("dataverses")) {
+                dataverseCards.add(solrSearchResult);
+            } else if (solrSearchResult.getType().equals("datasets")) {
+                datasetCards.add(solrSearchResult);
+            } else if (solrSearchResult.getType().equals("files")) {
+                fileCards.add(solrSearchResult);
+            }
+        }
+
+        if (!dataverseCards.isEmpty()) {
+            dataverseService.populateDvSearchCards(dataverseCards);
+        }
+        if (!datasetCards.isEmpty()) {
+            datasetVersionService.populateDatasetSearchCards(datasetCards);
+        }
+        if (!fileCards.isEmpty()) {
+            dataFileService.populateFileSearchCards(fileCards);
+        }
+    }
+
+    /**
+     * Finds the automatically selected thumbnails of the dataset cards that
+     * need one: those of local datasets that have neither an assigned
+     * thumbnail file nor the generic thumbnail selected. Published versions
+     * are served from the cache; the already generated thumbnails of the other
+     * versions are looked up in 1 query.
+     *
+     * @param solrSearchResults a page of populated search results
+     * @return the ids of the thumbnail files, by version id. Published versions
+     *         known to have no thumbnail are mapped to {@code null}; versions
+     *         without a generated thumbnail are missing, and are left to
+     *         {@link #getVersionThumbnail(Long, boolean)}.
+     */
+    @Lock(LockType.READ)
+    public Map<Long, Long> findVersionThumbnails(List<SolrSearchResult> solrSearchResults) {
+        Map<Long, Long> thumbnailFileIds = new HashMap<>();
+        Set<Long> releasedVersionIds = new HashSet<>();
+        Set<Long> versionIdsToLookUp = new HashSet<>();
+
+        for (SolrSearchResult solrSearchResult : solrSearchResults) {
+            if (!needsVersionThumbnail(solrSearchResult)) {
+                continue;
+            }
+            Long versionId = solrSearchResult.getDatasetVersionId();
+            if (solrSearchResult.isPublishedState()) {
+                Optional<Long> cached = releasedVersionThumbnails.getIfPresent(versionId);
+                if (cached != null) {
+                    thumbnailFileIds.put(versionId, cached.orElse(null));
+                    continue;
+                }
+                releasedVersionIds.add(versionId);
+            }
+            versionIdsToLookUp.add(versionId);
+        }
+
+        if (versionIdsToLookUp.isEmpty()) {
+            return thumbnailFileIds;
+        }
+
+        Map<Long, Long> generatedThumbnails = datasetVersionService.getGeneratedThumbnailsByVersionIds(versionIdsToLookUp);
+        generatedThumbnails.forEach((versionId, thumbnailFileId) -> {
+            thumbnailFileIds.put(versionId, thumbnailFileId);
+            if (releasedVersionIds.contains(versionId)) {
+                releasedVersionThumbnails.put(versionId, Optional.of(thumbnailFileId));
+            }
+        });
+        logger.fine("Looked up the thumbnails of " + versionIdsToLookUp.size() + " dataset versions, found "
+                + generatedThumbnails.size() + "; " + (thumbnailFileIds.size() - generatedThumbnails.size()) + " were cached");
+
+        return thumbnailFileIds;
+    }
+
+    /**
+     * Selects (and, if need be, generates) the thumbnail of a version that
+     * {@link #findVersionThumbnails(List)} found none for.
+     *
+     * @param versionId the id of the version
+     * @param released whether the version is published, in which case the
+     *                 answer is cached
+     * @return the id of the thumbnail file, or {@code null} if there is none.
+     */
+    @Lock(LockType.READ)
+    public Long getVersionThumbnail(Long versionId, boolean released) {
+        if (!released) {
+            return datasetVersionService.getThumbnailByVersionId(versionId);
+        }
+        return releasedVersionThumbnails.get(versionId, id -> Optional.ofNullable(datasetVersionService.getThumbnailByVersionId(id))).orElse(null);
+    }
+
+    static boolean needsVersionThumbnail(SolrSearchResult solrSearchResult) {
+        if (!"datasets".equals(solrSearchResult.getType()) || solrSearchResult.isHarvested()) {
+            return false;
+        }
+        if (!(solrSearchResult.getEntity() instanceof Dataset)) {
+            return false;
+        }
+        Dataset dataset = (Dataset) solrSearchResult.getEntity();
+        return !dataset.isUseGenericThumbnail() && dataset.getThumbnailFile() == null;
+    }
+}
@@ -67,6 +67,8 @@ public class SearchIncludeFragment implements java.io.Serializable {
     PermissionServiceBean permissionService;
     @EJB
     DvObjectServiceBean dvObjectService;
+    @EJB
+    SearchCardServiceBean searchCardService;
     @Inject
     DataverseSession session;
     @Inject
@@ -472,6 +474,7 @@ public class SearchIncludeFragment implements java.io.Serializable {
              * solrSearchResult.setCitation method but only the dataset card in
              * the UI (currently) shows this "citation" field.
              */
+            List<SolrSearchResult> searchCards = new ArrayList<>();
             for (SolrSearchResult solrSearchResult : searchResults) {
                 if (solrSearchResult.getEntityId() == null) {
                     // avoiding EJBException a la https://redmine.hmdc.harvard.edu/issues/3809
@@ -483,9 +486,11 @@ public class SearchIncludeFragment implements java.io.Serializable {
                 solrSearchResult.setIsInTree(true);
                 // (we'll review this later!)
                 
+                // (the cards are populated from the database all at once,
+                // below)
+                searchCards.add(solrSearchResult);
+                
                 if (solrSearchResult.getType().equals("dataverses")) {
-                    dataverseService.populateDvSearchCard(solrSearchResult);
-                    
                     /*
                     Dataverses cannot be harvested yet.
                     if (isHarvestedDataverse(solrSearchResult.getEntityId())) {
@@ -493,8 +498,6 @@ public class SearchIncludeFragment implements java.io.Serializable {
                     }*/
 
                 } else if (solrSearchResult.getType().equals("datasets")) {
-                    datasetVersionService.populateDatasetSearchCard(solrSearchResult);
-
                     // @todo - the 3 lines below, should they be moved inside
                     // searchServiceBean.search()?
                     String deaccesssionReason = solrSearchResult.getDeaccessionReason();
@@ -503,13 +506,12 @@ public class SearchIncludeFragment implements java.io.Serializable {
                     }
                     
                 } else if (solrSearchResult.getType().equals("files")) {
-                    dataFileService.populateFileSearchCard(solrSearchResult);
-
                     /**
                      * @todo: show DataTable variables
                      */
                 }
             }
+            searchCardService.populateSearchCards(searchCards);
 
             
             setDisplayCardValues();
@@ -1412,6 +1414,7 @@ public class SearchIncludeFragment implements java.io.Serializable {
     public void setDisplayCardValues() {
 
         Set<Long> harvestedDatasetIds = null;
+        thumbnailServiceWrapper.prefetchCardImages(searchResultsList);
         for (SolrSearchResult result : searchResultsList) {
             //logger.info("checking DisplayImage for the search result " + i++);
             if (result.getType().equals("dataverses")) {
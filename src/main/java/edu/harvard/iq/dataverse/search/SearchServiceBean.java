@@ -9,7 +9,6 @@ import edu.harvard.iq.dataverse.Dataverse;
 import edu.harvard.iq.dataverse.DataverseFacet;
 import edu.harvard.iq.dataverse.DataverseMetadataBlockFacet;
 import edu.harvard.iq.dataverse.DvObjectServiceBean;
-import edu.harvard.iq.dataverse.authorization.groups.Group;
 import edu.harvard.iq.dataverse.authorization.groups.GroupServiceBean;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.authorization.users.GuestUser;
@@ -1002,11 +1001,11 @@ public class SearchServiceBean {
         }
 
         AuthenticatedUser au = null; 
-        Set<Group> groups;
+        Set<String> groupAliases;
         
         if (user instanceof GuestUser) {
             // Yes, GuestUser may be part of one or more groups; such as IP Groups.
-            groups = groupService.collectAncestors(groupService.groupsFor(dataverseRequest));
+            groupAliases = groupService.collectAncestorAliases(dataverseRequest);
         } else {
             if (!(user instanceof AuthenticatedUser)) {
                 logger.severe("Should never reach here. A User must be an AuthenticatedUser or a Guest");
@@ -1046,7 +1045,7 @@ public class SearchServiceBean {
             // (5) Work with Authenticated User who is not a Superuser
             // ----------------------------------------------------
 
-            groups = groupService.collectAncestors(groupService.groupsFor(dataverseRequest));
+            groupAliases = groupService.collectAncestorAliases(dataverseRequest);
         }
         
         if (FeatureFlags.AVOID_EXPENSIVE_SOLR_JOIN.enabled()) {
@@ -1081,9 +1080,8 @@ public class SearchServiceBean {
             // In addition to the user referenced directly, we will also 
             // add joins on all the non-public groups that may exist for the
             // user:
-            for (Group group : groups) {
-                String groupAlias = group.getAlias();
-                if (groupAlias != null && !groupAlias.isEmpty() && !groupAlias.startsWith("builtIn")) {
+            for (String groupAlias : groupAliases) {
+                if (!groupAlias.isEmpty() && !groupAlias.startsWith("builtIn")) {
                     groupCounter++;
                     if (groupCounter > 1) {
                         sbgroups.append(" OR ");
@@ -1127,10 +1125,9 @@ public class SearchServiceBean {
             StringBuilder sb = new StringBuilder();
             
             String groupsFromProviders = "";
-            for (Group group : groups) {
-                logger.fine("found group " + group.getIdentifier() + " with alias " + group.getAlias());
-                String groupAlias = group.getAlias();
-                if (groupAlias != null && !groupAlias.isEmpty()) {
+            for (String groupAlias : groupAliases) {
+                logger.fine("found group with alias " + groupAlias);
+                if (!groupAlias.isEmpty()) {
                     sb.append(" OR ");
                     // i.e. group_builtIn/all-users, ip/ipGroup3
                     sb.append(IndexServiceBean.getGroupPrefix()).append(groupAlias);
@@ -1179,10 +1176,9 @@ public class SearchServiceBean {
          */
         String groupsFromProviders = "";
         StringBuilder sb = new StringBuilder();
-        for (Group group : groups) {
-            logger.fine("found group " + group.getIdentifier() + " with alias " + group.getAlias());
-            String groupAlias = group.getAlias();
-            if (groupAlias != null && !groupAlias.isEmpty()) {
+        for (String groupAlias : groupAliases) {
+            logger.fine("found group with alias " + groupAlias);
+            if (!groupAlias.isEmpty()) {
                 sb.append(" OR ");
                 // i.e. group_builtIn/all-users, group_builtIn/authenticated-users, group_1-explictGroup1, group_shib/2
                 sb.append(IndexServiceBean.getGroupPrefix() + groupAlias);
@@ -3,7 +3,12 @@ package edu.harvard.iq.dataverse.search;
 import edu.harvard.iq.dataverse.api.Util;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.solr.common.SolrInputDocument;
@@ -57,6 +62,40 @@ public class SearchUtil {
         return solrInputDocument;
     }
 
+    /**
+     * Builds an atomic update of the principals of an existing permission
+     * document, adding and removing only those that changed.
+     *
+     * @param solrId the id of the permission document
+     * @param current the principals currently in the document
+     * @param desired the principals that should be in the document
+     * @return the update, or {@code null} if the document is up to date
+     */
+    public static SolrInputDocument createPermissionUpdate(String solrId, Collection<?> current, Collection<String> desired) {
+        Set<String> currentPrincipals = new LinkedHashSet<>();
+        if (current != null) {
+            current.forEach(principal -> currentPrincipals.add(principal.toString()));
+        }
+        Set<String> added = new LinkedHashSet<>(desired);
+        added.removeAll(currentPrincipals);
+        Set<String> removed = new LinkedHashSet<>(currentPrincipals);
+        removed.removeAll(desired);
+        if (added.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> operations = new LinkedHashMap<>();
+        if (!added.isEmpty()) {
+            operations.put("add-distinct", new ArrayList<>(added));
+        }
+        if (!removed.isEmpty()) {
+            operations.put("remove", new ArrayList<>(removed));
+        }
+        SolrInputDocument solrInputDocument = new SolrInputDocument();
+        solrInputDocument.addField(SearchFields.ID, solrId);
+        solrInputDocument.addField(SearchFields.DISCOVERABLE_BY, operations);
+        return solrInputDocument;
+    }
+
     public static String getTimestampOrNull(Timestamp timestamp) {
         if (timestamp == null) {
             return null;
@@ -25,8 +25,10 @@ import jakarta.ejb.Stateless;
 import jakarta.inject.Named;
 import jakarta.json.Json;
 import jakarta.json.JsonObjectBuilder;
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrInputDocument;
 
 @Named
@@ -50,6 +52,8 @@ public class SolrIndexServiceBean {
     @EJB
     SolrClientService solrClientService;
 
+    private static final int PERMISSION_BATCH_SIZE = 1000;
+
     public static String numRowsClearedByClearAllIndexTimes = "numRowsClearedByClearAllIndexTimes";
     public static String messageString = "message";
 
@@ -322,16 +326,10 @@ public class SolrIndexServiceBean {
             return new IndexResponse("problem indexing... null DvObject passed in");
         }
         long dvObjectId = dvObject.getId();
-        Collection<SolrInputDocument> docs = new ArrayList<>();
 
         List<DvObjectSolrDoc> definitionPoints = determineSolrDocs(dvObject);
-
-        for (DvObjectSolrDoc dvObjectSolrDoc : definitionPoints) {
-            SolrInputDocument solrInputDocument = SearchUtil.createSolrDoc(dvObjectSolrDoc);
-            docs.add(solrInputDocument);
-        }
         try {
-            persistToSolr(docs);
+            int written = persistPermissionChanges(definitionPoints);
             boolean updatePermissionTimeSuccessful = false;
             if (dvObject != null) {
                 DvObject savedDvObject = dvObjectService.updatePermissionIndexTime(dvObject);
@@ -339,7 +337,8 @@ public class SolrIndexServiceBean {
                     updatePermissionTimeSuccessful = true;
                 }
             }
-            return new IndexResponse("attempted to index permissions for DvObject " + dvObjectId + " and updatePermissionTimeSuccessful was " + updatePermissionTimeSuccessful);
+            return new IndexResponse("attempted to index permissions for DvObject " + dvObjectId + " (" + written + " of "
+                    + definitionPoints.size() + " Solr documents changed) and updatePermissionTimeSuccessful was " + updatePermissionTimeSuccessful);
         } catch (SolrServerException | IOException ex) {
             return new IndexResponse("problem indexing");
         }
@@ -375,7 +374,7 @@ public class SolrIndexServiceBean {
      */
     public IndexResponse indexPermissionsOnSelfAndChildren(DvObject definitionPoint) {
         List<DvObject> dvObjectsToReindexPermissionsFor = new ArrayList<>();
-        List<DataFile> filesToReindexAsBatch = new ArrayList<>();
+        List<DvObjectSolrDoc> permissionDocs = new ArrayList<>();
         /**
          * @todo Re-indexing the definition point itself seems to be necessary
          * for revoke but not necessarily grant.
@@ -387,108 +386,96 @@ public class SolrIndexServiceBean {
             Dataverse selfDataverse = (Dataverse) definitionPoint;
             if (!selfDataverse.equals(dataverseService.findRootDataverse())) {
                 dvObjectsToReindexPermissionsFor.add(definitionPoint);
+                permissionDocs.addAll(determineSolrDocs(definitionPoint));
             }
             List<Dataset> directChildDatasetsOfDvDefPoint = datasetService.findByOwnerId(selfDataverse.getId());
             for (Dataset dataset : directChildDatasetsOfDvDefPoint) {
                 dvObjectsToReindexPermissionsFor.add(dataset);
-                for (DataFile datafile : filesToReIndexPermissionsFor(dataset)) {
-                    filesToReindexAsBatch.add(datafile);
-                }
+                permissionDocs.addAll(constructDatasetSolrDocs(dataset));
+                permissionDocs.addAll(constructDatafileSolrDocsFromDataset(dataset));
             }
         } else if (definitionPoint.isInstanceofDataset()) {
             dvObjectsToReindexPermissionsFor.add(definitionPoint);
             // index files
             Dataset dataset = (Dataset) definitionPoint;
-            for (DataFile datafile : filesToReIndexPermissionsFor(dataset)) {
-                filesToReindexAsBatch.add(datafile);
-            }
+            permissionDocs.addAll(constructDatasetSolrDocs(dataset));
+            permissionDocs.addAll(constructDatafileSolrDocsFromDataset(dataset));
         } else {
             dvObjectsToReindexPermissionsFor.add(definitionPoint);
+            permissionDocs.addAll(determineSolrDocs(definitionPoint));
         }
 
         /**
-         * @todo Error handling? What to do with response?
-         *
          * @todo Should update timestamps, probably, even thought these are
          * files, see https://github.com/IQSS/dataverse/issues/2421
          */
-        String response = reindexFilesInBatches(filesToReindexAsBatch);
+        int written;
+        try {
+            written = persistPermissionChanges(permissionDocs);
+        } catch (SolrServerException | IOException ex) {
+            return new IndexResponse("problem indexing permissions for " + definitionPoint + ": " + ex);
+        }
 
         for (DvObject dvObject : dvObjectsToReindexPermissionsFor) {
-            /**
-             * @todo do something with this response
-             */
-            IndexResponse indexResponse = indexPermissionsForOneDvObject(dvObject);
+            dvObjectService.updatePermissionIndexTime(dvObject);
         }
         
         return new IndexResponse("Number of dvObject permissions indexed for " + definitionPoint
-                + ": " + dvObjectsToReindexPermissionsFor.size()
+                + ": " + dvObjectsToReindexPermissionsFor.size() + " (" + written + " of " + permissionDocs.size()
+                + " Solr documents changed)"
         );
     }
 
-    private String reindexFilesInBatches(List<DataFile> filesToReindexPermissionsFor) {
-        List<SolrInputDocument> docs = new ArrayList<>();
-        Map<Long, List<Long>> byParentId = new HashMap<>();
-        Map<Long, List<String>> permStringByDatasetVersion = new HashMap<>();
-        for (DataFile file : filesToReindexPermissionsFor) {
-            Dataset dataset = (Dataset) file.getOwner();
-            Map<DatasetVersion.VersionState, Boolean> desiredCards = searchPermissionsService.getDesiredCards(dataset);
-            for (DatasetVersion datasetVersionFileIsAttachedTo : datasetVersionsToBuildCardsFor(dataset)) {
-                boolean cardShouldExist = desiredCards.get(datasetVersionFileIsAttachedTo.getVersionState());
-                if (cardShouldExist) {
-                    List<String> cachedPermission = permStringByDatasetVersion.get(datasetVersionFileIsAttachedTo.getId());
-                    if (cachedPermission == null) {
-                        logger.fine("no cached permission! Looking it up...");
-                        List<DvObjectSolrDoc> fileSolrDocs = constructDatafileSolrDocs((DataFile) file, permStringByDatasetVersion);
-                        for (DvObjectSolrDoc fileSolrDoc : fileSolrDocs) {
-                            Long datasetVersionId = fileSolrDoc.getDatasetVersionId();
-                            if (datasetVersionId != null) {
-                                permStringByDatasetVersion.put(datasetVersionId, fileSolrDoc.getPermissions());
-                                SolrInputDocument solrDoc = SearchUtil.createSolrDoc(fileSolrDoc);
-                                docs.add(solrDoc);
-                            }
-                        }
-                    } else {
-                        logger.fine("cached permission is " + cachedPermission);
-                        List<DvObjectSolrDoc> fileSolrDocsBasedOnCachedPermissions = constructDatafileSolrDocs((DataFile) file, permStringByDatasetVersion);
-                        for (DvObjectSolrDoc fileSolrDoc : fileSolrDocsBasedOnCachedPermissions) {
-                            SolrInputDocument solrDoc = SearchUtil.createSolrDoc(fileSolrDoc);
-                            docs.add(solrDoc);
-                        }
+    /**
+     * Writes permission documents, as far as they differ from what is in Solr.
+     * Missing documents are added in full; of existing ones, only the
+     * principals gained or lost are added or removed, with atomic updates.
+     * Documents that are up to date are not written at all.
+     *
+     * @return the number of documents written
+     */
+    private int persistPermissionChanges(List<DvObjectSolrDoc> permissionDocs) throws SolrServerException, IOException {
+        int written = 0;
+        for (int from = 0; from < permissionDocs.size(); from += PERMISSION_BATCH_SIZE) {
+            List<DvObjectSolrDoc> batch = permissionDocs.subList(from, Math.min(from + PERMISSION_BATCH_SIZE, permissionDocs.size()));
+            Map<String, Collection<Object>> currentPrincipals = findDiscoverableBy(batch);
+            List<SolrInputDocument> docs = new ArrayList<>();
+            for (DvObjectSolrDoc permissionDoc : batch) {
+                String solrId = permissionDoc.getSolrId() + IndexServiceBean.discoverabilityPermissionSuffix;
+                if (!currentPrincipals.containsKey(solrId)) {
+                    docs.add(SearchUtil.createSolrDoc(permissionDoc));
+                } else {
+                    SolrInputDocument update = SearchUtil.createPermissionUpdate(solrId, currentPrincipals.get(solrId), permissionDoc.getPermissions());
+                    if (update != null) {
+                        docs.add(update);
                     }
                 }
             }
-            Long parent = file.getOwner().getId();
-            List<Long> existingList = byParentId.get(parent);
-            if (existingList == null) {
-                List<Long> empty = new ArrayList<>();
-                byParentId.put(parent, empty);
-            } else {
-                List<Long> updatedList = existingList;
-                updatedList.add(file.getId());
-                byParentId.put(parent, updatedList);
-            }
-        }
-        try {
             persistToSolr(docs);
-            return " " + filesToReindexPermissionsFor.size() + " files indexed across " + docs.size() + " Solr documents ";
-        } catch (SolrServerException | IOException ex) {
-            return " tried to reindex " + filesToReindexPermissionsFor.size() + " files indexed across " + docs.size() + " Solr documents but caught exception: " + ex;
+            written += docs.size();
         }
+        return written;
     }
 
-    private List<DataFile> filesToReIndexPermissionsFor(Dataset dataset) {
-        List<DataFile> filesToReindexPermissionsFor = new ArrayList<>();
-        Map<DatasetVersion.VersionState, Boolean> desiredCards = searchPermissionsService.getDesiredCards(dataset);
-        for (DatasetVersion version : datasetVersionsToBuildCardsFor(dataset)) {
-            boolean cardShouldExist = desiredCards.get(version.getVersionState());
-            if (cardShouldExist) {
-                for (FileMetadata fileMetadata : version.getFileMetadatas()) {
-                    filesToReindexPermissionsFor.add(fileMetadata.getDataFile());
-                }
-            }
+    /**
+     * @return the principals in the existing permission documents of the
+     *         passed objects, by Solr id. Read with a realtime get, which also
+     *         sees the documents written since the last (soft) commit; a
+     *         search would miss them and the update would then overwrite them.
+     */
+    private Map<String, Collection<Object>> findDiscoverableBy(List<DvObjectSolrDoc> permissionDocs) throws SolrServerException, IOException {
+        List<String> solrIds = new ArrayList<>();
+        for (DvObjectSolrDoc permissionDoc : permissionDocs) {
+            solrIds.add(permissionDoc.getSolrId() + IndexServiceBean.discoverabilityPermissionSuffix);
+        }
+        SolrQuery fields = new SolrQuery().setFields(SearchFields.ID, SearchFields.DISCOVERABLE_BY);
+
+        Map<String, Collection<Object>> currentPrincipals = new HashMap<>();
+        for (SolrDocument doc : solrClientService.getSolrClient().getById(solrIds, fields)) {
+            Collection<Object> principals = doc.getFieldValues(SearchFields.DISCOVERABLE_BY);
+            currentPrincipals.put((String) doc.getFieldValue(SearchFields.ID), principals == null ? new ArrayList<>() : principals);
         }
-        return filesToReindexPermissionsFor;
+        return currentPrincipals;
     }
 
     public IndexResponse deleteMultipleSolrIds(List<String> solrIdsToDelete) {
@@ -0,0 +1,298 @@
+package edu.harvard.iq.dataverse.search;
+
+import edu.harvard.iq.dataverse.DvObject;
+import edu.harvard.iq.dataverse.DataverseServiceBean;
+import edu.harvard.iq.dataverse.Dataverse;
+import edu.harvard.iq.dataverse.DvObjectServiceBean;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Named;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * Brings the index of everything under a dataverse up to date after the
+ * dataverse was moved.
+ *
+ * Of the Solr documents of the objects under the dataverse, only the subtree
+ * paths depend on where the dataverse is. Rather than rebuilding these
+ * documents, the paths are computed from the ancestor paths in the database and
+ * set with atomic updates, a batch of objects at a time. Permission documents
+ * are only rebuilt for the dataverses that inherit their permissions from the
+ * new owner.
+ */
+@Named
+@Stateless
+public class SubtreeIndexServiceBean {
+
+    private static final Logger logger = Logger.getLogger(SubtreeIndexServiceBean.class.getCanonicalName());
+
+    static final int BATCH_SIZE = 1000;
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    private EntityManager em;
+
+    @EJB
+    IndexServiceBean indexService;
+    @EJB
+    SolrIndexServiceBean solrIndexService;
+    @EJB
+    SolrClientService solrClientService;
+    @EJB
+    DataverseServiceBean dataverseService;
+    @EJB
+    DvObjectServiceBean dvObjectService;
+
+    /**
+     * Reindexes a moved dataverse, updates the subtree paths of everything
+     * under it and the permissions of what inherits them from the new owner.
+     * Runs outside of a transaction, as it can take a while for large subtrees.
+     *
+     * @param dataverse the moved dataverse
+     * @return a summary of what was done
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public String reindexMovedSubtree(Dataverse dataverse) {
+        long start = System.currentTimeMillis();
+        String pattern = dvObjectService.findDescendantPathPattern(dataverse.getId());
+        if (pattern == null) {
+            return "Dataverse " + dataverse.getId() + " not found";
+        }
+        Long rootDataverseId = dataverseService.findRootDataverse().getId();
+
+        try {
+            indexService.indexDataverse(dataverse, false);
+        } catch (SolrServerException | IOException | RuntimeException e) {
+            logger.warning("Failed to index moved dataverse " + dataverse.getId() + ": " + e.getMessage());
+        }
+
+        long total = ((Number) em.createNativeQuery("SELECT COUNT(*) FROM dvobject WHERE ancestorpath LIKE ?1")
+                .setParameter(1, pattern).getSingleResult()).longValue();
+        logger.info("Updating the subtree paths of " + total + " objects under dataverse " + dataverse.getId());
+
+        Map<Long, List<Long>> linkingDataverses = findLinkingDataverses(dataverse.getId(), pattern);
+        Map<Long, List<String>> linkingPathsCache = new HashMap<>();
+        Function<Long, List<String>> linkingPaths = linkingId -> linkingPathsCache.computeIfAbsent(linkingId, id -> {
+            List<Long> segments = withoutRoot(dvObjectService.findAncestorIds(id), rootDataverseId);
+            segments.add(id);
+            return cumulativePaths(segments);
+        });
+
+        long processed = 0;
+        long solrDocsUpdated = 0;
+        int failedBatches = 0;
+        Long lastId = 0L;
+        while (true) {
+            List<Object[]> rows = em.createNativeQuery("SELECT id, dtype, ancestorpath FROM dvobject"
+                    + " WHERE ancestorpath LIKE ?1 AND id > ?2 ORDER BY id LIMIT ?3")
+                    .setParameter(1, pattern)
+                    .setParameter(2, lastId)
+                    .setParameter(3, BATCH_SIZE)
+                    .getResultList();
+            if (rows.isEmpty()) {
+                break;
+            }
+            Map<Long, List<String>> pathsById = new HashMap<>();
+            for (Object[] row : rows) {
+                Long id = ((Number) row[0]).longValue();
+                List<Long> ancestorIds = DvObject.parseAncestorPath((String) row[2]);
+                Long linkableId = id;
+                if (DvObject.DType.DataFile.getDType().equals(row[1]) && !ancestorIds.isEmpty()) {
+                    // files have the paths of their dataset
+                    linkableId = ancestorIds.remove(ancestorIds.size() - 1);
+                }
+                pathsById.put(id, subtreePaths(withoutRoot(ancestorIds, rootDataverseId), linkableId, linkingDataverses, linkingPaths));
+                lastId = id;
+            }
+            try {
+                solrDocsUpdated += setSubtreePaths(pathsById);
+            } catch (SolrServerException | IOException | RuntimeException e) {
+                failedBatches++;
+                logger.warning("Failed to update the subtree paths of objects " + ((Number) rows.get(0)[0]).longValue()
+                        + " to " + lastId + " under dataverse " + dataverse.getId() + ": " + e.getMessage());
+            }
+            processed += rows.size();
+            logger.info("Updated the subtree paths of " + processed + " of " + total + " objects under dataverse "
+                    + dataverse.getId() + " (" + solrDocsUpdated + " Solr documents)");
+        }
+
+        int permissionsReindexed = 0;
+        for (Long id : findDataversesInheritingPermissions(dataverse, pattern)) {
+            solrIndexService.indexPermissionsOnSelfAndChildren(id);
+            permissionsReindexed++;
+        }
+
+        String status = "Updated the subtree paths of " + processed + " objects (" + solrDocsUpdated
+                + " Solr documents) and the permissions of " + permissionsReindexed + " dataverses and their children under dataverse "
+                + dataverse.getId() + " in " + (System.currentTimeMillis() - start) + " milliseconds.";
+        if (failedBatches > 0) {
+            status += " " + failedBatches + " batches failed, please check the log for more information.";
+        }
+        logger.info(status);
+        return status;
+    }
+
+    /**
+     * Sets the subtree paths of the existing Solr documents of the passed
+     * objects, leaving their other fields alone.
+     *
+     * @return the number of Solr documents updated
+     */
+    private int setSubtreePaths(Map<Long, List<String>> pathsById) throws SolrServerException, IOException {
+        SolrQuery solrQuery = new SolrQuery("*:*");
+        solrQuery.addFilterQuery("{!terms f=" + SearchFields.ENTITY_ID + "}"
+                + pathsById.keySet().stream().map(String::valueOf).collect(Collectors.joining(",")));
+        solrQuery.setFields(SearchFields.ID, SearchFields.ENTITY_ID);
+        solrQuery.setRows(pathsById.size() * 3);
+
+        List<SolrInputDocument> docs = new ArrayList<>();
+        long numFound;
+        do {
+            solrQuery.setStart(docs.size());
+            QueryResponse response = solrClientService.getSolrClient().query(solrQuery);
+            numFound = response.getResults().getNumFound();
+            for (SolrDocument doc : response.getResults()) {
+                List<String> paths = pathsById.get(((Number) doc.getFieldValue(SearchFields.ENTITY_ID)).longValue());
+                SolrInputDocument update = new SolrInputDocument();
+                update.addField(SearchFields.ID, doc.getFieldValue(SearchFields.ID));
+                // the update must not create a document that was deleted meanwhile
+                update.addField("_version_", 1L);
+                update.addField(SearchFields.SUBTREE, Map.of("set", paths));
+                docs.add(update);
+            }
+            if (response.getResults().isEmpty()) {
+                break;
+            }
+        } while (docs.size() < numFound);
+
+        if (!docs.isEmpty()) {
+            solrClientService.getSolrClient().add(docs);
+        }
+        return docs.size();
+    }
+
+    /**
+     * @return the ids of the dataverses linking the objects under the passed
+     *         dataverse, the dataverse itself and its owners, by linked object
+     */
+    private Map<Long, List<Long>> findLinkingDataverses(Long dataverseId, String pattern) {
+        List<Object[]> rows = em.createNativeQuery("SELECT l.dataverse_id, l.linkingdataverse_id"
+                + " FROM dataverselinkingdataverse l JOIN dvobject o ON o.id = l.dataverse_id"
+                + " WHERE o.ancestorpath LIKE ?1 OR (SELECT ancestorpath || id || '/' FROM dvobject WHERE id = ?2) LIKE '%/' || o.id || '/%'"
+                + " UNION ALL SELECT l.dataset_id, l.linkingdataverse_id"
+                + " FROM datasetlinkingdataverse l JOIN dvobject o ON o.id = l.dataset_id"
+                + " WHERE o.ancestorpath LIKE ?1")
+                .setParameter(1, pattern)
+                .setParameter(2, dataverseId)
+                .getResultList();
+        Map<Long, List<Long>> linkingDataverses = new HashMap<>();
+        for (Object[] row : rows) {
+            linkingDataverses.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>())
+                    .add(((Number) row[1]).longValue());
+        }
+        return linkingDataverses;
+    }
+
+    /**
+     * @return the ids of the passed dataverse and the dataverses under it that
+     *         get their permissions from the new owner, that is, that are not
+     *         permission roots and have none between them and the owner.
+     */
+    private List<Long> findDataversesInheritingPermissions(Dataverse dataverse, String pattern) {
+        List<Long> inheriting = new ArrayList<>();
+        if (dataverse.isPermissionRoot()) {
+            return inheriting;
+        }
+        inheriting.add(dataverse.getId());
+
+        List<Object[]> rows = new ArrayList<>(em.createNativeQuery("SELECT o.id, o.ancestorpath, d.permissionroot"
+                + " FROM dvobject o JOIN dataverse d ON d.id = o.id WHERE o.ancestorpath LIKE ?1")
+                .setParameter(1, pattern)
+                .getResultList());
+        // owners come before the dataverses they own
+        rows.sort(Comparator.comparingInt(row -> ((String) row[1]).length()));
+        Set<Long> inheritingIds = new HashSet<>(inheriting);
+        for (Object[] row : rows) {
+            List<Long> ancestorIds = DvObject.parseAncestorPath((String) row[1]);
+            Long ownerId = ancestorIds.get(ancestorIds.size() - 1);
+            if (!Boolean.TRUE.equals(row[2]) && inheritingIds.contains(ownerId)) {
+                Long id = ((Number) row[0]).longValue();
+                inheritingIds.add(id);
+                inheriting.add(id);
+            }
+        }
+        return inheriting;
+    }
+
+    /**
+     * Computes the subtree paths of an object, the same way
+     * {@link IndexServiceBean} does when it builds the Solr documents.
+     *
+     * @param ancestorIds the ids of the dataverses the object is under, from
+     *                    the top down, without the root dataverse
+     * @param linkableId the id of the object, or of its dataset for a file
+     * @param linkingDataverses the ids of the dataverses linking an object, by
+     *                          object
+     * @param linkingPaths computes the paths of a linking dataverse
+     * @return the subtree paths
+     */
+    static List<String> subtreePaths(List<Long> ancestorIds, Long linkableId,
+            Map<Long, List<Long>> linkingDataverses, Function<Long, List<String>> linkingPaths) {
+        Set<String> paths = new LinkedHashSet<>(cumulativePaths(ancestorIds));
+        List<Long> linkedIds = new ArrayList<>(ancestorIds);
+        linkedIds.add(linkableId);
+        for (Long linkedId : linkedIds) {
+            for (Long linkingId : linkingDataverses.getOrDefault(linkedId, List.of())) {
+                paths.addAll(linkingPaths.apply(linkingId));
+            }
+        }
+        return new ArrayList<>(paths);
+    }
+
+    /**
+     * @param segments ids, from the top down
+     * @return the paths to each of the ids, e.g. {@code /1}, {@code /1/2} for
+     *         the ids 1 and 2
+     */
+    static List<String> cumulativePaths(Collection<Long> segments) {
+        List<String> paths = new ArrayList<>();
+        StringBuilder path = new StringBuilder();
+        for (Long segment : segments) {
+            path.append("/").append(segment);
+            paths.add(path.toString());
+        }
+        return paths;
+    }
+
+    private static List<Long> withoutRoot(List<Long> ancestorIds, Long rootDataverseId) {
+        List<Long> ids = new ArrayList<>();
+        if (ancestorIds != null) {
+            for (Long id : ancestorIds) {
+                if (!id.equals(rootDataverseId)) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -51,6 +51,7 @@ public enum JvmSettings {
     DOCROOT_DIRECTORY(SCOPE_FILES, "docroot"),
     GUESTBOOK_AT_REQUEST(SCOPE_FILES, "guestbook-at-request"),
     GLOBUS_CACHE_MAXAGE(SCOPE_FILES, "globus-cache-maxage"),
+    FILES_UNZIP_THREADS(SCOPE_FILES, "unzip-threads"),
 
     //STORAGE DRIVER SETTINGS
     SCOPE_DRIVER(SCOPE_FILES),
@@ -68,6 +69,13 @@ public enum JvmSettings {
     SCOPE_SOLR_CONCURENCY(SCOPE_SOLR, "concurrency"),
     MAX_ASYNC_INDEXES(SCOPE_SOLR_CONCURENCY, "max-async-indexes"),
 
+    // INDEX QUEUE
+    SCOPE_SOLR_INDEX_QUEUE(SCOPE_SOLR, "index-queue"),
+    INDEX_QUEUE_RETRY_DELAY(SCOPE_SOLR_INDEX_QUEUE, "retry-delay"),
+    INDEX_QUEUE_MAX_RETRY_DELAY(SCOPE_SOLR_INDEX_QUEUE, "max-retry-delay"),
+    INDEX_QUEUE_CLAIM_TIMEOUT(SCOPE_SOLR_INDEX_QUEUE, "claim-timeout"),
+    INDEX_QUEUE_MAX_ATTEMPTS(SCOPE_SOLR_INDEX_QUEUE, "max-attempts"),
+
     // RSERVE CONNECTION
     SCOPE_RSERVE(PREFIX, "rserve"),
     RSERVE_HOST(SCOPE_RSERVE, "host"),
@@ -75,6 +83,9 @@ public enum JvmSettings {
     RSERVE_USER(SCOPE_RSERVE, "user"),
     RSERVE_PASSWORD(SCOPE_RSERVE, "password"),
     RSERVE_TEMPDIR(SCOPE_RSERVE, "tempdir"),
+    RSERVE_PREGENERATE_RDATA(SCOPE_RSERVE, "pregenerate-rdata"),
+    RSERVE_MAX_CONNECTIONS(SCOPE_RSERVE, "max-connections"),
+    RSERVE_WAIT_TIMEOUT(SCOPE_RSERVE, "wait-timeout"),
     
     // API SETTINGS
     SCOPE_API(PREFIX, "api"),
@@ -246,6 +257,44 @@ public enum JvmSettings {
     // STORAGE USE SETTINGS
     SCOPE_STORAGEUSE(PREFIX, "storageuse"),
     STORAGEUSE_DISABLE_UPDATES(SCOPE_STORAGEUSE, "disable-storageuse-increments"),
+
+    // MY DATA SETTINGS
+    SCOPE_MYDATA(PREFIX, "mydata"),
+    SCOPE_MYDATA_ROLE_INDEX(SCOPE_MYDATA, "role-index"),
+    MYDATA_ROLE_INDEX_MAXSIZE(SCOPE_MYDATA_ROLE_INDEX, "max-size"),
+    MYDATA_ROLE_INDEX_MAXAGE(SCOPE_MYDATA_ROLE_INDEX, "max-age"),
+
+    // THUMBNAIL SETTINGS
+    SCOPE_THUMBNAILS(PREFIX, "thumbnails"),
+    THUMBNAILS_THREADS(SCOPE_THUMBNAILS, "threads"),
+    THUMBNAILS_QUEUE_SIZE(SCOPE_THUMBNAILS, "queue-size"),
+
+    // IMPORT SETTINGS
+    SCOPE_IMPORT(PREFIX, "import"),
+    IMPORT_BATCH_THREADS(SCOPE_IMPORT, "batch-threads"),
+
+    // SEARCH SETTINGS
+    SCOPE_SEARCH(PREFIX, "search"),
+    SCOPE_SEARCH_THUMBNAIL_CACHE(SCOPE_SEARCH, "thumbnail-cache"),
+    SEARCH_THUMBNAIL_CACHE_MAXSIZE(SCOPE_SEARCH_THUMBNAIL_CACHE, "max-size"),
+    SEARCH_THUMBNAIL_CACHE_MAXAGE(SCOPE_SEARCH_THUMBNAIL_CACHE, "max-age"),
+
+    // GROUPS SETTINGS
+    SCOPE_GROUPS(PREFIX, "groups"),
+    SCOPE_GROUPS_MEMBERSHIP_CACHE(SCOPE_GROUPS, "membership-cache"),
+    GROUPS_MEMBERSHIP_CACHE_MAXSIZE(SCOPE_GROUPS_MEMBERSHIP_CACHE, "max-size"),
+    GROUPS_MEMBERSHIP_CACHE_MAXAGE(SCOPE_GROUPS_MEMBERSHIP_CACHE, "max-age"),
+    SCOPE_GROUPS_IP_INDEX(SCOPE_GROUPS, "ip-index"),
+    GROUPS_IP_INDEX_MAXAGE(SCOPE_GROUPS_IP_INDEX, "max-age"),
+
+    // EXTERNAL VOCABULARY SETTINGS
+    SCOPE_CVOC(PREFIX, "cvoc"),
+    CVOC_THREADS(SCOPE_CVOC, "threads"),
+    CVOC_TIMEOUT(SCOPE_CVOC, "timeout"),
+    CVOC_REFRESH_AFTER(SCOPE_CVOC, "refresh-after"),
+    SCOPE_CVOC_CACHE(SCOPE_CVOC, "cache"),
+    CVOC_CACHE_MAXSIZE(SCOPE_CVOC_CACHE, "max-size"),
+    CVOC_CACHE_MAXAGE(SCOPE_CVOC_CACHE, "max-age"),
     ;
 
     private static final String SCOPE_SEPARATOR = ".";
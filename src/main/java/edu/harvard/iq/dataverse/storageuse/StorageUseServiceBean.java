@@ -49,18 +49,12 @@ public class StorageUseServiceBean  implements java.io.Serializable {
         if (dvObjectContainerId != null && increment != null) {
             Optional<Boolean> allow = JvmSettings.STORAGEUSE_DISABLE_UPDATES.lookupOptional(Boolean.class);
             if (!(allow.isPresent() && allow.get())) {
-                String queryString = "WITH RECURSIVE uptree (id, owner_id) AS\n"
-                        + "("
-                        + "    SELECT id, owner_id\n"
-                        + "    FROM dvobject\n"
-                        + "    WHERE id=" + dvObjectContainerId + "\n"
-                        + "    UNION ALL\n"
-                        + "    SELECT dvobject.id, dvobject.owner_id\n"
-                        + "    FROM dvobject\n"
-                        + "    JOIN uptree ON dvobject.id = uptree.owner_id)\n"
-                        + "UPDATE storageuse SET sizeinbytes=COALESCE(sizeinbytes,0)+" + increment + "\n"
-                        + "FROM uptree\n"
-                        + "WHERE dvobjectcontainer_id = uptree.id;";
+                // the container itself, and all its owners, as listed in its ancestor path
+                String queryString = "UPDATE storageuse SET sizeinbytes=COALESCE(sizeinbytes,0)+" + increment + "\n"
+                        + "FROM dvobject o\n"
+                        + "WHERE o.id=" + dvObjectContainerId + "\n"
+                        + "AND (storageuse.dvobjectcontainer_id = o.id\n"
+                        + "     OR storageuse.dvobjectcontainer_id = ANY(string_to_array(trim(both '/' from o.ancestorpath), '/')::bigint[]));";
 
                 int parentsUpdated = em.createNativeQuery(queryString).executeUpdate();
             }
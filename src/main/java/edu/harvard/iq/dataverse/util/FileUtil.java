@@ -62,11 +62,13 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.Timestamp;
@@ -677,6 +679,11 @@ public class FileUtil implements java.io.Serializable  {
     }
 
     public static String checkNetcdfOrHdf5(File file) {
+        // (opening the file with the NetCDF library tries all the formats it
+        // supports, so we only do that if the file looks like one of ours)
+        if (!hasNetcdfOrHdf5Signature(file)) {
+            return null;
+        }
         try ( NetcdfFile netcdfFile = NetcdfFiles.open(file.getAbsolutePath())) {
             if (netcdfFile == null) {
                 // Can't open as a NetCDF or HDF5 file.
@@ -713,6 +720,57 @@ public class FileUtil implements java.io.Serializable  {
         return null;
     }
 
+    private static final byte[] NETCDF_SIGNATURE = {'C', 'D', 'F'};
+    private static final byte[] HDF5_SIGNATURE = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
+
+    /**
+     * Checks for the magic number of NetCDF classic files (at the start of the
+     * file), or of HDF5 (and so NetCDF-4) files, which can be at offset 0,
+     * 512, 1024, 2048 etc. (after a "user block").
+     */
+    static boolean hasNetcdfOrHdf5Signature(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            byte[] header = new byte[HDF5_SIGNATURE.length];
+            if (length < header.length) {
+                return false;
+            }
+            raf.readFully(header);
+            if (Arrays.equals(header, 0, NETCDF_SIGNATURE.length, NETCDF_SIGNATURE, 0, NETCDF_SIGNATURE.length)
+                    || Arrays.equals(header, HDF5_SIGNATURE)) {
+                return true;
+            }
+            for (long offset = 512; offset + header.length <= length; offset *= 2) {
+                raf.seek(offset);
+                raf.readFully(header);
+                if (Arrays.equals(header, HDF5_SIGNATURE)) {
+                    return true;
+                }
+            }
+        } catch (IOException ex) {
+            logger.fine("IOException checking for a NetCDF or HDF5 signature: " + ex.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Copies a stream to a file, calculating the checksum of the bytes on the
+     * way, so that the file doesn't need to be read again for it. The stream
+     * is not closed.
+     *
+     * @return the checksum of the bytes copied
+     */
+    public static String copyAndCalculateChecksum(InputStream in, Path target, ChecksumType checksumType) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(checksumType.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        Files.copy(new DigestInputStream(in, md), target, StandardCopyOption.REPLACE_EXISTING);
+        return checksumDigestToString(md.digest());
+    }
+
     // from MD5Checksum.java
     public static String calculateChecksum(String datafile, ChecksumType checksumType) {
 
@@ -736,7 +794,7 @@ public class FileUtil implements java.io.Serializable  {
             throw new RuntimeException(e);
         }
 
-        byte[] dataBytes = new byte[1024];
+        byte[] dataBytes = new byte[64 * 1024];
 
         int nread;
         try {
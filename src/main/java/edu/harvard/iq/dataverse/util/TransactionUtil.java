@@ -0,0 +1,66 @@
+package edu.harvard.iq.dataverse.util;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+public class TransactionUtil {
+
+    /**
+     * Runs {@code action} once the current transaction has completed, or right
+     * away if there is none. Meant for dropping in-memory caches of database
+     * state: dropping them before the commit lets concurrent requests load
+     * and cache the old rows again.
+     *
+     * @param registry The registry of the container, may be null (outside of
+     *                 the container), in which case the action runs right away.
+     * @param action   The action to run. It also runs after a rollback, so it
+     *                 should be harmless then.
+     */
+    public static void runAfterCompletion(TransactionSynchronizationRegistry registry, Runnable action) {
+        if (registry == null || registry.getTransactionKey() == null) {
+            action.run();
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} once the current transaction has committed, or right
+     * away if there is none. Meant for starting background work that reads
+     * the changes of the transaction: started before the commit, it may not
+     * see them yet.
+     *
+     * @param registry The registry of the container, may be null (outside of
+     *                 the container), in which case the action runs right away.
+     * @param action   The action to run. It does not run if the transaction
+     *                 is rolled back.
+     */
+    public static void runAfterCommit(TransactionSynchronizationRegistry registry, Runnable action) {
+        if (registry == null || registry.getTransactionKey() == null) {
+            action.run();
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
@@ -41,8 +41,10 @@ import java.util.*;
 import jakarta.json.Json;
 import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObjectBuilder;
+import jakarta.json.stream.JsonGenerator;
 
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -542,6 +544,47 @@ public class JsonPrinter {
         return filesArr;
     }
 
+    /**
+     * Streaming counterpart of {@link #json(DatasetVersion, List, boolean, boolean)}:
+     * writes a version to {@code generator}, fetching its files one page at a
+     * time, so that only a single page of files is held in memory.
+     *
+     * @param dsvJson   the version, as printed without its files.
+     * @param filePages loads the files of the version (offset, limit).
+     */
+    public static void writeDatasetVersion(JsonGenerator generator, JsonObject dsvJson,
+            int pageSize, BiFunction<Integer, Integer, List<FileMetadata>> filePages) {
+        generator.writeStartObject();
+        dsvJson.forEach((name, value) -> generator.write(name, value));
+        generator.writeKey("files");
+        writeFileMetadatas(generator, pageSize, filePages);
+        generator.writeEnd();
+    }
+
+    /**
+     * Streaming counterpart of {@link #jsonFileMetadatas(Collection)}: writes
+     * the file metadatas as a JSON array, fetching them one page at a time.
+     *
+     * @param pages loads a page of file metadatas (offset, limit); a page
+     *              shorter than {@code pageSize} is the last one.
+     */
+    public static void writeFileMetadatas(JsonGenerator generator, int pageSize, BiFunction<Integer, Integer, List<FileMetadata>> pages) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive, got " + pageSize);
+        }
+        generator.writeStartArray();
+        int offset = 0;
+        List<FileMetadata> page;
+        do {
+            page = pages.apply(offset, pageSize);
+            for (FileMetadata fmd : page) {
+                generator.write(json(fmd).build());
+            }
+            offset += page.size();
+        } while (page.size() == pageSize);
+        generator.writeEnd();
+    }
+
     public static JsonObjectBuilder json(DatasetDistributor dist) {
         return jsonObjectBuilder()
                 .add("displayOrder", dist.getDisplayOrder())
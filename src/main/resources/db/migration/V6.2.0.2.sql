@@ -0,0 +1,2 @@
+-- Summary of the difference to the prior version, stored at publication (json)
+ALTER TABLE datasetversion ADD COLUMN IF NOT EXISTS versiondifferencesummary TEXT;
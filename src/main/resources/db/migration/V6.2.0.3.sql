@@ -0,0 +1,49 @@
+-- Materialized path of the owners of each dvobject, from the root down to
+-- its direct owner: '/<root id>/.../<owner id>/', or '/' for the root.
+-- It is maintained by the triggers below, so that it stays in sync with
+-- owner_id however the rows are written (including moves).
+ALTER TABLE dvobject ADD COLUMN IF NOT EXISTS ancestorpath TEXT;
+
+WITH RECURSIVE paths (id, ancestorpath) AS (
+    SELECT id, '/'::text FROM dvobject WHERE owner_id IS NULL
+    UNION ALL
+    SELECT o.id, p.ancestorpath || p.id || '/' FROM dvobject o JOIN paths p ON o.owner_id = p.id
+)
+UPDATE dvobject SET ancestorpath = paths.ancestorpath FROM paths WHERE dvobject.id = paths.id;
+
+-- text_pattern_ops, so that prefix (LIKE '/1/5/%') lookups of descendants use the index
+CREATE INDEX IF NOT EXISTS index_dvobject_ancestorpath ON dvobject (ancestorpath text_pattern_ops);
+
+CREATE OR REPLACE FUNCTION dvobject_set_ancestorpath() RETURNS trigger AS $$
+BEGIN
+    IF NEW.owner_id IS NULL THEN
+        NEW.ancestorpath := '/';
+    ELSE
+        SELECT ancestorpath || id || '/' FROM dvobject WHERE id = NEW.owner_id INTO NEW.ancestorpath;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION dvobject_move_descendants() RETURNS trigger AS $$
+DECLARE
+    oldprefix text := OLD.ancestorpath || OLD.id || '/';
+BEGIN
+    UPDATE dvobject
+       SET ancestorpath = NEW.ancestorpath || NEW.id || '/' || substring(ancestorpath FROM length(oldprefix) + 1)
+     WHERE ancestorpath LIKE oldprefix || '%';
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS dvobject_ancestorpath_insert ON dvobject;
+CREATE TRIGGER dvobject_ancestorpath_insert BEFORE INSERT ON dvobject
+    FOR EACH ROW EXECUTE FUNCTION dvobject_set_ancestorpath();
+
+DROP TRIGGER IF EXISTS dvobject_ancestorpath_update ON dvobject;
+CREATE TRIGGER dvobject_ancestorpath_update BEFORE UPDATE OF owner_id ON dvobject
+    FOR EACH ROW WHEN (OLD.owner_id IS DISTINCT FROM NEW.owner_id) EXECUTE FUNCTION dvobject_set_ancestorpath();
+
+DROP TRIGGER IF EXISTS dvobject_ancestorpath_move ON dvobject;
+CREATE TRIGGER dvobject_ancestorpath_move AFTER UPDATE OF owner_id ON dvobject
+    FOR EACH ROW WHEN (OLD.owner_id IS DISTINCT FROM NEW.owner_id) EXECUTE FUNCTION dvobject_move_descendants();
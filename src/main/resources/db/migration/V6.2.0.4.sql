@@ -0,0 +1,16 @@
+-- Persistent queue of pending (re)indexings, see IndexQueueEntry
+CREATE TABLE IF NOT EXISTS indexqueue (
+    id SERIAL PRIMARY KEY,
+    dvobject_id BIGINT NOT NULL UNIQUE,
+    priority INTEGER NOT NULL,
+    cleanup BOOLEAN NOT NULL,
+    requesttime TIMESTAMP NOT NULL,
+    generation INTEGER NOT NULL,
+    attempts INTEGER NOT NULL,
+    nextattempttime TIMESTAMP NOT NULL,
+    claimedby VARCHAR(255),
+    claimtime TIMESTAMP,
+    lasterror TEXT
+);
+
+CREATE INDEX IF NOT EXISTS index_indexqueue_priority ON indexqueue (priority, requesttime);
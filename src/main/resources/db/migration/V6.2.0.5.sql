@@ -0,0 +1,2 @@
+-- Sizes of the thumbnails already cached for a file, see DataFile.thumbnailSizes
+ALTER TABLE datafile ADD COLUMN IF NOT EXISTS thumbnailsizes VARCHAR(255);
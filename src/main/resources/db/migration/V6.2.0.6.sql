@@ -0,0 +1,149 @@
+-- Monthly rollups behind the download and file type metrics (see
+-- MetricsServiceBean), kept up to date by the triggers below as guestbook
+-- responses are recorded and files are added, changed, published or
+-- deleted. The per-collection metrics join the rows of the datasets under
+-- the collection through their ancestorpath (see V6.2.0.3).
+
+-- Downloads (guestbook responses other than access requests) per dataset and
+-- month; responsemonth is '' for the historic responses without a time.
+CREATE TABLE IF NOT EXISTS metricsdownloadmonth (
+    dataset_id BIGINT NOT NULL,
+    responsemonth VARCHAR(7) NOT NULL,
+    downloadcount BIGINT NOT NULL,
+    PRIMARY KEY (dataset_id, responsemonth)
+);
+
+-- Number and total size of the files per dataset, content type, month of
+-- creation and month of publication ('' where the value is not set).
+CREATE TABLE IF NOT EXISTS metricsfiletypemonth (
+    dataset_id BIGINT NOT NULL,
+    contenttype VARCHAR(255) NOT NULL,
+    createmonth VARCHAR(7) NOT NULL,
+    publicationmonth VARCHAR(7) NOT NULL,
+    filecount BIGINT NOT NULL,
+    filesize NUMERIC NOT NULL,
+    PRIMARY KEY (dataset_id, contenttype, createmonth, publicationmonth)
+);
+
+TRUNCATE metricsdownloadmonth;
+INSERT INTO metricsdownloadmonth (dataset_id, responsemonth, downloadcount)
+SELECT dataset_id, COALESCE(to_char(responsetime, 'YYYY-MM'), ''), count(*)
+  FROM guestbookresponse
+ WHERE eventtype <> 'AccessRequest'
+ GROUP BY 1, 2;
+
+TRUNCATE metricsfiletypemonth;
+INSERT INTO metricsfiletypemonth (dataset_id, contenttype, createmonth, publicationmonth, filecount, filesize)
+SELECT COALESCE(o.owner_id, 0), COALESCE(f.contenttype, ''),
+       COALESCE(to_char(o.createdate, 'YYYY-MM'), ''), COALESCE(to_char(o.publicationdate, 'YYYY-MM'), ''),
+       count(*), COALESCE(sum(f.filesize), 0)
+  FROM datafile f JOIN dvobject o ON o.id = f.id
+ GROUP BY 1, 2, 3, 4;
+
+CREATE OR REPLACE FUNCTION metrics_add_downloads(p_dataset_id BIGINT, p_responsetime TIMESTAMP, p_count BIGINT) RETURNS void AS $$
+DECLARE
+    v_month varchar := COALESCE(to_char(p_responsetime, 'YYYY-MM'), '');
+BEGIN
+    INSERT INTO metricsdownloadmonth AS m (dataset_id, responsemonth, downloadcount)
+    VALUES (p_dataset_id, v_month, p_count)
+    ON CONFLICT (dataset_id, responsemonth) DO UPDATE SET downloadcount = m.downloadcount + EXCLUDED.downloadcount;
+    DELETE FROM metricsdownloadmonth
+     WHERE dataset_id = p_dataset_id AND responsemonth = v_month AND downloadcount = 0;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION metrics_add_files(p_dataset_id BIGINT, p_contenttype VARCHAR, p_createdate TIMESTAMP,
+        p_publicationdate TIMESTAMP, p_count BIGINT, p_size BIGINT) RETURNS void AS $$
+DECLARE
+    v_dataset_id bigint := COALESCE(p_dataset_id, 0);
+    v_contenttype varchar := COALESCE(p_contenttype, '');
+    v_createmonth varchar := COALESCE(to_char(p_createdate, 'YYYY-MM'), '');
+    v_publicationmonth varchar := COALESCE(to_char(p_publicationdate, 'YYYY-MM'), '');
+BEGIN
+    INSERT INTO metricsfiletypemonth AS m (dataset_id, contenttype, createmonth, publicationmonth, filecount, filesize)
+    VALUES (v_dataset_id, v_contenttype, v_createmonth, v_publicationmonth, p_count, COALESCE(p_size, 0))
+    ON CONFLICT (dataset_id, contenttype, createmonth, publicationmonth)
+    DO UPDATE SET filecount = m.filecount + EXCLUDED.filecount, filesize = m.filesize + EXCLUDED.filesize;
+    DELETE FROM metricsfiletypemonth
+     WHERE dataset_id = v_dataset_id AND contenttype = v_contenttype AND createmonth = v_createmonth
+       AND publicationmonth = v_publicationmonth AND filecount = 0;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION guestbookresponse_update_metrics() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        IF OLD.eventtype <> 'AccessRequest' THEN
+            PERFORM metrics_add_downloads(OLD.dataset_id, OLD.responsetime, -1);
+        END IF;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        IF NEW.eventtype <> 'AccessRequest' THEN
+            PERFORM metrics_add_downloads(NEW.dataset_id, NEW.responsetime, 1);
+        END IF;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The dvobject row of a file is written before its datafile row and deleted
+-- after it, so a file is counted from the insert of its datafile row until
+-- its deletion, with the dvobject values current at the time.
+CREATE OR REPLACE FUNCTION datafile_update_metrics() RETURNS trigger AS $$
+DECLARE
+    o record;
+BEGIN
+    SELECT owner_id, createdate, publicationdate FROM dvobject
+     WHERE id = CASE WHEN TG_OP = 'DELETE' THEN OLD.id ELSE NEW.id END INTO o;
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM metrics_add_files(o.owner_id, OLD.contenttype, o.createdate, o.publicationdate, -1, -OLD.filesize);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM metrics_add_files(o.owner_id, NEW.contenttype, o.createdate, o.publicationdate, 1, NEW.filesize);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION dvobject_update_file_metrics() RETURNS trigger AS $$
+DECLARE
+    f record;
+BEGIN
+    SELECT contenttype, filesize FROM datafile WHERE id = NEW.id INTO f;
+    IF FOUND THEN
+        PERFORM metrics_add_files(OLD.owner_id, f.contenttype, OLD.createdate, OLD.publicationdate, -1, -f.filesize);
+        PERFORM metrics_add_files(NEW.owner_id, f.contenttype, NEW.createdate, NEW.publicationdate, 1, f.filesize);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS guestbookresponse_metrics_insert_delete ON guestbookresponse;
+CREATE TRIGGER guestbookresponse_metrics_insert_delete AFTER INSERT OR DELETE ON guestbookresponse
+    FOR EACH ROW EXECUTE FUNCTION guestbookresponse_update_metrics();
+
+DROP TRIGGER IF EXISTS guestbookresponse_metrics_update ON guestbookresponse;
+CREATE TRIGGER guestbookresponse_metrics_update AFTER UPDATE OF dataset_id, responsetime, eventtype ON guestbookresponse
+    FOR EACH ROW WHEN (OLD.dataset_id IS DISTINCT FROM NEW.dataset_id
+        OR OLD.responsetime IS DISTINCT FROM NEW.responsetime
+        OR OLD.eventtype IS DISTINCT FROM NEW.eventtype)
+    EXECUTE FUNCTION guestbookresponse_update_metrics();
+
+DROP TRIGGER IF EXISTS datafile_metrics_insert_delete ON datafile;
+CREATE TRIGGER datafile_metrics_insert_delete AFTER INSERT OR DELETE ON datafile
+    FOR EACH ROW EXECUTE FUNCTION datafile_update_metrics();
+
+DROP TRIGGER IF EXISTS datafile_metrics_update ON datafile;
+CREATE TRIGGER datafile_metrics_update AFTER UPDATE OF contenttype, filesize ON datafile
+    FOR EACH ROW WHEN (OLD.contenttype IS DISTINCT FROM NEW.contenttype OR OLD.filesize IS DISTINCT FROM NEW.filesize)
+    EXECUTE FUNCTION datafile_update_metrics();
+
+DROP TRIGGER IF EXISTS dvobject_file_metrics_update ON dvobject;
+CREATE TRIGGER dvobject_file_metrics_update AFTER UPDATE OF owner_id, createdate, publicationdate ON dvobject
+    FOR EACH ROW WHEN (NEW.dtype = 'DataFile' AND (OLD.owner_id IS DISTINCT FROM NEW.owner_id
+        OR OLD.createdate IS DISTINCT FROM NEW.createdate
+        OR OLD.publicationdate IS DISTINCT FROM NEW.publicationdate))
+    EXECUTE FUNCTION dvobject_update_file_metrics();
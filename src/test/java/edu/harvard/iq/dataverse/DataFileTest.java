@@ -0,0 +1,27 @@
+package edu.harvard.iq.dataverse;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DataFileTest {
+
+    @Test
+    public void testThumbnailSizes() {
+        DataFile dataFile = new DataFile();
+        assertFalse(dataFile.isThumbnailSizeAvailable(64));
+
+        assertTrue(dataFile.addThumbnailSize(64));
+        assertTrue(dataFile.addThumbnailSize(400));
+        assertFalse(dataFile.addThumbnailSize(64));
+        assertEquals("64,400", dataFile.getThumbnailSizes());
+
+        assertTrue(dataFile.isThumbnailSizeAvailable(64));
+        assertTrue(dataFile.isThumbnailSizeAvailable(400));
+        // (no partial matches)
+        assertFalse(dataFile.isThumbnailSizeAvailable(4));
+        assertFalse(dataFile.isThumbnailSizeAvailable(40));
+    }
+}
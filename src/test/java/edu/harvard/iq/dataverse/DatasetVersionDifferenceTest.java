@@ -0,0 +1,133 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.mocks.MocksFactory;
+import java.util.ArrayList;
+import java.util.List;
+import jakarta.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatasetVersionDifferenceTest {
+
+    private DatasetVersion originalVersion;
+    private DatasetVersion newVersion;
+    private DataFile unchanged;
+    private DataFile relabeled;
+    private DataFile removed;
+    private DataFile replaced;
+    private DataFile replacement;
+    private DataFile added;
+    private DatasetFieldType addedFieldType;
+
+    @BeforeEach
+    public void setUp() {
+        originalVersion = version();
+        newVersion = version();
+
+        unchanged = dataFile(null);
+        relabeled = dataFile(null);
+        removed = dataFile(null);
+        replaced = dataFile(null);
+        replacement = dataFile(replaced.getId());
+        added = dataFile(null);
+
+        addFile(originalVersion, unchanged, "unchanged.txt");
+        addFile(originalVersion, relabeled, "before.txt");
+        addFile(originalVersion, removed, "removed.txt");
+        addFile(originalVersion, replaced, "replaced.txt");
+
+        addFile(newVersion, added, "added.txt");
+        addFile(newVersion, replacement, "replacement.txt");
+        addFile(newVersion, relabeled, "after.txt");
+        addFile(newVersion, unchanged, "unchanged.txt");
+
+        addedFieldType = MocksFactory.makeDatasetFieldType();
+        DatasetField field = new DatasetField();
+        field.setDatasetFieldType(addedFieldType);
+        field.setSingleValue("Some value");
+        newVersion.getDatasetFields().add(field);
+    }
+
+    @Test
+    public void testFileDifferences() {
+        DatasetVersionDifference sut = new DatasetVersionDifference(newVersion, originalVersion);
+
+        assertEquals(List.of(added), dataFiles(sut.getAddedFiles()));
+        assertEquals(List.of(removed), dataFiles(sut.getRemovedFiles()));
+        assertEquals(1, sut.getDatasetFilesReplacementList().size());
+        assertEquals(replaced.getId().toString(), sut.getDatasetFilesReplacementList().get(0).getFile1Id());
+        assertEquals(replacement.getId().toString(), sut.getDatasetFilesReplacementList().get(0).getFile2Id());
+        assertEquals(List.of(relabeled, relabeled), dataFiles(sut.getChangedFileMetadata()));
+        assertEquals("Files (Added: 1; Removed: 1; Replaced: 1; Changed File Metadata: 1)", sut.getFileNote());
+
+        assertEquals(1, sut.getBlockDataForNote().size());
+        assertSame(addedFieldType, ((DatasetField) sut.getBlockDataForNote().get(0)[0]).getDatasetFieldType());
+        assertEquals(1, sut.getBlockDataForNote().get(0)[1]);
+    }
+
+    @Test
+    public void testSummaryRoundTrip() {
+        DatasetVersionDifference computed = new DatasetVersionDifference(newVersion, originalVersion);
+        JsonObject summary = computed.toSummaryJson();
+
+        DatasetVersionDifference sut = DatasetVersionDifference.fromSummaryJson(newVersion, originalVersion, summary);
+
+        assertNotNull(sut);
+        assertEquals(computed.getFileNote(), sut.getFileNote());
+        assertEquals(computed.getSummaryDataForNote().size(), sut.getSummaryDataForNote().size());
+        assertEquals(computed.getBlockDataForNote().size(), sut.getBlockDataForNote().size());
+        Object[] block = sut.getBlockDataForNote().get(0);
+        assertSame(addedFieldType, ((DatasetField) block[0]).getDatasetFieldType());
+        assertArrayEquals(new Object[]{1, 0, 0}, new Object[]{block[1], block[2], block[3]});
+        assertTrue(sut.getChangedTermsAccess().isEmpty());
+    }
+
+    @Test
+    public void testSummaryOfOtherVersionIsIgnored() {
+        JsonObject summary = new DatasetVersionDifference(newVersion, originalVersion).toSummaryJson();
+
+        DatasetVersion otherVersion = version();
+        assertNull(DatasetVersionDifference.fromSummaryJson(newVersion, otherVersion, summary));
+    }
+
+    @Test
+    public void testSummaryWithUnknownFieldTypeIsIgnored() {
+        JsonObject summary = new DatasetVersionDifference(newVersion, originalVersion).toSummaryJson();
+
+        newVersion.getDatasetFields().clear();
+        assertNull(DatasetVersionDifference.fromSummaryJson(newVersion, originalVersion, summary));
+    }
+
+    private static DatasetVersion version() {
+        DatasetVersion version = new DatasetVersion();
+        version.setId(MocksFactory.nextId());
+        version.setFileMetadatas(new ArrayList<>());
+        version.setDatasetFields(new ArrayList<>());
+        return version;
+    }
+
+    private static DataFile dataFile(Long previousDataFileId) {
+        DataFile df = new DataFile();
+        df.setId(MocksFactory.nextId());
+        df.setContentType("text/plain");
+        df.setPreviousDataFileId(previousDataFileId);
+        return df;
+    }
+
+    private static void addFile(DatasetVersion version, DataFile df, String label) {
+        FileMetadata fmd = new FileMetadata();
+        fmd.setId(MocksFactory.nextId());
+        fmd.setLabel(label);
+        fmd.setDataFile(df);
+        fmd.setDatasetVersion(version);
+        version.getFileMetadatas().add(fmd);
+    }
+
+    private static List<DataFile> dataFiles(List<FileMetadata> fileMetadatas) {
+        List<DataFile> dataFiles = new ArrayList<>();
+        fileMetadatas.forEach(fmd -> dataFiles.add(fmd.getDataFile()));
+        return dataFiles;
+    }
+}
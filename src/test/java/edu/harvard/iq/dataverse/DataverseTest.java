@@ -62,4 +62,45 @@ public class DataverseTest {
         MatcherAssert.assertThat(result, Matchers.is(OWNER_METADATABLOCKFACETS));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void parseAncestorPath_should_return_ids_from_root_down() {
+        MatcherAssert.assertThat(DvObject.parseAncestorPath("/1/5/23/"), Matchers.contains(1L, 5L, 23L));
+        MatcherAssert.assertThat(DvObject.parseAncestorPath("/"), Matchers.empty());
+        MatcherAssert.assertThat(DvObject.parseAncestorPath(null), Matchers.nullValue());
+    }
+
+    @Test
+    public void getAncestorPath_should_be_null_when_not_loaded() {
+        Dataset dataset = new Dataset();
+        dataset.setId(MocksFactory.nextId());
+        dataset.setOwner(OWNER);
+
+        MatcherAssert.assertThat(dataset.getAncestorPath(), Matchers.nullValue());
+        MatcherAssert.assertThat(dataset.getAncestorIds(), Matchers.nullValue());
+    }
+
+    @Test
+    public void getAncestorPath_should_be_null_after_a_move() {
+        OWNER.setAncestorPath("/");
+        Dataverse child = new Dataverse();
+        child.setId(MocksFactory.nextId());
+        child.setOwner(OWNER);
+        child.setAncestorPath("/" + OWNER.getId() + "/");
+        Dataverse other = new Dataverse();
+        other.setId(MocksFactory.nextId());
+        other.setOwner(OWNER);
+        Dataset dataset = new Dataset();
+        dataset.setId(MocksFactory.nextId());
+        dataset.setOwner(child);
+        dataset.setAncestorPath("/" + OWNER.getId() + "/" + child.getId() + "/");
+
+        MatcherAssert.assertThat(OWNER.getAncestorPath(), Matchers.is("/"));
+        MatcherAssert.assertThat(dataset.getAncestorIds(), Matchers.contains(OWNER.getId(), child.getId()));
+
+        // the database updates the stored paths, but not the ones already in memory
+        dataset.setOwner(other);
+
+        MatcherAssert.assertThat(dataset.getAncestorPath(), Matchers.nullValue());
+        MatcherAssert.assertThat(dataset.getAncestorIds(), Matchers.nullValue());
+    }
+}
@@ -0,0 +1,201 @@
+package edu.harvard.iq.dataverse;
+
+import com.sun.net.httpserver.HttpServer;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.testing.JvmSetting;
+import edu.harvard.iq.dataverse.util.testing.LocalJvmSettings;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * Tests the resolver against a local stub of a vocabulary service, which
+ * answers {@code /term/<name>} with {@code {"label": "<name>"}}.
+ */
+@LocalJvmSettings
+@JvmSetting(key = JvmSettings.CVOC_THREADS, value = "4")
+@JvmSetting(key = JvmSettings.CVOC_TIMEOUT, value = "2")
+@JvmSetting(key = JvmSettings.CVOC_REFRESH_AFTER, value = "3600")
+@JvmSetting(key = JvmSettings.CVOC_CACHE_MAXSIZE, value = "100")
+@JvmSetting(key = JvmSettings.CVOC_CACHE_MAXAGE, value = "60")
+class ExternalVocabularyResolverServiceBeanTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService managedExecutor;
+    private final CountDownLatch slowTermsRelease = new CountDownLatch(1);
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+    private ExternalVocabularyResolverServiceBean sut;
+    private JsonObject cvocEntry;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.createContext("/term/", exchange -> {
+            maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+            try {
+                String name = exchange.getRequestURI().getPath().substring("/term/".length());
+                if (name.startsWith("slow")) {
+                    slowTermsRelease.await(10, TimeUnit.SECONDS);
+                } else {
+                    Thread.sleep(50);
+                }
+                int status = name.startsWith("missing") ? 404 : 200;
+                byte[] body = Json.createObjectBuilder().add("label", name).build().toString().getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrentRequests.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        cvocEntry = Json.createObjectBuilder()
+                .add("term-uri-field", "keywordTermURL")
+                .add("retrieval-uri", baseUrl + "/term/{0}")
+                .add("managed-fields", Json.createObjectBuilder())
+                .add("retrieval-filtering", Json.createObjectBuilder()
+                        .add("termName", Json.createObjectBuilder()
+                                .add("pattern", "{0}")
+                                .add("params", Json.createArrayBuilder().add("/label"))))
+                .build();
+
+        // Stands in for the managed executor of the application server
+        managedExecutor = Executors.newCachedThreadPool();
+        sut = new ExternalVocabularyResolverServiceBean();
+        sut.datasetFieldService = Mockito.mock(DatasetFieldServiceBean.class);
+        sut.executor = Mockito.mock(ManagedExecutorService.class);
+        Mockito.doAnswer(invocation -> {
+            managedExecutor.execute(invocation.getArgument(0));
+            return null;
+        }).when(sut.executor).execute(any(Runnable.class));
+        sut.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowTermsRelease.countDown();
+        sut.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        managedExecutor.shutdownNow();
+    }
+
+    @Test
+    void testResolvesTermsInParallel() {
+        List<ExternalVocabularyResolverServiceBean.TermRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(request("term" + i));
+        }
+
+        Map<String, String> values = sut.resolve(requests);
+
+        assertEquals(20, values.size());
+        assertEquals("{\"termName\":\"term3\"}", values.get(termUri("term3")));
+        assertTrue(maxConcurrentRequests.get() > 1, "Terms should be fetched in parallel");
+        assertTrue(maxConcurrentRequests.get() <= 4, "At most dataverse.cvoc.threads terms should be fetched at once");
+        Mockito.verifyNoInteractions(sut.datasetFieldService);
+    }
+
+    @Test
+    void testFailedTermIsLeftOut() {
+        Map<String, String> values = sut.resolve(List.of(request("term1"), request("missing1")));
+
+        assertEquals(1, values.size());
+        assertTrue(values.containsKey(termUri("term1")));
+        assertFalse(values.containsKey(termUri("missing1")));
+    }
+
+    @Test
+    void testSlowTermIsStoredInBackground() {
+        Map<String, String> values = sut.resolve(List.of(request("term1"), request("slow1")));
+
+        // The timeout is 2 seconds; the slow term is still being fetched
+        assertEquals(1, values.size());
+        assertTrue(values.containsKey(termUri("term1")));
+
+        slowTermsRelease.countDown();
+        Mockito.verify(sut.datasetFieldService, Mockito.timeout(5000))
+                .storeExternalVocabularyValue(eq(termUri("slow1")), eq("{\"termName\":\"slow1\"}"));
+        Mockito.verify(sut.datasetFieldService, Mockito.never()).storeExternalVocabularyValue(eq(termUri("term1")), anyString());
+    }
+
+    @Test
+    void testRefreshInBackground() {
+        sut.refreshInBackground(List.of(request("term1")));
+
+        Mockito.verify(sut.datasetFieldService, Mockito.timeout(5000))
+                .storeExternalVocabularyValue(eq(termUri("term1")), eq("{\"termName\":\"term1\"}"));
+    }
+
+    @Test
+    void testIsStale() {
+        ExternalVocabularyValue evv = new ExternalVocabularyValue(termUri("term1"), "{}");
+        assertTrue(sut.isStale(evv));
+
+        evv.setLastUpdateDate(Timestamp.from(Instant.now().minus(10, ChronoUnit.MINUTES)));
+        assertFalse(sut.isStale(evv));
+
+        evv.setLastUpdateDate(Timestamp.from(Instant.now().minus(2, ChronoUnit.HOURS)));
+        assertTrue(sut.isStale(evv));
+    }
+
+    @Test
+    void testGetValueIsCached() {
+        AtomicInteger loads = new AtomicInteger();
+        JsonObject value = Json.createObjectBuilder().add("termName", "term1").build();
+
+        assertEquals(value, sut.getValue(termUri("term1"), uri -> { loads.incrementAndGet(); return value; }));
+        assertEquals(value, sut.getValue(termUri("term1"), uri -> { loads.incrementAndGet(); return value; }));
+        assertEquals(1, loads.get());
+
+        sut.invalidate(termUri("term1"));
+        sut.getValue(termUri("term1"), uri -> { loads.incrementAndGet(); return value; });
+        assertEquals(2, loads.get());
+    }
+
+    private ExternalVocabularyResolverServiceBean.TermRequest request(String name) {
+        return new ExternalVocabularyResolverServiceBean.TermRequest(termUri(name), baseUrl + "/term/" + name, cvocEntry);
+    }
+
+    private static String termUri(String name) {
+        return "https://vocab.example.org/" + name;
+    }
+}
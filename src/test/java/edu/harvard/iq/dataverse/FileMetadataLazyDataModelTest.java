@@ -0,0 +1,64 @@
+package edu.harvard.iq.dataverse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FileMetadataLazyDataModelTest {
+
+    @Mock
+    private DatasetVersionFilesServiceBean datasetVersionFilesService;
+
+    private static FileMetadata fileMetadata(long id) {
+        FileMetadata fileMetadata = new FileMetadata();
+        fileMetadata.setId(id);
+        return fileMetadata;
+    }
+
+    @Test
+    public void testLoadFetchesOnlyThePageOfIds() {
+        FileMetadataLazyDataModel model = new FileMetadataLazyDataModel(datasetVersionFilesService, List.of(5L, 3L, 9L, 1L, 7L));
+        List<FileMetadata> page = List.of(fileMetadata(1L), fileMetadata(7L));
+        when(datasetVersionFilesService.getFileMetadatasByIds(List.of(1L, 7L))).thenReturn(page);
+
+        assertEquals(5, model.size());
+        assertEquals(5, model.count(null));
+        assertSame(page, model.load(3, 10, null, null));
+    }
+
+    @Test
+    public void testGetRowData() {
+        FileMetadataLazyDataModel model = new FileMetadataLazyDataModel(datasetVersionFilesService, List.of(5L, 3L, 9L));
+        FileMetadata onPage = fileMetadata(5L);
+        FileMetadata onOtherPage = fileMetadata(9L);
+        when(datasetVersionFilesService.getFileMetadatasByIds(List.of(5L))).thenReturn(new ArrayList<>(List.of(onPage)));
+        when(datasetVersionFilesService.getFileMetadatasByIds(List.of(9L))).thenReturn(new ArrayList<>(List.of(onOtherPage)));
+        model.load(0, 1, null, null);
+
+        assertEquals("5", model.getRowKey(onPage));
+        assertSame(onPage, model.getRowData("5"));
+        assertSame(onOtherPage, model.getRowData("9"));
+    }
+
+    @Test
+    public void testGetRowDataOfFileNotListed() {
+        FileMetadataLazyDataModel model = new FileMetadataLazyDataModel(datasetVersionFilesService, List.of(5L, 3L));
+
+        assertNull(model.getRowData("42"));
+        assertNull(model.getRowData("not-an-id"));
+        verify(datasetVersionFilesService, never()).getFileMetadatasByIds(anyList());
+    }
+}
@@ -1,11 +1,22 @@
 package edu.harvard.iq.dataverse.api;
 
+import edu.harvard.iq.dataverse.dataaccess.InputStreamIO;
 import edu.harvard.iq.dataverse.dataaccess.Range;
+import edu.harvard.iq.dataverse.dataaccess.StorageIO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class DownloadInstanceWriterTest {
 
@@ -76,18 +87,47 @@ public class DownloadInstanceWriterTest {
         assertNotNull(expectedException);
     }
 
-    // Attempt to get invalid range (multiple ranges).
+    // Get multiple ranges.
     @Test
-    public void testGetRangeInvalidMultipleRanges() {
-        Exception expectedException = null;
-        try {
-            List<Range> ranges = diw.getRanges("bytes=0-9,90-99", 100);
-        } catch (Exception ex) {
-            // "Only one range is allowed."
-            System.out.println("exception: " + ex);
-            expectedException = ex;
+    public void testGetMultipleRanges() {
+        List<Range> ranges = diw.getRanges("bytes=90-99,0-9", 100);
+        assertEquals(2, ranges.size());
+        // (sorted)
+        assertEquals(0, ranges.get(0).getStart());
+        assertEquals(9, ranges.get(0).getEnd());
+        assertEquals(90, ranges.get(1).getStart());
+        assertEquals(99, ranges.get(1).getEnd());
+    }
+
+    // Overlapping and adjacent ranges are coalesced.
+    @Test
+    public void testGetMultipleRangesCoalesced() {
+        List<Range> ranges = diw.getRanges("bytes=0-9,5-19,20-29,50-59,-10", 100);
+        assertEquals(3, ranges.size());
+        assertEquals(0, ranges.get(0).getStart());
+        assertEquals(29, ranges.get(0).getEnd());
+        assertEquals(50, ranges.get(1).getStart());
+        assertEquals(59, ranges.get(1).getEnd());
+        assertEquals(90, ranges.get(2).getStart());
+        assertEquals(99, ranges.get(2).getEnd());
+    }
+
+    // Attempt to get too many ranges.
+    @Test
+    public void testGetRangesTooMany() {
+        StringBuilder range = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= DownloadInstanceWriter.MAX_RANGES; i++) {
+            range.append(",").append(2 * i).append("-").append(2 * i);
         }
-        assertNotNull(expectedException);
+        assertThrows(RuntimeException.class, () -> diw.getRanges(range.toString(), 1000));
+    }
+
+    // Asking for more bytes at the end than there are gets the whole file.
+    @Test
+    public void testGetRangeSuffixLargerThanFile() {
+        List<Range> ranges = diw.getRanges("bytes=-200", 100);
+        assertEquals(0, ranges.get(0).getStart());
+        assertEquals(99, ranges.get(0).getEnd());
     }
 
     // Attempt to get invalid range (multiple ranges, beyond file size).
@@ -97,8 +137,7 @@ public class DownloadInstanceWriterTest {
         try {
             List<Range> ranges = diw.getRanges("bytes=0-9,90-99", 40);
         } catch (Exception ex) {
-            // "Only one range is allowed."
-            // We report the multiple ranges error before reporting the "beyond filesize" error.
+            // "Start is larger than end or size of file."
             System.out.println("exception: " + ex);
             expectedException = ex;
         }
@@ -119,30 +158,66 @@ public class DownloadInstanceWriterTest {
         assertNotNull(expectedException);
     }
 
-    // Get first 10 bytes and last 10 bytes. Not currently supported.
+    // Get first 10 bytes and last 10 bytes.
     @Test
     public void testGetRanges0to0and90toNull() {
-        Exception expectedException = null;
-        try {
-            List<Range> ranges = diw.getRanges("bytes=0-9,-10", 100);
-            // These asserts on start, end, etc. don't actually
-            // run because we throw an expection that multiple
-            // ranges are not supported.
-            //
-            // first range
-            assertEquals(0, ranges.get(0).getStart());
-            assertEquals(9, ranges.get(0).getEnd());
-            assertEquals(10, ranges.get(0).getLength());
-            // second range
-            assertEquals(90, ranges.get(1).getStart());
-            assertEquals(99, ranges.get(1).getEnd());
-            assertEquals(10, ranges.get(1).getLength());
-        } catch (Exception ex) {
-            // Only one range is allowed.
-            System.out.println("exception: " + ex);
-            expectedException = ex;
+        List<Range> ranges = diw.getRanges("bytes=0-9,-10", 100);
+        // first range
+        assertEquals(0, ranges.get(0).getStart());
+        assertEquals(9, ranges.get(0).getEnd());
+        assertEquals(10, ranges.get(0).getLength());
+        // second range
+        assertEquals(90, ranges.get(1).getStart());
+        assertEquals(99, ranges.get(1).getEnd());
+        assertEquals(10, ranges.get(1).getLength());
+    }
+
+    @Test
+    public void testWriteFileChannel(@TempDir Path tempDir) throws IOException {
+        byte[] content = new byte[600 * 1024];
+        new Random(1).nextBytes(content);
+        Path file = Files.write(tempDir.resolve("file"), content);
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteArrayOutputStream outstream = new ByteArrayOutputStream();
+            DownloadInstanceWriter.writeFileChannel(channel, 0, channel.size(), outstream);
+            assertArrayEquals(content, outstream.toByteArray());
+
+            // a range, spanning several reads:
+            outstream = new ByteArrayOutputStream();
+            DownloadInstanceWriter.writeFileChannel(channel, 1000, 300 * 1024, outstream);
+            assertArrayEquals(Arrays.copyOfRange(content, 1000, 1000 + 300 * 1024), outstream.toByteArray());
+
+            // a range past the end of the file:
+            outstream = new ByteArrayOutputStream();
+            DownloadInstanceWriter.writeFileChannel(channel, content.length - 10, 100, outstream);
+            assertArrayEquals(Arrays.copyOfRange(content, content.length - 10, content.length), outstream.toByteArray());
         }
-        assertNotNull(expectedException);
+    }
+
+    @Test
+    public void testWriteRanges() throws IOException {
+        byte[] content = "0123456789abcdefghij".getBytes();
+        StorageIO<?> storageIO = new InputStreamIO(new ByteArrayInputStream(content), content.length);
+        storageIO.setVarHeader("x\ty\n");
+
+        // (the ranges of the variable header followed by the content)
+        ByteArrayOutputStream outstream = new ByteArrayOutputStream();
+        long position = 0;
+        for (Range range : diw.getRanges("bytes=2-5,10-11,-3", 24)) {
+            position = DownloadInstanceWriter.writeRange(storageIO, storageIO.getInputStream(), position, range, outstream);
+        }
+        assertEquals("y\n01" + "67" + "hij", outstream.toString());
+        assertEquals(20, position);
+    }
+
+    @Test
+    public void testGetMultipartHeader() {
+        assertEquals("--b\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-9/100\r\n\r\n",
+                DownloadInstanceWriter.getMultipartHeader("b", "text/plain", new Range(0, 9), 100, true));
+        assertEquals("\r\n--b\r\nContent-Type: text/plain\r\nContent-Range: bytes 90-99/100\r\n\r\n",
+                DownloadInstanceWriter.getMultipartHeader("b", "text/plain", new Range(90, 99), 100, false));
+        assertEquals("\r\n--b--\r\n", DownloadInstanceWriter.getMultipartEnd("b"));
     }
 
 }
@@ -0,0 +1,39 @@
+package edu.harvard.iq.dataverse.api.imports;
+
+import java.io.StringReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ImportDDIServiceBeanTest {
+
+    @Test
+    public void testSkipElement() throws XMLStreamException {
+        XMLStreamReader xmlr = reader("<codeBook><dataDscr><var name=\"a\"><labl>A</labl></var><var name=\"b\"/></dataDscr><otherMat/></codeBook>");
+        xmlr.nextTag(); // codeBook
+        xmlr.nextTag(); // dataDscr
+        assertEquals("dataDscr", xmlr.getLocalName());
+
+        ImportDDIServiceBean.skipElement(xmlr);
+        assertEquals("dataDscr", xmlr.getLocalName());
+        xmlr.nextTag();
+        assertEquals("otherMat", xmlr.getLocalName());
+    }
+
+    @Test
+    public void testSkipElementTruncated() throws XMLStreamException {
+        XMLStreamReader xmlr = reader("<codeBook><dataDscr><var name=\"a\"/>");
+        xmlr.nextTag();
+        xmlr.nextTag();
+
+        assertThrows(XMLStreamException.class, () -> ImportDDIServiceBean.skipElement(xmlr));
+    }
+
+    private static XMLStreamReader reader(String xml) throws XMLStreamException {
+        return XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml));
+    }
+}
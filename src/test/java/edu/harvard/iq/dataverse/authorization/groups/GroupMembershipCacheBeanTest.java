@@ -0,0 +1,65 @@
+package edu.harvard.iq.dataverse.authorization.groups;
+
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IpAddress;
+import edu.harvard.iq.dataverse.authorization.users.GuestUser;
+import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+public class GroupMembershipCacheBeanTest {
+
+    @Test
+    public void testCachesPerUserAndAddress() {
+        GroupMembershipCacheBean sut = new GroupMembershipCacheBean();
+        AtomicInteger loads = new AtomicInteger();
+
+        DataverseRequest req1 = new DataverseRequest(GuestUser.get(), IpAddress.valueOf("1.1.1.1"));
+        DataverseRequest req1Again = new DataverseRequest(GuestUser.get(), IpAddress.valueOf("1.1.1.1"));
+        DataverseRequest req2 = new DataverseRequest(GuestUser.get(), IpAddress.valueOf("1.1.1.2"));
+
+        Set<String> aliases = sut.getGroupAliases(req1, () -> { loads.incrementAndGet(); return Set.of("ip/b", "ip/a"); });
+        assertEquals(List.of("ip/a", "ip/b"), List.copyOf(aliases));
+        assertEquals(1, loads.get());
+
+        sut.getGroupAliases(req1Again, () -> { loads.incrementAndGet(); return Set.of(); });
+        assertEquals(1, loads.get());
+
+        assertEquals(Set.of(), sut.getGroupAliases(req2, () -> { loads.incrementAndGet(); return Set.of(); }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        GroupMembershipCacheBean sut = new GroupMembershipCacheBean();
+        DataverseRequest req = new DataverseRequest(GuestUser.get(), IpAddress.valueOf("1.1.1.1"));
+
+        assertEquals(Set.of("ip/a"), sut.getGroupAliases(req, () -> Set.of("ip/a")));
+        sut.invalidateAll();
+        assertEquals(Set.of("ip/b"), sut.getGroupAliases(req, () -> Set.of("ip/b")));
+    }
+
+    @Test
+    public void testInvalidateAllAgainAfterCommit() {
+        GroupMembershipCacheBean sut = new GroupMembershipCacheBean();
+        sut.transactionRegistry = Mockito.mock(TransactionSynchronizationRegistry.class);
+        Mockito.when(sut.transactionRegistry.getTransactionKey()).thenReturn(new Object());
+        DataverseRequest req = new DataverseRequest(GuestUser.get(), IpAddress.valueOf("1.1.1.1"));
+
+        sut.invalidateAll();
+        ArgumentCaptor<Synchronization> sync = ArgumentCaptor.forClass(Synchronization.class);
+        Mockito.verify(sut.transactionRegistry).registerInterposedSynchronization(sync.capture());
+
+        // a concurrent request caches the memberships before the change is committed
+        assertEquals(Set.of("ip/old"), sut.getGroupAliases(req, () -> Set.of("ip/old")));
+        sync.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        assertEquals(Set.of("ip/new"), sut.getGroupAliases(req, () -> Set.of("ip/new")));
+    }
+}
@@ -0,0 +1,54 @@
+package edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+public class IpGroupIndexBeanTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<List<IpGroup>> loader = () -> {
+        loads.incrementAndGet();
+        return List.of();
+    };
+
+    @Test
+    public void testIndexIsReused() {
+        IpGroupIndexBean sut = new IpGroupIndexBean();
+
+        IpGroupIndex index = sut.getIndex(loader);
+        assertSame(index, sut.getIndex(loader));
+        assertEquals(1, loads.get());
+
+        sut.invalidate();
+        sut.getIndex(loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testInvalidateAgainAfterCommit() {
+        IpGroupIndexBean sut = new IpGroupIndexBean();
+        sut.transactionRegistry = Mockito.mock(TransactionSynchronizationRegistry.class);
+        Mockito.when(sut.transactionRegistry.getTransactionKey()).thenReturn(new Object());
+
+        sut.invalidate();
+        ArgumentCaptor<Synchronization> sync = ArgumentCaptor.forClass(Synchronization.class);
+        Mockito.verify(sut.transactionRegistry).registerInterposedSynchronization(sync.capture());
+
+        // a concurrent lookup rebuilds the index before the change is committed
+        sut.getIndex(loader);
+        assertEquals(1, loads.get());
+
+        sync.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        sut.getIndex(loader);
+        assertEquals(2, loads.get());
+    }
+}
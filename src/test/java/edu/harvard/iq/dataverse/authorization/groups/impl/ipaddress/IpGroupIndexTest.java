@@ -0,0 +1,100 @@
+package edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress;
+
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IpAddress;
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IpAddressRange;
+import edu.harvard.iq.dataverse.mocks.MocksFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IpGroupIndexTest {
+
+    @Test
+    public void testFindGroupsContaining() {
+        IpGroup campus = group("campus", "10.0.0.0", "10.0.255.255", "10.2.0.0", "10.2.0.255");
+        IpGroup lab = group("lab", "10.0.1.0", "10.0.1.255");
+        IpGroup single = group("single", "10.0.1.7", "10.0.1.7");
+        IpGroup v6 = group("v6", "2001:db8::", "2001:db8::ffff");
+
+        IpGroupIndex sut = IpGroupIndex.build(Arrays.asList(campus, lab, single, v6));
+        assertEquals(4, sut.size());
+
+        assertEquals(aliases("campus"), aliasesFor(sut, "10.0.0.0"));
+        assertEquals(aliases("campus", "lab"), aliasesFor(sut, "10.0.1.0"));
+        assertEquals(aliases("campus", "lab", "single"), aliasesFor(sut, "10.0.1.7"));
+        assertEquals(aliases("campus", "lab"), aliasesFor(sut, "10.0.1.8"));
+        assertEquals(aliases("campus"), aliasesFor(sut, "10.0.2.0"));
+        assertEquals(aliases("campus"), aliasesFor(sut, "10.0.255.255"));
+        assertEquals(aliases(), aliasesFor(sut, "10.1.0.0"));
+        assertEquals(aliases("campus"), aliasesFor(sut, "10.2.0.128"));
+        assertEquals(aliases(), aliasesFor(sut, "9.255.255.255"));
+        assertEquals(aliases(), aliasesFor(sut, "255.255.255.255"));
+
+        assertEquals(aliases("v6"), aliasesFor(sut, "2001:db8::1"));
+        assertEquals(aliases("v6"), aliasesFor(sut, "2001:db8::ffff"));
+        assertEquals(aliases(), aliasesFor(sut, "2001:db8::1:0"));
+        assertEquals(aliases(), aliasesFor(sut, "ffff::1"));
+    }
+
+    @Test
+    public void testOverlappingRangesOfSameGroup() {
+        IpGroup grp = group("overlap", "1.1.1.0", "1.1.1.100", "1.1.1.50", "1.1.1.200");
+        IpGroupIndex sut = IpGroupIndex.build(Collections.singletonList(grp));
+
+        assertEquals(aliases("overlap"), aliasesFor(sut, "1.1.1.101"));
+        assertEquals(aliases("overlap"), aliasesFor(sut, "1.1.1.200"));
+        assertEquals(aliases(), aliasesFor(sut, "1.1.1.201"));
+    }
+
+    @Test
+    public void testReturnsDetachedCopies() {
+        IpGroup grp = group("copy", "1.2.3.0", "1.2.3.255");
+        IpGroupIndex sut = IpGroupIndex.build(Collections.singletonList(grp));
+
+        IpGroup found = sut.findGroupsContaining(IpAddress.valueOf("1.2.3.4")).iterator().next();
+        assertNotSame(grp, found);
+        assertEquals(grp, found);
+        assertTrue(found.containsAddress(IpAddress.valueOf("1.2.3.4")));
+
+        // Changing the source group does not change the index
+        grp.remove(grp.getIpv4Ranges().iterator().next());
+        assertEquals(aliases("copy"), aliasesFor(sut, "1.2.3.4"));
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        IpGroupIndex sut = IpGroupIndex.build(Collections.emptyList());
+        assertTrue(sut.findGroupsContaining(IpAddress.valueOf("1.2.3.4")).isEmpty());
+        assertTrue(sut.findGroupsContaining(IpAddress.valueOf("::1")).isEmpty());
+    }
+
+    private static IpGroup group(String alias, String... bottomsAndTops) {
+        IpGroup grp = new IpGroup();
+        grp.setId(MocksFactory.nextId());
+        grp.setPersistedGroupAlias(alias);
+        grp.setDisplayName(alias);
+        grp.setDescription("Group " + alias);
+        grp.setIpv4Ranges(new HashSet<>());
+        grp.setIpv6Ranges(new HashSet<>());
+        for (int i = 0; i < bottomsAndTops.length; i += 2) {
+            grp.add(IpAddressRange.make(IpAddress.valueOf(bottomsAndTops[i]), IpAddress.valueOf(bottomsAndTops[i + 1])));
+        }
+        return grp;
+    }
+
+    private static Set<String> aliasesFor(IpGroupIndex sut, String address) {
+        return sut.findGroupsContaining(IpAddress.valueOf(address)).stream()
+                .map(IpGroup::getPersistedGroupAlias)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static Set<String> aliases(String... aliases) {
+        return new TreeSet<>(Arrays.asList(aliases));
+    }
+}
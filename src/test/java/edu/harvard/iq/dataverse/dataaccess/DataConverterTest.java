@@ -0,0 +1,30 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.DataTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DataConverterTest {
+
+    @Test
+    public void testConvertsFromStoredOriginal() {
+        assertTrue(DataConverter.convertsFromStoredOriginal(tabularFile("application/x-stata-14"), DataConverter.FILE_TYPE_RDATA));
+        assertTrue(DataConverter.convertsFromStoredOriginal(tabularFile("application/x-spss-sav"), DataConverter.FILE_TYPE_RDATA));
+
+        // other originals are converted from the tab file:
+        assertFalse(DataConverter.convertsFromStoredOriginal(tabularFile("text/csv"), DataConverter.FILE_TYPE_RDATA));
+        assertFalse(DataConverter.convertsFromStoredOriginal(tabularFile(null), DataConverter.FILE_TYPE_RDATA));
+        assertFalse(DataConverter.convertsFromStoredOriginal(tabularFile("application/x-stata-14"), "prep"));
+    }
+
+    private static DataFile tabularFile(String originalFileFormat) {
+        DataTable dataTable = new DataTable();
+        dataTable.setOriginalFileFormat(originalFileFormat);
+        DataFile dataFile = new DataFile();
+        dataFile.setDataTable(dataTable);
+        return dataFile;
+    }
+}
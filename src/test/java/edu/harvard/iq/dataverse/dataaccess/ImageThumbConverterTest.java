@@ -0,0 +1,46 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ImageThumbConverterTest {
+
+    @Test
+    public void testGetSubsampling() {
+        assertEquals(1, ImageThumbConverter.getSubsampling(100, 50, 64));
+        assertEquals(1, ImageThumbConverter.getSubsampling(800, 600, 400));
+        assertEquals(10, ImageThumbConverter.getSubsampling(4000, 3000, 200));
+        assertEquals(31, ImageThumbConverter.getSubsampling(3000, 4000, 64));
+    }
+
+    @Test
+    public void testReadImageIsSubsampled() throws IOException {
+        byte[] png = png(1000, 500);
+
+        BufferedImage image = ImageThumbConverter.readImage(new ByteArrayInputStream(png), 100);
+        assertEquals(200, image.getWidth());
+        assertEquals(100, image.getHeight());
+
+        image = ImageThumbConverter.readImage(new ByteArrayInputStream(png), 1000);
+        assertEquals(1000, image.getWidth());
+        assertEquals(500, image.getHeight());
+    }
+
+    @Test
+    public void testReadImageNotAnImage() throws IOException {
+        assertNull(ImageThumbConverter.readImage(new ByteArrayInputStream("not an image".getBytes()), 64));
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", outputStream);
+        return outputStream.toByteArray();
+    }
+}
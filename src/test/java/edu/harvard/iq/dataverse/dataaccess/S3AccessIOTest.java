@@ -4,7 +4,12 @@
  */
 package edu.harvard.iq.dataverse.dataaccess;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
 import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.Dataset;
 import edu.harvard.iq.dataverse.api.UtilIT;
@@ -16,6 +21,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.junit.jupiter.api.Assertions.*;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
@@ -23,8 +29,14 @@ import org.mockito.quality.Strictness;
 import static org.mockito.Mockito.*;
 import static org.mockito.BDDMockito.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.STRICT_STUBS)
@@ -133,6 +145,80 @@ public class S3AccessIOTest {
         assertEquals(60, dataFileAccess.getUrlExpirationMinutes());
     }
     
+    @Test
+    void getUploadPartSize() {
+        System.clearProperty("dataverse.files.s3test.upload-part-size");
+        assertEquals(16 * 1024 * 1024L, S3AccessIO.getUploadPartSize("s3test"));
+        System.setProperty("dataverse.files.s3test.upload-part-size", "104857600");
+        assertEquals(100 * 1024 * 1024L, S3AccessIO.getUploadPartSize("s3test"));
+        // below the S3 minimum:
+        System.setProperty("dataverse.files.s3test.upload-part-size", "1024");
+        assertEquals(16 * 1024 * 1024L, S3AccessIO.getUploadPartSize("s3test"));
+        System.clearProperty("dataverse.files.s3test.upload-part-size");
+    }
+    
+    @Test
+    void getUploadThreads() {
+        System.clearProperty("dataverse.files.s3test.upload-threads");
+        assertEquals(10, S3AccessIO.getUploadThreads("s3test"));
+        System.setProperty("dataverse.files.s3test.upload-threads", "4");
+        assertEquals(4, S3AccessIO.getUploadThreads("s3test"));
+        System.setProperty("dataverse.files.s3test.upload-threads", "NaN");
+        assertEquals(10, S3AccessIO.getUploadThreads("s3test"));
+        System.clearProperty("dataverse.files.s3test.upload-threads");
+    }
+    
+    @Test
+    void deleteObjectsInBatches() {
+        List<String> keys = IntStream.range(0, 2500).mapToObj(i -> "10.5072/FK2/ABC/file" + i).collect(Collectors.toList());
+        
+        assertEquals(0, S3AccessIO.deleteObjects(s3client, "thebucket", keys));
+        
+        ArgumentCaptor<DeleteObjectsRequest> requests = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3client, times(3)).deleteObjects(requests.capture());
+        List<String> deleted = requests.getAllValues().stream().flatMap(r -> r.getKeys().stream()).map(KeyVersion::getKey).collect(Collectors.toList());
+        assertEquals(2500, deleted.size());
+        assertTrue(deleted.containsAll(keys));
+        assertTrue(requests.getAllValues().stream().allMatch(r -> r.getKeys().size() <= S3AccessIO.DELETE_BATCH_SIZE));
+    }
+    
+    @Test
+    void deleteObjectsFailedBatch() {
+        given(s3client.deleteObjects(any(DeleteObjectsRequest.class))).willThrow(new AmazonClientException("failed"));
+        
+        assertEquals(10, S3AccessIO.deleteObjects(s3client, "thebucket", List.of("a", "b", "c", "d", "e", "f", "g", "h", "i", "j")));
+    }
+    
+    @Test
+    void getMainKey() {
+        String prefix = "10.5072/FK2/ABC/";
+        assertEquals(prefix + "18b39722140-50eb7d3c5ece", S3AccessIO.getMainKey(prefix + "18b39722140-50eb7d3c5ece", prefix));
+        assertEquals(prefix + "18b39722140-50eb7d3c5ece", S3AccessIO.getMainKey(prefix + "18b39722140-50eb7d3c5ece.thumb48", prefix));
+        assertEquals(prefix + "18b39722140-50eb7d3c5ece", S3AccessIO.getMainKey(prefix + "18b39722140-50eb7d3c5ece.orig.RData", prefix));
+    }
+    
+    @Test
+    void saveInputStreamAsAux_uploadsWithTransferManager() throws IOException {
+        // given
+        AtomicReference<String> uploadThread = new AtomicReference<>();
+        given(s3client.putObject(any(PutObjectRequest.class))).willAnswer(invocation -> {
+            uploadThread.set(Thread.currentThread().getName());
+            return new PutObjectResult();
+        });
+        byte[] content = "{}".getBytes(StandardCharsets.UTF_8);
+        
+        // when
+        dataSetAccess.saveInputStreamAsAux(new ByteArrayInputStream(content), "export.json", (long) content.length);
+        
+        // then
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3client).putObject(request.capture());
+        assertEquals("thebucket", request.getValue().getBucketName());
+        assertEquals(dataSet.getAuthorityForFileStorage() + "/" + dataSet.getIdentifierForFileStorage() + "/export.json", request.getValue().getKey());
+        // sent from the pool of the TransferManager, not from the calling thread
+        assertTrue(uploadThread.get().startsWith("s3-upload-s3test-"), uploadThread.get());
+    }
+    
     @Test
     void testS3IdentifierFormats() throws IOException {
         assertTrue(DataAccess.isValidDirectStorageIdentifier("s3test://thebucket:" + FileUtil.generateStorageIdentifier()));
@@ -119,6 +119,12 @@ public class StorageIOTest {
         assertEquals(null, instance.getErrorMessage());
     }
 
+    @Test
+    public void testGetRangeInputStream() {
+        assertFalse(instance.isRangeReadSupported());
+        assertThrows(UnsupportedDataAccessOperationException.class, () -> instance.getRangeInputStream(0, 10));
+    }
+
     @Test
     public void testOutputStream() throws Exception {
         assertEquals(null, instance.getOutputStream());
@@ -170,6 +170,11 @@ public class TestCommandContext implements CommandContext {
         return null;
     }
 
+    @Override
+    public ThumbnailServiceBean thumbnails() {
+        return null;
+    }
+
     @Override
     public ExplicitGroupServiceBean explicitGroups() {
         return null;
@@ -0,0 +1,176 @@
+package edu.harvard.iq.dataverse.engine.command.impl;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.DatasetVersion;
+import edu.harvard.iq.dataverse.engine.TestCommandContext;
+import edu.harvard.iq.dataverse.engine.command.CommandContext;
+import edu.harvard.iq.dataverse.engine.command.exception.CommandException;
+import edu.harvard.iq.dataverse.engine.command.exception.CommandExecutionException;
+import edu.harvard.iq.dataverse.mocks.MocksFactory;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.storageuse.UploadSessionQuotaLimit;
+import edu.harvard.iq.dataverse.util.SystemConfig;
+import edu.harvard.iq.dataverse.util.file.CreateDataFileResult;
+import edu.harvard.iq.dataverse.util.testing.JvmSetting;
+import edu.harvard.iq.dataverse.util.testing.LocalJvmSettings;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+@LocalJvmSettings
+@JvmSetting(key = JvmSettings.FILES_DIRECTORY, method = "filesDir")
+@JvmSetting(key = JvmSettings.FILES_UNZIP_THREADS, value = "4")
+public class CreateNewDataFilesCommandTest {
+
+    @TempDir
+    static Path filesDir;
+
+    static String filesDir() {
+        return filesDir.toString();
+    }
+
+    private Path tempDir;
+    private SystemConfig systemConfig;
+    private CommandContext ctxt;
+    private DatasetVersion version;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = filesDir.resolve("temp");
+        Files.createDirectories(tempDir);
+        try (Stream<Path> leftovers = Files.list(tempDir)) {
+            for (Path leftover : leftovers.collect(Collectors.toList())) {
+                Files.delete(leftover);
+            }
+        }
+
+        systemConfig = Mockito.mock(SystemConfig.class);
+        Mockito.when(systemConfig.getFileFixityChecksumAlgorithm()).thenReturn(DataFile.ChecksumType.MD5);
+        Mockito.when(systemConfig.getZipUploadFilesLimit()).thenReturn(1000);
+        // a mocked Long would be 0, meaning no file is small enough
+        Mockito.when(systemConfig.getMaxFileUploadSizeForStore(Mockito.any())).thenReturn(null);
+        ctxt = new TestCommandContext() {
+            @Override
+            public SystemConfig systemConfig() {
+                return systemConfig;
+            }
+        };
+        version = MocksFactory.makeDataset().getLatestVersion();
+    }
+
+    @Test
+    public void testUnzipInParallel() throws Exception {
+        CreateDataFileResult result = upload(zip(entries(20), null), null);
+
+        List<DataFile> datafiles = result.getDataFiles();
+        assertEquals(21, datafiles.size());
+        // in the order of the archive
+        assertEquals("file0.txt", datafiles.get(0).getFileMetadata().getLabel());
+        assertEquals("file19.txt", datafiles.get(19).getFileMetadata().getLabel());
+        assertEquals("dir", datafiles.get(19).getFileMetadata().getDirectoryLabel());
+        assertEquals(50000L, datafiles.get(20).getFilesize());
+        // the zip itself is gone, each unpacked file is there
+        assertEquals(datafiles.stream().map(DataFile::getStorageIdentifier).collect(Collectors.toSet()), tempFiles());
+    }
+
+    @Test
+    public void testUnzipFallsBackToTheZipWhenAnEntryExceedsTheSizeLimit() throws Exception {
+        // the zip directory understates the size of the entry, so that it is
+        // only caught while unpacking
+        Mockito.when(systemConfig.getMaxFileUploadSizeForStore(Mockito.any())).thenReturn(4000L);
+
+        CreateDataFileResult result = upload(zip(entries(20), "big.txt"), null);
+
+        List<DataFile> datafiles = result.getDataFiles();
+        assertEquals(1, datafiles.size());
+        assertEquals("archive.zip", datafiles.get(0).getFileMetadata().getLabel());
+        // no unpacked files left behind, only the zip saved as is
+        assertEquals(Set.of(datafiles.get(0).getStorageIdentifier()), tempFiles());
+    }
+
+    @Test
+    public void testUnzipIsRejectedWhenTheEntriesExceedTheQuota() throws Exception {
+        Mockito.when(systemConfig.isStorageQuotasEnforced()).thenReturn(true);
+        UploadSessionQuotaLimit quota = new UploadSessionQuotaLimit(4000L, 0L);
+        byte[] zip = zip(entries(20), "big.txt");
+
+        assertThrows(CommandExecutionException.class, () -> upload(zip, quota));
+
+        // no unpacked files left behind (only the upload itself)
+        for (String tempFile : tempFiles()) {
+            assertTrue(tempFile.startsWith("tmp") && tempFile.endsWith("upload"), tempFile);
+        }
+        assertEquals(0L, quota.getTotalUsageInBytes());
+    }
+
+    private CreateDataFileResult upload(byte[] zip, UploadSessionQuotaLimit quota) throws CommandException {
+        return new CreateNewDataFilesCommand(MocksFactory.makeRequest(), version, new ByteArrayInputStream(zip),
+                "archive.zip", "application/zip", null, quota, null).execute(ctxt);
+    }
+
+    private Set<String> tempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.map(file -> file.getFileName().toString()).collect(Collectors.toSet());
+        }
+    }
+
+    private static Map<String, byte[]> entries(int count) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = (i == count - 1 ? "dir/" : "") + "file" + i + ".txt";
+            entries.put(name, ("content of file " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        entries.put("big.txt", "x".repeat(50000).getBytes(StandardCharsets.UTF_8));
+        return entries;
+    }
+
+    /**
+     * @param understated an entry whose size is recorded as 1 byte in the
+     *                    central directory of the archive, or null
+     */
+    private static byte[] zip(Map<String, byte[]> entries, String understated) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        byte[] bytes = out.toByteArray();
+        if (understated != null) {
+            byte[] name = understated.getBytes(StandardCharsets.UTF_8);
+            for (int p = 0; p + 46 < bytes.length; p++) {
+                // central directory file header: signature, ..., uncompressed
+                // size at 24, name length at 28, name at 46
+                if (bytes[p] == 0x50 && bytes[p + 1] == 0x4b && bytes[p + 2] == 0x01 && bytes[p + 3] == 0x02
+                        && ((bytes[p + 28] & 0xff) | (bytes[p + 29] & 0xff) << 8) == name.length
+                        && new String(bytes, p + 46, name.length, StandardCharsets.UTF_8).equals(understated)) {
+                    bytes[p + 24] = 1;
+                    bytes[p + 25] = 0;
+                    bytes[p + 26] = 0;
+                    bytes[p + 27] = 0;
+                }
+            }
+        }
+        return bytes;
+    }
+}
@@ -238,8 +238,8 @@ public class MoveDataverseCommandTest {
             public IndexBatchServiceBean indexBatch(){
                 return new IndexBatchServiceBean(){
                     @Override
-                    public void indexDataverseRecursively(Dataverse dataverse) {
-
+                    public Future<String> indexMovedDataverse(Dataverse dataverse) {
+                        return null;
                     }
                 };
 
@@ -4,6 +4,7 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -47,4 +48,54 @@ public class DataReaderTest {
         reader.setLSF(true);
         assertThrows(IOException.class, () -> reader.readULong());
     }
+
+    @Test
+    public void testReadBigEndian() throws IOException {
+        byte[] bytes = ByteBuffer.allocate(18).putShort((short) -2).putInt(123456789).putDouble(-1.5).putFloat(2.25f).array();
+        BufferedInputStream stream = new BufferedInputStream(new ByteArrayInputStream(bytes));
+        DataReader reader = new DataReader(stream);
+        reader.setLSF(false);
+        assertEquals(-2, reader.readShort());
+        assertEquals(123456789, reader.readInt());
+        assertEquals(-1.5, reader.readDouble());
+        assertEquals(2.25f, reader.readFloat());
+        assertEquals(18, reader.getByteOffset());
+    }
+
+    // The values straddle the boundaries of a (small) internal buffer
+    @Test
+    public void testReadAcrossBufferBoundaries() throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(3 + 100 * 8 + 6).order(ByteOrder.LITTLE_ENDIAN);
+        byteBuffer.put(new byte[]{1, 2, 3});
+        for (int i = 0; i < 100; i++) {
+            byteBuffer.putDouble(i * 0.5);
+        }
+        byteBuffer.put(new byte[]{1, 0, 0, 0, 0, 1});
+        BufferedInputStream stream = new BufferedInputStream(new ByteArrayInputStream(byteBuffer.array()));
+        DataReader reader = new DataReader(stream, 10);
+        reader.setLSF(true);
+        assertArrayEquals(new byte[]{1, 2, 3}, reader.readBytes(3));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 0.5, reader.readDouble());
+        }
+        assertEquals(1L + (1L << 40), reader.readULong(6));
+        assertEquals(3 + 100 * 8 + 6, reader.getByteOffset());
+        assertThrows(IOException.class, () -> reader.readInt());
+    }
+
+    @Test
+    public void testSkipDefinedSections() throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1000).order(ByteOrder.LITTLE_ENDIAN);
+        for (int length : new int[]{5, 100}) {
+            byteBuffer.put("<ch>".getBytes()).putInt(length).put(new byte[length]).put("</ch>".getBytes());
+        }
+        byteBuffer.put("</characteristics>".getBytes());
+        BufferedInputStream stream = new BufferedInputStream(new ByteArrayInputStream(byteBuffer.array(), 0, byteBuffer.position()));
+        DataReader reader = new DataReader(stream, 16);
+        reader.setLSF(true);
+        reader.skipDefinedSections("ch");
+        reader.readClosingTag("characteristics");
+        assertEquals(byteBuffer.position(), reader.getByteOffset());
+        assertFalse(reader.checkTag("<ch>"));
+    }
 }
@@ -270,6 +270,29 @@ public class SolrQueryFormatterTest {
         assertEquals(expectedResult, e.getMessage());
     }
     
+    @Test
+    void testBuildTermsQuery() {
+        SolrQueryFormatter sqf = new SolrQueryFormatter();
+
+        assertThrows(NullPointerException.class, () -> sqf.buildTermsQuery(new HashSet<>(list(1L)), null, null));
+        assertEquals(null, sqf.buildTermsQuery(null, "entityId", null));
+        assertEquals(null, sqf.buildTermsQuery(new HashSet<>(), "entityId", null));
+        assertEquals(null, sqf.buildTermsQuery(new HashSet<>(list((Long) null)), "entityId", null));
+
+        // ids are sorted, so equal sets always give the same (cacheable) query
+        Set<Long> ids = new HashSet<>(list(30L, 2L, null, 100L));
+        assertEquals("_query_:\"{!terms f=entityId}2,30,100\"", sqf.buildTermsQuery(ids, "entityId", null));
+        assertEquals("(_query_:\"{!terms f=parentId}2,30,100\" AND dvObjectType:(datasets OR files))",
+                sqf.buildTermsQuery(ids, "parentId", "datasets OR files"));
+
+        // no boolean clause limit, a single clause regardless of the number of ids
+        Set<Long> manyIds = new HashSet<>();
+        for (long i = 1; i <= 5000; i++) {
+            manyIds.add(i);
+        }
+        assertEquals(1, StringUtils.countMatches(sqf.buildTermsQuery(manyIds, "entityId", null), "entityId"));
+    }
+
     static List<Long> list(Long... args) {
         return Arrays.asList(args);
     }
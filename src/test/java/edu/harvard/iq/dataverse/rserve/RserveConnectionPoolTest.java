@@ -0,0 +1,121 @@
+package edu.harvard.iq.dataverse.rserve;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.rosuda.REngine.REXPString;
+import org.rosuda.REngine.Rserve.RConnection;
+import org.rosuda.REngine.Rserve.RserveException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RserveConnectionPoolTest {
+
+    private List<RConnection> opened;
+    private boolean refuseConnections;
+    private String workingDirectory;
+
+    @BeforeEach
+    public void setUp() {
+        opened = new ArrayList<>();
+        refuseConnections = false;
+        workingDirectory = "/home/rserve";
+    }
+
+    @Test
+    public void testConnectionIsReused() throws RserveException {
+        RserveConnectionPool pool = pool(2);
+
+        RConnection connection = pool.borrowConnection();
+        pool.releaseConnection(connection, true);
+        assertEquals(1, pool.getIdleConnectionCount());
+        Mockito.verify(connection).voidEval("rm(list = ls(all.names = TRUE))");
+        Mockito.verify(connection).voidEval("setwd(\"/home/rserve\")");
+
+        assertSame(connection, pool.borrowConnection());
+        assertEquals(1, opened.size());
+        Mockito.verify(connection, Mockito.never()).close();
+    }
+
+    @Test
+    public void testFailedConnectionIsClosed() throws RserveException {
+        RserveConnectionPool pool = pool(2);
+
+        RConnection connection = pool.borrowConnection();
+        pool.releaseConnection(connection, false);
+        Mockito.verify(connection).close();
+        assertEquals(0, pool.getIdleConnectionCount());
+
+        assertNotSame(connection, pool.borrowConnection());
+        assertEquals(2, opened.size());
+    }
+
+    @Test
+    public void testDeadIdleConnectionIsReplaced() throws RserveException {
+        RserveConnectionPool pool = pool(2);
+
+        RConnection connection = pool.borrowConnection();
+        pool.releaseConnection(connection, true);
+        Mockito.when(connection.isConnected()).thenReturn(false);
+
+        assertNotSame(connection, pool.borrowConnection());
+        Mockito.verify(connection).close();
+    }
+
+    @Test
+    public void testConnectionWithoutAWorkingDirectoryIsClosed() throws RserveException {
+        RserveConnectionPool pool = pool(1);
+        workingDirectory = null;
+
+        assertThrows(RserveException.class, pool::borrowConnection);
+        Mockito.verify(opened.get(0)).close();
+
+        // and does not use up the limit
+        workingDirectory = "/home/rserve";
+        pool.borrowConnection();
+        assertEquals(2, opened.size());
+    }
+
+    @Test
+    public void testBorrowWaitsForARelease() throws RserveException {
+        RserveConnectionPool pool = pool(1);
+
+        RConnection connection = pool.borrowConnection();
+        assertThrows(RserveException.class, pool::borrowConnection);
+
+        pool.releaseConnection(connection, true);
+        assertSame(connection, pool.borrowConnection());
+    }
+
+    @Test
+    public void testFailedConnectDoesNotUseUpTheLimit() throws RserveException {
+        RserveConnectionPool pool = pool(1);
+
+        refuseConnections = true;
+        assertThrows(RserveException.class, pool::borrowConnection);
+
+        refuseConnections = false;
+        pool.borrowConnection();
+        assertEquals(1, opened.size());
+    }
+
+    private RserveConnectionPool pool(int maxConnections) {
+        return new RserveConnectionPool(() -> {
+            if (refuseConnections) {
+                throw new RserveException(null, "Connection refused");
+            }
+            RConnection connection = Mockito.mock(RConnection.class);
+            Mockito.when(connection.isConnected()).thenReturn(true);
+            if (workingDirectory != null) {
+                Mockito.when(connection.eval("getwd()")).thenReturn(new REXPString(workingDirectory));
+            }
+            opened.add(connection);
+            return connection;
+        }, maxConnections, 50, null, null);
+    }
+}
@@ -0,0 +1,221 @@
+package edu.harvard.iq.dataverse.search;
+
+import edu.harvard.iq.dataverse.search.IndexQueueEntry.Priority;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.testing.JvmSetting;
+import edu.harvard.iq.dataverse.util.testing.LocalJvmSettings;
+import edu.harvard.iq.dataverse.util.testing.Tags;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import jakarta.json.JsonObject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+// The queue is made of native PostgreSQL statements (ON CONFLICT, SKIP LOCKED),
+// so it is tested against a real database.
+@Tag(Tags.INTEGRATION_TEST)
+@Tag(Tags.USES_TESTCONTAINERS)
+@Testcontainers(disabledWithoutDocker = true)
+@LocalJvmSettings
+class IndexQueueServiceBeanIT {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    static EntityManagerFactory emf;
+
+    EntityManager em;
+    IndexQueueServiceBean sut;
+
+    @BeforeAll
+    static void setUp() throws SQLException, IOException {
+        try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+                Statement statement = connection.createStatement();
+                InputStream migration = IndexQueueServiceBeanIT.class.getResourceAsStream("/db/migration/V6.2.0.4.sql")) {
+            statement.execute(new String(migration.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        emf = Persistence.createEntityManagerFactory("VDCNet-ejbPU", Map.of(
+                "jakarta.persistence.transactionType", "RESOURCE_LOCAL",
+                "jakarta.persistence.jtaDataSource", "",
+                "jakarta.persistence.jdbc.driver", "org.postgresql.Driver",
+                "jakarta.persistence.jdbc.url", postgres.getJdbcUrl(),
+                "jakarta.persistence.jdbc.user", postgres.getUsername(),
+                "jakarta.persistence.jdbc.password", postgres.getPassword(),
+                "eclipselink.ddl-generation", "none",
+                "eclipselink.logging.level", "WARNING"));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        emf.close();
+    }
+
+    @BeforeEach
+    void createBean() {
+        em = emf.createEntityManager();
+        sut = new IndexQueueServiceBean();
+        sut.em = em;
+        inTransaction(() -> em.createNativeQuery("TRUNCATE indexqueue").executeUpdate());
+    }
+
+    @AfterEach
+    void closeEntityManager() {
+        em.close();
+    }
+
+    // every call of the bean runs in a transaction of its own (REQUIRES_NEW)
+    private <T> T inTransaction(Supplier<T> call) {
+        em.getTransaction().begin();
+        try {
+            T result = call.get();
+            em.getTransaction().commit();
+            return result;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.clear();
+        }
+    }
+
+    private int enqueue(long id, Priority priority, boolean cleanUp) {
+        return inTransaction(() -> sut.enqueue(id, priority, cleanUp));
+    }
+
+    private List<Long> claim(int max) {
+        return inTransaction(() -> sut.claim(max)).stream()
+                .map(IndexQueueEntry::getDvObjectId)
+                .collect(Collectors.toList());
+    }
+
+    private JsonObject status() {
+        return inTransaction(() -> sut.getStatus().build());
+    }
+
+    @Test
+    void enqueueCoalescesRequestsForTheSameObject() {
+        assertEquals(0, enqueue(1L, Priority.BULK, false));
+        assertEquals(1, enqueue(1L, Priority.INTERACTIVE, true));
+        assertEquals(2, enqueue(1L, Priority.BULK, false));
+
+        assertEquals(1, status().getInt("depth"));
+        List<IndexQueueEntry> claimed = inTransaction(() -> sut.claim(10));
+        assertEquals(1, claimed.size());
+        IndexQueueEntry entry = claimed.get(0);
+        assertEquals(Priority.INTERACTIVE, entry.getPriority());
+        assertTrue(entry.isCleanUp());
+        assertEquals(2, entry.getGeneration());
+        assertEquals(IndexQueueServiceBean.NODE, entry.getClaimedBy());
+    }
+
+    @Test
+    void claimTakesTheMostUrgentEntriesOnce() {
+        enqueue(1L, Priority.BULK, false);
+        enqueue(2L, Priority.BULK, false);
+        enqueue(3L, Priority.INTERACTIVE, false);
+
+        assertEquals(List.of(3L), claim(1));
+        assertEquals(List.of(1L, 2L), claim(10));
+        assertEquals(List.of(), claim(10));
+    }
+
+    @Test
+    void completedKeepsEntriesRequestedAgainMeanwhile() {
+        enqueue(1L, Priority.INTERACTIVE, false);
+        IndexQueueEntry claimed = inTransaction(() -> sut.claim(1)).get(0);
+        // requested again while being indexed: not claimable by anyone else
+        enqueue(1L, Priority.INTERACTIVE, false);
+        assertEquals(List.of(), claim(10));
+
+        IndexQueueEntry again = inTransaction(() -> sut.completed(1L, claimed.getGeneration()));
+        assertEquals(1, again.getGeneration());
+        assertEquals(IndexQueueServiceBean.NODE, again.getClaimedBy());
+        assertEquals(1, status().getInt("depth"));
+
+        assertNull(inTransaction(() -> sut.completed(1L, again.getGeneration())));
+        assertEquals(0, status().getInt("depth"));
+    }
+
+    @Test
+    @JvmSetting(key = JvmSettings.INDEX_QUEUE_RETRY_DELAY, value = "60")
+    void failedEntriesAreRetriedAfterABackoff() {
+        enqueue(1L, Priority.INTERACTIVE, false);
+        claim(1);
+
+        assertTrue(inTransaction(() -> sut.failed(1L, "Solr is down")));
+        assertEquals(List.of(), claim(10));
+        assertEquals(1, status().getInt("failing"));
+
+        // a new request does not wait for the backoff
+        enqueue(1L, Priority.INTERACTIVE, false);
+        assertEquals(List.of(1L), claim(10));
+    }
+
+    @Test
+    @JvmSetting(key = JvmSettings.INDEX_QUEUE_RETRY_DELAY, value = "0")
+    @JvmSetting(key = JvmSettings.INDEX_QUEUE_MAX_ATTEMPTS, value = "2")
+    void failedEntriesAreGivenUpAfterMaxAttempts() {
+        enqueue(1L, Priority.INTERACTIVE, false);
+        assertEquals(List.of(1L), claim(10));
+        assertTrue(inTransaction(() -> sut.failed(1L, "Solr is down")));
+        assertEquals(List.of(1L), claim(10));
+        assertFalse(inTransaction(() -> sut.failed(1L, "Solr is down")));
+
+        assertEquals(List.of(), claim(10));
+        JsonObject status = status();
+        assertEquals(0, status.getInt("failing"));
+        assertEquals(1, status.getInt("dead"));
+
+        enqueue(1L, Priority.INTERACTIVE, false);
+        assertEquals(List.of(1L), claim(10));
+    }
+
+    @Test
+    @JvmSetting(key = JvmSettings.INDEX_QUEUE_CLAIM_TIMEOUT, value = "1")
+    void expiredClaimsAreTakenOverUnlessRenewed() throws InterruptedException {
+        enqueue(1L, Priority.INTERACTIVE, false);
+        enqueue(2L, Priority.INTERACTIVE, false);
+        assertEquals(List.of(1L, 2L), claim(10));
+
+        Thread.sleep(1500);
+        inTransaction(() -> {
+            sut.renewClaims(List.of(1L));
+            return null;
+        });
+
+        assertEquals(List.of(2L), claim(10));
+    }
+
+    @Test
+    void removeDropsTheEntry() {
+        enqueue(1L, Priority.BULK, false);
+        inTransaction(() -> {
+            sut.remove(1L);
+            return null;
+        });
+        assertEquals(0, status().getInt("depth"));
+    }
+}
@@ -13,20 +13,26 @@ import edu.harvard.iq.dataverse.util.testing.LocalJvmSettings;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.common.SolrInputDocument;
+import org.eclipse.microprofile.metrics.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import java.io.IOException;
 import java.util.*;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @LocalJvmSettings
@@ -126,6 +132,73 @@ public class IndexServiceBeanTest {
         assertTrue(!doc.get().containsKey("geolocation"));
         assertTrue(!doc.get().containsKey("boundingBox"));
     }
+
+    @Test
+    public void testQueuedIndexingIsRepeatedWhileRequestedAgain() {
+        mockQueue();
+        IndexQueueEntry entry = Mockito.mock(IndexQueueEntry.class);
+        Mockito.when(entry.getDvObjectId()).thenReturn(42L);
+        IndexQueueEntry again = Mockito.mock(IndexQueueEntry.class);
+        Mockito.when(indexService.indexQueueService.claim(1)).thenReturn(List.of(entry));
+        Mockito.when(indexService.indexBatchService.indexQueuedInNewTransaction(entry)).thenReturn(again);
+        Mockito.when(indexService.indexBatchService.indexQueuedInNewTransaction(again)).thenReturn(null);
+
+        assertTrue(indexService.indexNextQueued());
+
+        Mockito.verify(indexService.indexBatchService).indexQueuedInNewTransaction(entry);
+        Mockito.verify(indexService.indexBatchService).indexQueuedInNewTransaction(again);
+        Mockito.verify(indexService.indexQueueService, Mockito.never()).failed(Mockito.anyLong(), Mockito.anyString());
+    }
+
+    @Test
+    public void testQueuedIndexingFailureIsRecorded() {
+        mockQueue();
+        IndexQueueEntry entry = Mockito.mock(IndexQueueEntry.class);
+        Mockito.when(entry.getDvObjectId()).thenReturn(42L);
+        Mockito.when(indexService.indexQueueService.claim(1)).thenReturn(List.of(entry));
+        Mockito.when(indexService.indexBatchService.indexQueuedInNewTransaction(entry)).thenThrow(new IllegalStateException("rolled back"));
+
+        assertTrue(indexService.indexNextQueued());
+
+        Mockito.verify(indexService.indexQueueService).failed(42L, "rolled back");
+    }
+
+    @Test
+    public void testIndexingStartsOnceTheCallerCommits() {
+        mockQueue();
+        indexService.transactionRegistry = Mockito.mock(TransactionSynchronizationRegistry.class);
+        Mockito.when(indexService.transactionRegistry.getTransactionKey()).thenReturn(new Object());
+        Dataset dataset = MocksFactory.makeDataset();
+
+        indexService.asyncIndexDataset(dataset, true);
+        indexService.asyncIndexDataset(dataset, false);
+        ArgumentCaptor<Synchronization> syncs = ArgumentCaptor.forClass(Synchronization.class);
+        Mockito.verify(indexService.transactionRegistry, Mockito.times(2)).registerInterposedSynchronization(syncs.capture());
+        Mockito.verifyNoInteractions(indexService.indexBatchService);
+
+        syncs.getAllValues().get(0).afterCompletion(Status.STATUS_COMMITTED);
+        syncs.getAllValues().get(1).afterCompletion(Status.STATUS_ROLLEDBACK);
+        Mockito.verify(indexService.indexBatchService).indexDatasetInBackground(dataset, true);
+        Mockito.verifyNoMoreInteractions(indexService.indexBatchService);
+    }
+
+    @Test
+    public void testNothingQueued() {
+        mockQueue();
+        Mockito.when(indexService.indexQueueService.claim(1)).thenReturn(List.of());
+
+        assertFalse(indexService.indexNextQueued());
+
+        Mockito.verifyNoInteractions(indexService.indexBatchService);
+    }
+
+    private void mockQueue() {
+        indexService.indexQueueService = Mockito.mock(IndexQueueServiceBean.class);
+        indexService.indexBatchService = Mockito.mock(IndexBatchServiceBean.class);
+        indexService.indexTimer = Mockito.mock(Timer.class);
+        Mockito.lenient().when(indexService.indexTimer.time()).thenReturn(Mockito.mock(Timer.Context.class));
+    }
+
     private DatasetField constructBoundingBoxValue(String datasetFieldTypeName, String value) {
         DatasetField retVal = new DatasetField();
         retVal.setDatasetFieldType(new DatasetFieldType(datasetFieldTypeName, DatasetFieldType.FieldType.TEXT, false));
@@ -0,0 +1,89 @@
+package edu.harvard.iq.dataverse.search;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.Dataset;
+import edu.harvard.iq.dataverse.DatasetVersionServiceBean;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+
+public class SearchCardServiceBeanTest {
+
+    private SearchCardServiceBean sut;
+
+    @BeforeEach
+    public void setUp() {
+        sut = new SearchCardServiceBean();
+        sut.datasetVersionService = Mockito.mock(DatasetVersionServiceBean.class);
+    }
+
+    @Test
+    public void testPublishedVersionThumbnailsAreCached() {
+        Mockito.when(sut.datasetVersionService.getGeneratedThumbnailsByVersionIds(anyCollection())).thenReturn(Map.of(1L, 11L));
+        List<SolrSearchResult> page = List.of(datasetCard(1L, true), datasetCard(2L, true), datasetCard(3L, false));
+
+        assertEquals(Map.of(1L, 11L), sut.findVersionThumbnails(page));
+        Mockito.verify(sut.datasetVersionService).getGeneratedThumbnailsByVersionIds(Set.of(1L, 2L, 3L));
+
+        // version 2 has no generated thumbnail, nor could one be selected
+        assertNull(sut.getVersionThumbnail(2L, true));
+        assertNull(sut.getVersionThumbnail(2L, true));
+        Mockito.verify(sut.datasetVersionService, Mockito.times(1)).getThumbnailByVersionId(2L);
+
+        // the draft is looked up again, the published versions are not
+        Map<Long, Long> thumbnails = sut.findVersionThumbnails(page);
+        Mockito.verify(sut.datasetVersionService).getGeneratedThumbnailsByVersionIds(Set.of(3L));
+        assertEquals(11L, thumbnails.get(1L));
+        assertTrue(thumbnails.containsKey(2L));
+        assertNull(thumbnails.get(2L));
+    }
+
+    @Test
+    public void testDraftVersionThumbnailsAreNotCached() {
+        Mockito.when(sut.datasetVersionService.getThumbnailByVersionId(3L)).thenReturn(33L);
+
+        assertEquals(33L, sut.getVersionThumbnail(3L, false));
+        assertEquals(33L, sut.getVersionThumbnail(3L, false));
+        Mockito.verify(sut.datasetVersionService, Mockito.times(2)).getThumbnailByVersionId(3L);
+    }
+
+    @Test
+    public void testNeedsVersionThumbnail() {
+        assertTrue(SearchCardServiceBean.needsVersionThumbnail(datasetCard(1L, true)));
+
+        SolrSearchResult harvested = datasetCard(1L, true);
+        harvested.setHarvested(true);
+        assertFalse(SearchCardServiceBean.needsVersionThumbnail(harvested));
+
+        SolrSearchResult generic = datasetCard(1L, true);
+        ((Dataset) generic.getEntity()).setUseGenericThumbnail(true);
+        assertFalse(SearchCardServiceBean.needsVersionThumbnail(generic));
+
+        SolrSearchResult assigned = datasetCard(1L, true);
+        ((Dataset) assigned.getEntity()).setThumbnailFile(new DataFile());
+        assertFalse(SearchCardServiceBean.needsVersionThumbnail(assigned));
+
+        SolrSearchResult missing = datasetCard(1L, true);
+        missing.setEntity(null);
+        assertFalse(SearchCardServiceBean.needsVersionThumbnail(missing));
+    }
+
+    private static SolrSearchResult datasetCard(long versionId, boolean published) {
+        SolrSearchResult card = new SolrSearchResult("", "Dataset " + versionId);
+        card.setType("datasets");
+        card.setEntityId(100L + versionId);
+        card.setDatasetVersionId(versionId);
+        card.setPublishedState(published);
+        card.setEntity(new Dataset());
+        return card;
+    }
+}
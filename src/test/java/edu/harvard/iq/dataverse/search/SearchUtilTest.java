@@ -8,6 +8,8 @@ package edu.harvard.iq.dataverse.search;
 import edu.harvard.iq.dataverse.DatasetFieldConstant;
 import java.sql.Timestamp;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import org.apache.solr.common.SolrInputDocument;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -44,6 +46,22 @@ public class SearchUtilTest {
         assertEquals(SearchFields.DISCOVERABLE_BY + "=" + Arrays.asList(IndexServiceBean.getPublicGroupString()), solrInputDocument.get(SearchFields.DISCOVERABLE_BY).toString());
     }
 
+    @Test
+    public void testCreatePermissionUpdate() {
+        String solrId = "dataset_12345_draft" + IndexServiceBean.discoverabilityPermissionSuffix;
+        assertNull(SearchUtil.createPermissionUpdate(solrId, List.of("group_1", "group_user2"), List.of("group_user2", "group_1")));
+
+        SolrInputDocument update = SearchUtil.createPermissionUpdate(solrId, List.of("group_1", "group_user2"), List.of("group_1", "group_user3"));
+        assertEquals(solrId, update.getFieldValue(SearchFields.ID));
+        assertEquals(Map.of("add-distinct", List.of("group_user3"), "remove", List.of("group_user2")), update.getFieldValue(SearchFields.DISCOVERABLE_BY));
+
+        update = SearchUtil.createPermissionUpdate(solrId, null, List.of("group_1"));
+        assertEquals(Map.of("add-distinct", List.of("group_1")), update.getFieldValue(SearchFields.DISCOVERABLE_BY));
+
+        update = SearchUtil.createPermissionUpdate(solrId, List.of("group_1"), List.of());
+        assertEquals(Map.of("remove", List.of("group_1")), update.getFieldValue(SearchFields.DISCOVERABLE_BY));
+    }
+
     @Test
     public void testGetTimestampOrNull() {
         assertNull(SearchUtil.getTimestampOrNull(null));
@@ -0,0 +1,40 @@
+package edu.harvard.iq.dataverse.search;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SubtreeIndexServiceBeanTest {
+
+    @Test
+    public void testCumulativePaths() {
+        assertEquals(List.of("/2", "/2/5", "/2/5/9"), SubtreeIndexServiceBean.cumulativePaths(List.of(2L, 5L, 9L)));
+        assertEquals(List.of(), SubtreeIndexServiceBean.cumulativePaths(List.of()));
+    }
+
+    @Test
+    public void testSubtreePathsWithoutLinks() {
+        List<String> paths = SubtreeIndexServiceBean.subtreePaths(List.of(2L, 5L), 20L, Map.of(), id -> List.of("/" + id));
+        assertEquals(List.of("/2", "/2/5"), paths);
+    }
+
+    @Test
+    public void testSubtreePathsWithLinks() {
+        // dataverse 5 is linked in dataverse 7, the object itself in dataverse 8 (under 3)
+        Map<Long, List<Long>> linkingDataverses = Map.of(5L, List.of(7L), 20L, List.of(8L));
+        Map<Long, List<String>> linkingPaths = Map.of(7L, List.of("/7"), 8L, List.of("/3", "/3/8"));
+
+        List<String> paths = SubtreeIndexServiceBean.subtreePaths(List.of(2L, 5L), 20L, linkingDataverses, linkingPaths::get);
+        assertEquals(List.of("/2", "/2/5", "/7", "/3", "/3/8"), paths);
+    }
+
+    @Test
+    public void testSubtreePathsAreNotRepeated() {
+        Map<Long, List<Long>> linkingDataverses = Map.of(5L, List.of(2L));
+
+        List<String> paths = SubtreeIndexServiceBean.subtreePaths(List.of(2L, 5L), 20L, linkingDataverses, id -> List.of("/" + id));
+        assertEquals(List.of("/2", "/2/5"), paths);
+    }
+}
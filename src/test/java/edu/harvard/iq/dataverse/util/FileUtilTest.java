@@ -4,8 +4,11 @@ import edu.harvard.iq.dataverse.*;
 import edu.harvard.iq.dataverse.license.License;
 import edu.harvard.iq.dataverse.util.FileUtil.FileCitationExtension;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.net.URI;
 import java.util.logging.Level;
@@ -17,6 +20,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -400,6 +404,28 @@ public class FileUtilTest {
         assertEquals("application/octet-stream", contentType);
     }
 
+    @Test
+    public void testNetcdfOrHdf5Signature() {
+        assertTrue(FileUtil.hasNetcdfOrHdf5Signature(new File("src/test/resources/netcdf/madis-raob")));
+        assertTrue(FileUtil.hasNetcdfOrHdf5Signature(new File("src/test/resources/netcdf/ICOADS_R3.0.0_1662-10.nc")));
+        assertTrue(FileUtil.hasNetcdfOrHdf5Signature(new File("src/test/resources/hdf/hdf5/vlen_string_dset")));
+        assertFalse(FileUtil.hasNetcdfOrHdf5Signature(new File("src/test/resources/hdf/hdf4/hdf4test")));
+        assertFalse(FileUtil.hasNetcdfOrHdf5Signature(new File("src/test/resources/fileutil/ro-crate-metadata.json")));
+    }
+
+    @Test
+    public void testCopyAndCalculateChecksum() throws IOException {
+        byte[] bytes = "Some bytes to upload".getBytes();
+        Path target = Files.createTempFile("checksum", "test");
+        try {
+            String checksum = FileUtil.copyAndCalculateChecksum(new ByteArrayInputStream(bytes), target, DataFile.ChecksumType.MD5);
+            assertEquals(FileUtil.calculateChecksum(bytes, DataFile.ChecksumType.MD5), checksum);
+            assertArrayEquals(bytes, Files.readAllBytes(target));
+        } finally {
+            Files.delete(target);
+        }
+    }
+
     @Test
     public void testGZipFile() throws IOException {
         String path = "src/test/resources/fits/";
@@ -10,6 +10,7 @@ import edu.harvard.iq.dataverse.privateurl.PrivateUrl;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import edu.harvard.iq.dataverse.UserNotification.Type;
 
+import java.io.StringWriter;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -19,10 +20,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
 import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.json.JsonString;
+import jakarta.json.stream.JsonGenerator;
 
 import edu.harvard.iq.dataverse.util.BundleUtil;
 import org.junit.jupiter.api.Test;
@@ -138,6 +142,40 @@ public class JsonPrinterTest {
         assertEquals(PrivateUrlUser.PREFIX + "42", jsonObject.getJsonObject("roleAssignment").getString("assignee"));
     }
 
+    @Test
+    public void testWriteFileMetadatasInPages() {
+        List<FileMetadata> fmds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            DatasetVersion dsVersion = new DatasetVersion();
+            dsVersion.setId(Long.MIN_VALUE);
+            DataFile dataFile = new DataFile();
+            dataFile.setProtocol("doi");
+            dataFile.setAuthority("10.5072/FK2");
+            dataFile.setIdentifier("ABC12" + i);
+            FileMetadata fmd = new FileMetadata();
+            fmd.setLabel("file" + i + ".txt");
+            fmd.setDatasetVersion(dsVersion);
+            fmd.setDataFile(dataFile);
+            fmd.setVersion(Long.MIN_VALUE);
+            fmd.setCategories(new ArrayList<>());
+            fmds.add(fmd);
+        }
+
+        List<Integer> requestedOffsets = new ArrayList<>();
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = Json.createGenerator(out)) {
+            JsonPrinter.writeFileMetadatas(generator, 2, (offset, limit) -> {
+                requestedOffsets.add(offset);
+                return fmds.subList(offset, Math.min(offset + limit, fmds.size()));
+            });
+        }
+
+        assertEquals(Arrays.asList(0, 2, 4), requestedOffsets);
+        JsonArray streamed = JsonUtil.getJsonArray(out.toString());
+        assertEquals(JsonPrinter.jsonFileMetadatas(fmds).build(), streamed);
+        assertEquals("file4.txt", streamed.getJsonObject(4).getString("label"));
+    }
+
     @Test
     public void testGetFileCategories() {
         FileMetadata fmd = new FileMetadata();